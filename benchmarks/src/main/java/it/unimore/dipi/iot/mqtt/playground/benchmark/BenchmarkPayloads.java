@@ -0,0 +1,52 @@
+package it.unimore.dipi.iot.mqtt.playground.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import it.unimore.dipi.iot.mqtt.playground.model.DeviceDescriptor;
+import it.unimore.dipi.iot.mqtt.playground.model.MessageDescriptor;
+import it.unimore.dipi.iot.mqtt.playground.performance.DelayMessageDescriptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Sample payloads shaped like the ones generated by the producers, optionally padded with
+ * an additional field ignored by the consumers
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:26
+ */
+public final class BenchmarkPayloads {
+
+    public static final String SENSOR_TYPE = "ENGINE_TEMPERATURE_SENSOR";
+
+    private static final Gson gson = new Gson();
+
+    private BenchmarkPayloads() {
+    }
+
+    public static byte[] messagePayload(int paddingBytes) {
+        return pad(gson.toJsonTree(new MessageDescriptor(1603280473123L, SENSOR_TYPE, 87.40813527428046)).getAsJsonObject(), paddingBytes);
+    }
+
+    public static byte[] delayMessagePayload(int paddingBytes) {
+        return pad(gson.toJsonTree(new DelayMessageDescriptor(1603280473123L, SENSOR_TYPE, 87.40813527428046, 4242L, 1603280473120L)).getAsJsonObject(), paddingBytes);
+    }
+
+    public static byte[] devicePayload(int paddingBytes) {
+        return pad(gson.toJsonTree(new DeviceDescriptor("7b1f4a38-3c2e-4d6b-9b1e-2f0c8e5a6d11", "ACME_CORPORATION", "0.1-beta")).getAsJsonObject(), paddingBytes);
+    }
+
+    private static byte[] pad(JsonObject jsonObject, int paddingBytes) {
+
+        if(paddingBytes > 0){
+            char[] padding = new char[paddingBytes];
+            Arrays.fill(padding, 'x');
+            jsonObject.addProperty("padding", new String(padding));
+        }
+
+        return gson.toJson(jsonObject).getBytes(StandardCharsets.UTF_8);
+    }
+
+}
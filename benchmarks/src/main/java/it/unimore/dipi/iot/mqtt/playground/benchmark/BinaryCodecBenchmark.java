@@ -0,0 +1,69 @@
+package it.unimore.dipi.iot.mqtt.playground.benchmark;
+
+import it.unimore.dipi.iot.mqtt.playground.codec.BinaryMessageCodec;
+import it.unimore.dipi.iot.mqtt.playground.codec.SensorTypeRegistry;
+import it.unimore.dipi.iot.mqtt.playground.model.MessageDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the binary MessageDescriptor codec, to be compared with JsonEncodeBenchmark and JsonDecodeBenchmark.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:32
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BinaryCodecBenchmark {
+
+    private static final int VALUE_COUNT = 1024;
+
+    private final BinaryMessageCodec codec = new BinaryMessageCodec();
+
+    private final byte[][] payloads = new byte[VALUE_COUNT][];
+
+    private final double[] sensorValues = new double[VALUE_COUNT];
+
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        for(int i = 0; i < VALUE_COUNT; i++){
+            sensorValues[i] = 80 + random.nextDouble() * 20.0;
+            payloads[i] = codec.encode(System.currentTimeMillis(), SensorTypeRegistry.ENGINE_TEMPERATURE_SENSOR, sensorValues[i]);
+        }
+    }
+
+    private int nextIndex() {
+        index = (index + 1) & (VALUE_COUNT - 1);
+        return index;
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(System.currentTimeMillis(), SensorTypeRegistry.ENGINE_TEMPERATURE_SENSOR, sensorValues[nextIndex()]);
+    }
+
+    @Benchmark
+    public MessageDescriptor decode() {
+        return codec.decode(payloads[nextIndex()]);
+    }
+
+}
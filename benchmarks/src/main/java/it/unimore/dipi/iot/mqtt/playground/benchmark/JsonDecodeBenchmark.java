@@ -0,0 +1,103 @@
+package it.unimore.dipi.iot.mqtt.playground.benchmark;
+
+import it.unimore.dipi.iot.mqtt.playground.codec.MessageJsonParser;
+import it.unimore.dipi.iot.mqtt.playground.codec.SensorReading;
+import it.unimore.dipi.iot.mqtt.playground.model.DeviceDescriptor;
+import it.unimore.dipi.iot.mqtt.playground.model.MessageDescriptor;
+import it.unimore.dipi.iot.mqtt.playground.performance.DelayMessageDescriptor;
+import it.unimore.dipi.iot.mqtt.playground.performance.DelayStatsMqttConsumer;
+import it.unimore.dipi.iot.mqtt.playground.process.DeviceConsumer;
+import it.unimore.dipi.iot.mqtt.playground.process.JsonConsumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and allocation of the per-message JSON decoding paths of the consumers.
+ * The paddingBytes parameter appends an unknown field of the given size to the payloads
+ * in order to measure how the parsing cost scales with the payload size.
+ * Run with -prof gc to get the allocation rate per operation.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:26
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonDecodeBenchmark {
+
+    @Param({"0", "256", "4096"})
+    public int paddingBytes;
+
+    private byte[] messagePayload;
+
+    private byte[] delayMessagePayload;
+
+    private byte[] devicePayload;
+
+    private final MessageJsonParser jsonParser = new MessageJsonParser();
+
+    private final SensorReading reading = new SensorReading();
+
+    @Setup
+    public void setup() {
+        messagePayload = BenchmarkPayloads.messagePayload(paddingBytes);
+        delayMessagePayload = BenchmarkPayloads.delayMessagePayload(paddingBytes);
+        devicePayload = BenchmarkPayloads.devicePayload(paddingBytes);
+    }
+
+    //JsonConsumer creates a new Gson instance for each message
+    @Benchmark
+    public MessageDescriptor jsonConsumer() {
+        return JsonConsumer.parseJsonMessage(messagePayload);
+    }
+
+    //DeviceConsumer reuses a static Gson instance
+    @Benchmark
+    public MessageDescriptor deviceConsumer() {
+        return DeviceConsumer.parseJsonMessage(messagePayload);
+    }
+
+    @Benchmark
+    public DeviceDescriptor deviceConsumerDeviceInfo() {
+        return DeviceConsumer.parseDeviceJsonMessage(devicePayload);
+    }
+
+    @Benchmark
+    public MessageDescriptor delayStatsConsumer() {
+        return DelayStatsMqttConsumer.parseJsonMessage(messagePayload);
+    }
+
+    @Benchmark
+    public DelayMessageDescriptor delayStatsConsumerOpenLoop() {
+        return DelayStatsMqttConsumer.parseDelayJsonMessage(delayMessagePayload);
+    }
+
+    //Byte-level parser filling a reusable reading
+    @Benchmark
+    public SensorReading byteParser() {
+        jsonParser.parse(messagePayload, reading);
+        return reading;
+    }
+
+    @Benchmark
+    public SensorReading byteParserOpenLoop() {
+        jsonParser.parse(delayMessagePayload, reading);
+        return reading;
+    }
+
+}
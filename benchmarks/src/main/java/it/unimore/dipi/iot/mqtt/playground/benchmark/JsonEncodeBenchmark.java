@@ -0,0 +1,97 @@
+package it.unimore.dipi.iot.mqtt.playground.benchmark;
+
+import it.unimore.dipi.iot.mqtt.playground.codec.MessageJsonEncoder;
+import it.unimore.dipi.iot.mqtt.playground.performance.DelayStatMqttProducer;
+import it.unimore.dipi.iot.mqtt.playground.process.DeviceProducer;
+import it.unimore.dipi.iot.mqtt.playground.process.JsonProducer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and allocation of the per-message JSON encoding paths of the producers
+ * (buildJsonMessage followed by the getBytes() done by publishData).
+ * Run with -prof gc to get the allocation rate per operation.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:26
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonEncodeBenchmark {
+
+    private static final int VALUE_COUNT = 1024;
+
+    private final double[] sensorValues = new double[VALUE_COUNT];
+
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        //Same value model of the EngineTemperatureSensor
+        SplittableRandom random = new SplittableRandom(42);
+        for(int i = 0; i < VALUE_COUNT; i++)
+            sensorValues[i] = 80 + random.nextDouble() * 20.0;
+    }
+
+    private double nextValue() {
+        index = (index + 1) & (VALUE_COUNT - 1);
+        return sensorValues[index];
+    }
+
+    //JsonProducer creates a new Gson instance for each message
+    @Benchmark
+    public byte[] jsonProducer() {
+        return JsonProducer.buildJsonMessage(nextValue()).getBytes();
+    }
+
+    //DeviceProducer reuses a static Gson instance
+    @Benchmark
+    public byte[] deviceProducer() {
+        return DeviceProducer.buildJsonMessage(nextValue()).getBytes();
+    }
+
+    @Benchmark
+    public byte[] delayStatProducer() {
+        return DelayStatMqttProducer.buildJsonMessage(nextValue()).getBytes();
+    }
+
+    //Open loop message carrying also sequence number and intended send time
+    @Benchmark
+    public byte[] delayStatProducerOpenLoop() {
+        return DelayStatMqttProducer.buildJsonMessage(index, System.currentTimeMillis(), nextValue()).getBytes();
+    }
+
+    //Streaming encoder including the copy of the payload handed to the MqttMessage
+    @Benchmark
+    public byte[] streamingEncoder() {
+        return MessageJsonEncoder.encodeMessage(System.currentTimeMillis(), "ENGINE_TEMPERATURE_SENSOR", nextValue()).toByteArray();
+    }
+
+    //Streaming encoder writing into the reused per-thread buffer (no allocation)
+    @Benchmark
+    public int streamingEncoderNoCopy() {
+        return MessageJsonEncoder.encodeMessage(System.currentTimeMillis(), "ENGINE_TEMPERATURE_SENSOR", nextValue()).size();
+    }
+
+    @Benchmark
+    public byte[] streamingEncoderOpenLoop() {
+        return MessageJsonEncoder.encodeDelayMessage(System.currentTimeMillis(), "ENGINE_TEMPERATURE_SENSOR", nextValue(), index, System.currentTimeMillis()).toByteArray();
+    }
+
+}
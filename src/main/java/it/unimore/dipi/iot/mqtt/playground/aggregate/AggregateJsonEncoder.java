@@ -0,0 +1,55 @@
+package it.unimore.dipi.iot.mqtt.playground.aggregate;
+
+import it.unimore.dipi.iot.mqtt.playground.codec.JsonByteWriter;
+
+/**
+ * Streaming JSON encoder of the AggregateRollup published on the aggregate topics, e.g.
+ * {"type":"ENGINE_TEMPERATURE_SENSOR","tumbling":{"windowStart":..,"windowEnd":..,"count":10,"min":..,"max":..,"avg":..,"last":..,"lastTimestamp":..},"sliding":{..}}
+ *
+ * As for MessageJsonEncoder the returned writer is reused by the same thread.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:11
+ */
+public final class AggregateJsonEncoder {
+
+    private static final ThreadLocal<JsonByteWriter> threadWriter = ThreadLocal.withInitial(JsonByteWriter::new);
+
+    private AggregateJsonEncoder() {
+    }
+
+    /**
+     * @param rollup
+     * @return the per-thread writer containing the JSON document
+     */
+    public static JsonByteWriter encode(AggregateRollup rollup) {
+
+        JsonByteWriter writer = threadWriter.get()
+                .reset()
+                .beginObject()
+                .field("type", rollup.getType());
+
+        writer.name("tumbling");
+        writeWindow(writer, rollup.getTumbling());
+
+        writer.name("sliding");
+        writeWindow(writer, rollup.getSliding());
+
+        return writer.endObject();
+    }
+
+    private static void writeWindow(JsonByteWriter writer, WindowAggregate window) {
+        writer.beginObject()
+                .field("windowStart", window.getWindowStart())
+                .field("windowEnd", window.getWindowEnd())
+                .field("count", window.getCount())
+                .field("min", window.getMin())
+                .field("max", window.getMax())
+                .field("avg", window.getAverage())
+                .field("last", window.getLast())
+                .field("lastTimestamp", window.getLastTimestamp())
+                .endObject();
+    }
+
+}
@@ -0,0 +1,59 @@
+package it.unimore.dipi.iot.mqtt.playground.aggregate;
+
+/**
+ * Rollup of a series emitted by the WindowedAggregator when a tumbling window is closed: the statistics of
+ * the tumbling window and of the sliding window ending with it.
+ * The instance is reused by the aggregator and is valid only during the AggregateSink callback.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:11
+ */
+public class AggregateRollup {
+
+    private String seriesTopic;
+
+    private String aggregateTopic;
+
+    private String type;
+
+    private final WindowAggregate tumbling = new WindowAggregate();
+
+    private final WindowAggregate sliding = new WindowAggregate();
+
+    void set(String seriesTopic, String aggregateTopic, String type) {
+        this.seriesTopic = seriesTopic;
+        this.aggregateTopic = aggregateTopic;
+        this.type = type;
+    }
+
+    /**
+     * @return the telemetry topic of the series without format suffix, e.g. device/00001/sensor/temperature
+     */
+    public String getSeriesTopic() {
+        return seriesTopic;
+    }
+
+    /**
+     * @return the topic on which the rollup has to be published, e.g. device/00001/sensor/temperature/agg
+     */
+    public String getAggregateTopic() {
+        return aggregateTopic;
+    }
+
+    /**
+     * @return the sensor type of the last reading of the series
+     */
+    public String getType() {
+        return type;
+    }
+
+    public WindowAggregate getTumbling() {
+        return tumbling;
+    }
+
+    public WindowAggregate getSliding() {
+        return sliding;
+    }
+
+}
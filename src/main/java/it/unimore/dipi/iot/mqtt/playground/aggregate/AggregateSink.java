@@ -0,0 +1,17 @@
+package it.unimore.dipi.iot.mqtt.playground.aggregate;
+
+/**
+ * Receiver of the rollups emitted by the WindowedAggregator, invoked by the thread closing the windows
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:11
+ */
+public interface AggregateSink {
+
+    /**
+     * @param rollup reused instance, valid only during the call
+     */
+    void onRollup(AggregateRollup rollup);
+
+}
@@ -0,0 +1,98 @@
+package it.unimore.dipi.iot.mqtt.playground.aggregate;
+
+/**
+ * Mutable holder of the statistics of the readings of a series falling into a time window [windowStart, windowEnd)
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:11
+ */
+public class WindowAggregate {
+
+    private long windowStart;
+
+    private long windowEnd;
+
+    private long count;
+
+    private double min;
+
+    private double max;
+
+    private double sum;
+
+    private double last;
+
+    private long lastTimestamp;
+
+    public WindowAggregate clear(long windowStart, long windowEnd) {
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.count = 0;
+        this.min = Double.POSITIVE_INFINITY;
+        this.max = Double.NEGATIVE_INFINITY;
+        this.sum = 0.0;
+        this.last = 0.0;
+        this.lastTimestamp = Long.MIN_VALUE;
+        return this;
+    }
+
+    /**
+     * Merge the statistics of a pane of the window
+     */
+    void merge(long count, double min, double max, double sum, double last, long lastTimestamp) {
+
+        if(count == 0)
+            return;
+
+        this.count += count;
+        this.min = Math.min(this.min, min);
+        this.max = Math.max(this.max, max);
+        this.sum += sum;
+
+        if(lastTimestamp >= this.lastTimestamp){
+            this.last = last;
+            this.lastTimestamp = lastTimestamp;
+        }
+    }
+
+    public long getWindowStart() {
+        return windowStart;
+    }
+
+    public long getWindowEnd() {
+        return windowEnd;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getAverage() {
+        return count > 0 ? sum / count : 0.0;
+    }
+
+    /**
+     * @return the value of the reading with the latest event time
+     */
+    public double getLast() {
+        return last;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+}
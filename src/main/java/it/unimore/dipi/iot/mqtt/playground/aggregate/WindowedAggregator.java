@@ -0,0 +1,491 @@
+package it.unimore.dipi.iot.mqtt.playground.aggregate;
+
+import it.unimore.dipi.iot.mqtt.playground.codec.PayloadFormat;
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsRegistry;
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streaming aggregation of the telemetry readings per series (a telemetry topic without format suffix,
+ * e.g. device/00001/sensor/temperature) over event-time windows.
+ *
+ * The time axis is divided into panes of tumblingWindowMs: each pane is a tumbling window and the sliding
+ * window of slidingWindowMs ending with a pane is obtained merging the last slidingWindowMs / tumblingWindowMs panes.
+ * Count, min, max, sum and last value of each pane are kept in primitive arrays indexed by series and pane slot,
+ * so that adding a reading does not allocate.
+ *
+ * Event time is the timestamp of the reading. The watermark follows the wall clock delayed by allowedLatenessMs:
+ * the panes ending before the watermark are closed by advance() and emitted to the AggregateSink as an AggregateRollup,
+ * readings of closed panes are discarded as late and readings too far in the future are rejected.
+ *
+ * Readings of different series can be added concurrently (e.g. by the lanes of a ShardedMessageDispatcher),
+ * the series are guarded by striped locks.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:11
+ */
+public class WindowedAggregator implements WindowedAggregatorMBean, MetricsSource {
+
+    private final static Logger logger = LoggerFactory.getLogger(WindowedAggregator.class);
+
+    //Suffix of the topics on which the rollups of a series are published
+    public static final String AGGREGATE_TOPIC_SUFFIX = "/agg";
+
+    //Panes accepted beyond the watermark, in addition to the allowed lateness (tolerating clock skews of the devices)
+    private static final int FUTURE_PANES = 2;
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final String name;
+
+    private final long paneMs;
+
+    private final int slidingPanes;
+
+    private final long allowedLatenessMs;
+
+    //Panes that can receive readings: from the watermark to the latest accepted event time
+    private final int openPanes;
+
+    //Pane slots of each series: the closed panes of the sliding window and the open ones
+    private final int ringSize;
+
+    private final int maxSeries;
+
+    private final AggregateSink sink;
+
+    private final ConcurrentHashMap<String, Integer> seriesIndexMap = new ConcurrentHashMap<>();
+
+    private final String[] seriesTopics;
+
+    private final String[] aggregateTopics;
+
+    private final String[] seriesTypes;
+
+    private volatile int seriesCount = 0;
+
+    //Pane statistics, indexed by series * ringSize + slot
+    private final long[] paneStarts;
+
+    private final long[] paneCounts;
+
+    private final double[] paneMins;
+
+    private final double[] paneMaxs;
+
+    private final double[] paneSums;
+
+    private final double[] paneLasts;
+
+    private final long[] paneLastTimestamps;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    //Start of the oldest open pane: panes before it have been emitted
+    private volatile long closedUpTo;
+
+    //Start of the latest pane that received a reading
+    private final AtomicLong maxAcceptedPaneStart = new AtomicLong(Long.MIN_VALUE);
+
+    private final AggregateRollup rollup = new AggregateRollup();
+
+    private final LongAdder acceptedCount = new LongAdder();
+
+    private final LongAdder lateCount = new LongAdder();
+
+    private final LongAdder futureCount = new LongAdder();
+
+    private final LongAdder seriesOverflowCount = new LongAdder();
+
+    private final LongAdder rollupCount = new LongAdder();
+
+    private ScheduledExecutorService advanceExecutor = null;
+
+    /**
+     * @param name aggregator name, used for the MBean
+     * @param tumblingWindowMs size of the tumbling windows (and slide of the sliding windows)
+     * @param slidingWindowMs size of the sliding windows, multiple of tumblingWindowMs
+     * @param allowedLatenessMs delay of the watermark with respect to the wall clock
+     * @param maxSeries maximum number of aggregated series (readings of further series are discarded)
+     * @param sink receiver of the rollups
+     */
+    public WindowedAggregator(String name, long tumblingWindowMs, long slidingWindowMs, long allowedLatenessMs, int maxSeries, AggregateSink sink) {
+
+        if(tumblingWindowMs <= 0 || slidingWindowMs < tumblingWindowMs || slidingWindowMs % tumblingWindowMs != 0)
+            throw new IllegalArgumentException("slidingWindowMs must be a positive multiple of tumblingWindowMs");
+
+        if(allowedLatenessMs < 0 || maxSeries <= 0)
+            throw new IllegalArgumentException("allowedLatenessMs must be >= 0 and maxSeries > 0");
+
+        this.name = name;
+        this.paneMs = tumblingWindowMs;
+        this.slidingPanes = (int) (slidingWindowMs / tumblingWindowMs);
+        this.allowedLatenessMs = allowedLatenessMs;
+        this.openPanes = (int) ((allowedLatenessMs + tumblingWindowMs - 1) / tumblingWindowMs) + FUTURE_PANES;
+        this.ringSize = slidingPanes + openPanes;
+        this.maxSeries = maxSeries;
+        this.sink = sink;
+
+        this.seriesTopics = new String[maxSeries];
+        this.aggregateTopics = new String[maxSeries];
+        this.seriesTypes = new String[maxSeries];
+
+        int slots = maxSeries * ringSize;
+        this.paneStarts = new long[slots];
+        this.paneCounts = new long[slots];
+        this.paneMins = new double[slots];
+        this.paneMaxs = new double[slots];
+        this.paneSums = new double[slots];
+        this.paneLasts = new double[slots];
+        this.paneLastTimestamps = new long[slots];
+        Arrays.fill(paneStarts, Long.MIN_VALUE);
+
+        for(int i = 0; i < LOCK_STRIPES; i++)
+            locks[i] = new Object();
+
+        this.closedUpTo = paneStartOf(System.currentTimeMillis() - allowedLatenessMs);
+    }
+
+    /**
+     * Start closing the windows every tickMs on a daemon thread and register the metrics
+     */
+    public synchronized void start(long tickMs) {
+
+        if(advanceExecutor != null)
+            return;
+
+        advanceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "aggregator-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        advanceExecutor.scheduleAtFixedRate(() -> {
+            try{
+                advance(System.currentTimeMillis());
+            }catch (Exception e){
+                logger.error("Error closing the windows of aggregator {} ! Error: {}", name, e.getLocalizedMessage());
+            }
+        }, tickMs, tickMs, TimeUnit.MILLISECONDS);
+
+        MetricsRegistry.register(this, "WindowedAggregator");
+
+        logger.info("WindowedAggregator {} started -> Tumbling: {} ms Sliding: {} ms Lateness: {} ms Max Series: {}",
+                name, paneMs, getSlidingWindowMs(), allowedLatenessMs, maxSeries);
+    }
+
+    /**
+     * Stop closing the windows and emit all the open ones
+     */
+    public synchronized void stop() throws InterruptedException {
+
+        if(advanceExecutor == null)
+            return;
+
+        advanceExecutor.shutdown();
+        advanceExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        advanceExecutor = null;
+
+        flush();
+
+        MetricsRegistry.unregister(this);
+    }
+
+    /**
+     * @param topic telemetry topic
+     * @return true if the topic carries rollups, that must not be aggregated again
+     */
+    public static boolean isAggregateTopic(String topic) {
+        return topic.endsWith(AGGREGATE_TOPIC_SUFFIX);
+    }
+
+    /**
+     * Add a reading
+     *
+     * @param topic telemetry topic of the reading (JSON and binary topics of a sensor are the same series)
+     * @param type sensor type
+     * @param timestamp event time in milliseconds
+     * @param value
+     * @return true if the reading has been aggregated, false if it is late, too far in the future or the series can not be tracked
+     */
+    public boolean add(String topic, String type, long timestamp, double value) {
+
+        int series = seriesIndex(topic);
+
+        if(series < 0){
+            seriesOverflowCount.increment();
+            return false;
+        }
+
+        long paneStart = paneStartOf(timestamp);
+
+        if(paneStart >= closedUpTo + openPanes * paneMs){
+            futureCount.increment();
+            return false;
+        }
+
+        //Announced before checking the watermark, so that advance() does not skip the pane (see advance)
+        long maxPaneStart = maxAcceptedPaneStart.get();
+        while(paneStart > maxPaneStart && !maxAcceptedPaneStart.compareAndSet(maxPaneStart, paneStart))
+            maxPaneStart = maxAcceptedPaneStart.get();
+
+        synchronized (locks[series % LOCK_STRIPES]) {
+
+            long watermarkPane = closedUpTo;
+
+            if(paneStart < watermarkPane){
+                lateCount.increment();
+                return false;
+            }
+
+            if(paneStart >= watermarkPane + openPanes * paneMs){
+                futureCount.increment();
+                return false;
+            }
+
+            int slot = series * ringSize + (int) Math.floorMod(paneStart / paneMs, (long) ringSize);
+
+            if(paneStarts[slot] != paneStart){
+                paneStarts[slot] = paneStart;
+                paneCounts[slot] = 0;
+                paneMins[slot] = Double.POSITIVE_INFINITY;
+                paneMaxs[slot] = Double.NEGATIVE_INFINITY;
+                paneSums[slot] = 0.0;
+                paneLastTimestamps[slot] = Long.MIN_VALUE;
+            }
+
+            paneCounts[slot]++;
+            paneSums[slot] += value;
+            if(value < paneMins[slot])
+                paneMins[slot] = value;
+            if(value > paneMaxs[slot])
+                paneMaxs[slot] = value;
+            if(timestamp >= paneLastTimestamps[slot]){
+                paneLasts[slot] = value;
+                paneLastTimestamps[slot] = timestamp;
+            }
+
+            seriesTypes[series] = type;
+        }
+
+        acceptedCount.increment();
+        return true;
+    }
+
+    /**
+     * Close the panes ending before the watermark (nowMs - allowedLatenessMs) and emit their rollups.
+     * The watermark is published before emitting a pane, so that readings of the pane arriving meanwhile
+     * are either included in the rollup or discarded as late.
+     *
+     * @param nowMs current wall clock time
+     */
+    public synchronized void advance(long nowMs) {
+
+        long boundary = paneStartOf(nowMs - allowedLatenessMs);
+
+        while(closedUpTo < boundary){
+
+            long paneStart = closedUpTo;
+
+            if(paneStart > maxAcceptedPaneStart.get()){
+
+                //Skip the empty panes after a long pause. add() announces the pane before checking the watermark:
+                //the panes announced meanwhile received readings accepted with the previous watermark
+                closedUpTo = boundary;
+
+                long lastPaneStart = Math.min(maxAcceptedPaneStart.get(), boundary - paneMs);
+                for(long start = paneStart; start <= lastPaneStart; start += paneMs)
+                    emitPane(start);
+
+                break;
+            }
+
+            closedUpTo = paneStart + paneMs;
+            emitPane(paneStart);
+        }
+    }
+
+    /**
+     * Emit all the panes that can hold readings
+     */
+    public synchronized void flush() {
+        advance(closedUpTo + openPanes * paneMs + allowedLatenessMs);
+    }
+
+    private void emitPane(long paneStart) {
+
+        long paneEnd = paneStart + paneMs;
+        int paneSlot = (int) Math.floorMod(paneStart / paneMs, (long) ringSize);
+        int count = seriesCount;
+
+        for(int series = 0; series < count; series++){
+
+            boolean emit;
+
+            synchronized (locks[series % LOCK_STRIPES]) {
+
+                int base = series * ringSize;
+                int slot = base + paneSlot;
+                emit = paneStarts[slot] == paneStart && paneCounts[slot] > 0;
+
+                if(emit){
+
+                    rollup.set(seriesTopics[series], aggregateTopics[series], seriesTypes[series]);
+                    rollup.getTumbling().clear(paneStart, paneEnd)
+                            .merge(paneCounts[slot], paneMins[slot], paneMaxs[slot], paneSums[slot], paneLasts[slot], paneLastTimestamps[slot]);
+
+                    WindowAggregate sliding = rollup.getSliding().clear(paneEnd - slidingPanes * paneMs, paneEnd);
+                    for(int p = 0; p < slidingPanes; p++){
+                        long start = paneStart - p * paneMs;
+                        int s = base + (int) Math.floorMod(start / paneMs, (long) ringSize);
+                        if(paneStarts[s] == start)
+                            sliding.merge(paneCounts[s], paneMins[s], paneMaxs[s], paneSums[s], paneLasts[s], paneLastTimestamps[s]);
+                    }
+                }
+            }
+
+            if(emit){
+                rollupCount.increment();
+                try{
+                    sink.onRollup(rollup);
+                }catch (Exception e){
+                    logger.error("Error emitting the rollup of {} ! Error: {}", seriesTopics[series], e.getLocalizedMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the index of the series of the topic or -1 if maxSeries has been reached
+     */
+    private int seriesIndex(String topic) {
+
+        Integer index = seriesIndexMap.get(topic);
+
+        if(index != null)
+            return index;
+
+        synchronized (seriesIndexMap) {
+
+            index = seriesIndexMap.get(topic);
+            if(index != null)
+                return index;
+
+            //The JSON and binary topics of a sensor share the same series
+            String seriesTopic = topic.endsWith(PayloadFormat.BINARY_TOPIC_SUFFIX) ?
+                    topic.substring(0, topic.length() - PayloadFormat.BINARY_TOPIC_SUFFIX.length()) : topic;
+
+            index = seriesIndexMap.get(seriesTopic);
+
+            if(index == null){
+
+                if(seriesCount >= maxSeries)
+                    return -1;
+
+                index = seriesCount;
+                seriesTopics[index] = seriesTopic;
+                aggregateTopics[index] = seriesTopic + AGGREGATE_TOPIC_SUFFIX;
+                seriesIndexMap.put(seriesTopic, index);
+                seriesCount = index + 1;
+            }
+
+            seriesIndexMap.put(topic, index);
+            return index;
+        }
+    }
+
+    private long paneStartOf(long timestamp) {
+        return Math.floorDiv(timestamp, paneMs) * paneMs;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toSummaryString() {
+        return String.format(Locale.ROOT, "series=%d/%d accepted=%d late=%d future=%d overflow=%d rollups=%d reduction=%.1fx",
+                getSeriesCount(), maxSeries, getAcceptedCount(), getLateCount(), getFutureCount(), getSeriesOverflowCount(),
+                getRollupCount(), getReductionRatio());
+    }
+
+    @Override
+    public long getTumblingWindowMs() {
+        return paneMs;
+    }
+
+    @Override
+    public long getSlidingWindowMs() {
+        return slidingPanes * paneMs;
+    }
+
+    @Override
+    public long getAllowedLatenessMs() {
+        return allowedLatenessMs;
+    }
+
+    @Override
+    public int getMaxSeries() {
+        return maxSeries;
+    }
+
+    @Override
+    public int getSeriesCount() {
+        return seriesCount;
+    }
+
+    /**
+     * @return the start of the oldest pane still accepting readings
+     */
+    @Override
+    public long getWatermark() {
+        return closedUpTo;
+    }
+
+    @Override
+    public long getAcceptedCount() {
+        return acceptedCount.sum();
+    }
+
+    @Override
+    public long getLateCount() {
+        return lateCount.sum();
+    }
+
+    @Override
+    public long getFutureCount() {
+        return futureCount.sum();
+    }
+
+    @Override
+    public long getSeriesOverflowCount() {
+        return seriesOverflowCount.sum();
+    }
+
+    @Override
+    public long getRollupCount() {
+        return rollupCount.sum();
+    }
+
+    /**
+     * @return accepted readings for each published rollup
+     */
+    @Override
+    public double getReductionRatio() {
+        long rollups = getRollupCount();
+        return rollups > 0 ? (double) getAcceptedCount() / rollups : 0.0;
+    }
+
+}
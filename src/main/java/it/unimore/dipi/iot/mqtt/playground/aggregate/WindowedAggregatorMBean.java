@@ -0,0 +1,36 @@
+package it.unimore.dipi.iot.mqtt.playground.aggregate;
+
+/**
+ * JMX management interface of WindowedAggregator
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:11
+ */
+public interface WindowedAggregatorMBean {
+
+    long getTumblingWindowMs();
+
+    long getSlidingWindowMs();
+
+    long getAllowedLatenessMs();
+
+    int getMaxSeries();
+
+    int getSeriesCount();
+
+    long getWatermark();
+
+    long getAcceptedCount();
+
+    long getLateCount();
+
+    long getFutureCount();
+
+    long getSeriesOverflowCount();
+
+    long getRollupCount();
+
+    double getReductionRatio();
+
+}
@@ -0,0 +1,767 @@
+package it.unimore.dipi.iot.mqtt.playground.broker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lightweight MQTT 3.1.1 broker running inside the JVM, meant for tests and benchmarks
+ * that must not depend on an external broker.
+ *
+ * Supported features: CONNECT (3.1 and 3.1.1), PUBLISH with QoS 0, 1 and 2 (PUBREC/PUBREL/PUBCOMP
+ * handshake in both directions), retained messages, SUBSCRIBE/UNSUBSCRIBE with + and # wildcards,
+ * PINGREQ and DISCONNECT. Sessions are always clean, in-flight messages are never retransmitted,
+ * authentication is not enforced and messages are kept in memory only.
+ *
+ * All the connections are served by a single NIO event loop thread, therefore the broker state
+ * does not need any synchronization.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:24
+ */
+public class LoopbackMqttBroker {
+
+    private final static Logger logger = LoggerFactory.getLogger(LoopbackMqttBroker.class);
+
+    //Default port used when the broker is started as a standalone process
+    private static final int DEFAULT_PORT = 1883;
+
+    //Initial size of the per connection read buffer (grown when larger packets are received)
+    private static final int INITIAL_READ_BUFFER_SIZE = 64 * 1024;
+
+    //Maximum QoS granted to subscriptions
+    private static final int MAX_QOS = 2;
+
+    static final int CONNECT = 1;
+    static final int CONNACK = 2;
+    static final int PUBLISH = 3;
+    static final int PUBACK = 4;
+    static final int PUBREC = 5;
+    static final int PUBREL = 6;
+    static final int PUBCOMP = 7;
+    static final int SUBSCRIBE = 8;
+    static final int SUBACK = 9;
+    static final int UNSUBSCRIBE = 10;
+    static final int UNSUBACK = 11;
+    static final int PINGREQ = 12;
+    static final int PINGRESP = 13;
+    static final int DISCONNECT = 14;
+
+    private final String host;
+
+    private final int requestedPort;
+
+    private final Map<String, Session> sessionMap = new HashMap<>();
+
+    private final Map<String, RetainedMessage> retainedMap = new LinkedHashMap<>();
+
+    private final CountDownLatch startLatch = new CountDownLatch(1);
+
+    private Selector selector;
+
+    private ServerSocketChannel serverChannel;
+
+    private Thread eventLoopThread;
+
+    private volatile boolean running = false;
+
+    private volatile int port = -1;
+
+    private volatile long receivedPublishCount = 0;
+
+    private volatile long deliveredPublishCount = 0;
+
+    /**
+     * Create a broker listening on the loopback interface on an ephemeral port
+     */
+    public LoopbackMqttBroker() {
+        this("127.0.0.1", 0);
+    }
+
+    /**
+     * @param host address to bind
+     * @param port port to bind, 0 to use an ephemeral port
+     */
+    public LoopbackMqttBroker(String host, int port) {
+        this.host = host;
+        this.requestedPort = port;
+    }
+
+    public static void main(String[] args) {
+
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+
+        try {
+
+            LoopbackMqttBroker broker = new LoopbackMqttBroker("0.0.0.0", port);
+            broker.start();
+
+            logger.info("LoopbackMqttBroker listening on port {} ...", broker.getPort());
+
+            Runtime.getRuntime().addShutdownHook(new Thread(broker::stop));
+
+            broker.eventLoopThread.join();
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Bind the server socket and start the event loop thread
+     *
+     * @throws IOException
+     */
+    public synchronized void start() throws IOException {
+
+        if(running)
+            return;
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(new InetSocketAddress(host, requestedPort));
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        port = ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        running = true;
+
+        eventLoopThread = new Thread(this::eventLoop, "loopback-mqtt-broker-" + port);
+        eventLoopThread.setDaemon(true);
+        eventLoopThread.start();
+
+        try {
+            startLatch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Close all the connections and stop the event loop
+     */
+    public synchronized void stop() {
+
+        if(!running)
+            return;
+
+        running = false;
+        selector.wakeup();
+
+        try {
+            eventLoopThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return the URL to be used by Paho clients to connect to the broker
+     */
+    public String getBrokerUrl() {
+        String address = "0.0.0.0".equals(host) ? "127.0.0.1" : host;
+        return String.format("tcp://%s:%d", address, port);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getReceivedPublishCount() {
+        return receivedPublishCount;
+    }
+
+    public long getDeliveredPublishCount() {
+        return deliveredPublishCount;
+    }
+
+    private void eventLoop() {
+
+        startLatch.countDown();
+
+        try {
+
+            while(running){
+
+                selector.select();
+
+                Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
+
+                while(keyIterator.hasNext()){
+
+                    SelectionKey key = keyIterator.next();
+                    keyIterator.remove();
+
+                    try {
+
+                        if(!key.isValid())
+                            continue;
+
+                        if(key.isAcceptable())
+                            accept();
+                        else {
+                            if(key.isReadable())
+                                read(key);
+                            if(key.isValid() && key.isWritable())
+                                ((Session) key.attachment()).flush();
+                        }
+
+                    } catch (IOException | RuntimeException e) {
+                        logger.debug("Closing connection after error: {}", e.getLocalizedMessage());
+                        if(key.attachment() != null)
+                            ((Session) key.attachment()).close();
+                    }
+                }
+            }
+
+        } catch (IOException e) {
+            logger.error("Broker event loop failure ! Error: {}", e.getLocalizedMessage());
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void accept() throws IOException {
+
+        SocketChannel channel = serverChannel.accept();
+
+        if(channel == null)
+            return;
+
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Session(channel, key));
+    }
+
+    private void read(SelectionKey key) throws IOException {
+
+        Session session = (Session) key.attachment();
+
+        int read = session.channel.read(session.readBuffer);
+
+        if(read < 0){
+            session.close();
+            return;
+        }
+
+        session.readBuffer.flip();
+
+        while(session.isOpen()){
+
+            ByteBuffer buffer = session.readBuffer;
+            int frameStart = buffer.position();
+
+            if(buffer.remaining() < 2)
+                break;
+
+            //Decode the variable length "remaining length" field
+            int remainingLength = 0;
+            int multiplier = 1;
+            int headerLength = 1;
+            boolean complete = false;
+
+            while(headerLength < 5 && frameStart + headerLength < buffer.limit()){
+                int digit = buffer.get(frameStart + headerLength) & 0xFF;
+                remainingLength += (digit & 0x7F) * multiplier;
+                multiplier *= 128;
+                headerLength++;
+                if((digit & 0x80) == 0){
+                    complete = true;
+                    break;
+                }
+            }
+
+            if(!complete){
+                if(headerLength >= 5)
+                    throw new IOException("Malformed remaining length");
+                break;
+            }
+
+            int frameLength = headerLength + remainingLength;
+
+            if(buffer.remaining() < frameLength){
+                //Make room for the whole packet
+                if(frameLength > buffer.capacity())
+                    session.growReadBuffer(frameLength);
+                break;
+            }
+
+            int header = buffer.get(frameStart) & 0xFF;
+            buffer.position(frameStart + headerLength);
+
+            ByteBuffer body = buffer.slice();
+            body.limit(remainingLength);
+
+            buffer.position(frameStart + frameLength);
+
+            handlePacket(session, header >>> 4, header & 0x0F, body);
+        }
+
+        if(session.isOpen())
+            session.readBuffer.compact();
+    }
+
+    private void handlePacket(Session session, int type, int flags, ByteBuffer body) throws IOException {
+
+        if(!session.connected && type != CONNECT)
+            throw new IOException("First packet must be CONNECT");
+
+        switch(type){
+            case CONNECT:
+                handleConnect(session, body);
+                break;
+            case PUBLISH:
+                handlePublish(session, flags, body);
+                break;
+            case PUBACK:
+            case PUBCOMP:
+                //QoS 1 and 2 deliveries are not retransmitted, nothing to release
+                break;
+            case PUBREC:
+                //Second step of an outbound QoS 2 delivery
+                session.send(encodeAck(PUBREL, 0x02, body.getShort() & 0xFFFF));
+                break;
+            case PUBREL:
+                handlePubrel(session, body);
+                break;
+            case SUBSCRIBE:
+                handleSubscribe(session, body);
+                break;
+            case UNSUBSCRIBE:
+                handleUnsubscribe(session, body);
+                break;
+            case PINGREQ:
+                session.send(new byte[]{(byte) (PINGRESP << 4), 0});
+                break;
+            case DISCONNECT:
+                session.close();
+                break;
+            default:
+                throw new IOException("Unsupported packet type " + type);
+        }
+    }
+
+    private void handleConnect(Session session, ByteBuffer body) throws IOException {
+
+        if(session.connected)
+            throw new IOException("Duplicated CONNECT");
+
+        String protocolName = readString(body);
+        int protocolLevel = body.get() & 0xFF;
+
+        if(!("MQTT".equals(protocolName) && protocolLevel == 4) && !("MQIsdp".equals(protocolName) && protocolLevel == 3)){
+            //Connection Refused, unacceptable protocol version
+            session.send(new byte[]{(byte) (CONNACK << 4), 2, 0, 1});
+            session.closeAfterFlush();
+            return;
+        }
+
+        int connectFlags = body.get() & 0xFF;
+        body.getShort(); //Keep alive is not enforced on the loopback broker
+
+        String clientId = readString(body);
+
+        if(clientId.isEmpty())
+            clientId = "loopback-" + System.nanoTime();
+
+        //Will, username and password are parsed only to validate the packet
+        if((connectFlags & 0x04) != 0){
+            readString(body);
+            readBinary(body);
+        }
+        if((connectFlags & 0x80) != 0)
+            readString(body);
+        if((connectFlags & 0x40) != 0)
+            readBinary(body);
+
+        //A new connection with the same client id replaces the previous one
+        Session previous = sessionMap.get(clientId);
+        if(previous != null && previous != session)
+            previous.close();
+
+        session.clientId = clientId;
+        session.connected = true;
+        sessionMap.put(clientId, session);
+
+        session.send(new byte[]{(byte) (CONNACK << 4), 2, 0, 0});
+
+        logger.debug("Client {} connected", clientId);
+    }
+
+    private void handlePublish(Session session, int flags, ByteBuffer body) throws IOException {
+
+        int qos = (flags >>> 1) & 0x03;
+        boolean retained = (flags & 0x01) != 0;
+
+        if(qos > MAX_QOS)
+            throw new IOException("QoS " + qos + " is not supported");
+
+        String topic = readString(body);
+        int packetId = qos > 0 ? body.getShort() & 0xFFFF : 0;
+
+        byte[] payload = new byte[body.remaining()];
+        body.get(payload);
+
+        receivedPublishCount++;
+
+        if(qos == 1)
+            session.send(encodeAck(PUBACK, 0, packetId));
+        else if(qos == 2){
+            session.send(encodeAck(PUBREC, 0, packetId));
+
+            //The message is routed when first received (method A of the specification),
+            //duplicates received before the PUBREL are only acknowledged
+            if(!session.inboundQos2PacketIds.add(packetId))
+                return;
+        }
+
+        if(retained){
+            if(payload.length == 0)
+                retainedMap.remove(topic);
+            else
+                retainedMap.put(topic, new RetainedMessage(topic, payload, qos));
+        }
+
+        route(topic, payload, qos);
+    }
+
+    private void handlePubrel(Session session, ByteBuffer body) {
+        int packetId = body.getShort() & 0xFFFF;
+        session.inboundQos2PacketIds.remove(packetId);
+        session.send(encodeAck(PUBCOMP, 0, packetId));
+    }
+
+    private void handleSubscribe(Session session, ByteBuffer body) throws IOException {
+
+        int packetId = body.getShort() & 0xFFFF;
+
+        List<String> filterList = new ArrayList<>();
+        List<Integer> grantedList = new ArrayList<>();
+
+        while(body.hasRemaining()){
+
+            String filter = readString(body);
+            int requestedQos = body.get() & 0x03;
+
+            if(!TopicMatcher.isValidFilter(filter)){
+                grantedList.add(0x80);
+                continue;
+            }
+
+            int grantedQos = Math.min(requestedQos, MAX_QOS);
+            session.subscriptionMap.put(filter, grantedQos);
+
+            filterList.add(filter);
+            grantedList.add(grantedQos);
+        }
+
+        byte[] suback = new byte[4 + grantedList.size()];
+        suback[0] = (byte) (SUBACK << 4);
+        suback[1] = (byte) (2 + grantedList.size());
+        suback[2] = (byte) (packetId >>> 8);
+        suback[3] = (byte) packetId;
+        for(int i = 0; i < grantedList.size(); i++)
+            suback[4 + i] = grantedList.get(i).byteValue();
+
+        session.send(suback);
+
+        //Send the retained messages matching the new subscriptions
+        for(RetainedMessage retainedMessage : retainedMap.values()){
+            for(String filter : filterList){
+                if(TopicMatcher.matches(filter, retainedMessage.topic)){
+                    int qos = Math.min(retainedMessage.qos, session.subscriptionMap.get(filter));
+                    session.send(encodePublish(session, retainedMessage.topic, retainedMessage.payload, qos, true));
+                    deliveredPublishCount++;
+                    break;
+                }
+            }
+        }
+    }
+
+    private void handleUnsubscribe(Session session, ByteBuffer body) throws IOException {
+
+        int packetId = body.getShort() & 0xFFFF;
+
+        while(body.hasRemaining())
+            session.subscriptionMap.remove(readString(body));
+
+        session.send(new byte[]{(byte) (UNSUBACK << 4), 2, (byte) (packetId >>> 8), (byte) packetId});
+    }
+
+    /**
+     * Deliver a message to all the sessions with at least one matching subscription
+     * (once per session, using the highest granted QoS among the matching filters)
+     */
+    private void route(String topic, byte[] payload, int qos) {
+
+        Iterator<Session> sessionIterator = sessionMap.values().iterator();
+
+        while(sessionIterator.hasNext()){
+
+            Session target = sessionIterator.next();
+
+            //Sessions broken by a previous write failure are removed lazily
+            if(!target.isOpen()){
+                sessionIterator.remove();
+                continue;
+            }
+
+            int grantedQos = -1;
+
+            for(Map.Entry<String, Integer> subscription : target.subscriptionMap.entrySet())
+                if(subscription.getValue() > grantedQos && TopicMatcher.matches(subscription.getKey(), topic))
+                    grantedQos = subscription.getValue();
+
+            if(grantedQos < 0)
+                continue;
+
+            target.send(encodePublish(target, topic, payload, Math.min(qos, grantedQos), false));
+            deliveredPublishCount++;
+        }
+    }
+
+    private static byte[] encodeAck(int type, int flags, int packetId) {
+        return new byte[]{(byte) ((type << 4) | flags), 2, (byte) (packetId >>> 8), (byte) packetId};
+    }
+
+    private ByteBuffer encodePublish(Session target, String topic, byte[] payload, int qos, boolean retained) {
+
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+
+        int remainingLength = 2 + topicBytes.length + (qos > 0 ? 2 : 0) + payload.length;
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + remainingLengthSize(remainingLength) + remainingLength);
+
+        buffer.put((byte) ((PUBLISH << 4) | (qos << 1) | (retained ? 1 : 0)));
+        writeRemainingLength(buffer, remainingLength);
+        buffer.putShort((short) topicBytes.length);
+        buffer.put(topicBytes);
+
+        if(qos > 0)
+            buffer.putShort((short) target.nextPacketId());
+
+        buffer.put(payload);
+        buffer.flip();
+
+        return buffer;
+    }
+
+    private void closeAll() {
+
+        for(SelectionKey key : selector.keys()){
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                logger.debug("Error closing channel: {}", e.getLocalizedMessage());
+            }
+        }
+
+        sessionMap.clear();
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.debug("Error closing selector: {}", e.getLocalizedMessage());
+        }
+
+        logger.debug("LoopbackMqttBroker stopped !");
+    }
+
+    static int remainingLengthSize(int remainingLength) {
+        if(remainingLength < 128)
+            return 1;
+        if(remainingLength < 16384)
+            return 2;
+        if(remainingLength < 2097152)
+            return 3;
+        return 4;
+    }
+
+    static void writeRemainingLength(ByteBuffer buffer, int remainingLength) {
+        do {
+            int digit = remainingLength % 128;
+            remainingLength /= 128;
+            if(remainingLength > 0)
+                digit |= 0x80;
+            buffer.put((byte) digit);
+        } while(remainingLength > 0);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        return new String(readBinary(buffer), StandardCharsets.UTF_8);
+    }
+
+    static byte[] readBinary(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] data = new byte[length];
+        buffer.get(data);
+        return data;
+    }
+
+    /**
+     * Connection state: socket, buffers and subscriptions of a client
+     */
+    private class Session {
+
+        private final SocketChannel channel;
+
+        private final SelectionKey key;
+
+        private final List<ByteBuffer> writeQueue = new ArrayList<>();
+
+        private final Map<String, Integer> subscriptionMap = new LinkedHashMap<>();
+
+        //Identifiers of the inbound QoS 2 messages waiting for the PUBREL
+        private final Set<Integer> inboundQos2PacketIds = new HashSet<>();
+
+        private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+
+        private String clientId;
+
+        private boolean connected = false;
+
+        private boolean closeAfterFlush = false;
+
+        private int packetId = 0;
+
+        private Session(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        private boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        private int nextPacketId() {
+            packetId = packetId == 0xFFFF ? 1 : packetId + 1;
+            return packetId;
+        }
+
+        private void growReadBuffer(int minimumCapacity) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(minimumCapacity, readBuffer.capacity() * 2));
+            grown.put(readBuffer);
+            grown.flip();
+            readBuffer = grown;
+        }
+
+        private void send(byte[] data) {
+            send(ByteBuffer.wrap(data));
+        }
+
+        /**
+         * Write failures close only the channel of this session (it may be the target of a message routed
+         * while handling a packet of another session), the session is removed from the map afterwards
+         */
+        private void send(ByteBuffer buffer) {
+
+            if(!isOpen())
+                return;
+
+            try {
+
+                //Try to write directly, falling back to the write queue when the socket buffer is full
+                if(writeQueue.isEmpty())
+                    channel.write(buffer);
+
+                if(buffer.hasRemaining()){
+                    writeQueue.add(buffer);
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+
+            } catch (IOException e) {
+                logger.debug("Error writing to client {}: {}", clientId, e.getLocalizedMessage());
+                key.cancel();
+                try {
+                    channel.close();
+                } catch (IOException closeException) {
+                    logger.debug("Error closing session {}: {}", clientId, closeException.getLocalizedMessage());
+                }
+            }
+        }
+
+        private void flush() throws IOException {
+
+            Iterator<ByteBuffer> iterator = writeQueue.iterator();
+
+            while(iterator.hasNext()){
+                ByteBuffer buffer = iterator.next();
+                channel.write(buffer);
+                if(buffer.hasRemaining())
+                    return;
+                iterator.remove();
+            }
+
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+
+            if(closeAfterFlush)
+                close();
+        }
+
+        private void closeAfterFlush() {
+            if(writeQueue.isEmpty())
+                close();
+            else
+                closeAfterFlush = true;
+        }
+
+        private void close() {
+
+            if(clientId != null && sessionMap.get(clientId) == this)
+                sessionMap.remove(clientId);
+
+            try {
+                key.cancel();
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Error closing session {}: {}", clientId, e.getLocalizedMessage());
+            }
+
+            logger.debug("Client {} disconnected", clientId);
+        }
+    }
+
+    /**
+     * Last retained message published on a topic
+     */
+    private static class RetainedMessage {
+
+        private final String topic;
+
+        private final byte[] payload;
+
+        private final int qos;
+
+        private RetainedMessage(String topic, byte[] payload, int qos) {
+            this.topic = topic;
+            this.payload = payload;
+            this.qos = qos;
+        }
+    }
+
+}
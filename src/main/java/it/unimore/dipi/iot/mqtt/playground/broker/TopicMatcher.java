@@ -0,0 +1,92 @@
+package it.unimore.dipi.iot.mqtt.playground.broker;
+
+/**
+ * MQTT topic filter matching supporting the single level (+) and multi level (#) wildcards.
+ * The comparison is performed char by char without splitting the strings into levels.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:24
+ */
+public final class TopicMatcher {
+
+    private TopicMatcher() {
+    }
+
+    /**
+     * @param filter topic filter, possibly containing wildcards
+     * @param topic concrete topic name
+     * @return true if the topic matches the filter
+     */
+    public static boolean matches(String filter, String topic) {
+
+        //Topics starting with $ are not matched by filters starting with a wildcard
+        if(!topic.isEmpty() && topic.charAt(0) == '$' && !filter.isEmpty() && (filter.charAt(0) == '+' || filter.charAt(0) == '#'))
+            return false;
+
+        int f = 0;
+        int t = 0;
+        int filterLength = filter.length();
+        int topicLength = topic.length();
+
+        while(f < filterLength){
+
+            char c = filter.charAt(f);
+
+            if(c == '#')
+                return true;
+
+            if(c == '+'){
+                //Skip the whole current level of the topic
+                while(t < topicLength && topic.charAt(t) != '/')
+                    t++;
+                f++;
+                continue;
+            }
+
+            if(t >= topicLength){
+                //"a/#" matches also the parent level "a"
+                return c == '/' && f + 2 == filterLength && filter.charAt(f + 1) == '#';
+            }
+
+            if(c != topic.charAt(t))
+                return false;
+
+            f++;
+            t++;
+        }
+
+        return t == topicLength;
+    }
+
+    /**
+     * @param filter topic filter to validate
+     * @return true if the wildcards are used according to the MQTT specification
+     */
+    public static boolean isValidFilter(String filter) {
+
+        if(filter == null || filter.isEmpty())
+            return false;
+
+        for(int i = 0; i < filter.length(); i++){
+
+            char c = filter.charAt(i);
+
+            if(c == '+' || c == '#'){
+
+                //Wildcards must occupy a whole level
+                if(i > 0 && filter.charAt(i - 1) != '/')
+                    return false;
+
+                if(c == '#' && i != filter.length() - 1)
+                    return false;
+
+                if(c == '+' && i < filter.length() - 1 && filter.charAt(i + 1) != '/')
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+}
@@ -0,0 +1,374 @@
+package it.unimore.dipi.iot.mqtt.playground.cache;
+
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsRegistry;
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsSource;
+import it.unimore.dipi.iot.mqtt.playground.model.DeviceDescriptor;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded cache of the DeviceDescriptor of each device, filled from the retained device/&lt;id&gt;/info
+ * messages and used to enrich the telemetry readings.
+ *
+ * Lookups are lock-free and allocation-free: the hash table is keyed by the chars of the device id, so it can be
+ * queried with the CharSequence view captured from the topic by a TopicMatch without extracting a String.
+ * Updates (infrequent, driven by the info stream) are serialized and replace the chains of the table copy-on-write,
+ * so that concurrent readers always see a consistent chain.
+ *
+ * When the cache is full the device to evict is chosen by the CLOCK (second chance) algorithm, an approximation of
+ * LRU in which a hit only sets the referenced bit of the entry instead of reordering a list on the hot path.
+ *
+ * Instances created through register() are exposed by the MetricsRegistry as MBeans named
+ * it.unimore.dipi.iot.mqtt.playground:type=DeviceMetadataCache,name=&lt;name&gt;.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:07
+ */
+public class DeviceMetadataCache implements DeviceMetadataCacheMBean, MetricsSource {
+
+    //Producer and software version of the readings handled without metadata (MissingMetadataPolicy.PASS_THROUGH)
+    public static final String UNKNOWN = "UNKNOWN";
+
+    private final String name;
+
+    private final int capacity;
+
+    private final MissingMetadataPolicy missingMetadataPolicy;
+
+    //Hash table chains, replaced copy-on-write by the writers
+    private final AtomicReferenceArray<Entry> table;
+
+    private final int tableMask;
+
+    //CLOCK slots, with the free ones kept in a stack. Accessed only by the writers
+    private final Entry[] slots;
+
+    private final int[] freeSlots;
+
+    private int freeSlotCount;
+
+    private int clockHand = 0;
+
+    private volatile int size = 0;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder missingMetadataDropCount = new LongAdder();
+
+    private long putCount = 0;
+
+    private long removeCount = 0;
+
+    private long evictionCount = 0;
+
+    /**
+     * @param name cache name, used for the MBean
+     * @param capacity maximum number of cached devices
+     * @param missingMetadataPolicy handling of the readings of devices without metadata
+     */
+    public DeviceMetadataCache(String name, int capacity, MissingMetadataPolicy missingMetadataPolicy) {
+
+        if(capacity <= 0)
+            throw new IllegalArgumentException("capacity must be > 0");
+
+        this.name = name;
+        this.capacity = capacity;
+        this.missingMetadataPolicy = missingMetadataPolicy;
+
+        //Load factor <= 0.5
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+        this.table = new AtomicReferenceArray<>(tableSize);
+        this.tableMask = tableSize - 1;
+
+        this.slots = new Entry[capacity];
+        this.freeSlots = new int[capacity];
+        for(int i = 0; i < capacity; i++)
+            freeSlots[i] = capacity - 1 - i;
+        this.freeSlotCount = capacity;
+    }
+
+    /**
+     * Create a cache and register it in the MetricsRegistry
+     *
+     * @param name cache name
+     * @param capacity maximum number of cached devices
+     * @param missingMetadataPolicy handling of the readings of devices without metadata
+     * @return the registered cache
+     */
+    public static DeviceMetadataCache register(String name, int capacity, MissingMetadataPolicy missingMetadataPolicy) {
+        DeviceMetadataCache cache = new DeviceMetadataCache(name, capacity, missingMetadataPolicy);
+        MetricsRegistry.register(cache, "DeviceMetadataCache");
+        return cache;
+    }
+
+    public void unregister() {
+        MetricsRegistry.unregister(this);
+    }
+
+    /**
+     * Hot path lookup
+     *
+     * @param deviceId device id, e.g. the view captured by a TopicMatch
+     * @return the cached descriptor or null if the device is not cached
+     */
+    public DeviceDescriptor get(CharSequence deviceId) {
+
+        int hash = hash(deviceId);
+
+        for(Entry entry = table.get(hash & tableMask); entry != null; entry = entry.next){
+            if(entry.hash == hash && contentEquals(entry.deviceId, deviceId)){
+                if(!entry.referenced)
+                    entry.referenced = true;
+                hitCount.increment();
+                return entry.descriptor;
+            }
+        }
+
+        missCount.increment();
+        return null;
+    }
+
+    /**
+     * Record that a reading has been discarded according to MissingMetadataPolicy.DROP
+     */
+    public void recordMissingMetadataDrop() {
+        missingMetadataDropCount.increment();
+    }
+
+    /**
+     * Add or replace the descriptor of a device, evicting a device if the cache is full
+     *
+     * @param deviceId
+     * @param descriptor
+     */
+    public synchronized void put(String deviceId, DeviceDescriptor descriptor) {
+
+        if(deviceId == null || descriptor == null)
+            throw new IllegalArgumentException("deviceId and descriptor must not be null");
+
+        putCount++;
+
+        int hash = hash(deviceId);
+        int bucket = hash & tableMask;
+        Entry existing = find(bucket, hash, deviceId);
+
+        if(existing != null){
+            Entry replacement = new Entry(deviceId, hash, descriptor, existing.slot, existing.next);
+            replacement.referenced = true;
+            slots[existing.slot] = replacement;
+            table.set(bucket, copyChainWithout(bucket, existing, replacement));
+            return;
+        }
+
+        int slot = freeSlotCount > 0 ? freeSlots[--freeSlotCount] : evict();
+
+        Entry entry = new Entry(deviceId, hash, descriptor, slot, table.get(bucket));
+        slots[slot] = entry;
+        table.set(bucket, entry);
+        size++;
+    }
+
+    /**
+     * Remove the descriptor of a device (e.g. when its retained info message is cleared)
+     *
+     * @param deviceId
+     * @return true if the device was cached
+     */
+    public synchronized boolean remove(String deviceId) {
+
+        int hash = hash(deviceId);
+        int bucket = hash & tableMask;
+        Entry existing = find(bucket, hash, deviceId);
+
+        if(existing == null)
+            return false;
+
+        removeEntry(bucket, existing);
+        freeSlots[freeSlotCount++] = existing.slot;
+        removeCount++;
+        return true;
+    }
+
+    /**
+     * Advance the clock hand up to the first entry not referenced since the last pass, clearing
+     * the referenced bits met along the way, and evict it
+     *
+     * @return the freed slot
+     */
+    private int evict() {
+
+        while(true){
+
+            Entry entry = slots[clockHand];
+            int slot = clockHand;
+            clockHand = (clockHand + 1) % capacity;
+
+            if(entry.referenced)
+                entry.referenced = false;
+            else{
+                removeEntry(entry.hash & tableMask, entry);
+                evictionCount++;
+                return slot;
+            }
+        }
+    }
+
+    private void removeEntry(int bucket, Entry entry) {
+        table.set(bucket, copyChainWithout(bucket, entry, null));
+        slots[entry.slot] = null;
+        size--;
+    }
+
+    private Entry find(int bucket, int hash, String deviceId) {
+        for(Entry entry = table.get(bucket); entry != null; entry = entry.next)
+            if(entry.hash == hash && entry.deviceId.equals(deviceId))
+                return entry;
+        return null;
+    }
+
+    /**
+     * Copy the entries of the chain preceding the removed one, so that readers traversing the old chain are not affected
+     *
+     * @param replacement entry taking the place of the removed one (linked to its next entry) or null
+     * @return the new head of the chain
+     */
+    private Entry copyChainWithout(int bucket, Entry removed, Entry replacement) {
+
+        Entry head = replacement != null ? replacement : removed.next;
+
+        for(Entry entry = table.get(bucket); entry != removed; entry = entry.next){
+            Entry copy = new Entry(entry, head);
+            slots[entry.slot] = copy;
+            head = copy;
+        }
+
+        return head;
+    }
+
+    private static int hash(CharSequence value) {
+
+        int hash = 0;
+        for(int i = 0; i < value.length(); i++)
+            hash = 31 * hash + value.charAt(i);
+
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean contentEquals(String value, CharSequence other) {
+
+        int length = value.length();
+        if(length != other.length())
+            return false;
+
+        for(int i = 0; i < length; i++)
+            if(value.charAt(i) != other.charAt(i))
+                return false;
+
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toSummaryString() {
+        return String.format(Locale.ROOT, "size=%d/%d hits=%d misses=%d hitRatio=%.3f evictions=%d missingMetadataDrops=%d",
+                getSize(), capacity, getHitCount(), getMissCount(), getHitRatio(), getEvictionCount(), getMissingMetadataDropCount());
+    }
+
+    public MissingMetadataPolicy getPolicy() {
+        return missingMetadataPolicy;
+    }
+
+    @Override
+    public String getMissingMetadataPolicy() {
+        return missingMetadataPolicy.name();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hits = getHitCount();
+        long lookups = hits + getMissCount();
+        return lookups > 0 ? (double) hits / lookups : 0.0;
+    }
+
+    @Override
+    public synchronized long getPutCount() {
+        return putCount;
+    }
+
+    @Override
+    public synchronized long getRemoveCount() {
+        return removeCount;
+    }
+
+    @Override
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public long getMissingMetadataDropCount() {
+        return missingMetadataDropCount.sum();
+    }
+
+    /**
+     * Cached device. Entries are immutable except for the referenced bit, approximate by design
+     */
+    private static final class Entry {
+
+        private final String deviceId;
+
+        private final int hash;
+
+        private final DeviceDescriptor descriptor;
+
+        private final int slot;
+
+        private final Entry next;
+
+        private volatile boolean referenced = false;
+
+        private Entry(String deviceId, int hash, DeviceDescriptor descriptor, int slot, Entry next) {
+            this.deviceId = deviceId;
+            this.hash = hash;
+            this.descriptor = descriptor;
+            this.slot = slot;
+            this.next = next;
+        }
+
+        private Entry(Entry entry, Entry next) {
+            this(entry.deviceId, entry.hash, entry.descriptor, entry.slot, next);
+            this.referenced = entry.referenced;
+        }
+
+    }
+
+}
@@ -0,0 +1,32 @@
+package it.unimore.dipi.iot.mqtt.playground.cache;
+
+/**
+ * JMX management interface of DeviceMetadataCache
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:07
+ */
+public interface DeviceMetadataCacheMBean {
+
+    String getMissingMetadataPolicy();
+
+    int getCapacity();
+
+    int getSize();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRatio();
+
+    long getPutCount();
+
+    long getRemoveCount();
+
+    long getEvictionCount();
+
+    long getMissingMetadataDropCount();
+
+}
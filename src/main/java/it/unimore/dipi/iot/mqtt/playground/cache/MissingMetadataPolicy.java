@@ -0,0 +1,19 @@
+package it.unimore.dipi.iot.mqtt.playground.cache;
+
+/**
+ * Handling of the readings received before the metadata of their device (e.g. before the retained
+ * device/&lt;id&gt;/info message or after the device has been evicted from the DeviceMetadataCache)
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:07
+ */
+public enum MissingMetadataPolicy {
+
+    //The reading is handled without enrichment, with UNKNOWN producer and software version
+    PASS_THROUGH,
+
+    //The reading is discarded and accounted as a missing metadata drop
+    DROP
+
+}
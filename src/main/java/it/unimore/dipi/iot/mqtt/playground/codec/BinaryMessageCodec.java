@@ -0,0 +1,220 @@
+package it.unimore.dipi.iot.mqtt.playground.codec;
+
+import it.unimore.dipi.iot.mqtt.playground.model.MessageDescriptor;
+
+/**
+ * Versioned fixed size binary encoding of a MessageDescriptor (20 bytes instead of about 80 for JSON).
+ *
+ * Layout (big endian):
+ *
+ *   0     header: 0xB0 | version (the high nibble can never start a JSON document)
+ *   1     flags (0 for a single message, FLAG_BATCH for a ReadingBatch, FLAG_BATCH | FLAG_GORILLA for a
+ *         GorillaBlock, FLAG_COMPRESSED for a PayloadCompressor frame)
+ *   2-3   sensor type code (unsigned, see SensorTypeRegistry)
+ *   4-11  timestamp (ms)
+ *   12-19 value (IEEE 754 double)
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:32
+ */
+public class BinaryMessageCodec {
+
+    public static final int VERSION = 1;
+
+    public static final int MESSAGE_SIZE = 20;
+
+    private static final int HEADER_MARKER = 0xB0;
+
+    private static final int HEADER_MARKER_MASK = 0xF0;
+
+    private static final int HEADER_VERSION_MASK = 0x0F;
+
+    private static final int FLAGS_OFFSET = 1;
+
+    //The payload is a batch of readings (see ReadingBatchEncoder)
+    public static final int FLAG_BATCH = 0x01;
+
+    //The payload is a deflated JSON or binary payload (see PayloadCompressor)
+    public static final int FLAG_COMPRESSED = 0x02;
+
+    //The batch is a bit-packed time series block (see GorillaBlockEncoder)
+    public static final int FLAG_GORILLA = 0x04;
+
+    private static final int TYPE_OFFSET = 2;
+
+    private static final int TIMESTAMP_OFFSET = 4;
+
+    private static final int VALUE_OFFSET = 12;
+
+    private final SensorTypeRegistry registry;
+
+    public BinaryMessageCodec() {
+        this(SensorTypeRegistry.getDefault());
+    }
+
+    public BinaryMessageCodec(SensorTypeRegistry registry) {
+        this.registry = registry;
+    }
+
+    public SensorTypeRegistry getRegistry() {
+        return registry;
+    }
+
+    public static boolean isBinaryHeader(byte header) {
+        return (header & HEADER_MARKER_MASK) == HEADER_MARKER;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the type of the message is not registered
+     */
+    public byte[] encode(MessageDescriptor messageDescriptor) {
+        return encode(messageDescriptor.getTimestamp(), messageDescriptor.getType(), messageDescriptor.getValue());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the type is not registered
+     */
+    public byte[] encode(long timestamp, String type, double value) {
+        byte[] payload = new byte[MESSAGE_SIZE];
+        encode(timestamp, typeCode(type), value, payload, 0);
+        return payload;
+    }
+
+    /**
+     * Write a message into the target buffer
+     *
+     * @return the number of written bytes (MESSAGE_SIZE)
+     */
+    public static int encode(long timestamp, int typeCode, double value, byte[] buffer, int offset) {
+
+        if(typeCode <= 0 || typeCode > SensorTypeRegistry.MAX_TYPE_CODE)
+            throw new IllegalArgumentException("Invalid sensor type code: " + typeCode);
+
+        writeHeader(buffer, offset, 0);
+        buffer[offset + TYPE_OFFSET] = (byte) (typeCode >>> 8);
+        buffer[offset + TYPE_OFFSET + 1] = (byte) typeCode;
+        writeLong(buffer, offset + TIMESTAMP_OFFSET, timestamp);
+        writeLong(buffer, offset + VALUE_OFFSET, Double.doubleToRawLongBits(value));
+
+        return MESSAGE_SIZE;
+    }
+
+    /**
+     * Decode a binary message. The type is null if its code is not (yet) known by the registry.
+     *
+     * @throws IllegalArgumentException if the payload is not a valid binary message
+     */
+    public MessageDescriptor decode(byte[] payload) {
+        return decode(payload, 0, payload.length);
+    }
+
+    public MessageDescriptor decode(byte[] buffer, int offset, int length) {
+
+        checkMessage(buffer, offset, length);
+
+        return new MessageDescriptor(readLong(buffer, offset + TIMESTAMP_OFFSET),
+                registry.getType(getTypeCode(buffer, offset)),
+                Double.longBitsToDouble(readLong(buffer, offset + VALUE_OFFSET)));
+    }
+
+    /**
+     * Decode a binary message into a reusable SensorReading (sequence and intendedTimestamp are set to 0)
+     *
+     * @throws IllegalArgumentException if the payload is not a valid binary message
+     */
+    public void decode(byte[] buffer, int offset, int length, SensorReading reading) {
+
+        checkMessage(buffer, offset, length);
+
+        reading.clear();
+        reading.setTimestamp(readLong(buffer, offset + TIMESTAMP_OFFSET));
+        reading.setType(registry.getType(getTypeCode(buffer, offset)));
+        reading.setValue(Double.longBitsToDouble(readLong(buffer, offset + VALUE_OFFSET)));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not a binary message supported by this codec
+     */
+    public static void checkMessage(byte[] buffer, int offset, int length) {
+
+        if(length < MESSAGE_SIZE || offset < 0 || offset + length > buffer.length)
+            throw new IllegalArgumentException("Binary message too short: " + length + " bytes");
+
+        if(!isBinaryHeader(buffer[offset]))
+            throw new IllegalArgumentException("Not a binary message");
+
+        int version = buffer[offset] & HEADER_VERSION_MASK;
+        if(version != VERSION)
+            throw new IllegalArgumentException("Unsupported binary message version: " + version);
+
+        if(getFlags(buffer, offset) != 0)
+            throw new IllegalArgumentException("Not a single binary message, flags: " + getFlags(buffer, offset));
+    }
+
+    /**
+     * Write the header and flags bytes of a binary payload
+     */
+    static void writeHeader(byte[] buffer, int offset, int flags) {
+        buffer[offset] = (byte) (HEADER_MARKER | VERSION);
+        buffer[offset + FLAGS_OFFSET] = (byte) flags;
+    }
+
+    public static int getFlags(byte[] buffer, int offset) {
+        return buffer[offset + FLAGS_OFFSET] & 0xFF;
+    }
+
+    /**
+     * @return true if the payload is a binary batch of readings
+     */
+    public static boolean isBatch(byte[] buffer, int offset, int length) {
+        return length > FLAGS_OFFSET && isBinaryHeader(buffer[offset]) && (getFlags(buffer, offset) & FLAG_BATCH) != 0;
+    }
+
+    /**
+     * @return true if the payload is a frame written by PayloadCompressor
+     */
+    public static boolean isCompressed(byte[] buffer, int offset, int length) {
+        return length > FLAGS_OFFSET && isBinaryHeader(buffer[offset]) && (getFlags(buffer, offset) & FLAG_COMPRESSED) != 0;
+    }
+
+    public static int getTypeCode(byte[] buffer, int offset) {
+        return ((buffer[offset + TYPE_OFFSET] & 0xFF) << 8) | (buffer[offset + TYPE_OFFSET + 1] & 0xFF);
+    }
+
+    public static long getTimestamp(byte[] buffer, int offset) {
+        return readLong(buffer, offset + TIMESTAMP_OFFSET);
+    }
+
+    public static double getValue(byte[] buffer, int offset) {
+        return Double.longBitsToDouble(readLong(buffer, offset + VALUE_OFFSET));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the type is not registered
+     */
+    int typeCode(String type) {
+
+        int code = registry.getCode(type);
+
+        if(code == SensorTypeRegistry.UNKNOWN_CODE)
+            throw new IllegalArgumentException("Sensor type not registered: " + type);
+
+        return code;
+    }
+
+    static void writeLong(byte[] buffer, int offset, long value) {
+        for(int i = 7; i >= 0; i--){
+            buffer[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    static long readLong(byte[] buffer, int offset) {
+        long value = 0;
+        for(int i = 0; i < 8; i++)
+            value = (value << 8) | (buffer[offset + i] & 0xFF);
+        return value;
+    }
+
+}
@@ -0,0 +1,63 @@
+package it.unimore.dipi.iot.mqtt.playground.codec;
+
+/**
+ * Big endian bit reader over a byte array, used by GorillaBlockDecoder.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:22
+ */
+final class BitInput {
+
+    private byte[] buffer;
+
+    //Absolute position of the next bit and end (exclusive) of the readable bits
+    private long position;
+
+    private long limit;
+
+    void wrap(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset * 8L;
+        this.limit = (offset + (long) length) * 8L;
+    }
+
+    boolean readBit() {
+
+        if(position >= limit)
+            throw new IllegalArgumentException("Unexpected end of the bit stream");
+
+        int bit = (buffer[(int) (position >>> 3)] >>> (7 - (int) (position & 7))) & 1;
+        position++;
+        return bit != 0;
+    }
+
+    /**
+     * Read count bits, most significant first
+     *
+     * @param count number of bits (0-64)
+     */
+    long readBits(int count) {
+
+        if(position + count > limit)
+            throw new IllegalArgumentException("Unexpected end of the bit stream");
+
+        long value = 0;
+
+        while(count > 0){
+
+            //Take as many bits as available in the current byte
+            int bitOffset = (int) (position & 7);
+            int available = 8 - bitOffset;
+            int taken = Math.min(available, count);
+            int bits = ((buffer[(int) (position >>> 3)] & 0xFF) >>> (available - taken)) & ((1 << taken) - 1);
+
+            value = (value << taken) | bits;
+            position += taken;
+            count -= taken;
+        }
+
+        return value;
+    }
+
+}
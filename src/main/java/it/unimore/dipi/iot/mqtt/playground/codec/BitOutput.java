@@ -0,0 +1,105 @@
+package it.unimore.dipi.iot.mqtt.playground.codec;
+
+import java.util.Arrays;
+
+/**
+ * Big endian bit writer backed by a growable byte array, used by GorillaBlockEncoder.
+ * Bits are accumulated in a long and written a byte at a time.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:22
+ */
+final class BitOutput {
+
+    private byte[] buffer;
+
+    private final int start;
+
+    //Number of complete bytes written after start
+    private int byteCount = 0;
+
+    //Pending bits (the low bitCount bits of accumulator)
+    private long accumulator = 0;
+
+    private int bitCount = 0;
+
+    /**
+     * @param initialCapacity initial size of the buffer
+     * @param start number of bytes reserved at the beginning of the buffer (e.g. for a header)
+     */
+    BitOutput(int initialCapacity, int start) {
+        this.buffer = new byte[Math.max(initialCapacity, start + 8)];
+        this.start = start;
+    }
+
+    void reset() {
+        byteCount = 0;
+        accumulator = 0;
+        bitCount = 0;
+    }
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Write the low count bits of value, most significant first
+     *
+     * @param count number of bits (0-64)
+     */
+    void writeBits(long value, int count) {
+
+        //Split the value so that the accumulator never holds more than 64 bits
+        if(count > 32){
+            writeBits(value >>> 32, count - 32);
+            count = 32;
+        }
+
+        if(count == 0)
+            return;
+
+        long mask = count == 64 ? -1L : (1L << count) - 1;
+        accumulator = (accumulator << count) | (value & mask);
+        bitCount += count;
+
+        while(bitCount >= 8){
+            bitCount -= 8;
+            ensureCapacity(1);
+            buffer[start + byteCount++] = (byte) (accumulator >>> bitCount);
+        }
+    }
+
+    /**
+     * @return the number of bits written so far
+     */
+    long bitLength() {
+        return byteCount * 8L + bitCount;
+    }
+
+    /**
+     * @return the number of bytes needed to store the written bits (the last byte is padded with zeros)
+     */
+    int byteLength() {
+        return byteCount + (bitCount > 0 ? 1 : 0);
+    }
+
+    /**
+     * @return the underlying buffer with the written bits after the reserved bytes, the last byte padded with zeros
+     */
+    byte[] buffer() {
+
+        if(bitCount > 0){
+            ensureCapacity(1);
+            buffer[start + byteCount] = (byte) (accumulator << (8 - bitCount));
+        }
+
+        return buffer;
+    }
+
+    private void ensureCapacity(int additional) {
+        if(start + byteCount + additional > buffer.length)
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, start + byteCount + additional));
+    }
+
+}
@@ -0,0 +1,181 @@
+package it.unimore.dipi.iot.mqtt.playground.codec;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * Streaming decoder of the blocks written by GorillaBlockEncoder.
+ *
+ * After wrap() the samples are read in order with next(), which makes the timestamp and the value of the
+ * current sample available through getTimestamp() and getValue() without allocations.
+ * A decoder can be reused for many blocks but is not thread safe.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:22
+ */
+public class GorillaBlockDecoder {
+
+    //Largest block accepted by readBlock()
+    public static final int MAX_STORED_BLOCK_SIZE = 16 * 1024 * 1024;
+
+    private final BitInput input = new BitInput();
+
+    private int typeCode = 0;
+
+    private int count = 0;
+
+    private int index = 0;
+
+    private long timestamp;
+
+    private long delta;
+
+    private long valueBits;
+
+    private int leadingZeros;
+
+    private int trailingZeros;
+
+    /**
+     * @return true if the payload is a block written by GorillaBlockEncoder
+     */
+    public static boolean isBlock(byte[] buffer, int offset, int length) {
+        return BinaryMessageCodec.isBatch(buffer, offset, length) && (BinaryMessageCodec.getFlags(buffer, offset) & BinaryMessageCodec.FLAG_GORILLA) != 0;
+    }
+
+    /**
+     * Wrap a block and position the decoder before its first sample
+     *
+     * @throws IllegalArgumentException if the bytes are not a block supported by this decoder
+     */
+    public GorillaBlockDecoder wrap(byte[] buffer, int offset, int length) {
+
+        if(!isBlock(buffer, offset, length) || length < GorillaBlockEncoder.HEADER_SIZE)
+            throw new IllegalArgumentException("Not a time series block");
+
+        int version = buffer[offset] & 0x0F;
+        if(version != BinaryMessageCodec.VERSION)
+            throw new IllegalArgumentException("Unsupported time series block version: " + version);
+
+        this.typeCode = ((buffer[offset + GorillaBlockEncoder.TYPE_OFFSET] & 0xFF) << 8) | (buffer[offset + GorillaBlockEncoder.TYPE_OFFSET + 1] & 0xFF);
+        this.count = ((buffer[offset + GorillaBlockEncoder.COUNT_OFFSET] & 0xFF) << 8) | (buffer[offset + GorillaBlockEncoder.COUNT_OFFSET + 1] & 0xFF);
+        this.index = 0;
+
+        input.wrap(buffer, offset + GorillaBlockEncoder.HEADER_SIZE, length - GorillaBlockEncoder.HEADER_SIZE);
+        return this;
+    }
+
+    public GorillaBlockDecoder wrap(byte[] block) {
+        return wrap(block, 0, block.length);
+    }
+
+    /**
+     * Read a block written by GorillaBlockEncoder.write()
+     *
+     * @return the block, to be passed to wrap()
+     */
+    public static byte[] readBlock(DataInput dataInput) throws IOException {
+
+        int length = dataInput.readInt();
+
+        if(length < GorillaBlockEncoder.HEADER_SIZE || length > MAX_STORED_BLOCK_SIZE)
+            throw new IOException("Invalid time series block length: " + length);
+
+        byte[] block = new byte[length];
+        dataInput.readFully(block);
+        return block;
+    }
+
+    /**
+     * Move to the next sample
+     *
+     * @return false if all the samples of the block have been read
+     * @throws IllegalArgumentException if the bit stream is truncated
+     */
+    public boolean next() {
+
+        if(index >= count)
+            return false;
+
+        if(index == 0){
+            timestamp = input.readBits(64);
+            valueBits = input.readBits(64);
+            delta = 0;
+            leadingZeros = -1;
+            trailingZeros = 0;
+        }
+        else {
+            delta += readDeltaOfDelta();
+            timestamp += delta;
+            valueBits ^= readXor();
+        }
+
+        index++;
+        return true;
+    }
+
+    private long readDeltaOfDelta() {
+
+        if(!input.readBit())
+            return 0;
+        if(!input.readBit())
+            return signExtend(input.readBits(7), 7);
+        if(!input.readBit())
+            return signExtend(input.readBits(9), 9);
+        if(!input.readBit())
+            return signExtend(input.readBits(12), 12);
+
+        return input.readBits(64);
+    }
+
+    /**
+     * Values in the upper half of the range are negative, except the largest positive value of each bucket
+     * ([-63, 64] in 7 bits) which is told apart because the encoder never writes its negative counterpart
+     */
+    private static long signExtend(long bits, int count) {
+        long value = (bits << (64 - count)) >> (64 - count);
+        return value == -(1L << (count - 1)) ? -value : value;
+    }
+
+    private long readXor() {
+
+        if(!input.readBit())
+            return 0;
+
+        if(input.readBit()){
+            leadingZeros = (int) input.readBits(5);
+            int meaningfulBits = (int) input.readBits(6);
+            if(meaningfulBits == 0)
+                meaningfulBits = 64;
+            trailingZeros = 64 - leadingZeros - meaningfulBits;
+
+            if(trailingZeros < 0)
+                throw new IllegalArgumentException("Malformed time series block");
+        }
+        else if(leadingZeros < 0)
+            throw new IllegalArgumentException("Malformed time series block");
+
+        return input.readBits(64 - leadingZeros - trailingZeros) << trailingZeros;
+    }
+
+    public int getTypeCode() {
+        return typeCode;
+    }
+
+    /**
+     * @return the number of samples of the block
+     */
+    public int size() {
+        return count;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public double getValue() {
+        return Double.longBitsToDouble(valueBits);
+    }
+
+}
@@ -0,0 +1,268 @@
+package it.unimore.dipi.iot.mqtt.playground.codec;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streaming encoder of a block of (timestamp, value) samples of a single sensor type, bit-packed as in
+ * the Gorilla time series database: timestamps are stored as delta-of-delta and values as the XOR with the
+ * previous value, so near-regular timestamps take 1 bit and repeated or slowly varying values a few bits.
+ *
+ * Layout (big endian):
+ *
+ *   0     header: 0xB0 | version (as BinaryMessageCodec)
+ *   1     flags: BinaryMessageCodec.FLAG_BATCH | BinaryMessageCodec.FLAG_GORILLA
+ *   2-3   sensor type code (unsigned, see SensorTypeRegistry)
+ *   4-5   number of samples (unsigned)
+ *   then a bit stream, padded with zeros to a whole byte:
+ *   first sample: timestamp (64 bits), value (64 bits)
+ *   next samples: delta-of-delta of the timestamp
+ *     '0'                      -> 0
+ *     '10'   + 7 bits          -> [-63, 64]
+ *     '110'  + 9 bits          -> [-255, 256]
+ *     '1110' + 12 bits         -> [-2047, 2048]
+ *     '1111' + 64 bits         -> any other value
+ *   and XOR of the value with the previous one
+ *     '0'                      -> same value
+ *     '10' + meaningful bits   -> meaningful bits within the leading/trailing zeros window of the previous XOR
+ *     '11' + 5 bits leading zeros + 6 bits length (0 means 64) + meaningful bits
+ *
+ * A block is a self-contained byte array: it is published as a batch payload (decoded by ReadingBatchDecoder)
+ * and can be kept in memory or written to a file with write(). The encoder is reused across blocks and is not
+ * thread safe.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:22
+ */
+public class GorillaBlockEncoder {
+
+    public static final int HEADER_SIZE = 6;
+
+    public static final int MAX_BLOCK_SIZE = 0xFFFF;
+
+    static final int TYPE_OFFSET = 2;
+
+    static final int COUNT_OFFSET = 4;
+
+    //Largest number of leading zeros that can be encoded with 5 bits
+    static final int MAX_LEADING_ZEROS = 31;
+
+    private final BinaryMessageCodec codec;
+
+    private final int maxBlockSize;
+
+    private final BitOutput output;
+
+    private int typeCode = 0;
+
+    private int count = 0;
+
+    private long previousTimestamp;
+
+    private long previousDelta;
+
+    private long previousValueBits;
+
+    //Window of meaningful bits of the previous XOR (-1 if not yet defined)
+    private int previousLeadingZeros = -1;
+
+    private int previousTrailingZeros = 0;
+
+    /**
+     * @param codec codec whose registry resolves the sensor type codes
+     * @param maxBlockSize maximum number of samples of a block
+     */
+    public GorillaBlockEncoder(BinaryMessageCodec codec, int maxBlockSize) {
+
+        if(maxBlockSize <= 0 || maxBlockSize > MAX_BLOCK_SIZE)
+            throw new IllegalArgumentException("maxBlockSize must be in [1, " + MAX_BLOCK_SIZE + "]");
+
+        this.codec = codec;
+        this.maxBlockSize = maxBlockSize;
+
+        //About 2 bytes per sample for regular timestamps and slowly varying values
+        this.output = new BitOutput(HEADER_SIZE + 16 + Math.min(maxBlockSize, 1024) * 2, HEADER_SIZE);
+    }
+
+    /**
+     * Append a sample to the block. The type of the first sample is the type of the whole block.
+     *
+     * @return true if the block is full and has to be flushed
+     * @throws IllegalArgumentException if the type is not registered or differs from the type of the block
+     * @throws IllegalStateException if the block is already full
+     */
+    public boolean add(long timestamp, String type, double value) {
+
+        int code = codec.typeCode(type);
+
+        if(count > 0 && code != typeCode)
+            throw new IllegalArgumentException("Block of sensor type code " + typeCode + " cannot contain type: " + type);
+
+        typeCode = code;
+        return add(timestamp, value);
+    }
+
+    /**
+     * Append a sample of the type of the block
+     *
+     * @return true if the block is full and has to be flushed
+     * @throws IllegalStateException if the block is already full or its type has not been set
+     */
+    public boolean add(long timestamp, double value) {
+
+        if(count >= maxBlockSize)
+            throw new IllegalStateException("Block full !");
+
+        if(typeCode == 0)
+            throw new IllegalStateException("Sensor type of the block not set !");
+
+        long valueBits = Double.doubleToRawLongBits(value);
+
+        if(count == 0){
+            output.writeBits(timestamp, 64);
+            output.writeBits(valueBits, 64);
+            previousDelta = 0;
+        }
+        else {
+            long delta = timestamp - previousTimestamp;
+            writeDeltaOfDelta(delta - previousDelta);
+            writeXor(valueBits ^ previousValueBits);
+            previousDelta = delta;
+        }
+
+        previousTimestamp = timestamp;
+        previousValueBits = valueBits;
+        count++;
+
+        return count >= maxBlockSize;
+    }
+
+    private void writeDeltaOfDelta(long deltaOfDelta) {
+
+        if(deltaOfDelta == 0)
+            output.writeBit(false);
+        else if(deltaOfDelta >= -63 && deltaOfDelta <= 64){
+            output.writeBits(0b10, 2);
+            output.writeBits(deltaOfDelta, 7);
+        }
+        else if(deltaOfDelta >= -255 && deltaOfDelta <= 256){
+            output.writeBits(0b110, 3);
+            output.writeBits(deltaOfDelta, 9);
+        }
+        else if(deltaOfDelta >= -2047 && deltaOfDelta <= 2048){
+            output.writeBits(0b1110, 4);
+            output.writeBits(deltaOfDelta, 12);
+        }
+        else {
+            output.writeBits(0b1111, 4);
+            output.writeBits(deltaOfDelta, 64);
+        }
+    }
+
+    private void writeXor(long xor) {
+
+        if(xor == 0){
+            output.writeBit(false);
+            return;
+        }
+
+        int leadingZeros = Math.min(Long.numberOfLeadingZeros(xor), MAX_LEADING_ZEROS);
+        int trailingZeros = Long.numberOfTrailingZeros(xor);
+
+        //Reuse the window of the previous XOR if the meaningful bits fit into it
+        if(previousLeadingZeros >= 0 && leadingZeros >= previousLeadingZeros && trailingZeros >= previousTrailingZeros){
+            output.writeBits(0b10, 2);
+            output.writeBits(xor >>> previousTrailingZeros, 64 - previousLeadingZeros - previousTrailingZeros);
+            return;
+        }
+
+        int meaningfulBits = 64 - leadingZeros - trailingZeros;
+
+        output.writeBits(0b11, 2);
+        output.writeBits(leadingZeros, 5);
+        output.writeBits(meaningfulBits & 0x3F, 6);
+        output.writeBits(xor >>> trailingZeros, meaningfulBits);
+
+        previousLeadingZeros = leadingZeros;
+        previousTrailingZeros = trailingZeros;
+    }
+
+    /**
+     * @return a new array with the current block (the buffer is kept for the next block)
+     */
+    public byte[] toPayload() {
+
+        byte[] buffer = output.buffer();
+
+        BinaryMessageCodec.writeHeader(buffer, 0, BinaryMessageCodec.FLAG_BATCH | BinaryMessageCodec.FLAG_GORILLA);
+        buffer[TYPE_OFFSET] = (byte) (typeCode >>> 8);
+        buffer[TYPE_OFFSET + 1] = (byte) typeCode;
+        buffer[COUNT_OFFSET] = (byte) (count >>> 8);
+        buffer[COUNT_OFFSET + 1] = (byte) count;
+
+        return Arrays.copyOf(buffer, HEADER_SIZE + output.byteLength());
+    }
+
+    /**
+     * Write the current block preceded by its length, to be read back with GorillaBlockDecoder.readBlock()
+     */
+    public void write(DataOutput dataOutput) throws IOException {
+        byte[] block = toPayload();
+        dataOutput.writeInt(block.length);
+        dataOutput.write(block);
+    }
+
+    /**
+     * Start a new block, keeping the sensor type of the previous one
+     */
+    public GorillaBlockEncoder reset() {
+        output.reset();
+        count = 0;
+        previousLeadingZeros = -1;
+        previousTrailingZeros = 0;
+        return this;
+    }
+
+    /**
+     * Set the sensor type of the samples appended with add(timestamp, value)
+     *
+     * @throws IllegalArgumentException if the type is not registered
+     * @throws IllegalStateException if the block already contains samples of another type
+     */
+    public GorillaBlockEncoder setType(String type) {
+
+        int code = codec.typeCode(type);
+
+        if(count > 0 && code != typeCode)
+            throw new IllegalStateException("Block already contains samples of sensor type code " + typeCode);
+
+        typeCode = code;
+        return this;
+    }
+
+    public int getTypeCode() {
+        return typeCode;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @return the size in bytes of the current block
+     */
+    public int getEncodedSize() {
+        return HEADER_SIZE + output.byteLength();
+    }
+
+    public int getMaxBlockSize() {
+        return maxBlockSize;
+    }
+
+}
@@ -0,0 +1,375 @@
+package it.unimore.dipi.iot.mqtt.playground.codec;
+
+import java.util.Arrays;
+
+/**
+ * Minimal JSON writer producing UTF-8 bytes directly into a reusable, growable byte array.
+ *
+ * Numbers and strings are formatted without creating intermediate Strings. The output follows the
+ * formatting rules of Gson (HTML-safe string escaping, Double.toString-like representation of doubles)
+ * so that payloads can be parsed by the existing Gson based consumers.
+ *
+ * Instances are not thread safe, they are meant to be reused by a single thread.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:30
+ */
+public class JsonByteWriter {
+
+    private static final byte[] HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    //Escaped by Gson since they are line terminators in JavaScript
+    private static final char LINE_SEPARATOR = (char) 0x2028;
+
+    private static final char PARAGRAPH_SEPARATOR = (char) 0x2029;
+
+    private static final byte[] MIN_LONG_BYTES = Long.toString(Long.MIN_VALUE).getBytes();
+
+    //Doubles in this range are formatted with the plain decimal notation (as Double.toString does)
+    private static final double PLAIN_NOTATION_MIN = 1e-3;
+
+    private static final double PLAIN_NOTATION_MAX = 1e7;
+
+    //Doubles with more fractional bits cannot be formatted with 64 bit arithmetic and use the slow path
+    private static final int MAX_FAST_FRACTION_BITS = 57;
+
+    private static final int DOUBLE_EXPONENT_BIAS = 1075;
+
+    private static final long DOUBLE_MANTISSA_MASK = (1L << 52) - 1;
+
+    private static final long DOUBLE_HIDDEN_BIT = 1L << 52;
+
+    private byte[] buffer;
+
+    private int size = 0;
+
+    private boolean firstField = true;
+
+    public JsonByteWriter() {
+        this(256);
+    }
+
+    public JsonByteWriter(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Discard the current content keeping the allocated buffer
+     */
+    public JsonByteWriter reset() {
+        size = 0;
+        firstField = true;
+        return this;
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a copy of the written bytes with the exact length
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    public JsonByteWriter beginObject() {
+        writeByte('{');
+        firstField = true;
+        return this;
+    }
+
+    public JsonByteWriter endObject() {
+        writeByte('}');
+        firstField = false;
+        return this;
+    }
+
+    /**
+     * Write a field name (plain ASCII name without characters to be escaped) and the colon
+     */
+    public JsonByteWriter name(String name) {
+
+        if(!firstField)
+            writeByte(',');
+
+        firstField = false;
+
+        writeByte('"');
+        int length = name.length();
+        ensureCapacity(length);
+        for(int i = 0; i < length; i++)
+            buffer[size++] = (byte) name.charAt(i);
+        writeByte('"');
+        writeByte(':');
+
+        return this;
+    }
+
+    public JsonByteWriter field(String name, long value) {
+        name(name);
+        writeLong(value);
+        return this;
+    }
+
+    public JsonByteWriter field(String name, double value) {
+        name(name);
+        writeDouble(value);
+        return this;
+    }
+
+    /**
+     * Write a string field. Null values are skipped as Gson does by default.
+     */
+    public JsonByteWriter field(String name, String value) {
+        if(value != null){
+            name(name);
+            writeString(value);
+        }
+        return this;
+    }
+
+    public void writeLong(long value) {
+
+        if(value == Long.MIN_VALUE){
+            writeBytes(MIN_LONG_BYTES);
+            return;
+        }
+
+        ensureCapacity(20);
+
+        if(value < 0){
+            buffer[size++] = '-';
+            value = -value;
+        }
+
+        int digits = digitCount(value);
+        int position = size + digits;
+        size = position;
+
+        do {
+            buffer[--position] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while(value != 0);
+    }
+
+    /**
+     * Write a double value. Values in [1e-3, 1e7) are written with the shortest decimal representation
+     * that is parsed back to the same double, computed with exact 64 bit integer arithmetic
+     * (Steele and White free-format algorithm). The other values fall back to Double.toString().
+     *
+     * @param value finite double value
+     */
+    public void writeDouble(double value) {
+
+        if(Double.isNaN(value) || Double.isInfinite(value))
+            throw new IllegalArgumentException(value + " is not a valid double value as per JSON specification");
+
+        double absolute = Math.abs(value);
+
+        if(absolute == 0.0){
+            writeAscii((Double.doubleToRawLongBits(value) < 0) ? "-0.0" : "0.0");
+            return;
+        }
+
+        if(absolute < PLAIN_NOTATION_MIN || absolute >= PLAIN_NOTATION_MAX || !writePlainDouble(value < 0, absolute))
+            writeAscii(Double.toString(value));
+    }
+
+    /**
+     * Write a JSON string escaping the characters as Gson does with the default HTML-safe configuration
+     */
+    public void writeString(String value) {
+
+        ensureCapacity(value.length() + 2);
+        buffer[size++] = '"';
+
+        int length = value.length();
+
+        for(int i = 0; i < length; i++){
+
+            char c = value.charAt(i);
+
+            if(c < 0x80){
+                switch(c){
+                    case '"':
+                        writeEscape('"');
+                        break;
+                    case '\\':
+                        writeEscape('\\');
+                        break;
+                    case '\t':
+                        writeEscape('t');
+                        break;
+                    case '\b':
+                        writeEscape('b');
+                        break;
+                    case '\n':
+                        writeEscape('n');
+                        break;
+                    case '\r':
+                        writeEscape('r');
+                        break;
+                    case '\f':
+                        writeEscape('f');
+                        break;
+                    case '<':
+                    case '>':
+                    case '&':
+                    case '=':
+                    case '\'':
+                        writeUnicodeEscape(c);
+                        break;
+                    default:
+                        if(c < 0x20)
+                            writeUnicodeEscape(c);
+                        else
+                            writeByte(c);
+                }
+            }
+            else if(c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR)
+                writeUnicodeEscape(c);
+            else if(c < 0x800){
+                ensureCapacity(2);
+                buffer[size++] = (byte) (0xC0 | (c >> 6));
+                buffer[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))){
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                ensureCapacity(4);
+                buffer[size++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[size++] = (byte) (0x80 | (codePoint & 0x3F));
+            }
+            else if(Character.isSurrogate(c))
+                writeByte('?');
+            else {
+                ensureCapacity(3);
+                buffer[size++] = (byte) (0xE0 | (c >> 12));
+                buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        writeByte('"');
+    }
+
+    public void writeByte(int b) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) b;
+    }
+
+    public void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void writeAscii(String value) {
+        int length = value.length();
+        ensureCapacity(length);
+        for(int i = 0; i < length; i++)
+            buffer[size++] = (byte) value.charAt(i);
+    }
+
+    private void writeEscape(char c) {
+        ensureCapacity(2);
+        buffer[size++] = '\\';
+        buffer[size++] = (byte) c;
+    }
+
+    private void writeUnicodeEscape(char c) {
+        ensureCapacity(6);
+        buffer[size++] = '\\';
+        buffer[size++] = 'u';
+        buffer[size++] = HEX_DIGITS[(c >> 12) & 0xF];
+        buffer[size++] = HEX_DIGITS[(c >> 8) & 0xF];
+        buffer[size++] = HEX_DIGITS[(c >> 4) & 0xF];
+        buffer[size++] = HEX_DIGITS[c & 0xF];
+    }
+
+    /**
+     * Shortest digit generation for a positive normal double with an integer part lower than 2^63.
+     * The value is m * 2^-k; all the quantities are scaled by 2^(k+2) so that the half-ULP margins
+     * (halved on the lower side when the mantissa is a power of two) are integers.
+     *
+     * @return false if the value cannot be handled by the fast path (nothing is written in that case)
+     */
+    private boolean writePlainDouble(boolean negative, double absolute) {
+
+        long bits = Double.doubleToRawLongBits(absolute);
+        int biasedExponent = (int) (bits >>> 52);
+        long mantissa = (bits & DOUBLE_MANTISSA_MASK) | DOUBLE_HIDDEN_BIT;
+
+        int fractionBits = DOUBLE_EXPONENT_BIAS - biasedExponent;
+
+        if(fractionBits <= 0 || fractionBits > MAX_FAST_FRACTION_BITS)
+            return false;
+
+        long integerPart = mantissa >>> fractionBits;
+        long denominator = 1L << (fractionBits + 2);
+        long remainder = (mantissa & ((1L << fractionBits) - 1)) << 2;
+        long marginHigh = 2;
+        long marginLow = (mantissa == DOUBLE_HIDDEN_BIT) ? 1 : 2;
+
+        int start = size;
+
+        if(negative)
+            writeByte('-');
+
+        writeLong(integerPart);
+        writeByte('.');
+
+        while(true){
+
+            remainder *= 10;
+            marginHigh *= 10;
+            marginLow *= 10;
+
+            int digit = (int) (remainder / denominator);
+            remainder = remainder % denominator;
+
+            boolean low = remainder < marginLow;
+            boolean high = remainder > denominator - marginHigh;
+
+            if(low || high){
+
+                if(high && (!low || 2 * remainder > denominator))
+                    digit++;
+
+                if(digit > 9){
+                    //Carry into the previous digits: not expected, use the slow path
+                    size = start;
+                    return false;
+                }
+
+                writeByte('0' + digit);
+                return true;
+            }
+
+            writeByte('0' + digit);
+        }
+    }
+
+    private static int digitCount(long value) {
+        long bound = 10;
+        for(int digits = 1; digits < 19; digits++){
+            if(value < bound)
+                return digits;
+            bound *= 10;
+        }
+        return 19;
+    }
+
+    private void ensureCapacity(int additional) {
+        if(size + additional > buffer.length)
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + additional));
+    }
+
+}
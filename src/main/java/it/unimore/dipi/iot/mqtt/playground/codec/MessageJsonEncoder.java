@@ -0,0 +1,93 @@
+package it.unimore.dipi.iot.mqtt.playground.codec;
+
+import it.unimore.dipi.iot.mqtt.playground.model.DeviceDescriptor;
+import it.unimore.dipi.iot.mqtt.playground.model.MessageDescriptor;
+
+/**
+ * Streaming JSON encoder for MessageDescriptor and DeviceDescriptor.
+ *
+ * The JSON document is written as UTF-8 directly into a per-thread reusable JsonByteWriter, with the
+ * same field order and formatting used by Gson, so that the output can be parsed by the existing consumers.
+ * The returned writer is valid until the next encode call performed by the same thread: use
+ * JsonByteWriter.toByteArray() to obtain a payload that can be handed to Paho (which keeps a reference
+ * to the array of the MqttMessage).
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:30
+ */
+public final class MessageJsonEncoder {
+
+    private static final ThreadLocal<JsonByteWriter> threadWriter = ThreadLocal.withInitial(JsonByteWriter::new);
+
+    private MessageJsonEncoder() {
+    }
+
+    /**
+     * Encode a MessageDescriptor
+     *
+     * @param messageDescriptor
+     * @return the per-thread writer containing the JSON document
+     */
+    public static JsonByteWriter encode(MessageDescriptor messageDescriptor) {
+        return encodeMessage(messageDescriptor.getTimestamp(), messageDescriptor.getType(), messageDescriptor.getValue());
+    }
+
+    /**
+     * Encode the fields of a MessageDescriptor without creating the object
+     *
+     * @param timestamp
+     * @param type
+     * @param value
+     * @return the per-thread writer containing the JSON document
+     */
+    public static JsonByteWriter encodeMessage(long timestamp, String type, double value) {
+        return threadWriter.get()
+                .reset()
+                .beginObject()
+                .field("timestamp", timestamp)
+                .field("type", type)
+                .field("value", value)
+                .endObject();
+    }
+
+    /**
+     * Encode a message generated by the open loop load generator. Fields declared by the subclass
+     * (sequence and intendedTimestamp) come first, as Gson does for DelayMessageDescriptor.
+     *
+     * @param timestamp
+     * @param type
+     * @param value
+     * @param sequence
+     * @param intendedTimestamp
+     * @return the per-thread writer containing the JSON document
+     */
+    public static JsonByteWriter encodeDelayMessage(long timestamp, String type, double value, long sequence, long intendedTimestamp) {
+        return threadWriter.get()
+                .reset()
+                .beginObject()
+                .field("sequence", sequence)
+                .field("intendedTimestamp", intendedTimestamp)
+                .field("timestamp", timestamp)
+                .field("type", type)
+                .field("value", value)
+                .endObject();
+    }
+
+    /**
+     * Encode a DeviceDescriptor (null fields are omitted as Gson does)
+     *
+     * @param deviceDescriptor
+     * @return the per-thread writer containing the JSON document
+     */
+    public static JsonByteWriter encode(DeviceDescriptor deviceDescriptor) {
+        return threadWriter.get()
+                .reset()
+                .beginObject()
+                .field("deviceId", deviceDescriptor.getDeviceId())
+                .field("producer", deviceDescriptor.getProducer())
+                .field("softwareVersion", deviceDescriptor.getSoftwareVersion())
+                .endObject();
+    }
+
+}
@@ -0,0 +1,513 @@
+package it.unimore.dipi.iot.mqtt.playground.codec;
+
+import com.google.gson.Gson;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser of JSON telemetry messages working directly on the received payload bytes.
+ *
+ * The timestamp, type, value, sequence and intendedTimestamp fields are written into a caller supplied
+ * SensorReading without creating intermediate Strings: the sensor type is resolved against the types
+ * known by the SensorTypeRegistry and numbers are converted in place (doubles with up to 15-16 significant
+ * digits and small exponents, as produced by the producers, are converted exactly with a single floating
+ * point operation). Unknown fields are skipped without being validated.
+ *
+ * Documents that cannot be handled by the fast path (escaped strings, quoted numbers, lenient syntax, ...)
+ * are parsed through Gson, so that the result is the same of the Gson based parsing of the consumers.
+ *
+ * Instances are not thread safe: consumers keep one parser for the thread invoking their callbacks.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:37
+ */
+public class MessageJsonParser {
+
+    private static final byte[] TIMESTAMP_FIELD = "timestamp".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] TYPE_FIELD = "type".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] VALUE_FIELD = "value".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] SEQUENCE_FIELD = "sequence".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] INTENDED_TIMESTAMP_FIELD = "intendedTimestamp".getBytes(StandardCharsets.US_ASCII);
+
+    //Integers with more digits may overflow and are handled by the fallback
+    private static final int MAX_LONG_DIGITS = 18;
+
+    //Significant digits accumulated in the decimal significand of a double (cannot overflow a long)
+    private static final int MAX_SIGNIFICAND_DIGITS = 18;
+
+    //Significands up to 2^53 and powers of ten up to 10^22 are exact doubles
+    private static final long MAX_EXACT_SIGNIFICAND = 1L << 53;
+
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    //Powers of five used by divideByPowerOfTen (5^22 < 2^52)
+    private static final int MAX_EXACT_POWER_OF_FIVE = 22;
+
+    private static final long[] POWERS_OF_FIVE = new long[MAX_EXACT_POWER_OF_FIVE + 1];
+
+    private static final Gson gson = new Gson();
+
+    static {
+        POWERS_OF_FIVE[0] = 1;
+        for(int i = 1; i <= MAX_EXACT_POWER_OF_FIVE; i++)
+            POWERS_OF_FIVE[i] = POWERS_OF_FIVE[i - 1] * 5;
+    }
+
+    private final SensorTypeRegistry registry;
+
+    private byte[] buffer;
+
+    private int position;
+
+    private int end;
+
+    //Result of the last parseLong/parseDouble call
+    private long longValue;
+
+    private double doubleValue;
+
+    private long fallbackCount = 0;
+
+    public MessageJsonParser() {
+        this(SensorTypeRegistry.getDefault());
+    }
+
+    public MessageJsonParser(SensorTypeRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * @return true if the payload has been parsed into the reading, false if it is not a valid message
+     */
+    public boolean parse(byte[] payload, SensorReading reading) {
+        return parse(payload, 0, payload.length, reading);
+    }
+
+    public boolean parse(byte[] buffer, int offset, int length, SensorReading reading) {
+
+        reading.clear();
+
+        try{
+            if(parseFast(buffer, offset, length, reading))
+                return true;
+        }finally {
+            this.buffer = null;
+        }
+
+        fallbackCount++;
+        reading.clear();
+
+        return parseWithGson(buffer, offset, length, reading);
+    }
+
+    /**
+     * @return the number of messages parsed through Gson
+     */
+    public long getFallbackCount() {
+        return fallbackCount;
+    }
+
+    private boolean parseFast(byte[] buffer, int offset, int length, SensorReading reading) {
+
+        this.buffer = buffer;
+        this.position = offset;
+        this.end = offset + length;
+
+        skipWhitespace();
+        if(!consume('{'))
+            return false;
+
+        skipWhitespace();
+        if(consume('}'))
+            return finish();
+
+        while(true){
+
+            skipWhitespace();
+            if(!consume('"'))
+                return false;
+
+            int nameStart = position;
+            if(!skipSimpleString())
+                return false;
+            int nameLength = position - 1 - nameStart;
+
+            skipWhitespace();
+            if(!consume(':'))
+                return false;
+            skipWhitespace();
+
+            if(!parseField(nameStart, nameLength, reading))
+                return false;
+
+            skipWhitespace();
+
+            if(consume(','))
+                continue;
+
+            if(consume('}'))
+                return finish();
+
+            return false;
+        }
+    }
+
+    private boolean parseField(int nameStart, int nameLength, SensorReading reading) {
+
+        if(nameEquals(nameStart, nameLength, VALUE_FIELD)){
+            if(!parseDouble())
+                return false;
+            reading.setValue(doubleValue);
+        }
+        else if(nameEquals(nameStart, nameLength, TIMESTAMP_FIELD)){
+            if(!parseLong())
+                return false;
+            reading.setTimestamp(longValue);
+        }
+        else if(nameEquals(nameStart, nameLength, TYPE_FIELD)){
+            return parseType(reading);
+        }
+        else if(nameEquals(nameStart, nameLength, SEQUENCE_FIELD)){
+            if(!parseLong())
+                return false;
+            reading.setSequence(longValue);
+        }
+        else if(nameEquals(nameStart, nameLength, INTENDED_TIMESTAMP_FIELD)){
+            if(!parseLong())
+                return false;
+            reading.setIntendedTimestamp(longValue);
+        }
+        else
+            return skipValue();
+
+        return true;
+    }
+
+    private boolean parseType(SensorReading reading) {
+
+        if(consumeLiteral("null")){
+            reading.setType(null);
+            return true;
+        }
+
+        if(!consume('"'))
+            return false;
+
+        int start = position;
+        if(!skipSimpleString())
+            return false;
+        int length = position - 1 - start;
+
+        String type = registry.findType(buffer, start, length);
+        reading.setType(type != null ? type : new String(buffer, start, length, StandardCharsets.UTF_8));
+
+        return true;
+    }
+
+    private boolean parseLong() {
+
+        boolean negative = consume('-');
+        int start = position;
+        long value = 0;
+
+        while(position < end && isDigit(buffer[position])){
+            value = value * 10 + (buffer[position] - '0');
+            position++;
+        }
+
+        int digits = position - start;
+
+        if(digits == 0 || digits > MAX_LONG_DIGITS || (digits > 1 && buffer[start] == '0'))
+            return false;
+
+        //Fractions and exponents are left to the fallback
+        if(position < end && (buffer[position] == '.' || buffer[position] == 'e' || buffer[position] == 'E'))
+            return false;
+
+        longValue = negative ? -value : value;
+        return true;
+    }
+
+    private boolean parseDouble() {
+
+        int start = position;
+        boolean negative = consume('-');
+
+        long significand = 0;
+        int significandDigits = 0;
+        int exponent = 0;
+        boolean truncated = false;
+
+        int integerStart = position;
+        while(position < end && isDigit(buffer[position])){
+            if(significandDigits < MAX_SIGNIFICAND_DIGITS){
+                significand = significand * 10 + (buffer[position] - '0');
+                if(significand != 0)
+                    significandDigits++;
+            }
+            else{
+                exponent++;
+                if(buffer[position] != '0')
+                    truncated = true;
+            }
+            position++;
+        }
+
+        int integerDigits = position - integerStart;
+        if(integerDigits == 0 || (integerDigits > 1 && buffer[integerStart] == '0'))
+            return false;
+
+        if(consume('.')){
+            int fractionStart = position;
+            while(position < end && isDigit(buffer[position])){
+                if(significandDigits < MAX_SIGNIFICAND_DIGITS){
+                    significand = significand * 10 + (buffer[position] - '0');
+                    exponent--;
+                    if(significand != 0)
+                        significandDigits++;
+                }
+                else if(buffer[position] != '0')
+                    truncated = true;
+                position++;
+            }
+            if(position == fractionStart)
+                return false;
+        }
+
+        if(position < end && (buffer[position] == 'e' || buffer[position] == 'E')){
+            position++;
+            boolean negativeExponent = false;
+            if(!consume('+'))
+                negativeExponent = consume('-');
+
+            int exponentStart = position;
+            int explicitExponent = 0;
+            while(position < end && isDigit(buffer[position])){
+                if(explicitExponent < 10000)
+                    explicitExponent = explicitExponent * 10 + (buffer[position] - '0');
+                position++;
+            }
+            if(position == exponentStart)
+                return false;
+
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        double value;
+
+        if(significand == 0 && !truncated)
+            value = 0.0;
+        else if(!truncated && significand <= MAX_EXACT_SIGNIFICAND && exponent >= -22 && exponent <= 22)
+            value = (exponent < 0) ? significand / EXACT_POWERS_OF_TEN[-exponent] : significand * EXACT_POWERS_OF_TEN[exponent];
+        else if(!truncated && exponent < 0 && exponent >= -MAX_EXACT_POWER_OF_FIVE)
+            value = divideByPowerOfTen(significand, -exponent);
+        else{
+            //Correct rounding of the remaining cases requires arbitrary precision: rare, delegated to the JDK
+            doubleValue = Double.parseDouble(new String(buffer, start, position - start, StandardCharsets.US_ASCII));
+            return true;
+        }
+
+        doubleValue = negative ? -value : value;
+        return true;
+    }
+
+    /**
+     * Correctly rounded significand / 10^power for significands wider than 53 bits (e.g. the 16-17 digits
+     * produced by Double.toString). Since 10^power = 5^power * 2^power, the significand is divided by
+     * 5^power with an integer long division producing at least 55 quotient bits, rounded half to even
+     * (the remainder acting as sticky bit) and finally scaled by 2^-power.
+     */
+    private static double divideByPowerOfTen(long significand, int power) {
+
+        long divisor = POWERS_OF_FIVE[power];
+        long quotient = significand / divisor;
+        long remainder = significand % divisor;
+        int shift = 0;
+
+        while(quotient < (1L << 54)){
+            //Quotient bits produced at each step, keeping both remainder and quotient below 2^63
+            int step = Math.min(Long.numberOfLeadingZeros(divisor), Long.numberOfLeadingZeros(quotient)) - 1;
+            remainder <<= step;
+            quotient = (quotient << step) | (remainder / divisor);
+            remainder = remainder % divisor;
+            shift += step;
+        }
+
+        int dropped = 64 - Long.numberOfLeadingZeros(quotient) - 53;
+        long droppedBits = quotient & ((1L << dropped) - 1);
+        long half = 1L << (dropped - 1);
+
+        quotient >>>= dropped;
+
+        if(droppedBits > half || (droppedBits == half && (remainder != 0 || (quotient & 1) != 0)))
+            quotient++;
+
+        return Math.scalb((double) quotient, dropped - shift - power);
+    }
+
+    /**
+     * Skip the value of an unknown field (brackets are balanced but their kind is not checked)
+     */
+    private boolean skipValue() {
+
+        int start = position;
+        int depth = 0;
+
+        while(position < end){
+
+            byte b = buffer[position];
+
+            if(b == '"'){
+                position++;
+                if(!skipString())
+                    return false;
+                if(depth == 0)
+                    return true;
+                continue;
+            }
+
+            if(b == '{' || b == '[')
+                depth++;
+            else if(b == '}' || b == ']'){
+                if(depth == 0)
+                    return position > start;
+                if(--depth == 0){
+                    position++;
+                    return true;
+                }
+            }
+            else if(depth == 0 && (b == ',' || isWhitespace(b)))
+                return position > start;
+
+            position++;
+        }
+
+        return false;
+    }
+
+    /**
+     * Skip a string (the opening quote has already been consumed) handling escape sequences
+     */
+    private boolean skipString() {
+
+        while(position < end){
+            byte b = buffer[position++];
+            if(b == '\\')
+                position++;
+            else if(b == '"')
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Skip a string (the opening quote has already been consumed) without escape sequences and
+     * control characters, positioning after the closing quote
+     */
+    private boolean skipSimpleString() {
+
+        while(position < end){
+            byte b = buffer[position++];
+            if(b == '"')
+                return true;
+            if(b == '\\' || (b >= 0 && b < 0x20))
+                return false;
+        }
+
+        return false;
+    }
+
+    private boolean nameEquals(int nameStart, int nameLength, byte[] name) {
+
+        if(nameLength != name.length)
+            return false;
+
+        for(int i = 0; i < nameLength; i++)
+            if(buffer[nameStart + i] != name[i])
+                return false;
+
+        return true;
+    }
+
+    private boolean consumeLiteral(String literal) {
+
+        int length = literal.length();
+
+        if(end - position < length)
+            return false;
+
+        for(int i = 0; i < length; i++)
+            if(buffer[position + i] != literal.charAt(i))
+                return false;
+
+        position += length;
+        return true;
+    }
+
+    private boolean consume(char c) {
+        if(position < end && buffer[position] == c){
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean finish() {
+        skipWhitespace();
+        return position == end;
+    }
+
+    private void skipWhitespace() {
+        while(position < end && isWhitespace(buffer[position]))
+            position++;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean parseWithGson(byte[] buffer, int offset, int length, SensorReading reading) {
+
+        try{
+
+            JsonMessage message = gson.fromJson(new String(buffer, offset, length, StandardCharsets.UTF_8), JsonMessage.class);
+
+            if(message == null)
+                return false;
+
+            reading.setTimestamp(message.timestamp);
+            reading.setType(message.type);
+            reading.setValue(message.value);
+            reading.setSequence(message.sequence);
+            reading.setIntendedTimestamp(message.intendedTimestamp);
+
+            return true;
+
+        }catch (Exception e){
+            return false;
+        }
+    }
+
+    //Union of the fields of MessageDescriptor and DelayMessageDescriptor used by the Gson fallback
+    private static class JsonMessage {
+        private long timestamp;
+        private String type;
+        private double value;
+        private long sequence;
+        private long intendedTimestamp;
+    }
+
+}
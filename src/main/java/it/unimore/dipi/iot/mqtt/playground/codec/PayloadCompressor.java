@@ -0,0 +1,291 @@
+package it.unimore.dipi.iot.mqtt.playground.codec;
+
+import it.unimore.dipi.iot.mqtt.playground.metrics.CompressionMetrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Optional compression layer for JSON and binary payloads based on raw deflate with a preset PayloadDictionary.
+ *
+ * Compressed payloads are framed with the binary header, so that consumers can tell them apart from
+ * plain JSON or binary messages on the same topic:
+ *
+ *   0     header: 0xB0 | version (see BinaryMessageCodec)
+ *   1     flags: FLAG_COMPRESSED
+ *   2     dictionary id (see PayloadDictionary)
+ *   3-... raw deflate stream of the original payload
+ *
+ * Payloads shorter than minPayloadSize, or that would not shrink, are returned unchanged.
+ * Deflater and Inflater instances hold native memory and are expensive to create, so they are borrowed from
+ * bounded pools and reset after each payload. A compressor is thread safe and is meant to be shared.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:18
+ */
+public class PayloadCompressor {
+
+    public static final int FRAME_HEADER_SIZE = 3;
+
+    //Payloads below this size are not worth compressing (e.g. single binary messages)
+    public static final int DEFAULT_MIN_PAYLOAD_SIZE = 48;
+
+    //Largest payload accepted when decompressing, protecting consumers from decompression bombs
+    public static final int DEFAULT_MAX_PAYLOAD_SIZE = 256 * 1024;
+
+    private static final int DICTIONARY_ID_OFFSET = 2;
+
+    //Maximum number of idle Deflater and Inflater instances kept by each pool
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private static final boolean THREAD_CPU_TIME_SUPPORTED = threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+
+    private final PayloadDictionary dictionary;
+
+    private final int level;
+
+    private final int minPayloadSize;
+
+    private final int maxPayloadSize;
+
+    private final ArrayBlockingQueue<Deflater> deflaterPool = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private final ArrayBlockingQueue<Inflater> inflaterPool = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    //Output buffer reused by the calling thread, copied into the returned payload
+    private final ThreadLocal<byte[]> threadBuffer = ThreadLocal.withInitial(() -> new byte[1024]);
+
+    private volatile CompressionMetrics metrics = null;
+
+    public PayloadCompressor() {
+        this(PayloadDictionary.getDefault(), Deflater.BEST_COMPRESSION, DEFAULT_MIN_PAYLOAD_SIZE, DEFAULT_MAX_PAYLOAD_SIZE);
+    }
+
+    /**
+     * @param dictionary preset dictionary, the same one must be used by producers and consumers
+     * @param level deflate compression level (0-9)
+     * @param minPayloadSize payloads below this size are not compressed
+     * @param maxPayloadSize maximum size of a decompressed payload
+     */
+    public PayloadCompressor(PayloadDictionary dictionary, int level, int minPayloadSize, int maxPayloadSize) {
+
+        if(level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+
+        if(maxPayloadSize <= 0)
+            throw new IllegalArgumentException("Invalid maximum payload size: " + maxPayloadSize);
+
+        this.dictionary = dictionary;
+        this.level = level;
+        this.minPayloadSize = Math.max(minPayloadSize, FRAME_HEADER_SIZE + 1);
+        this.maxPayloadSize = maxPayloadSize;
+    }
+
+    public void setMetrics(CompressionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public static boolean isCompressed(byte[] payload) {
+        return payload != null && BinaryMessageCodec.isCompressed(payload, 0, payload.length);
+    }
+
+    /**
+     * Compress a payload if it is large enough and the frame is smaller than the payload
+     *
+     * @return the compressed frame or the same payload
+     */
+    public byte[] compress(byte[] payload) {
+
+        CompressionMetrics metrics = this.metrics;
+
+        if(payload.length < minPayloadSize){
+            if(metrics != null)
+                metrics.recordSkipped(0);
+            return payload;
+        }
+
+        long cpuStart = cpuNanos();
+        Deflater deflater = borrowDeflater();
+
+        try {
+
+            //The frame is useful only if it is at least one byte shorter than the payload
+            byte[] buffer = buffer(payload.length);
+            deflater.setInput(payload, 0, payload.length);
+            deflater.finish();
+            int size = deflater.deflate(buffer, FRAME_HEADER_SIZE, payload.length - FRAME_HEADER_SIZE - 1);
+
+            if(!deflater.finished()){
+                if(metrics != null)
+                    metrics.recordSkipped(cpuNanos() - cpuStart);
+                return payload;
+            }
+
+            BinaryMessageCodec.writeHeader(buffer, 0, BinaryMessageCodec.FLAG_COMPRESSED);
+            buffer[DICTIONARY_ID_OFFSET] = (byte) dictionary.getId();
+            byte[] frame = Arrays.copyOf(buffer, FRAME_HEADER_SIZE + size);
+
+            if(metrics != null)
+                metrics.recordCompressed(payload.length, frame.length, cpuNanos() - cpuStart);
+
+            return frame;
+
+        }finally {
+            releaseDeflater(deflater);
+        }
+    }
+
+    /**
+     * Decompress a frame written by compress()
+     *
+     * @return the original payload or the same payload if it is not compressed
+     * @throws IllegalArgumentException if the frame is malformed, uses another dictionary or is too large
+     */
+    public byte[] decompress(byte[] payload) {
+
+        if(!isCompressed(payload))
+            return payload;
+
+        CompressionMetrics metrics = this.metrics;
+
+        try {
+            long cpuStart = cpuNanos();
+            byte[] original = inflate(payload);
+
+            if(metrics != null)
+                metrics.recordDecompressed(cpuNanos() - cpuStart);
+
+            return original;
+
+        }catch (IllegalArgumentException e){
+            if(metrics != null)
+                metrics.recordDecompressFailure();
+            throw e;
+        }
+    }
+
+    private byte[] inflate(byte[] frame) {
+
+        if(frame.length <= FRAME_HEADER_SIZE)
+            throw new IllegalArgumentException("Compressed frame too short: " + frame.length + " bytes");
+
+        int version = frame[0] & 0x0F;
+        if(version != BinaryMessageCodec.VERSION)
+            throw new IllegalArgumentException("Unsupported compressed frame version: " + version);
+
+        int dictionaryId = frame[DICTIONARY_ID_OFFSET] & 0xFF;
+        if(dictionaryId != dictionary.getId())
+            throw new IllegalArgumentException("Unknown compression dictionary: " + dictionaryId);
+
+        Inflater inflater = borrowInflater();
+
+        try {
+
+            byte[] buffer = threadBuffer.get();
+            int size = 0;
+            inflater.setInput(frame, FRAME_HEADER_SIZE, frame.length - FRAME_HEADER_SIZE);
+
+            while(!inflater.finished()){
+
+                int limit = Math.min(buffer.length, maxPayloadSize);
+
+                if(size == limit){
+                    if(limit == maxPayloadSize)
+                        throw new IllegalArgumentException("Decompressed payload larger than " + maxPayloadSize + " bytes");
+                    buffer = buffer(Math.min(size * 2, maxPayloadSize));
+                    limit = Math.min(buffer.length, maxPayloadSize);
+                }
+
+                int count = inflater.inflate(buffer, size, limit - size);
+                size += count;
+
+                if(count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IllegalArgumentException("Truncated compressed frame");
+            }
+
+            return Arrays.copyOf(buffer, size);
+
+        }catch (DataFormatException e){
+            throw new IllegalArgumentException("Malformed compressed frame: " + e.getMessage());
+        }finally {
+            releaseInflater(inflater);
+        }
+    }
+
+    /**
+     * @return the buffer of the calling thread, grown to at least the requested size
+     */
+    private byte[] buffer(int size) {
+
+        byte[] buffer = threadBuffer.get();
+
+        if(buffer.length < size){
+            buffer = Arrays.copyOf(buffer, Math.max(size, buffer.length * 2));
+            threadBuffer.set(buffer);
+        }
+
+        return buffer;
+    }
+
+    private Deflater borrowDeflater() {
+
+        Deflater deflater = deflaterPool.poll();
+
+        if(deflater == null)
+            deflater = new Deflater(level, true);
+
+        deflater.setDictionary(dictionary.content());
+        return deflater;
+    }
+
+    private void releaseDeflater(Deflater deflater) {
+        deflater.reset();
+        if(!deflaterPool.offer(deflater))
+            deflater.end();
+    }
+
+    private Inflater borrowInflater() {
+
+        Inflater inflater = inflaterPool.poll();
+
+        if(inflater == null)
+            inflater = new Inflater(true);
+
+        inflater.setDictionary(dictionary.content());
+        return inflater;
+    }
+
+    private void releaseInflater(Inflater inflater) {
+        inflater.reset();
+        if(!inflaterPool.offer(inflater))
+            inflater.end();
+    }
+
+    /**
+     * @return the CPU time of the calling thread, or the wall clock time if not supported by the JVM
+     */
+    private static long cpuNanos() {
+        return THREAD_CPU_TIME_SUPPORTED ? threadMXBean.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    public PayloadDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public int getMinPayloadSize() {
+        return minPayloadSize;
+    }
+
+    public int getMaxPayloadSize() {
+        return maxPayloadSize;
+    }
+
+}
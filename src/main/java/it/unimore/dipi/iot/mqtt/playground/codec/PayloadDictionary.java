@@ -0,0 +1,138 @@
+package it.unimore.dipi.iot.mqtt.playground.codec;
+
+import it.unimore.dipi.iot.mqtt.playground.model.DeviceDescriptor;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Adler32;
+
+/**
+ * Preset dictionary shared by the PayloadCompressor of producers and consumers.
+ *
+ * Deflate can reference the dictionary as if it preceded each payload, so the field names, sensor types and
+ * producer names repeated by every message cost a few bits instead of being sent as literals. Both sides must
+ * use the same dictionary: the compressed frames carry its id, derived from the Adler-32 of the content.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:18
+ */
+public final class PayloadDictionary {
+
+    //Maximum size of a deflate preset dictionary (size of the deflate window)
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    //Dictionary trained on the telemetry and device information messages published by the producers
+    private static final PayloadDictionary DEFAULT = train(defaultSamples(), MAX_DICTIONARY_SIZE);
+
+    private final byte[] content;
+
+    private final int id;
+
+    public PayloadDictionary(byte[] content) {
+
+        if(content.length > MAX_DICTIONARY_SIZE)
+            throw new IllegalArgumentException("Dictionary too large: " + content.length + " bytes");
+
+        this.content = content.clone();
+
+        Adler32 adler32 = new Adler32();
+        adler32.update(content, 0, content.length);
+        this.id = (int) (adler32.getValue() & 0xFF);
+    }
+
+    public static PayloadDictionary getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Build a dictionary from sample payloads. Distinct samples are ordered by frequency so that the most
+     * common shapes are at the end of the dictionary, where deflate references are the shortest, and the
+     * least common ones are discarded when the dictionary exceeds maxSize.
+     *
+     * @param samples sample payloads, duplicates increase the weight of a shape
+     * @param maxSize maximum size of the dictionary (at most MAX_DICTIONARY_SIZE)
+     * @return the trained dictionary
+     */
+    public static PayloadDictionary train(List<byte[]> samples, int maxSize) {
+
+        Map<String, Integer> frequencyMap = new HashMap<>();
+        Map<String, byte[]> sampleMap = new HashMap<>();
+
+        for(byte[] sample : samples){
+            String key = Arrays.toString(sample);
+            frequencyMap.merge(key, 1, Integer::sum);
+            sampleMap.putIfAbsent(key, sample);
+        }
+
+        List<String> keyList = new ArrayList<>(frequencyMap.keySet());
+        keyList.sort((first, second) -> frequencyMap.get(second) - frequencyMap.get(first));
+
+        //Walk from the most to the least frequent sample, filling the dictionary from its end
+        int limit = Math.min(maxSize, MAX_DICTIONARY_SIZE);
+        List<byte[]> selectedList = new ArrayList<>();
+        int size = 0;
+
+        for(String key : keyList){
+            byte[] sample = sampleMap.get(key);
+            if(size + sample.length > limit)
+                continue;
+            selectedList.add(0, sample);
+            size += sample.length;
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(size);
+        for(byte[] sample : selectedList)
+            outputStream.write(sample, 0, sample.length);
+
+        return new PayloadDictionary(outputStream.toByteArray());
+    }
+
+    /**
+     * Samples with the shapes of the messages published by DeviceProducer, JsonProducer and the fleet simulator.
+     * Values are fixed so that every process builds exactly the same dictionary.
+     */
+    private static List<byte[]> defaultSamples() {
+
+        List<byte[]> sampleList = new ArrayList<>();
+
+        sampleList.add(MessageJsonEncoder.encode(new DeviceDescriptor("fleet-device-12345", "ACME_CORPORATION", "0.1-beta")).toByteArray());
+        sampleList.add(MessageJsonEncoder.encode(new DeviceDescriptor("0f8fad5b-d9cb-469f-a165-70867728950e", "ACME_CORPORATION", "0.1-beta")).toByteArray());
+
+        //Telemetry messages are the most frequent ones
+        for(int i = 0; i < 4; i++)
+            sampleList.add(MessageJsonEncoder.encodeMessage(1792000000000L + i * 1000L, SensorTypeRegistry.ENGINE_TEMPERATURE_SENSOR, 80.0 + i * 1.37).toByteArray());
+
+        for(int i = 0; i < 8; i++)
+            sampleList.add(MessageJsonEncoder.encodeMessage(1792000000000L, SensorTypeRegistry.ENGINE_TEMPERATURE_SENSOR, 80.0).toByteArray());
+
+        return sampleList;
+    }
+
+    /**
+     * @return a copy of the dictionary content
+     */
+    public byte[] getContent() {
+        return content.clone();
+    }
+
+    byte[] content() {
+        return content;
+    }
+
+    public int size() {
+        return content.length;
+    }
+
+    /**
+     * @return the id written in the compressed frames (low byte of the Adler-32 of the content)
+     */
+    public int getId() {
+        return id;
+    }
+
+}
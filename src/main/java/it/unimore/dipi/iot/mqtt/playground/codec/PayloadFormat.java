@@ -0,0 +1,81 @@
+package it.unimore.dipi.iot.mqtt.playground.codec;
+
+/**
+ * Wire formats supported for telemetry payloads.
+ *
+ * JSON and binary clients can share the same broker: binary payloads are published on topics ending
+ * with BINARY_TOPIC_SUFFIX (so that consumers can subscribe only to the format they understand)
+ * and start with a header byte that can never be the first byte of a JSON document.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:32
+ */
+public enum PayloadFormat {
+
+    JSON(""),
+    BINARY("/bin");
+
+    public static final String BINARY_TOPIC_SUFFIX = "/bin";
+
+    private final String topicSuffix;
+
+    PayloadFormat(String topicSuffix) {
+        this.topicSuffix = topicSuffix;
+    }
+
+    /**
+     * @return the suffix appended to the telemetry topic of the messages published with this format
+     */
+    public String getTopicSuffix() {
+        return topicSuffix;
+    }
+
+    /**
+     * @param topic telemetry topic without format suffix
+     * @return the topic on which messages with this format have to be published
+     */
+    public String topic(String topic) {
+        return topic + topicSuffix;
+    }
+
+    /**
+     * Format advertised by the topic suffix
+     */
+    public static PayloadFormat fromTopic(String topic) {
+        return (topic != null && topic.endsWith(BINARY_TOPIC_SUFFIX)) ? BINARY : JSON;
+    }
+
+    /**
+     * Format detected from the header byte of the payload
+     *
+     * @return the detected format or null if the payload is empty or not recognized
+     */
+    public static PayloadFormat detect(byte[] payload) {
+
+        if(payload == null || payload.length == 0)
+            return null;
+
+        if(BinaryMessageCodec.isBinaryHeader(payload[0]))
+            return BINARY;
+
+        //A JSON object may be preceded by white spaces
+        for(byte b : payload){
+            if(b == '{')
+                return JSON;
+            if(b != ' ' && b != '\t' && b != '\r' && b != '\n')
+                return null;
+        }
+
+        return null;
+    }
+
+    /**
+     * Format of a received message: the header byte is used when recognized, otherwise the topic suffix
+     */
+    public static PayloadFormat of(String topic, byte[] payload) {
+        PayloadFormat format = detect(payload);
+        return format != null ? format : fromTopic(topic);
+    }
+
+}
@@ -0,0 +1,212 @@
+package it.unimore.dipi.iot.mqtt.playground.codec;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Flyweight decoder of the batches written by ReadingBatchEncoder.
+ *
+ * The decoder wraps the received payload and reads each field in place: readings can be accessed by index or
+ * iterated as SensorReading, in which case the same SensorReading instance is filled for every element
+ * (it must not be retained across iterations). A decoder can be reused for many payloads but is not thread safe.
+ *
+ * Bit-packed time series blocks (see GorillaBlockEncoder) cannot be accessed in place: their samples are unpacked
+ * on wrap() into primitive arrays reused across payloads, so that they can be read with the same accessors.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:14
+ */
+public class ReadingBatchDecoder implements Iterable<SensorReading> {
+
+    private final SensorTypeRegistry registry;
+
+    private final SensorReading reading = new SensorReading();
+
+    private final Cursor cursor = new Cursor();
+
+    private byte[] buffer;
+
+    private int offset;
+
+    private int count = 0;
+
+    private final GorillaBlockDecoder blockDecoder = new GorillaBlockDecoder();
+
+    //Samples of the wrapped time series block (unpacked is false for fixed size record batches)
+    private boolean unpacked = false;
+
+    private int blockTypeCode = 0;
+
+    private long[] blockTimestamps = new long[0];
+
+    private double[] blockValues = new double[0];
+
+    public ReadingBatchDecoder() {
+        this(SensorTypeRegistry.getDefault());
+    }
+
+    /**
+     * @param registry registry resolving the sensor type codes
+     */
+    public ReadingBatchDecoder(SensorTypeRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Wrap a payload if it is a batch
+     *
+     * @return true if the payload is a batch, false if it is not (the decoder is left empty)
+     * @throws IllegalArgumentException if the payload is a malformed batch
+     */
+    public boolean wrap(byte[] buffer, int offset, int length) {
+
+        this.buffer = buffer;
+        this.offset = offset;
+        this.count = 0;
+        this.unpacked = false;
+
+        if(!BinaryMessageCodec.isBatch(buffer, offset, length))
+            return false;
+
+        if(GorillaBlockDecoder.isBlock(buffer, offset, length)) {
+            unpack(blockDecoder.wrap(buffer, offset, length));
+            return true;
+        }
+
+        if(length < ReadingBatchEncoder.HEADER_SIZE)
+            throw new IllegalArgumentException("Batch too short: " + length + " bytes");
+
+        int version = buffer[offset] & 0x0F;
+        if(version != BinaryMessageCodec.VERSION)
+            throw new IllegalArgumentException("Unsupported batch version: " + version);
+
+        int batchCount = ((buffer[offset + ReadingBatchEncoder.COUNT_OFFSET] & 0xFF) << 8) | (buffer[offset + ReadingBatchEncoder.COUNT_OFFSET + 1] & 0xFF);
+
+        if(length != ReadingBatchEncoder.HEADER_SIZE + batchCount * ReadingBatchEncoder.RECORD_SIZE)
+            throw new IllegalArgumentException("Invalid batch length: " + length + " bytes for " + batchCount + " readings");
+
+        this.count = batchCount;
+        return true;
+    }
+
+    private void unpack(GorillaBlockDecoder decoder) {
+
+        int blockCount = decoder.size();
+
+        if(blockTimestamps.length < blockCount){
+            blockTimestamps = Arrays.copyOf(blockTimestamps, blockCount);
+            blockValues = Arrays.copyOf(blockValues, blockCount);
+        }
+
+        for(int i = 0; i < blockCount; i++){
+            decoder.next();
+            blockTimestamps[i] = decoder.getTimestamp();
+            blockValues[i] = decoder.getValue();
+        }
+
+        this.blockTypeCode = decoder.getTypeCode();
+        this.count = blockCount;
+        this.unpacked = true;
+    }
+
+    public boolean wrap(byte[] payload) {
+        return wrap(payload, 0, payload.length);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    private void checkIndex(int index) {
+        if(index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("index: " + index + " size: " + count);
+    }
+
+    private int recordOffset(int index) {
+
+        checkIndex(index);
+
+        return offset + ReadingBatchEncoder.HEADER_SIZE + index * ReadingBatchEncoder.RECORD_SIZE;
+    }
+
+    public int getTypeCode(int index) {
+
+        if(unpacked){
+            checkIndex(index);
+            return blockTypeCode;
+        }
+
+        int record = recordOffset(index) + ReadingBatchEncoder.RECORD_TYPE_OFFSET;
+        return ((buffer[record] & 0xFF) << 8) | (buffer[record + 1] & 0xFF);
+    }
+
+    /**
+     * @return the sensor type or null if its code is not (yet) known by the registry
+     */
+    public String getType(int index) {
+        return registry.getType(getTypeCode(index));
+    }
+
+    public long getTimestamp(int index) {
+
+        if(unpacked){
+            checkIndex(index);
+            return blockTimestamps[index];
+        }
+
+        return BinaryMessageCodec.readLong(buffer, recordOffset(index) + ReadingBatchEncoder.RECORD_TIMESTAMP_OFFSET);
+    }
+
+    public double getValue(int index) {
+
+        if(unpacked){
+            checkIndex(index);
+            return blockValues[index];
+        }
+
+        return Double.longBitsToDouble(BinaryMessageCodec.readLong(buffer, recordOffset(index) + ReadingBatchEncoder.RECORD_VALUE_OFFSET));
+    }
+
+    /**
+     * Fill the passed reading with the index-th reading of the batch
+     */
+    public SensorReading get(int index, SensorReading target) {
+        target.clear();
+        target.setTimestamp(getTimestamp(index));
+        target.setType(getType(index));
+        target.setValue(getValue(index));
+        return target;
+    }
+
+    /**
+     * @return an iterator filling the same SensorReading for every reading of the batch
+     */
+    @Override
+    public Iterator<SensorReading> iterator() {
+        cursor.index = 0;
+        return cursor;
+    }
+
+    private final class Cursor implements Iterator<SensorReading> {
+
+        private int index = 0;
+
+        @Override
+        public boolean hasNext() {
+            return index < count;
+        }
+
+        @Override
+        public SensorReading next() {
+
+            if(index >= count)
+                throw new NoSuchElementException();
+
+            return get(index++, reading);
+        }
+
+    }
+
+}
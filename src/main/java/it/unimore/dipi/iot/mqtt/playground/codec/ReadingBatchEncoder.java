@@ -0,0 +1,117 @@
+package it.unimore.dipi.iot.mqtt.playground.codec;
+
+import java.util.Arrays;
+
+/**
+ * Encoder packing many readings of the same topic into a single binary payload (a batch),
+ * so that one MQTT PUBLISH carries up to maxBatchSize readings.
+ *
+ * Layout (big endian):
+ *
+ *   0     header: 0xB0 | version (as BinaryMessageCodec)
+ *   1     flags: BinaryMessageCodec.FLAG_BATCH
+ *   2-3   number of readings (unsigned)
+ *   then RECORD_SIZE bytes for each reading:
+ *   +0-1  sensor type code (unsigned, see SensorTypeRegistry)
+ *   +2-9  timestamp (ms)
+ *   +10-17 value (IEEE 754 double)
+ *
+ * Records have a fixed size so that ReadingBatchDecoder can access them in place.
+ * The encoder reuses its buffer across batches and is not thread safe.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:14
+ */
+public class ReadingBatchEncoder {
+
+    public static final int HEADER_SIZE = 4;
+
+    public static final int RECORD_SIZE = 18;
+
+    public static final int MAX_BATCH_SIZE = 0xFFFF;
+
+    static final int COUNT_OFFSET = 2;
+
+    static final int RECORD_TYPE_OFFSET = 0;
+
+    static final int RECORD_TIMESTAMP_OFFSET = 2;
+
+    static final int RECORD_VALUE_OFFSET = 10;
+
+    private final BinaryMessageCodec codec;
+
+    private final int maxBatchSize;
+
+    private final byte[] buffer;
+
+    private int count = 0;
+
+    /**
+     * @param codec codec whose registry resolves the sensor type codes
+     * @param maxBatchSize maximum number of readings of a batch
+     */
+    public ReadingBatchEncoder(BinaryMessageCodec codec, int maxBatchSize) {
+
+        if(maxBatchSize <= 0 || maxBatchSize > MAX_BATCH_SIZE)
+            throw new IllegalArgumentException("maxBatchSize must be in [1, " + MAX_BATCH_SIZE + "]");
+
+        this.codec = codec;
+        this.maxBatchSize = maxBatchSize;
+        this.buffer = new byte[HEADER_SIZE + maxBatchSize * RECORD_SIZE];
+    }
+
+    /**
+     * Append a reading to the batch
+     *
+     * @return true if the batch is full and has to be flushed
+     * @throws IllegalArgumentException if the type is not registered
+     * @throws IllegalStateException if the batch is already full
+     */
+    public boolean add(long timestamp, String type, double value) {
+
+        if(count >= maxBatchSize)
+            throw new IllegalStateException("Batch full !");
+
+        int typeCode = codec.typeCode(type);
+        int offset = HEADER_SIZE + count * RECORD_SIZE;
+
+        buffer[offset + RECORD_TYPE_OFFSET] = (byte) (typeCode >>> 8);
+        buffer[offset + RECORD_TYPE_OFFSET + 1] = (byte) typeCode;
+        BinaryMessageCodec.writeLong(buffer, offset + RECORD_TIMESTAMP_OFFSET, timestamp);
+        BinaryMessageCodec.writeLong(buffer, offset + RECORD_VALUE_OFFSET, Double.doubleToRawLongBits(value));
+
+        count++;
+        return count >= maxBatchSize;
+    }
+
+    /**
+     * @return a new array with the payload of the current batch (the buffer is kept for the next batch)
+     */
+    public byte[] toPayload() {
+
+        BinaryMessageCodec.writeHeader(buffer, 0, BinaryMessageCodec.FLAG_BATCH);
+        buffer[COUNT_OFFSET] = (byte) (count >>> 8);
+        buffer[COUNT_OFFSET + 1] = (byte) count;
+
+        return Arrays.copyOf(buffer, HEADER_SIZE + count * RECORD_SIZE);
+    }
+
+    public ReadingBatchEncoder reset() {
+        count = 0;
+        return this;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+}
@@ -0,0 +1,93 @@
+package it.unimore.dipi.iot.mqtt.playground.codec;
+
+import it.unimore.dipi.iot.mqtt.playground.model.MessageDescriptor;
+
+/**
+ * Mutable holder of a decoded telemetry message, filled by MessageJsonParser and BinaryMessageCodec
+ * so that consumers can reuse the same instance for every received message.
+ *
+ * Fields missing in the message keep their default value (0 or null), as with Gson. Sequence and
+ * intendedTimestamp are only carried by the messages of the open loop load generator.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:37
+ */
+public class SensorReading {
+
+    private long timestamp;
+
+    private String type;
+
+    private double value;
+
+    private long sequence;
+
+    private long intendedTimestamp;
+
+    public SensorReading clear() {
+        this.timestamp = 0;
+        this.type = null;
+        this.value = 0.0;
+        this.sequence = 0;
+        this.intendedTimestamp = 0;
+        return this;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public void setValue(double value) {
+        this.value = value;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public long getIntendedTimestamp() {
+        return intendedTimestamp;
+    }
+
+    public void setIntendedTimestamp(long intendedTimestamp) {
+        this.intendedTimestamp = intendedTimestamp;
+    }
+
+    public MessageDescriptor toMessageDescriptor() {
+        return new MessageDescriptor(timestamp, type, value);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer("SensorReading{");
+        sb.append("timestamp=").append(timestamp);
+        sb.append(", type='").append(type).append('\'');
+        sb.append(", value=").append(value);
+        sb.append(", sequence=").append(sequence);
+        sb.append(", intendedTimestamp=").append(intendedTimestamp);
+        sb.append('}');
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,195 @@
+package it.unimore.dipi.iot.mqtt.playground.codec;
+
+import com.google.gson.Gson;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry mapping sensor type names (e.g. ENGINE_TEMPERATURE_SENSOR) to the 16 bit codes carried by
+ * binary messages.
+ *
+ * Producers publish the registry as a retained JSON message on REGISTRY_TOPIC, so that consumers
+ * connecting at any time can merge it before decoding binary telemetry. Codes are never reassigned:
+ * merging a registry with a conflicting mapping is rejected.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:32
+ */
+public class SensorTypeRegistry {
+
+    //Topic used to publish the registry as a retained message
+    public static final String REGISTRY_TOPIC = "registry/sensor-types";
+
+    public static final String ENGINE_TEMPERATURE_SENSOR = "ENGINE_TEMPERATURE_SENSOR";
+
+    public static final int MAX_TYPE_CODE = 0xFFFF;
+
+    //Returned by getCode() for types that are not registered
+    public static final int UNKNOWN_CODE = -1;
+
+    private static final SensorTypeRegistry defaultRegistry = new SensorTypeRegistry();
+
+    private static final Gson gson = new Gson();
+
+    static {
+        defaultRegistry.register(ENGINE_TEMPERATURE_SENSOR, 1);
+    }
+
+    private final Map<String, Integer> codeMap = new ConcurrentHashMap<>();
+
+    //Reverse mapping indexed by code, replaced on growth
+    private volatile String[] typeArray = new String[16];
+
+    private int nextCode = 1;
+
+    /**
+     * @return the process wide registry, containing the types of the sensors of this project
+     */
+    public static SensorTypeRegistry getDefault() {
+        return defaultRegistry;
+    }
+
+    /**
+     * Register a type assigning the first free code
+     *
+     * @return the code of the type (the existing one if already registered)
+     */
+    public synchronized int register(String type) {
+
+        Integer code = codeMap.get(type);
+        if(code != null)
+            return code;
+
+        while(nextCode <= MAX_TYPE_CODE && getType(nextCode) != null)
+            nextCode++;
+
+        if(nextCode > MAX_TYPE_CODE)
+            throw new IllegalStateException("No free sensor type codes available");
+
+        register(type, nextCode);
+        return nextCode;
+    }
+
+    /**
+     * Register a type with the given code
+     *
+     * @throws IllegalArgumentException if the type or the code are already registered with a different mapping
+     */
+    public synchronized void register(String type, int code) {
+
+        if(type == null || code <= 0 || code > MAX_TYPE_CODE)
+            throw new IllegalArgumentException(String.format("Invalid sensor type mapping %s -> %d", type, code));
+
+        Integer existingCode = codeMap.get(type);
+        String existingType = getType(code);
+
+        if(existingCode != null && existingCode == code)
+            return;
+
+        if(existingCode != null || existingType != null)
+            throw new IllegalArgumentException(String.format("Sensor type mapping %s -> %d conflicts with the registry", type, code));
+
+        String[] types = typeArray;
+        if(code >= types.length)
+            types = Arrays.copyOf(types, Math.min(Math.max(types.length << 1, code + 1), MAX_TYPE_CODE + 1));
+        else
+            types = types.clone();
+
+        types[code] = type;
+        typeArray = types;
+        codeMap.put(type, code);
+    }
+
+    /**
+     * @return the code of the type or UNKNOWN_CODE if not registered
+     */
+    public int getCode(String type) {
+        Integer code = (type != null) ? codeMap.get(type) : null;
+        return code != null ? code : UNKNOWN_CODE;
+    }
+
+    /**
+     * @return the type associated to the code or null if not registered
+     */
+    public String getType(int code) {
+        String[] types = typeArray;
+        return (code > 0 && code < types.length) ? types[code] : null;
+    }
+
+    /**
+     * Find a registered type whose name is equal to the ASCII bytes of the buffer, without creating Strings
+     *
+     * @return the registered type or null if not found
+     */
+    public String findType(byte[] buffer, int offset, int length) {
+
+        String[] types = typeArray;
+
+        for(int code = 1; code < types.length; code++){
+
+            String type = types[code];
+
+            if(type == null || type.length() != length)
+                continue;
+
+            int i = 0;
+            while(i < length && type.charAt(i) == buffer[offset + i])
+                i++;
+
+            if(i == length)
+                return type;
+        }
+
+        return null;
+    }
+
+    public int size() {
+        return codeMap.size();
+    }
+
+    /**
+     * @return the JSON payload published on REGISTRY_TOPIC, e.g. {"types":{"ENGINE_TEMPERATURE_SENSOR":1}}
+     */
+    public byte[] toJsonPayload() {
+        RegistryDescriptor descriptor = new RegistryDescriptor();
+        descriptor.types = new LinkedHashMap<>();
+
+        String[] types = typeArray;
+        for(int code = 1; code < types.length; code++)
+            if(types[code] != null)
+                descriptor.types.put(types[code], code);
+
+        return gson.toJson(descriptor).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Merge the mappings contained in a registry payload received from REGISTRY_TOPIC
+     *
+     * @throws IllegalArgumentException if the payload is malformed or conflicts with the local mappings
+     */
+    public void merge(byte[] payload) {
+
+        RegistryDescriptor descriptor;
+        try{
+            descriptor = gson.fromJson(new String(payload, StandardCharsets.UTF_8), RegistryDescriptor.class);
+        }catch (Exception e){
+            throw new IllegalArgumentException("Malformed sensor type registry", e);
+        }
+
+        if(descriptor == null || descriptor.types == null)
+            throw new IllegalArgumentException("Malformed sensor type registry");
+
+        for(Map.Entry<String, Integer> entry : descriptor.types.entrySet())
+            register(entry.getKey(), entry.getValue() != null ? entry.getValue() : 0);
+    }
+
+    private static class RegistryDescriptor {
+        private Map<String, Integer> types;
+    }
+
+}
@@ -0,0 +1,21 @@
+package it.unimore.dipi.iot.mqtt.playground.dispatch;
+
+/**
+ * Behaviour of the MessageDispatcher and ShardedMessageDispatcher when a ring buffer is full
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:00
+ */
+public enum BackpressurePolicy {
+
+    //The Paho callback thread waits for a free slot, propagating the backpressure to the connection
+    BLOCK,
+
+    //The oldest queued message is discarded to make room for the new one
+    DROP_OLDEST,
+
+    //The new message is discarded
+    DROP_NEWEST
+
+}
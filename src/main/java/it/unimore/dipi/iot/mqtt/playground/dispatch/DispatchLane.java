@@ -0,0 +1,269 @@
+package it.unimore.dipi.iot.mqtt.playground.dispatch;
+
+import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A MessageRingBuffer drained by one or more worker threads invoking the handler, with the BackpressurePolicy
+ * applied when the buffer is full and the queue counters. With a single worker the messages are handled
+ * in the order they have been enqueued.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:02
+ */
+class DispatchLane {
+
+    private final static Logger logger = LoggerFactory.getLogger(DispatchLane.class);
+
+    //Idle strategy of the workers (and of the callback thread blocked on a full buffer):
+    //busy spin, then yield, then park for IDLE_PARK_NANOS
+    private static final int IDLE_SPIN_TRIES = 100;
+
+    private static final int IDLE_YIELD_TRIES = 100;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final String name;
+
+    private final IMqttMessageListener handler;
+
+    private final BackpressurePolicy policy;
+
+    private final MessageRingBuffer ringBuffer;
+
+    private final Thread[] workers;
+
+    //Optional tracker of the most frequent keys handled by the lane
+    private final HotKeyTracker hotKeyTracker;
+
+    //Slot receiving the messages evicted by DROP_OLDEST, used only by the callback thread offering the messages
+    private final MessageRingBuffer.DispatchSlot evictedSlot = new MessageRingBuffer.DispatchSlot();
+
+    private final LongAdder receivedCount = new LongAdder();
+
+    private final LongAdder handledCount = new LongAdder();
+
+    private final LongAdder handlerErrorCount = new LongAdder();
+
+    private final LongAdder droppedOldestCount = new LongAdder();
+
+    private final LongAdder droppedNewestCount = new LongAdder();
+
+    private final LongAdder blockedCount = new LongAdder();
+
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    //New messages are accepted
+    private volatile boolean accepting = false;
+
+    //Workers keep polling (when false they exit as soon as the buffer is empty)
+    private volatile boolean running = false;
+
+    DispatchLane(String name, IMqttMessageListener handler, int workerCount, int capacity, BackpressurePolicy policy, HotKeyTracker hotKeyTracker) {
+
+        if(workerCount <= 0)
+            throw new IllegalArgumentException("workerCount must be > 0");
+
+        this.name = name;
+        this.handler = handler;
+        this.policy = policy;
+        this.ringBuffer = new MessageRingBuffer(capacity);
+        this.workers = new Thread[workerCount];
+        this.hotKeyTracker = hotKeyTracker;
+    }
+
+    void start() {
+
+        running = true;
+        accepting = true;
+
+        for(int i = 0; i < workers.length; i++){
+            workers[i] = new Thread(this::workerLoop, workers.length == 1 ? name : name + "-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    void stopAccepting() {
+        accepting = false;
+    }
+
+    /**
+     * Stop the workers once the queued messages have been handled
+     */
+    void stop(long timeoutMs) throws InterruptedException {
+
+        accepting = false;
+        running = false;
+
+        for(Thread worker : workers){
+            if(worker != null){
+                LockSupport.unpark(worker);
+                worker.join(timeoutMs);
+            }
+        }
+
+        if(!ringBuffer.isEmpty())
+            logger.warn("Dispatch lane {} stopped with {} queued messages !", name, ringBuffer.size());
+    }
+
+    /**
+     * Enqueue a message applying the backpressure policy when the buffer is full
+     */
+    void offer(String topic, MqttMessage message) {
+
+        receivedCount.increment();
+
+        if(!accepting){
+            droppedNewestCount.increment();
+            return;
+        }
+
+        if(!ringBuffer.offer(topic, message) && !offerOnFullBuffer(topic, message))
+            return;
+
+        int depth = ringBuffer.size();
+        int max = maxQueueDepth.get();
+        while(depth > max && !maxQueueDepth.compareAndSet(max, depth))
+            max = maxQueueDepth.get();
+    }
+
+    /**
+     * Apply the backpressure policy
+     *
+     * @return true if the message has been enqueued
+     */
+    private boolean offerOnFullBuffer(String topic, MqttMessage message) {
+
+        switch(policy){
+
+            case DROP_NEWEST:
+                droppedNewestCount.increment();
+                return false;
+
+            case DROP_OLDEST:
+                while(!ringBuffer.offer(topic, message)){
+                    if(ringBuffer.poll(evictedSlot)){
+                        droppedOldestCount.increment();
+                        evictedSlot.clear();
+                    }
+                }
+                return true;
+
+            default:
+                blockedCount.increment();
+                int idleCount = 0;
+                while(!ringBuffer.offer(topic, message)){
+                    if(!accepting){
+                        droppedNewestCount.increment();
+                        return false;
+                    }
+                    idleCount = idle(idleCount);
+                }
+                return true;
+        }
+    }
+
+    private void workerLoop() {
+
+        MessageRingBuffer.DispatchSlot slot = new MessageRingBuffer.DispatchSlot();
+        int idleCount = 0;
+
+        while(true){
+
+            if(ringBuffer.poll(slot)){
+                idleCount = 0;
+                handle(slot.getTopic(), slot.getMessage());
+                slot.clear();
+            }
+            else if(!running)
+                break;
+            else
+                idleCount = idle(idleCount);
+        }
+
+        logger.debug("Worker {} stopped !", Thread.currentThread().getName());
+    }
+
+    private void handle(String topic, MqttMessage message) {
+
+        if(hotKeyTracker != null)
+            hotKeyTracker.record(topic);
+
+        try {
+            handler.messageArrived(topic, message);
+        }catch (Exception e){
+            handlerErrorCount.increment();
+            logger.error("Error handling message on topic {} ! Error: {}", topic, e.getLocalizedMessage());
+        }
+
+        handledCount.increment();
+    }
+
+    private static int idle(int idleCount) {
+
+        if(idleCount < IDLE_SPIN_TRIES)
+            return idleCount + 1;
+
+        if(idleCount < IDLE_SPIN_TRIES + IDLE_YIELD_TRIES){
+            Thread.yield();
+            return idleCount + 1;
+        }
+
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+        return idleCount;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    HotKeyTracker getHotKeyTracker() {
+        return hotKeyTracker;
+    }
+
+    int getQueueCapacity() {
+        return ringBuffer.getCapacity();
+    }
+
+    int getQueueDepth() {
+        return ringBuffer.size();
+    }
+
+    int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    long getReceivedCount() {
+        return receivedCount.sum();
+    }
+
+    long getHandledCount() {
+        return handledCount.sum();
+    }
+
+    long getHandlerErrorCount() {
+        return handlerErrorCount.sum();
+    }
+
+    long getDroppedOldestCount() {
+        return droppedOldestCount.sum();
+    }
+
+    long getDroppedNewestCount() {
+        return droppedNewestCount.sum();
+    }
+
+    long getBlockedCount() {
+        return blockedCount.sum();
+    }
+
+}
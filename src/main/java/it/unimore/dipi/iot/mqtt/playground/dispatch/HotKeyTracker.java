@@ -0,0 +1,95 @@
+package it.unimore.dipi.iot.mqtt.playground.dispatch;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Approximate top-K of the keys handled by a dispatch lane (Space-Saving algorithm on a sample of the messages).
+ * Only one message out of sampleInterval is recorded, so that the key extraction is paid by a small fraction
+ * of the messages; the reported counts are scaled back by sampleInterval and overestimate the real ones by at most
+ * the smallest tracked count.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:02
+ */
+class HotKeyTracker {
+
+    private final ShardKey shardKey;
+
+    private final int sampleInterval;
+
+    private final String[] keys;
+
+    private final long[] counts;
+
+    private long messageCount = 0;
+
+    HotKeyTracker(ShardKey shardKey, int capacity, int sampleInterval) {
+
+        if(capacity <= 0 || sampleInterval <= 0)
+            throw new IllegalArgumentException("capacity and sampleInterval must be > 0");
+
+        this.shardKey = shardKey;
+        this.sampleInterval = sampleInterval;
+        this.keys = new String[capacity];
+        this.counts = new long[capacity];
+    }
+
+    /**
+     * Called by the worker of the lane for each handled message
+     */
+    synchronized void record(String topic) {
+
+        if(messageCount++ % sampleInterval != 0)
+            return;
+
+        String key = shardKey.extract(topic);
+        int minIndex = 0;
+
+        for(int i = 0; i < keys.length; i++){
+
+            if(keys[i] == null){
+                keys[i] = key;
+                counts[i] = 1;
+                return;
+            }
+
+            if(keys[i].equals(key)){
+                counts[i]++;
+                return;
+            }
+
+            if(counts[i] < counts[minIndex])
+                minIndex = i;
+        }
+
+        //The new key replaces the least frequent one inheriting its count
+        keys[minIndex] = key;
+        counts[minIndex]++;
+    }
+
+    /**
+     * @param limit maximum number of returned keys
+     * @return the most frequent keys as "key~count" in decreasing order of count
+     */
+    synchronized String[] getHotKeys(int limit) {
+
+        Integer[] order = new Integer[keys.length];
+        int size = 0;
+        for(int i = 0; i < keys.length; i++)
+            if(keys[i] != null)
+                order[size++] = i;
+
+        Integer[] sorted = Arrays.copyOf(order, size);
+        Arrays.sort(sorted, Comparator.comparingLong((Integer i) -> counts[i]).reversed());
+
+        String[] hotKeys = new String[Math.min(limit, size)];
+        for(int i = 0; i < hotKeys.length; i++)
+            hotKeys[i] = String.format(Locale.ROOT, "%s~%d", keys[sorted[i]], counts[sorted[i]] * sampleInterval);
+
+        return hotKeys;
+    }
+
+}
@@ -0,0 +1,165 @@
+package it.unimore.dipi.iot.mqtt.playground.dispatch;
+
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsRegistry;
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsSource;
+import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * Dispatch stage between the Paho callback thread and a pool of worker threads.
+ *
+ * The dispatcher is used as the IMqttMessageListener of a subscription: the callback thread only stores
+ * the message reference into the preallocated MessageRingBuffer of a DispatchLane and returns, while workerCount
+ * threads drain the buffer and invoke the wrapped handler. A slow handler therefore no longer stalls the connection, and
+ * parsing and handling can use all the cores. When the buffer is full the BackpressurePolicy is applied.
+ *
+ * Notes:
+ * - messages of the same topic may be handled concurrently and out of order by different workers
+ *   (see ShardedMessageDispatcher to preserve the order per device);
+ * - Paho acknowledges QoS 1/2 messages when the callback returns, i.e. before the handler runs.
+ *
+ * Queue depth and counters are exposed through the MetricsRegistry as MBean
+ * it.unimore.dipi.iot.mqtt.playground:type=MessageDispatcher,name=&lt;name&gt;.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:00
+ */
+public class MessageDispatcher implements IMqttMessageListener, MessageDispatcherMBean, MetricsSource {
+
+    private final static Logger logger = LoggerFactory.getLogger(MessageDispatcher.class);
+
+    private final String name;
+
+    private final int workerCount;
+
+    private final BackpressurePolicy policy;
+
+    private final DispatchLane lane;
+
+    private boolean started = false;
+
+    /**
+     * @param name dispatcher name, used for the worker threads and the MBean
+     * @param handler listener invoked by the workers
+     * @param workerCount number of worker threads
+     * @param capacity ring buffer capacity (rounded up to the next power of two)
+     * @param policy behaviour when the ring buffer is full
+     */
+    public MessageDispatcher(String name, IMqttMessageListener handler, int workerCount, int capacity, BackpressurePolicy policy) {
+        this.name = name;
+        this.workerCount = workerCount;
+        this.policy = policy;
+        this.lane = new DispatchLane("dispatcher-" + name, handler, workerCount, capacity, policy, null);
+    }
+
+    /**
+     * Start the worker threads and register the metrics
+     */
+    public synchronized void start() {
+
+        if(started)
+            return;
+
+        started = true;
+        lane.start();
+
+        MetricsRegistry.register(this, "MessageDispatcher");
+
+        logger.info("MessageDispatcher {} started -> Workers: {} Capacity: {} Policy: {}", name, workerCount, lane.getQueueCapacity(), policy);
+    }
+
+    /**
+     * Stop accepting messages, let the workers handle the queued ones and stop them
+     *
+     * @param timeoutMs maximum wait time for each worker
+     * @throws InterruptedException
+     */
+    public synchronized void stop(long timeoutMs) throws InterruptedException {
+
+        if(!started)
+            return;
+
+        started = false;
+        lane.stop(timeoutMs);
+
+        MetricsRegistry.unregister(this);
+    }
+
+    @Override
+    public void messageArrived(String topic, MqttMessage message) {
+        lane.offer(topic, message);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toSummaryString() {
+        return String.format(Locale.ROOT, "depth=%d/%d (max %d) received=%d handled=%d errors=%d droppedOldest=%d droppedNewest=%d blocked=%d",
+                getQueueDepth(), getQueueCapacity(), getMaxQueueDepth(), getReceivedCount(), getHandledCount(), getHandlerErrorCount(),
+                getDroppedOldestCount(), getDroppedNewestCount(), getBlockedCount());
+    }
+
+    @Override
+    public String getPolicy() {
+        return policy.name();
+    }
+
+    @Override
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return lane.getQueueCapacity();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return lane.getQueueDepth();
+    }
+
+    @Override
+    public int getMaxQueueDepth() {
+        return lane.getMaxQueueDepth();
+    }
+
+    @Override
+    public long getReceivedCount() {
+        return lane.getReceivedCount();
+    }
+
+    @Override
+    public long getHandledCount() {
+        return lane.getHandledCount();
+    }
+
+    @Override
+    public long getHandlerErrorCount() {
+        return lane.getHandlerErrorCount();
+    }
+
+    @Override
+    public long getDroppedOldestCount() {
+        return lane.getDroppedOldestCount();
+    }
+
+    @Override
+    public long getDroppedNewestCount() {
+        return lane.getDroppedNewestCount();
+    }
+
+    @Override
+    public long getBlockedCount() {
+        return lane.getBlockedCount();
+    }
+
+}
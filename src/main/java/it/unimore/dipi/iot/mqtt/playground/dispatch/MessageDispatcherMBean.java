@@ -0,0 +1,34 @@
+package it.unimore.dipi.iot.mqtt.playground.dispatch;
+
+/**
+ * JMX management interface of MessageDispatcher
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:00
+ */
+public interface MessageDispatcherMBean {
+
+    String getPolicy();
+
+    int getWorkerCount();
+
+    int getQueueCapacity();
+
+    int getQueueDepth();
+
+    int getMaxQueueDepth();
+
+    long getReceivedCount();
+
+    long getHandledCount();
+
+    long getHandlerErrorCount();
+
+    long getDroppedOldestCount();
+
+    long getDroppedNewestCount();
+
+    long getBlockedCount();
+
+}
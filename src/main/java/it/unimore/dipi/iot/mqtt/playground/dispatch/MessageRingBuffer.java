@@ -0,0 +1,164 @@
+package it.unimore.dipi.iot.mqtt.playground.dispatch;
+
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free ring buffer of (topic, message) references, based on the array queue of Dmitry Vyukov.
+ *
+ * Slots are preallocated: enqueuing a message only stores the two references and publishes the slot
+ * sequence, so no object is created per message. Multiple producers (e.g. the callback threads of
+ * several clients) and multiple consumers (the dispatcher workers) are supported.
+ * Each slot has a sequence number: a producer can write the slot at position p when its sequence is p,
+ * a consumer can read it when its sequence is p + 1.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:00
+ */
+public class MessageRingBuffer {
+
+    private final int capacity;
+
+    private final int mask;
+
+    private final String[] topics;
+
+    private final MqttMessage[] messages;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong enqueuePosition = new AtomicLong();
+
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    /**
+     * @param capacity number of slots, rounded up to the next power of two
+     */
+    public MessageRingBuffer(int capacity) {
+
+        if(capacity <= 0 || capacity > (1 << 30))
+            throw new IllegalArgumentException("capacity must be in [1, 2^30]");
+
+        this.capacity = nextPowerOfTwo(capacity);
+        this.mask = this.capacity - 1;
+        this.topics = new String[this.capacity];
+        this.messages = new MqttMessage[this.capacity];
+        this.sequences = new AtomicLongArray(this.capacity);
+
+        for(int i = 0; i < this.capacity; i++)
+            sequences.set(i, i);
+    }
+
+    /**
+     * Enqueue a message
+     *
+     * @return false if the buffer is full
+     */
+    public boolean offer(String topic, MqttMessage message) {
+
+        long position = enqueuePosition.get();
+
+        while(true){
+
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+
+            if(difference == 0){
+                if(enqueuePosition.compareAndSet(position, position + 1)){
+                    topics[index] = topic;
+                    messages[index] = message;
+                    //Volatile write publishing the references to the consumers
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = enqueuePosition.get();
+            }
+            else if(difference < 0)
+                return false;
+            else
+                position = enqueuePosition.get();
+        }
+    }
+
+    /**
+     * Dequeue a message copying its references into the passed slot
+     *
+     * @param slot holder filled with the dequeued topic and message
+     * @return false if the buffer is empty
+     */
+    public boolean poll(DispatchSlot slot) {
+
+        long position = dequeuePosition.get();
+
+        while(true){
+
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+
+            if(difference == 0){
+                if(dequeuePosition.compareAndSet(position, position + 1)){
+                    slot.topic = topics[index];
+                    slot.message = messages[index];
+                    topics[index] = null;
+                    messages[index] = null;
+                    //Release the slot to the producers of the next lap
+                    sequences.set(index, position + mask + 1);
+                    return true;
+                }
+                position = dequeuePosition.get();
+            }
+            else if(difference < 0)
+                return false;
+            else
+                position = dequeuePosition.get();
+        }
+    }
+
+    /**
+     * @return the approximate number of queued messages
+     */
+    public int size() {
+        long size = enqueuePosition.get() - dequeuePosition.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        int highestBit = Integer.highestOneBit(value);
+        return (highestBit == value) ? value : highestBit << 1;
+    }
+
+    /**
+     * Reusable holder of a dequeued message, owned by a single thread
+     */
+    public static class DispatchSlot {
+
+        private String topic;
+
+        private MqttMessage message;
+
+        public String getTopic() {
+            return topic;
+        }
+
+        public MqttMessage getMessage() {
+            return message;
+        }
+
+        public void clear() {
+            topic = null;
+            message = null;
+        }
+    }
+
+}
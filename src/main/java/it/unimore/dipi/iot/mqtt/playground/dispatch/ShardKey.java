@@ -0,0 +1,40 @@
+package it.unimore.dipi.iot.mqtt.playground.dispatch;
+
+/**
+ * Key of the messages routed by the ShardedMessageDispatcher: messages with the same key are handled
+ * by the same lane and therefore in arrival order.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:02
+ */
+public interface ShardKey {
+
+    /**
+     * Hash of the key of the passed topic, computed without allocations on the Paho callback thread
+     *
+     * @param topic
+     * @return the key hash (equal keys have equal hashes)
+     */
+    int hash(String topic);
+
+    /**
+     * Key of the passed topic, used to report the hot keys of each lane
+     *
+     * @param topic
+     * @return the key or the whole topic if the key can not be extracted
+     */
+    String extract(String topic);
+
+    /**
+     * Key made by a single level of the topic
+     * E.g., topicSegment(1) extracts the device id from device/&lt;id&gt;/sensor/temperature
+     *
+     * @param segmentIndex zero-based index of the topic level
+     * @return the ShardKey
+     */
+    static ShardKey topicSegment(int segmentIndex) {
+        return new TopicSegmentShardKey(segmentIndex);
+    }
+
+}
@@ -0,0 +1,293 @@
+package it.unimore.dipi.iot.mqtt.playground.dispatch;
+
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsRegistry;
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsSource;
+import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Dispatch stage handling the messages in parallel while preserving the order of the messages with the same key
+ * (e.g., the readings of the same device).
+ *
+ * The Paho callback thread hashes the ShardKey of the topic (without allocations) to one of shardCount lanes,
+ * each one made by its own MessageRingBuffer drained by a single worker thread. Messages of the same key always
+ * reach the same lane and are handled in arrival order, while different keys are spread across the cores.
+ * The BackpressurePolicy is applied per lane: a full lane, e.g. the one of a hot device, does not affect the others
+ * unless the policy is BLOCK, which stalls the callback thread.
+ *
+ * Per-shard queue depths and counters, the hottest shard and the approximate most frequent keys of each shard
+ * are exposed through the MetricsRegistry as MBean it.unimore.dipi.iot.mqtt.playground:type=ShardedMessageDispatcher,name=&lt;name&gt;.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:02
+ */
+public class ShardedMessageDispatcher implements IMqttMessageListener, ShardedMessageDispatcherMBean, MetricsSource {
+
+    private final static Logger logger = LoggerFactory.getLogger(ShardedMessageDispatcher.class);
+
+    //Number of keys tracked by the hot key tracker of each shard
+    private static final int HOT_KEY_CAPACITY = 16;
+
+    //Only one handled message out of HOT_KEY_SAMPLE_INTERVAL is used to track the hot keys
+    private static final int HOT_KEY_SAMPLE_INTERVAL = 16;
+
+    //Number of hot keys reported for each shard
+    private static final int HOT_KEYS_PER_SHARD = 3;
+
+    private final String name;
+
+    private final ShardKey shardKey;
+
+    private final BackpressurePolicy policy;
+
+    private final DispatchLane[] lanes;
+
+    private boolean started = false;
+
+    /**
+     * @param name dispatcher name, used for the worker threads and the MBean
+     * @param handler listener invoked by the workers
+     * @param shardKey key of the messages whose order is preserved
+     * @param shardCount number of lanes (and worker threads)
+     * @param shardCapacity ring buffer capacity of each lane (rounded up to the next power of two)
+     * @param policy behaviour when the ring buffer of a lane is full
+     */
+    public ShardedMessageDispatcher(String name, IMqttMessageListener handler, ShardKey shardKey, int shardCount, int shardCapacity, BackpressurePolicy policy) {
+
+        if(shardCount <= 0)
+            throw new IllegalArgumentException("shardCount must be > 0");
+
+        this.name = name;
+        this.shardKey = shardKey;
+        this.policy = policy;
+        this.lanes = new DispatchLane[shardCount];
+
+        for(int i = 0; i < shardCount; i++)
+            lanes[i] = new DispatchLane("sharded-dispatcher-" + name + "-" + i, handler, 1, shardCapacity, policy,
+                    new HotKeyTracker(shardKey, HOT_KEY_CAPACITY, HOT_KEY_SAMPLE_INTERVAL));
+    }
+
+    /**
+     * Start the worker threads and register the metrics
+     */
+    public synchronized void start() {
+
+        if(started)
+            return;
+
+        started = true;
+
+        for(DispatchLane lane : lanes)
+            lane.start();
+
+        MetricsRegistry.register(this, "ShardedMessageDispatcher");
+
+        logger.info("ShardedMessageDispatcher {} started -> Shards: {} Capacity: {} Policy: {}", name, lanes.length, getShardQueueCapacity(), policy);
+    }
+
+    /**
+     * Stop accepting messages, let the workers handle the queued ones and stop them
+     *
+     * @param timeoutMs maximum wait time for each worker
+     * @throws InterruptedException
+     */
+    public synchronized void stop(long timeoutMs) throws InterruptedException {
+
+        if(!started)
+            return;
+
+        started = false;
+
+        for(DispatchLane lane : lanes)
+            lane.stopAccepting();
+
+        for(DispatchLane lane : lanes)
+            lane.stop(timeoutMs);
+
+        MetricsRegistry.unregister(this);
+    }
+
+    @Override
+    public void messageArrived(String topic, MqttMessage message) {
+        lanes[shardOf(topic)].offer(topic, message);
+    }
+
+    /**
+     * @param topic
+     * @return the index of the lane handling the messages of the passed topic
+     */
+    public int shardOf(String topic) {
+        int hash = shardKey.hash(topic);
+        hash ^= (hash >>> 16);
+        return (hash & Integer.MAX_VALUE) % lanes.length;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toSummaryString() {
+
+        int hottestShard = getHottestShard();
+
+        return String.format(Locale.ROOT, "shards=%d depth=%d received=%d handled=%d errors=%d droppedOldest=%d droppedNewest=%d blocked=%d depths=%s hottest=%d (received %d, max depth %d) hotKeys=%s",
+                lanes.length, getQueueDepth(), getReceivedCount(), getHandledCount(), getHandlerErrorCount(),
+                getDroppedOldestCount(), getDroppedNewestCount(), getBlockedCount(), Arrays.toString(getShardQueueDepths()),
+                hottestShard, lanes[hottestShard].getReceivedCount(), lanes[hottestShard].getMaxQueueDepth(),
+                Arrays.toString(lanes[hottestShard].getHotKeyTracker().getHotKeys(HOT_KEYS_PER_SHARD)));
+    }
+
+    @Override
+    public String getPolicy() {
+        return policy.name();
+    }
+
+    @Override
+    public int getShardCount() {
+        return lanes.length;
+    }
+
+    @Override
+    public int getShardQueueCapacity() {
+        return lanes[0].getQueueCapacity();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        int depth = 0;
+        for(DispatchLane lane : lanes)
+            depth += lane.getQueueDepth();
+        return depth;
+    }
+
+    @Override
+    public long getReceivedCount() {
+        long count = 0;
+        for(DispatchLane lane : lanes)
+            count += lane.getReceivedCount();
+        return count;
+    }
+
+    @Override
+    public long getHandledCount() {
+        long count = 0;
+        for(DispatchLane lane : lanes)
+            count += lane.getHandledCount();
+        return count;
+    }
+
+    @Override
+    public long getHandlerErrorCount() {
+        long count = 0;
+        for(DispatchLane lane : lanes)
+            count += lane.getHandlerErrorCount();
+        return count;
+    }
+
+    @Override
+    public long getDroppedOldestCount() {
+        long count = 0;
+        for(DispatchLane lane : lanes)
+            count += lane.getDroppedOldestCount();
+        return count;
+    }
+
+    @Override
+    public long getDroppedNewestCount() {
+        long count = 0;
+        for(DispatchLane lane : lanes)
+            count += lane.getDroppedNewestCount();
+        return count;
+    }
+
+    @Override
+    public long getBlockedCount() {
+        long count = 0;
+        for(DispatchLane lane : lanes)
+            count += lane.getBlockedCount();
+        return count;
+    }
+
+    @Override
+    public int[] getShardQueueDepths() {
+        int[] depths = new int[lanes.length];
+        for(int i = 0; i < lanes.length; i++)
+            depths[i] = lanes[i].getQueueDepth();
+        return depths;
+    }
+
+    @Override
+    public int[] getShardMaxQueueDepths() {
+        int[] depths = new int[lanes.length];
+        for(int i = 0; i < lanes.length; i++)
+            depths[i] = lanes[i].getMaxQueueDepth();
+        return depths;
+    }
+
+    @Override
+    public long[] getShardReceivedCounts() {
+        long[] counts = new long[lanes.length];
+        for(int i = 0; i < lanes.length; i++)
+            counts[i] = lanes[i].getReceivedCount();
+        return counts;
+    }
+
+    @Override
+    public long[] getShardHandledCounts() {
+        long[] counts = new long[lanes.length];
+        for(int i = 0; i < lanes.length; i++)
+            counts[i] = lanes[i].getHandledCount();
+        return counts;
+    }
+
+    @Override
+    public long[] getShardDroppedCounts() {
+        long[] counts = new long[lanes.length];
+        for(int i = 0; i < lanes.length; i++)
+            counts[i] = lanes[i].getDroppedOldestCount() + lanes[i].getDroppedNewestCount();
+        return counts;
+    }
+
+    /**
+     * @return the shard with the deepest queue, or with the most received messages when all the queues are empty
+     */
+    @Override
+    public int getHottestShard() {
+
+        int hottest = 0;
+
+        for(int i = 1; i < lanes.length; i++){
+            int depthDiff = lanes[i].getQueueDepth() - lanes[hottest].getQueueDepth();
+            if(depthDiff > 0 || (depthDiff == 0 && lanes[i].getReceivedCount() > lanes[hottest].getReceivedCount()))
+                hottest = i;
+        }
+
+        return hottest;
+    }
+
+    /**
+     * @return the approximate most frequent keys of each shard as "shard &lt;i&gt;: key~count"
+     */
+    @Override
+    public String[] getHotKeys() {
+
+        List<String> hotKeyList = new ArrayList<>();
+
+        for(int i = 0; i < lanes.length; i++)
+            for(String hotKey : lanes[i].getHotKeyTracker().getHotKeys(HOT_KEYS_PER_SHARD))
+                hotKeyList.add(String.format(Locale.ROOT, "shard %d: %s", i, hotKey));
+
+        return hotKeyList.toArray(new String[0]);
+    }
+
+}
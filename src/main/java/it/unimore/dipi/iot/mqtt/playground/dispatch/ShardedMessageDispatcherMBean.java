@@ -0,0 +1,46 @@
+package it.unimore.dipi.iot.mqtt.playground.dispatch;
+
+/**
+ * JMX management interface of ShardedMessageDispatcher
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:02
+ */
+public interface ShardedMessageDispatcherMBean {
+
+    String getPolicy();
+
+    int getShardCount();
+
+    int getShardQueueCapacity();
+
+    int getQueueDepth();
+
+    long getReceivedCount();
+
+    long getHandledCount();
+
+    long getHandlerErrorCount();
+
+    long getDroppedOldestCount();
+
+    long getDroppedNewestCount();
+
+    long getBlockedCount();
+
+    int[] getShardQueueDepths();
+
+    int[] getShardMaxQueueDepths();
+
+    long[] getShardReceivedCounts();
+
+    long[] getShardHandledCounts();
+
+    long[] getShardDroppedCounts();
+
+    int getHottestShard();
+
+    String[] getHotKeys();
+
+}
@@ -0,0 +1,77 @@
+package it.unimore.dipi.iot.mqtt.playground.dispatch;
+
+/**
+ * ShardKey made by a single level of the topic. The hash is computed like String.hashCode over the
+ * characters of the level, without extracting it as a substring. Topics with fewer levels are keyed by the whole topic.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:02
+ */
+class TopicSegmentShardKey implements ShardKey {
+
+    private final int segmentIndex;
+
+    TopicSegmentShardKey(int segmentIndex) {
+
+        if(segmentIndex < 0)
+            throw new IllegalArgumentException("segmentIndex must be >= 0");
+
+        this.segmentIndex = segmentIndex;
+    }
+
+    @Override
+    public int hash(String topic) {
+
+        int start = segmentStart(topic);
+
+        if(start < 0)
+            return topic.hashCode();
+
+        int end = segmentEnd(topic, start);
+
+        int hash = 0;
+        for(int i = start; i < end; i++)
+            hash = 31 * hash + topic.charAt(i);
+
+        return hash;
+    }
+
+    @Override
+    public String extract(String topic) {
+
+        int start = segmentStart(topic);
+
+        if(start < 0)
+            return topic;
+
+        return topic.substring(start, segmentEnd(topic, start));
+    }
+
+    /**
+     * @return the index of the first character of the segment or -1 if the topic has fewer levels
+     */
+    private int segmentStart(String topic) {
+
+        int start = 0;
+
+        for(int s = 0; s < segmentIndex; s++){
+            int separator = topic.indexOf('/', start);
+            if(separator < 0)
+                return -1;
+            start = separator + 1;
+        }
+
+        return start;
+    }
+
+    private static int segmentEnd(String topic, int start) {
+        int separator = topic.indexOf('/', start);
+        return separator < 0 ? topic.length() : separator;
+    }
+
+    public int getSegmentIndex() {
+        return segmentIndex;
+    }
+
+}
@@ -0,0 +1,230 @@
+package it.unimore.dipi.iot.mqtt.playground.fleet;
+
+import it.unimore.dipi.iot.mqtt.playground.codec.BinaryMessageCodec;
+import it.unimore.dipi.iot.mqtt.playground.codec.MessageJsonEncoder;
+import it.unimore.dipi.iot.mqtt.playground.codec.PayloadFormat;
+import it.unimore.dipi.iot.mqtt.playground.codec.SensorTypeRegistry;
+import it.unimore.dipi.iot.mqtt.playground.model.DeviceDescriptor;
+import it.unimore.dipi.iot.mqtt.playground.metrics.DropReason;
+import it.unimore.dipi.iot.mqtt.playground.publisher.AsyncMqttPublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Group of simulated devices sharing the same MQTT connection and the same publishing thread.
+ *
+ * The state of the devices is kept in parallel primitive arrays indexed by the local device index
+ * (identifiers, precomputed topics, last temperature value and next due time) while a binary min-heap
+ * of device indices ordered by due time is used to find the next device that has to publish.
+ * Scheduling a reading is therefore O(log n) and does not allocate.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:19
+ */
+public class DeviceFleetPartition implements Runnable {
+
+    private final static Logger logger = LoggerFactory.getLogger(DeviceFleetPartition.class);
+
+    //Maximum time the publishing thread is parked while waiting for the next due device
+    private static final long MAX_PARK_NANOS = 1_000_000L;
+
+    private final AsyncMqttPublisher publisher;
+
+    private final int size;
+
+    private final String[] deviceIds;
+
+    private final String[] infoTopics;
+
+    private final String[] telemetryTopics;
+
+    private final double[] temperatureValues;
+
+    private final long[] nextDueNanos;
+
+    //Binary min-heap of device indices ordered by nextDueNanos
+    private final int[] heap;
+
+    private final long intervalNanos;
+
+    private final long jitterNanos;
+
+    private final SplittableRandom random;
+
+    private final int temperatureTypeCode = SensorTypeRegistry.getDefault().getCode(SensorTypeRegistry.ENGINE_TEMPERATURE_SENSOR);
+
+    private volatile boolean running = true;
+
+    private volatile long publishedCount = 0;
+
+    private volatile long errorCount = 0;
+
+    /**
+     * @param publisher connected publisher used by all the devices of the partition
+     * @param deviceIds identifiers of the simulated devices
+     * @param intervalNanos nominal publishing interval of each device
+     * @param jitterNanos maximum random deviation (+/-) applied to each interval
+     * @param seed seed of the random generator used for sensor values and jitter
+     */
+    public DeviceFleetPartition(AsyncMqttPublisher publisher, String[] deviceIds, long intervalNanos, long jitterNanos, long seed) {
+
+        if(jitterNanos >= intervalNanos)
+            throw new IllegalArgumentException("jitter must be lower than the publishing interval");
+
+        this.publisher = publisher;
+        this.size = deviceIds.length;
+        this.deviceIds = deviceIds;
+        this.infoTopics = new String[size];
+        this.telemetryTopics = new String[size];
+        this.temperatureValues = new double[size];
+        this.nextDueNanos = new long[size];
+        this.heap = new int[size];
+        this.intervalNanos = intervalNanos;
+        this.jitterNanos = jitterNanos;
+        this.random = new SplittableRandom(seed);
+
+        //Topics are computed once for each device
+        for(int i = 0; i < size; i++){
+            infoTopics[i] = DeviceFleetSimulator.DEVICE_INFO_TOPIC.expand(deviceIds[i]);
+            telemetryTopics[i] = DeviceFleetSimulator.PAYLOAD_FORMAT.topic(
+                    DeviceFleetSimulator.SENSOR_TOPIC.expand(deviceIds[i], DeviceFleetSimulator.SENSOR_TYPE));
+        }
+    }
+
+    @Override
+    public void run() {
+
+        publishDeviceInfo();
+
+        //Spread the first reading of the devices over a whole interval to avoid bursts
+        long now = System.nanoTime();
+        for(int i = 0; i < size; i++){
+            nextDueNanos[i] = now + (long)(random.nextDouble() * intervalNanos);
+            heap[i] = i;
+        }
+        for(int i = (size >>> 1) - 1; i >= 0; i--)
+            siftDown(i);
+
+        while(running && size > 0){
+
+            int device = heap[0];
+            long remaining = nextDueNanos[device] - System.nanoTime();
+
+            if(remaining > 0){
+                LockSupport.parkNanos(Math.min(remaining, MAX_PARK_NANOS));
+                continue;
+            }
+
+            publishTelemetry(device);
+
+            //Schedule the next reading from the previous due time to keep the nominal rate
+            nextDueNanos[device] += nextInterval();
+            siftDown(0);
+        }
+    }
+
+    public void stop() {
+        this.running = false;
+    }
+
+    public long getPublishedCount() {
+        return publishedCount;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Publish the DeviceDescriptor of all the devices as retained messages
+     */
+    private void publishDeviceInfo() {
+
+        if(DeviceFleetSimulator.PAYLOAD_FORMAT == PayloadFormat.BINARY)
+            publish(SensorTypeRegistry.REGISTRY_TOPIC, SensorTypeRegistry.getDefault().toJsonPayload(), true);
+
+        for(int i = 0; i < size && running; i++){
+            DeviceDescriptor deviceDescriptor = new DeviceDescriptor(deviceIds[i],
+                    DeviceFleetSimulator.DEVICE_PRODUCER,
+                    DeviceFleetSimulator.DEVICE_SOFTWARE_VERSION);
+            publish(infoTopics[i], MessageJsonEncoder.encode(deviceDescriptor).toByteArray(), true);
+        }
+
+        logger.info("Published {} Device Descriptors", size);
+    }
+
+    private void publishTelemetry(int device) {
+
+        //Same value model of the EngineTemperatureSensor
+        temperatureValues[device] = 80 + random.nextDouble() * 20.0;
+
+        byte[] payload;
+
+        if(DeviceFleetSimulator.PAYLOAD_FORMAT == PayloadFormat.BINARY){
+            payload = new byte[BinaryMessageCodec.MESSAGE_SIZE];
+            BinaryMessageCodec.encode(System.currentTimeMillis(), temperatureTypeCode, temperatureValues[device], payload, 0);
+        }
+        else
+            payload = MessageJsonEncoder.encodeMessage(System.currentTimeMillis(),
+                    SensorTypeRegistry.ENGINE_TEMPERATURE_SENSOR,
+                    temperatureValues[device]).toByteArray();
+
+        publish(telemetryTopics[device], payload, false);
+    }
+
+    private void publish(String topic, byte[] payload, boolean retained) {
+
+        if(!publisher.isConnected()){
+            errorCount++;
+            publisher.recordDrop(DropReason.NOT_CONNECTED);
+            return;
+        }
+
+        //Messages rejected by a full publisher queue are counted as errors
+        if(publisher.publish(topic, payload, 0, retained))
+            publishedCount++;
+        else
+            errorCount++;
+    }
+
+    private long nextInterval() {
+
+        if(jitterNanos == 0)
+            return intervalNanos;
+
+        return intervalNanos + (long)((random.nextDouble() * 2.0 - 1.0) * jitterNanos);
+    }
+
+    private void siftDown(int position) {
+
+        int device = heap[position];
+        long due = nextDueNanos[device];
+        int half = size >>> 1;
+
+        while(position < half){
+
+            int child = (position << 1) + 1;
+            int right = child + 1;
+
+            if(right < size && nextDueNanos[heap[right]] < nextDueNanos[heap[child]])
+                child = right;
+
+            if(due <= nextDueNanos[heap[child]])
+                break;
+
+            heap[position] = heap[child];
+            position = child;
+        }
+
+        heap[position] = device;
+    }
+
+}
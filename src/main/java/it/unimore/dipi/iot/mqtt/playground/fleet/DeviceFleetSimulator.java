@@ -0,0 +1,176 @@
+package it.unimore.dipi.iot.mqtt.playground.fleet;
+
+import it.unimore.dipi.iot.mqtt.playground.codec.PayloadFormat;
+import it.unimore.dipi.iot.mqtt.playground.metrics.ProducerMetrics;
+import it.unimore.dipi.iot.mqtt.playground.publisher.AsyncMqttPublisher;
+import it.unimore.dipi.iot.mqtt.playground.publisher.OverflowPolicy;
+import it.unimore.dipi.iot.mqtt.playground.topic.TopicTemplate;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulator of a large fleet of DeviceProducer-like devices multiplexed over a small pool of MQTT connections.
+ * Each device publishes its DeviceDescriptor as a retained message on device/<id>/info and then
+ * periodically sends temperature readings on device/<id>/sensor/temperature.
+ *
+ * Devices are assigned round robin to CONNECTION_POOL_SIZE partitions, each one owning a single MQTT
+ * connection and a single publishing thread.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:19
+ */
+public class DeviceFleetSimulator {
+
+    private final static Logger logger = LoggerFactory.getLogger(DeviceFleetSimulator.class);
+
+    //BROKER URL
+    private static String BROKER_URL = "tcp://127.0.0.1:1883";
+
+    //Number of simulated devices
+    private static final int DEVICE_COUNT = 100000;
+
+    //Number of MQTT connections shared by the simulated devices
+    private static final int CONNECTION_POOL_SIZE = 4;
+
+    //Nominal publishing interval of each device
+    private static final long DEVICE_INTERVAL_MS = 10000;
+
+    //Maximum random deviation (+/-) applied to each device interval
+    private static final long DEVICE_JITTER_MS = 1000;
+
+    //Duration of the simulation in seconds
+    private static final int SIMULATION_DURATION_SECONDS = 300;
+
+    //Maximum number of publish operations in flight on each connection
+    private static final int MAX_INFLIGHT = 1000;
+
+    //Maximum number of messages waiting to be sent on each connection (further messages are dropped)
+    private static final int MAX_PENDING = 100000;
+
+    //Interval between two progress reports
+    private static final int REPORT_INTERVAL_SECONDS = 10;
+
+    //Prefix of the generated device ids
+    private static final String DEVICE_ID_PREFIX = "fleet-device-";
+
+    //Topic used to publish device information
+    static final TopicTemplate DEVICE_INFO_TOPIC = TopicTemplate.compile("device/{deviceId}/info");
+
+    //Topic used to publish generated demo data
+    static final TopicTemplate SENSOR_TOPIC = TopicTemplate.compile("device/{deviceId}/sensor/{type}");
+
+    //Sensor type level of the published data topic
+    static final String SENSOR_TYPE = "temperature";
+
+    static final String DEVICE_PRODUCER = "ACME_CORPORATION";
+
+    static final String DEVICE_SOFTWARE_VERSION = "0.1-beta";
+
+    //Wire format of the telemetry messages (BINARY messages are published on .../sensor/temperature/bin)
+    static final PayloadFormat PAYLOAD_FORMAT = PayloadFormat.JSON;
+
+    public static void main(String[] args) {
+
+        logger.info("DeviceFleetSimulator started -> Devices: {} Connections: {} Interval: {} ms Jitter: {} ms",
+                DEVICE_COUNT,
+                CONNECTION_POOL_SIZE,
+                DEVICE_INTERVAL_MS,
+                DEVICE_JITTER_MS);
+
+        List<AsyncMqttPublisher> publisherList = new ArrayList<>();
+        List<DeviceFleetPartition> partitionList = new ArrayList<>();
+        List<Thread> threadList = new ArrayList<>();
+
+        try{
+
+            for(int p = 0; p < CONNECTION_POOL_SIZE; p++){
+
+                String clientId = UUID.randomUUID().toString();
+                MqttClientPersistence persistence = new MemoryPersistence();
+                IMqttAsyncClient client = new MqttAsyncClient(BROKER_URL, clientId, persistence);
+                AsyncMqttPublisher publisher = new AsyncMqttPublisher(client, MAX_INFLIGHT, MAX_PENDING, OverflowPolicy.DROP);
+                publisher.setMetrics(ProducerMetrics.register("DeviceFleetSimulator-connection-" + p));
+
+                MqttConnectOptions options = new MqttConnectOptions();
+                options.setAutomaticReconnect(true);
+                options.setCleanSession(true);
+                options.setConnectionTimeout(10);
+
+                publisher.connect(options);
+                publisherList.add(publisher);
+
+                logger.info("Connection {} established ! Client Id: {}", p, clientId);
+
+                //Devices are assigned round robin to the available connections
+                int partitionSize = DEVICE_COUNT / CONNECTION_POOL_SIZE + (p < DEVICE_COUNT % CONNECTION_POOL_SIZE ? 1 : 0);
+                String[] deviceIds = new String[partitionSize];
+                for(int i = 0; i < partitionSize; i++)
+                    deviceIds[i] = DEVICE_ID_PREFIX + (i * CONNECTION_POOL_SIZE + p);
+
+                DeviceFleetPartition partition = new DeviceFleetPartition(publisher,
+                        deviceIds,
+                        TimeUnit.MILLISECONDS.toNanos(DEVICE_INTERVAL_MS),
+                        TimeUnit.MILLISECONDS.toNanos(DEVICE_JITTER_MS),
+                        System.nanoTime() + p);
+
+                partitionList.add(partition);
+
+                Thread thread = new Thread(partition, "fleet-partition-" + p);
+                threadList.add(thread);
+            }
+
+            for(Thread thread : threadList)
+                thread.start();
+
+            long startTime = System.currentTimeMillis();
+            long lastPublishedCount = 0;
+
+            while(System.currentTimeMillis() - startTime < TimeUnit.SECONDS.toMillis(SIMULATION_DURATION_SECONDS)){
+
+                Thread.sleep(TimeUnit.SECONDS.toMillis(REPORT_INTERVAL_SECONDS));
+
+                long publishedCount = 0;
+                long errorCount = 0;
+                for(DeviceFleetPartition partition : partitionList){
+                    publishedCount += partition.getPublishedCount();
+                    errorCount += partition.getErrorCount();
+                }
+
+                logger.info("Fleet Status -> Published: {} Errors: {} Rate: {} msg/s",
+                        publishedCount,
+                        errorCount,
+                        (publishedCount - lastPublishedCount) / REPORT_INTERVAL_SECONDS);
+
+                lastPublishedCount = publishedCount;
+            }
+
+            for(DeviceFleetPartition partition : partitionList)
+                partition.stop();
+
+            for(Thread thread : threadList)
+                thread.join();
+
+            //Disconnect from the broker and close connections
+            for(AsyncMqttPublisher publisher : publisherList)
+                publisher.disconnect();
+
+            logger.info("Disconnected !");
+
+        }catch (Exception e){
+            e.printStackTrace();
+        }
+
+    }
+
+}
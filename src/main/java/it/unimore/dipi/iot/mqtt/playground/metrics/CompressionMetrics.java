@@ -0,0 +1,155 @@
+package it.unimore.dipi.iot.mqtt.playground.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a PayloadCompressor: compressed and skipped payloads (below the size threshold or not shrinking),
+ * bytes before and after compression, decompressed payloads and CPU time spent on both directions.
+ * Instances created through register() are exposed by the MetricsRegistry as MBeans named
+ * it.unimore.dipi.iot.mqtt.playground:type=CompressionMetrics,name=&lt;component name&gt;.
+ * The PayloadCompressor records the values once the metrics are attached with setMetrics().
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:18
+ */
+public class CompressionMetrics implements CompressionMetricsMBean, MetricsSource {
+
+    private final String name;
+
+    private final LongAdder compressedCount = new LongAdder();
+
+    private final LongAdder skippedCount = new LongAdder();
+
+    private final LongAdder uncompressedBytes = new LongAdder();
+
+    private final LongAdder compressedBytes = new LongAdder();
+
+    private final LongAdder compressCpuNanos = new LongAdder();
+
+    private final LongAdder decompressedCount = new LongAdder();
+
+    private final LongAdder decompressFailureCount = new LongAdder();
+
+    private final LongAdder decompressCpuNanos = new LongAdder();
+
+    public CompressionMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Create the compression metrics of a component and register them in the MetricsRegistry
+     *
+     * @param name component name used in the ObjectName
+     * @return the registered metrics
+     */
+    public static CompressionMetrics register(String name) {
+        CompressionMetrics metrics = new CompressionMetrics(name);
+        MetricsRegistry.register(metrics, "CompressionMetrics");
+        return metrics;
+    }
+
+    /**
+     * Remove the metrics from the MetricsRegistry
+     */
+    public void unregister() {
+        MetricsRegistry.unregister(this);
+    }
+
+    /**
+     * Record a compressed payload
+     *
+     * @param inputSize size of the original payload
+     * @param outputSize size of the compressed frame
+     * @param cpuNanos CPU time spent compressing
+     */
+    public void recordCompressed(int inputSize, int outputSize, long cpuNanos) {
+        compressedCount.increment();
+        uncompressedBytes.add(inputSize);
+        compressedBytes.add(outputSize);
+        compressCpuNanos.add(cpuNanos);
+    }
+
+    /**
+     * Record a payload sent without compression
+     *
+     * @param cpuNanos CPU time spent before giving up (0 if below the size threshold)
+     */
+    public void recordSkipped(long cpuNanos) {
+        skippedCount.increment();
+        compressCpuNanos.add(cpuNanos);
+    }
+
+    public void recordDecompressed(long cpuNanos) {
+        decompressedCount.increment();
+        decompressCpuNanos.add(cpuNanos);
+    }
+
+    public void recordDecompressFailure() {
+        decompressFailureCount.increment();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toSummaryString() {
+        return String.format(Locale.ROOT, "compressed=%d skipped=%d ratio=%.2f compressCpu=%.1fus decompressed=%d failures=%d decompressCpu=%.1fus",
+                getCompressedCount(), getSkippedCount(), getCompressionRatio(), getCompressCpuMeanMicros(),
+                getDecompressedCount(), getDecompressFailureCount(), getDecompressCpuMeanMicros());
+    }
+
+    @Override
+    public long getCompressedCount() {
+        return compressedCount.sum();
+    }
+
+    @Override
+    public long getSkippedCount() {
+        return skippedCount.sum();
+    }
+
+    @Override
+    public long getUncompressedBytes() {
+        return uncompressedBytes.sum();
+    }
+
+    @Override
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    @Override
+    public double getCompressionRatio() {
+        long compressed = compressedBytes.sum();
+        return compressed > 0 ? (double) uncompressedBytes.sum() / compressed : 0.0;
+    }
+
+    @Override
+    public double getCompressCpuMeanMicros() {
+        return meanMicros(compressCpuNanos.sum(), compressedCount.sum() + skippedCount.sum());
+    }
+
+    @Override
+    public long getDecompressedCount() {
+        return decompressedCount.sum();
+    }
+
+    @Override
+    public long getDecompressFailureCount() {
+        return decompressFailureCount.sum();
+    }
+
+    @Override
+    public double getDecompressCpuMeanMicros() {
+        return meanMicros(decompressCpuNanos.sum(), decompressedCount.sum());
+    }
+
+    private static double meanMicros(long totalNanos, long count) {
+        return count > 0 ? totalNanos / 1000.0 / count : 0.0;
+    }
+
+}
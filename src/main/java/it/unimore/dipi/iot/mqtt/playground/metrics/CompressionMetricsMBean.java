@@ -0,0 +1,32 @@
+package it.unimore.dipi.iot.mqtt.playground.metrics;
+
+/**
+ * JMX management interface of CompressionMetrics.
+ * The compression ratio is uncompressed bytes over compressed bytes of the compressed payloads,
+ * CPU costs are the mean CPU time of the calling thread per payload.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:18
+ */
+public interface CompressionMetricsMBean {
+
+    long getCompressedCount();
+
+    long getSkippedCount();
+
+    long getUncompressedBytes();
+
+    long getCompressedBytes();
+
+    double getCompressionRatio();
+
+    double getCompressCpuMeanMicros();
+
+    long getDecompressedCount();
+
+    long getDecompressFailureCount();
+
+    double getDecompressCpuMeanMicros();
+
+}
@@ -0,0 +1,181 @@
+package it.unimore.dipi.iot.mqtt.playground.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ingestion metrics of an MQTT consumer: total counters (striped LongAdder) and sliding-window rates
+ * of received messages, received bytes, parse failures and time spent in the message handler.
+ * Instances created through register() are exposed by the MetricsRegistry as MBeans named
+ * it.unimore.dipi.iot.mqtt.playground:type=ConsumerMetrics,name=&lt;consumer name&gt;
+ * and can be watched with jconsole or scraped through JMX.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:55
+ */
+public class ConsumerMetrics implements ConsumerMetricsMBean, MetricsSource {
+
+    //Longest sliding window in seconds
+    private static final int MAX_WINDOW_SECONDS = 60;
+
+    private final String name;
+
+    private final LongAdder messageCount = new LongAdder();
+
+    private final LongAdder byteCount = new LongAdder();
+
+    private final LongAdder parseFailureCount = new LongAdder();
+
+    private final LongAdder handlerTimeNanos = new LongAdder();
+
+    private final SlidingWindowCounter messageWindow = new SlidingWindowCounter(MAX_WINDOW_SECONDS);
+
+    private final SlidingWindowCounter byteWindow = new SlidingWindowCounter(MAX_WINDOW_SECONDS);
+
+    private final SlidingWindowCounter parseFailureWindow = new SlidingWindowCounter(MAX_WINDOW_SECONDS);
+
+    private final SlidingWindowCounter handlerTimeWindow = new SlidingWindowCounter(MAX_WINDOW_SECONDS);
+
+    public ConsumerMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Create the metrics of a consumer and register them in the MetricsRegistry
+     *
+     * @param name consumer name used in the ObjectName
+     * @return the registered metrics
+     */
+    public static ConsumerMetrics register(String name) {
+        ConsumerMetrics metrics = new ConsumerMetrics(name);
+        MetricsRegistry.register(metrics, "ConsumerMetrics");
+        return metrics;
+    }
+
+    /**
+     * Remove the metrics from the MetricsRegistry
+     */
+    public void unregister() {
+        MetricsRegistry.unregister(this);
+    }
+
+    /**
+     * Record a handled message
+     *
+     * @param payloadSize size of the payload in bytes
+     * @param handlerNanos time spent handling the message
+     */
+    public void recordMessage(int payloadSize, long handlerNanos) {
+        messageCount.increment();
+        byteCount.add(payloadSize);
+        handlerTimeNanos.add(handlerNanos);
+        messageWindow.increment();
+        byteWindow.add(payloadSize);
+        handlerTimeWindow.add(handlerNanos);
+    }
+
+    /**
+     * Record a message whose payload could not be parsed
+     */
+    public void recordParseFailure() {
+        parseFailureCount.increment();
+        parseFailureWindow.increment();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toSummaryString() {
+        return String.format(Locale.ROOT, "messages=%d (%.1f msg/s 10s) bytes=%d (%.1f B/s 10s) parseFailures=%d handlerMean=%.1fus",
+                getMessageCount(), getMessageRate10s(), getByteCount(), getByteRate10s(), getParseFailureCount(), getHandlerTimeMeanMicros10s());
+    }
+
+    @Override
+    public long getMessageCount() {
+        return messageCount.sum();
+    }
+
+    @Override
+    public long getByteCount() {
+        return byteCount.sum();
+    }
+
+    @Override
+    public long getParseFailureCount() {
+        return parseFailureCount.sum();
+    }
+
+    @Override
+    public double getMessageRate1s() {
+        return messageWindow.getRate(1);
+    }
+
+    @Override
+    public double getMessageRate10s() {
+        return messageWindow.getRate(10);
+    }
+
+    @Override
+    public double getMessageRate60s() {
+        return messageWindow.getRate(60);
+    }
+
+    @Override
+    public double getByteRate1s() {
+        return byteWindow.getRate(1);
+    }
+
+    @Override
+    public double getByteRate10s() {
+        return byteWindow.getRate(10);
+    }
+
+    @Override
+    public double getByteRate60s() {
+        return byteWindow.getRate(60);
+    }
+
+    @Override
+    public double getParseFailureRate1s() {
+        return parseFailureWindow.getRate(1);
+    }
+
+    @Override
+    public double getParseFailureRate10s() {
+        return parseFailureWindow.getRate(10);
+    }
+
+    @Override
+    public double getParseFailureRate60s() {
+        return parseFailureWindow.getRate(60);
+    }
+
+    @Override
+    public double getHandlerTimeMeanMicros() {
+        return meanMicros(handlerTimeNanos.sum(), messageCount.sum());
+    }
+
+    @Override
+    public double getHandlerTimeMeanMicros1s() {
+        return meanMicros(handlerTimeWindow.getSum(1), messageWindow.getSum(1));
+    }
+
+    @Override
+    public double getHandlerTimeMeanMicros10s() {
+        return meanMicros(handlerTimeWindow.getSum(10), messageWindow.getSum(10));
+    }
+
+    @Override
+    public double getHandlerTimeMeanMicros60s() {
+        return meanMicros(handlerTimeWindow.getSum(60), messageWindow.getSum(60));
+    }
+
+    private static double meanMicros(long totalNanos, long count) {
+        return count > 0 ? totalNanos / 1000.0 / count : 0.0;
+    }
+
+}
@@ -0,0 +1,45 @@
+package it.unimore.dipi.iot.mqtt.playground.metrics;
+
+/**
+ * JMX management interface of ConsumerMetrics.
+ * Rates are per second, computed over sliding windows of 1, 10 and 60 seconds.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:55
+ */
+public interface ConsumerMetricsMBean {
+
+    long getMessageCount();
+
+    long getByteCount();
+
+    long getParseFailureCount();
+
+    double getMessageRate1s();
+
+    double getMessageRate10s();
+
+    double getMessageRate60s();
+
+    double getByteRate1s();
+
+    double getByteRate10s();
+
+    double getByteRate60s();
+
+    double getParseFailureRate1s();
+
+    double getParseFailureRate10s();
+
+    double getParseFailureRate60s();
+
+    double getHandlerTimeMeanMicros();
+
+    double getHandlerTimeMeanMicros1s();
+
+    double getHandlerTimeMeanMicros10s();
+
+    double getHandlerTimeMeanMicros60s();
+
+}
@@ -0,0 +1,27 @@
+package it.unimore.dipi.iot.mqtt.playground.metrics;
+
+/**
+ * Reasons for which a producer message is not delivered
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:57
+ */
+public enum DropReason {
+
+    //The client was not connected when the producer tried to publish
+    NOT_CONNECTED,
+
+    //Null topic or payload
+    INVALID_MESSAGE,
+
+    //Pending queue full with the DROP overflow policy
+    QUEUE_FULL,
+
+    //Producer thread interrupted while waiting for room in the pending queue
+    INTERRUPTED,
+
+    //Publish operation failed on the client
+    PUBLISH_FAILED
+
+}
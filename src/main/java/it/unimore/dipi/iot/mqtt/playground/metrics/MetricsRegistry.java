@@ -0,0 +1,140 @@
+package it.unimore.dipi.iot.mqtt.playground.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry shared by the producer and consumer metrics of the process. Registered metrics are exposed as MBeans
+ * named it.unimore.dipi.iot.mqtt.playground:type=&lt;type&gt;,name=&lt;name&gt; on the platform MBean server
+ * and can be periodically logged as summary lines.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:57
+ */
+public final class MetricsRegistry {
+
+    private final static Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    public static final String JMX_DOMAIN = "it.unimore.dipi.iot.mqtt.playground";
+
+    //Default interval between two summary lines
+    public static final long DEFAULT_SUMMARY_PERIOD_SECONDS = 10;
+
+    //Registered metrics and the ObjectName of the ones successfully registered as MBeans
+    private static final Set<MetricsSource> sourceSet = ConcurrentHashMap.newKeySet();
+
+    private static final Map<MetricsSource, ObjectName> objectNameMap = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService summaryExecutor = null;
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * Register the metrics as an MBean. An MBean already registered with the same type and name is replaced.
+     * A registration failure is logged and the metrics are still included in the summary report.
+     *
+     * @param source metrics implementing a standard MBean interface
+     * @param type type used in the ObjectName
+     */
+    public static void register(MetricsSource source, String type) {
+
+        sourceSet.add(source);
+
+        try {
+
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(source.getName()));
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+            if(mBeanServer.isRegistered(objectName))
+                mBeanServer.unregisterMBean(objectName);
+
+            //Forget the metrics previously registered with the same ObjectName
+            for(Map.Entry<MetricsSource, ObjectName> entry : objectNameMap.entrySet())
+                if(entry.getValue().equals(objectName) && objectNameMap.remove(entry.getKey(), objectName))
+                    sourceSet.remove(entry.getKey());
+
+            mBeanServer.registerMBean(source, objectName);
+            objectNameMap.put(source, objectName);
+
+            logger.info("Metrics registered as {}", objectName);
+
+        }catch (Exception e){
+            logger.error("Error registering metrics {} ! Error: {}", source.getName(), e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Remove the metrics from the registry and from the platform MBean server
+     */
+    public static void unregister(MetricsSource source) {
+
+        sourceSet.remove(source);
+        ObjectName objectName = objectNameMap.remove(source);
+
+        if(objectName == null)
+            return;
+
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            if(mBeanServer.isRegistered(objectName))
+                mBeanServer.unregisterMBean(objectName);
+        }catch (Exception e){
+            logger.error("Error unregistering metrics {} ! Error: {}", source.getName(), e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Start logging a summary line for each registered metrics every DEFAULT_SUMMARY_PERIOD_SECONDS
+     * (no effect if already started)
+     */
+    public static void startSummaryReport() {
+        startSummaryReport(DEFAULT_SUMMARY_PERIOD_SECONDS);
+    }
+
+    /**
+     * Start logging a summary line for each registered metrics every periodSeconds (no effect if already started)
+     *
+     * @param periodSeconds
+     */
+    public static synchronized void startSummaryReport(long periodSeconds) {
+
+        if(summaryExecutor != null)
+            return;
+
+        summaryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        summaryExecutor.scheduleAtFixedRate(MetricsRegistry::logSummary, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stopSummaryReport() {
+        if(summaryExecutor != null){
+            summaryExecutor.shutdownNow();
+            summaryExecutor = null;
+        }
+    }
+
+    /**
+     * Log a summary line for each registered metrics
+     */
+    public static void logSummary() {
+        for(MetricsSource source : sourceSet)
+            logger.info("[{}] {}", source.getName(), source.toSummaryString());
+    }
+
+}
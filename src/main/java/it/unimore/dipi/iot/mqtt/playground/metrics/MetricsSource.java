@@ -0,0 +1,22 @@
+package it.unimore.dipi.iot.mqtt.playground.metrics;
+
+/**
+ * Metrics that can be registered in the MetricsRegistry
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:57
+ */
+public interface MetricsSource {
+
+    /**
+     * @return the name of the instrumented component, used in the JMX ObjectName
+     */
+    String getName();
+
+    /**
+     * @return a single line summary of the current values, used by the periodic summary report
+     */
+    String toSummaryString();
+
+}
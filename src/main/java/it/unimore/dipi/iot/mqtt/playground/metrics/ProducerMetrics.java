@@ -0,0 +1,317 @@
+package it.unimore.dipi.iot.mqtt.playground.metrics;
+
+import it.unimore.dipi.iot.mqtt.playground.performance.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Metrics of an MQTT producer: latency of the publish calls (time the caller is blocked), delivery latency
+ * of QoS 1/2 messages (from the hand-off to the client to the broker acknowledgement, excluding the time spent
+ * in the pending queue and waiting for an in-flight slot), in-flight and pending gauges,
+ * drop counters by DropReason and connect/reconnect telemetry.
+ * Instances created through register() are exposed by the MetricsRegistry as MBeans named
+ * it.unimore.dipi.iot.mqtt.playground:type=ProducerMetrics,name=&lt;producer name&gt;.
+ * The AsyncMqttPublisher records the values once the metrics are attached with setMetrics().
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:57
+ */
+public class ProducerMetrics implements ProducerMetricsMBean, MetricsSource {
+
+    //Highest latency (in microseconds) tracked with full precision (1 minute)
+    private static final long HIGHEST_TRACKABLE_LATENCY_US = TimeUnit.MINUTES.toMicros(1);
+
+    private static final IntSupplier NO_GAUGE = () -> 0;
+
+    private final String name;
+
+    private final LatencyHistogram publishCallHistogram = new LatencyHistogram(HIGHEST_TRACKABLE_LATENCY_US);
+
+    private final LatencyHistogram deliveryHistogram = new LatencyHistogram(HIGHEST_TRACKABLE_LATENCY_US);
+
+    private final LongAdder[] dropCounts = new LongAdder[DropReason.values().length];
+
+    private volatile IntSupplier inflightGauge = NO_GAUGE;
+
+    private volatile IntSupplier pendingGauge = NO_GAUGE;
+
+    private volatile boolean connected = false;
+
+    private final AtomicLong connectCount = new AtomicLong();
+
+    private final AtomicLong connectionLostCount = new AtomicLong();
+
+    private final AtomicLong reconnectCount = new AtomicLong();
+
+    private volatile long lastConnectMillis = 0;
+
+    private volatile long lastReconnectMillis = 0;
+
+    private volatile long maxReconnectMillis = 0;
+
+    private final AtomicLong totalDisconnectedMillis = new AtomicLong();
+
+    //Time of the last connection loss (System.nanoTime())
+    private volatile long connectionLostNanos = 0;
+
+    public ProducerMetrics(String name) {
+        this.name = name;
+        for(int i = 0; i < dropCounts.length; i++)
+            dropCounts[i] = new LongAdder();
+    }
+
+    /**
+     * Create the metrics of a producer and register them in the MetricsRegistry
+     *
+     * @param name producer name used in the ObjectName
+     * @return the registered metrics
+     */
+    public static ProducerMetrics register(String name) {
+        ProducerMetrics metrics = new ProducerMetrics(name);
+        MetricsRegistry.register(metrics, "ProducerMetrics");
+        return metrics;
+    }
+
+    /**
+     * Remove the metrics from the MetricsRegistry
+     */
+    public void unregister() {
+        MetricsRegistry.unregister(this);
+    }
+
+    /**
+     * Bind the suppliers of the current number of in-flight and pending messages
+     */
+    public void bindGauges(IntSupplier inflightGauge, IntSupplier pendingGauge) {
+        this.inflightGauge = inflightGauge;
+        this.pendingGauge = pendingGauge;
+    }
+
+    /**
+     * @param nanos time spent by the caller in the publish call
+     */
+    public void recordPublishCall(long nanos) {
+        publishCallHistogram.recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * @param nanos time between the publish call and the acknowledgement of a QoS 1/2 message
+     */
+    public void recordDelivery(long nanos) {
+        deliveryHistogram.recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    public void recordDrop(DropReason reason) {
+        dropCounts[reason.ordinal()].increment();
+    }
+
+    /**
+     * @param nanos duration of the connect operation requested by the application
+     */
+    public void recordConnect(long nanos) {
+        connectCount.incrementAndGet();
+        lastConnectMillis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        connected = true;
+    }
+
+    public void recordDisconnect() {
+        connected = false;
+    }
+
+    public void recordConnectionLost() {
+        connectionLostCount.incrementAndGet();
+        connectionLostNanos = System.nanoTime();
+        connected = false;
+    }
+
+    /**
+     * Record an automatic reconnection, whose duration is the time elapsed since the connection loss
+     */
+    public void recordReconnect() {
+
+        reconnectCount.incrementAndGet();
+
+        if(connectionLostNanos != 0){
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectionLostNanos);
+            lastReconnectMillis = millis;
+            maxReconnectMillis = Math.max(maxReconnectMillis, millis);
+            totalDisconnectedMillis.addAndGet(millis);
+            connectionLostNanos = 0;
+        }
+
+        connected = true;
+    }
+
+    public LatencyHistogram getPublishCallHistogram() {
+        return publishCallHistogram;
+    }
+
+    public LatencyHistogram getDeliveryHistogram() {
+        return deliveryHistogram;
+    }
+
+    public long getDroppedCount(DropReason reason) {
+        return dropCounts[reason.ordinal()].sum();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toSummaryString() {
+        return String.format(Locale.ROOT, "publishCalls=%d (p99=%dus max=%dus) deliveries=%d (p50=%dus p99=%dus max=%dus) "
+                        + "inflight=%d pending=%d dropped=%d failed=%d connected=%b reconnects=%d (last=%dms max=%dms)",
+                getPublishCallCount(), getPublishCallP99Micros(), getPublishCallMaxMicros(),
+                getDeliveryCount(), getDeliveryP50Micros(), getDeliveryP99Micros(), getDeliveryMaxMicros(),
+                getInflightCount(), getPendingCount(), getDroppedCount(), getPublishFailedCount(),
+                isConnected(), getReconnectCount(), getLastReconnectMillis(), getMaxReconnectMillis());
+    }
+
+    @Override
+    public long getPublishCallCount() {
+        return publishCallHistogram.getTotalCount();
+    }
+
+    @Override
+    public double getPublishCallMeanMicros() {
+        return publishCallHistogram.getMean();
+    }
+
+    @Override
+    public long getPublishCallP50Micros() {
+        return publishCallHistogram.getValueAtPercentile(50.0);
+    }
+
+    @Override
+    public long getPublishCallP99Micros() {
+        return publishCallHistogram.getValueAtPercentile(99.0);
+    }
+
+    @Override
+    public long getPublishCallP999Micros() {
+        return publishCallHistogram.getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getPublishCallMaxMicros() {
+        return publishCallHistogram.getMaxValue();
+    }
+
+    @Override
+    public long getDeliveryCount() {
+        return deliveryHistogram.getTotalCount();
+    }
+
+    @Override
+    public double getDeliveryMeanMicros() {
+        return deliveryHistogram.getMean();
+    }
+
+    @Override
+    public long getDeliveryP50Micros() {
+        return deliveryHistogram.getValueAtPercentile(50.0);
+    }
+
+    @Override
+    public long getDeliveryP99Micros() {
+        return deliveryHistogram.getValueAtPercentile(99.0);
+    }
+
+    @Override
+    public long getDeliveryP999Micros() {
+        return deliveryHistogram.getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getDeliveryMaxMicros() {
+        return deliveryHistogram.getMaxValue();
+    }
+
+    @Override
+    public int getInflightCount() {
+        return inflightGauge.getAsInt();
+    }
+
+    @Override
+    public int getPendingCount() {
+        return pendingGauge.getAsInt();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return getDroppedNotConnected() + getDroppedInvalidMessage() + getDroppedQueueFull() + getDroppedInterrupted();
+    }
+
+    @Override
+    public long getDroppedNotConnected() {
+        return getDroppedCount(DropReason.NOT_CONNECTED);
+    }
+
+    @Override
+    public long getDroppedInvalidMessage() {
+        return getDroppedCount(DropReason.INVALID_MESSAGE);
+    }
+
+    @Override
+    public long getDroppedQueueFull() {
+        return getDroppedCount(DropReason.QUEUE_FULL);
+    }
+
+    @Override
+    public long getDroppedInterrupted() {
+        return getDroppedCount(DropReason.INTERRUPTED);
+    }
+
+    @Override
+    public long getPublishFailedCount() {
+        return getDroppedCount(DropReason.PUBLISH_FAILED);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public long getConnectCount() {
+        return connectCount.get();
+    }
+
+    @Override
+    public long getLastConnectMillis() {
+        return lastConnectMillis;
+    }
+
+    @Override
+    public long getConnectionLostCount() {
+        return connectionLostCount.get();
+    }
+
+    @Override
+    public long getReconnectCount() {
+        return reconnectCount.get();
+    }
+
+    @Override
+    public long getLastReconnectMillis() {
+        return lastReconnectMillis;
+    }
+
+    @Override
+    public long getMaxReconnectMillis() {
+        return maxReconnectMillis;
+    }
+
+    @Override
+    public long getTotalDisconnectedMillis() {
+        return totalDisconnectedMillis.get();
+    }
+
+}
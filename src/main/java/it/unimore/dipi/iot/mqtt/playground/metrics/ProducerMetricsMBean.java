@@ -0,0 +1,69 @@
+package it.unimore.dipi.iot.mqtt.playground.metrics;
+
+/**
+ * JMX management interface of ProducerMetrics.
+ * Publish call and delivery latencies are in microseconds, connection durations in milliseconds.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:57
+ */
+public interface ProducerMetricsMBean {
+
+    long getPublishCallCount();
+
+    double getPublishCallMeanMicros();
+
+    long getPublishCallP50Micros();
+
+    long getPublishCallP99Micros();
+
+    long getPublishCallP999Micros();
+
+    long getPublishCallMaxMicros();
+
+    long getDeliveryCount();
+
+    double getDeliveryMeanMicros();
+
+    long getDeliveryP50Micros();
+
+    long getDeliveryP99Micros();
+
+    long getDeliveryP999Micros();
+
+    long getDeliveryMaxMicros();
+
+    int getInflightCount();
+
+    int getPendingCount();
+
+    long getDroppedCount();
+
+    long getDroppedNotConnected();
+
+    long getDroppedInvalidMessage();
+
+    long getDroppedQueueFull();
+
+    long getDroppedInterrupted();
+
+    long getPublishFailedCount();
+
+    boolean isConnected();
+
+    long getConnectCount();
+
+    long getLastConnectMillis();
+
+    long getConnectionLostCount();
+
+    long getReconnectCount();
+
+    long getLastReconnectMillis();
+
+    long getMaxReconnectMillis();
+
+    long getTotalDisconnectedMillis();
+
+}
@@ -0,0 +1,106 @@
+package it.unimore.dipi.iot.mqtt.playground.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counter keeping the sums of the last seconds in a ring of one-second buckets, used to compute
+ * rates over sliding windows (e.g. 1s, 10s, 60s). Each bucket is a striped LongAdder, so concurrent
+ * updates do not contend on a single memory location.
+ *
+ * Rates are computed over the last complete seconds (the current second is excluded). A bucket is
+ * recycled by the first update of a new second: an update racing with the recycle may be lost, which
+ * is acceptable for monitoring purposes.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:55
+ */
+public class SlidingWindowCounter {
+
+    private final int maxWindowSeconds;
+
+    private final LongAdder[] buckets;
+
+    //Second associated to the current content of each bucket
+    private final AtomicLongArray bucketSeconds;
+
+    //Seconds are counted from the creation of the counter
+    private final long originNanos = System.nanoTime();
+
+    /**
+     * @param maxWindowSeconds longest window that can be queried
+     */
+    public SlidingWindowCounter(int maxWindowSeconds) {
+
+        if(maxWindowSeconds <= 0)
+            throw new IllegalArgumentException("maxWindowSeconds must be > 0");
+
+        this.maxWindowSeconds = maxWindowSeconds;
+
+        //One more bucket for the current (partial) second
+        this.buckets = new LongAdder[maxWindowSeconds + 1];
+        this.bucketSeconds = new AtomicLongArray(maxWindowSeconds + 1);
+
+        for(int i = 0; i < buckets.length; i++){
+            buckets[i] = new LongAdder();
+            bucketSeconds.set(i, -1);
+        }
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long value) {
+
+        long second = currentSecond();
+        int index = (int) (second % buckets.length);
+        long bucketSecond = bucketSeconds.get(index);
+
+        if(bucketSecond != second && bucketSeconds.compareAndSet(index, bucketSecond, second))
+            buckets[index].reset();
+
+        buckets[index].add(value);
+    }
+
+    /**
+     * @param windowSeconds window length in seconds (at most maxWindowSeconds)
+     * @return the sum of the values added in the last windowSeconds complete seconds
+     */
+    public long getSum(int windowSeconds) {
+
+        if(windowSeconds <= 0 || windowSeconds > maxWindowSeconds)
+            throw new IllegalArgumentException("windowSeconds must be in [1, " + maxWindowSeconds + "]");
+
+        long currentSecond = currentSecond();
+        long sum = 0;
+
+        for(long second = currentSecond - windowSeconds; second < currentSecond; second++){
+            int index = (int) (second % buckets.length);
+            if(bucketSeconds.get(index) == second)
+                sum += buckets[index].sum();
+        }
+
+        return sum;
+    }
+
+    /**
+     * @param windowSeconds window length in seconds (at most maxWindowSeconds)
+     * @return the average rate per second over the last windowSeconds complete seconds
+     */
+    public double getRate(int windowSeconds) {
+        return (double) getSum(windowSeconds) / windowSeconds;
+    }
+
+    public int getMaxWindowSeconds() {
+        return maxWindowSeconds;
+    }
+
+    //Offset by the ring length so that the seconds of any queried window are not negative
+    private long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - originNanos) + buckets.length;
+    }
+
+}
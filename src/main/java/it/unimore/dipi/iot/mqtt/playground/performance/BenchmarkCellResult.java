@@ -0,0 +1,186 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+import java.util.Locale;
+
+/**
+ * Configuration and measured results of a single cell of the benchmark matrix.
+ * Latencies are in microseconds, CPU usage is the process CPU time over the wall time
+ * (100 = one core fully busy).
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:49
+ */
+public class BenchmarkCellResult {
+
+	public static final String CSV_HEADER = "qos,retained,cleanSession,persistence,tcpNoDelay,payloadSize,sentCount,receivedCount,"
+			+ "durationMs,throughput,throughputMBps,latencyMeanUs,latencyP50Us,latencyP90Us,latencyP99Us,latencyP999Us,latencyMaxUs,cpuPercent,cpuUsPerMessage";
+
+	private int qos;
+
+	private boolean retained;
+
+	private boolean cleanSession;
+
+	private String persistence;
+
+	private boolean tcpNoDelay;
+
+	private int payloadSize;
+
+	private long sentCount;
+
+	private long receivedCount;
+
+	private long durationMs;
+
+	private double throughput;
+
+	private double throughputMBps;
+
+	private double latencyMeanUs;
+
+	private long latencyP50Us;
+
+	private long latencyP90Us;
+
+	private long latencyP99Us;
+
+	private long latencyP999Us;
+
+	private long latencyMaxUs;
+
+	private double cpuPercent;
+
+	private double cpuUsPerMessage;
+
+	public BenchmarkCellResult() {
+	}
+
+	public BenchmarkCellResult(int qos, boolean retained, boolean cleanSession, PersistenceType persistence, boolean tcpNoDelay, int payloadSize) {
+		this.qos = qos;
+		this.retained = retained;
+		this.cleanSession = cleanSession;
+		this.persistence = persistence.name();
+		this.tcpNoDelay = tcpNoDelay;
+		this.payloadSize = payloadSize;
+	}
+
+	/**
+	 * Fill the measured values
+	 *
+	 * @param sentCount measured messages sent by the producer
+	 * @param receivedCount measured messages received by the consumer
+	 * @param durationNanos time between the first measured send and the last receive
+	 * @param cpuNanos process CPU time consumed in the same period
+	 * @param latencyHistogram latencies of the received messages in microseconds
+	 */
+	public void setMeasures(long sentCount, long receivedCount, long durationNanos, long cpuNanos, LatencyHistogram latencyHistogram) {
+		this.sentCount = sentCount;
+		this.receivedCount = receivedCount;
+		this.durationMs = durationNanos / 1000000L;
+		this.throughput = durationNanos > 0 ? receivedCount * 1e9 / durationNanos : 0.0;
+		this.throughputMBps = throughput * payloadSize / 1e6;
+		this.latencyMeanUs = latencyHistogram.getMean();
+		this.latencyP50Us = latencyHistogram.getValueAtPercentile(50.0);
+		this.latencyP90Us = latencyHistogram.getValueAtPercentile(90.0);
+		this.latencyP99Us = latencyHistogram.getValueAtPercentile(99.0);
+		this.latencyP999Us = latencyHistogram.getValueAtPercentile(99.9);
+		this.latencyMaxUs = latencyHistogram.getMaxValue();
+		this.cpuPercent = durationNanos > 0 ? cpuNanos * 100.0 / durationNanos : 0.0;
+		this.cpuUsPerMessage = receivedCount > 0 ? cpuNanos / 1000.0 / receivedCount : 0.0;
+	}
+
+	public String toCsvRow() {
+		return String.format(Locale.ROOT, "%d,%b,%b,%s,%b,%d,%d,%d,%d,%.1f,%.3f,%.1f,%d,%d,%d,%d,%d,%.1f,%.2f",
+				qos, retained, cleanSession, persistence, tcpNoDelay, payloadSize,
+				sentCount, receivedCount, durationMs, throughput, throughputMBps,
+				latencyMeanUs, latencyP50Us, latencyP90Us, latencyP99Us, latencyP999Us, latencyMaxUs,
+				cpuPercent, cpuUsPerMessage);
+	}
+
+	public int getQos() {
+		return qos;
+	}
+
+	public boolean isRetained() {
+		return retained;
+	}
+
+	public boolean isCleanSession() {
+		return cleanSession;
+	}
+
+	public String getPersistence() {
+		return persistence;
+	}
+
+	public boolean isTcpNoDelay() {
+		return tcpNoDelay;
+	}
+
+	public int getPayloadSize() {
+		return payloadSize;
+	}
+
+	public long getSentCount() {
+		return sentCount;
+	}
+
+	public long getReceivedCount() {
+		return receivedCount;
+	}
+
+	public long getDurationMs() {
+		return durationMs;
+	}
+
+	public double getThroughput() {
+		return throughput;
+	}
+
+	public double getThroughputMBps() {
+		return throughputMBps;
+	}
+
+	public double getLatencyMeanUs() {
+		return latencyMeanUs;
+	}
+
+	public long getLatencyP50Us() {
+		return latencyP50Us;
+	}
+
+	public long getLatencyP90Us() {
+		return latencyP90Us;
+	}
+
+	public long getLatencyP99Us() {
+		return latencyP99Us;
+	}
+
+	public long getLatencyP999Us() {
+		return latencyP999Us;
+	}
+
+	public long getLatencyMaxUs() {
+		return latencyMaxUs;
+	}
+
+	public double getCpuPercent() {
+		return cpuPercent;
+	}
+
+	public double getCpuUsPerMessage() {
+		return cpuUsPerMessage;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "QoS=%d retained=%b cleanSession=%b persistence=%s tcpNoDelay=%b size=%d B -> %d/%d msgs %.1f msg/s %.3f MB/s "
+						+ "latency mean=%.1fus p50=%dus p99=%dus p99.9=%dus max=%dus cpu=%.1f%% (%.2fus/msg)",
+				qos, retained, cleanSession, persistence, tcpNoDelay, payloadSize, receivedCount, sentCount, throughput, throughputMBps,
+				latencyMeanUs, latencyP50Us, latencyP99Us, latencyP999Us, latencyMaxUs, cpuPercent, cpuUsPerMessage);
+	}
+
+}
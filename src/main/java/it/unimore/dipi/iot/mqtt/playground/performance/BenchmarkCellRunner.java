@@ -0,0 +1,297 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import it.unimore.dipi.iot.mqtt.playground.publisher.AsyncMqttPublisher;
+import it.unimore.dipi.iot.mqtt.playground.publisher.OverflowPolicy;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Runs a single benchmark cell: a producer/consumer pair, modelled on DelayStatMqttProducer and
+ * DelayStatsMqttConsumer, exchanging a fixed number of messages on a dedicated topic with the delivery
+ * settings (QoS, retained flag, clean session, persistence, TCP_NODELAY, payload size) of a BenchmarkCellResult.
+ * Producer and consumer run in the same JVM, so the latency is measured with System.nanoTime() carried in the payload.
+ * The first warm-up messages of the cell are excluded from the measures.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:53
+ */
+public class BenchmarkCellRunner {
+
+    private final static Logger logger = LoggerFactory.getLogger(BenchmarkCellRunner.class);
+
+    //Sequence number and send time
+    public static final int PAYLOAD_HEADER_SIZE = 16;
+
+    //Highest latency (in microseconds) tracked with full precision (1 minute)
+    private static final long HIGHEST_TRACKABLE_LATENCY_US = TimeUnit.MINUTES.toMicros(1);
+
+    private final String brokerUrl;
+
+    private final File persistenceDirectory;
+
+    private final String topicPrefix;
+
+    private final double targetRate;
+
+    private final long drainTimeoutMs;
+
+    /**
+     * @param brokerUrl target broker
+     * @param persistenceDirectory base directory of the FILE persistence
+     * @param topicPrefix prefix of the topic of each cell (followed by the cell index)
+     * @param targetRate publish rate in messages/second, 0 to publish as fast as the in-flight window allows
+     * @param drainTimeoutMs maximum time waiting for the messages of a cell after the last send
+     */
+    public BenchmarkCellRunner(String brokerUrl, File persistenceDirectory, String topicPrefix, double targetRate, long drainTimeoutMs) {
+        this.brokerUrl = brokerUrl;
+        this.persistenceDirectory = persistenceDirectory;
+        this.topicPrefix = topicPrefix;
+        this.targetRate = targetRate;
+        this.drainTimeoutMs = drainTimeoutMs;
+    }
+
+    /**
+     * Run a cell filling the measures of the passed result
+     *
+     * @param cellIndex index of the cell, used for the topic and the client ids
+     * @param messageCount messages sent in the cell
+     * @param warmupMessages messages excluded from the measures
+     * @param maxInflight maximum number of publish operations in flight on the producer client
+     * @param maxPending maximum number of messages waiting in the publisher queue
+     * @param result configuration of the cell, filled with the measures
+     */
+    public void run(int cellIndex, int messageCount, int warmupMessages, int maxInflight, int maxPending, BenchmarkCellResult result) throws Exception {
+
+        String topic = topicPrefix + cellIndex;
+        int qos = result.getQos();
+        PersistenceType persistenceType = PersistenceType.valueOf(result.getPersistence());
+        MqttConnectOptions options = buildConnectOptions(result.isCleanSession(), result.isTcpNoDelay(), maxInflight);
+
+        //Consumer
+        IMqttAsyncClient consumerClient = new MqttAsyncClient(brokerUrl, "benchmark-consumer-" + cellIndex, persistenceType.create(persistenceDirectory));
+        consumerClient.connect(options).waitForCompletion();
+
+        CellReceiver receiver = new CellReceiver(warmupMessages, HIGHEST_TRACKABLE_LATENCY_US);
+        consumerClient.subscribe(topic, qos, receiver).waitForCompletion();
+
+        //Producer
+        IMqttAsyncClient producerClient = new MqttAsyncClient(brokerUrl, "benchmark-producer-" + cellIndex, persistenceType.create(persistenceDirectory));
+        AsyncMqttPublisher publisher = new AsyncMqttPublisher(producerClient, maxInflight, maxPending, OverflowPolicy.BLOCK);
+        publisher.connect(options);
+
+        //The payload is generated once: MqttMessage copies the array, so the same buffer is only stamped
+        //with the header of each message and the generation cost does not depend on the payload size
+        byte[] payload = createPayload(result.getPayloadSize());
+        ByteBuffer header = ByteBuffer.wrap(payload);
+
+        ConstantRateScheduler scheduler = targetRate > 0 ? new ConstantRateScheduler(targetRate, TimeUnit.MINUTES.toNanos(1)) : null;
+        if(scheduler != null)
+            scheduler.start();
+
+        long measureStartNanos = 0;
+        long cpuStartNanos = 0;
+
+        for(int seq = 0; seq < messageCount; seq++){
+
+            if(seq == warmupMessages){
+                measureStartNanos = System.nanoTime();
+                cpuStartNanos = getProcessCpuTime();
+            }
+
+            //With a target rate the latency is measured from the intended send time (open loop)
+            long sendNanos = (scheduler != null) ? scheduler.awaitSlot(seq) : System.nanoTime();
+
+            header.putLong(0, seq).putLong(8, sendNanos);
+            publisher.publish(topic, payload, qos, result.isRetained());
+        }
+
+        //Wait for the consumer
+        long measuredCount = messageCount - warmupMessages;
+        long deadline = System.currentTimeMillis() + drainTimeoutMs;
+        while(receiver.getMeasuredCount() < measuredCount && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+
+        long durationNanos = receiver.getLastReceiveNanos() - measureStartNanos;
+        long cpuNanos = getProcessCpuTime() - cpuStartNanos;
+
+        result.setMeasures(measuredCount, receiver.getMeasuredCount(), durationNanos, cpuNanos, receiver.getHistogram());
+
+        //An empty retained message removes the retained message of the topic from the broker
+        if(result.isRetained())
+            publisher.publish(topic, new byte[0], qos, true);
+
+        consumerClient.unsubscribe(topic).waitForCompletion();
+        consumerClient.disconnect().waitForCompletion();
+        consumerClient.close();
+
+        publisher.disconnect();
+        producerClient.close();
+    }
+
+    /**
+     * Random (incompressible) payload with room for the header
+     */
+    private static byte[] createPayload(int payloadSize) {
+        byte[] payload = new byte[Math.max(payloadSize, PAYLOAD_HEADER_SIZE)];
+        SplittableRandom random = new SplittableRandom(payloadSize);
+        for(int i = PAYLOAD_HEADER_SIZE; i < payload.length; i++)
+            payload[i] = (byte) random.nextInt(256);
+        return payload;
+    }
+
+    private static MqttConnectOptions buildConnectOptions(boolean cleanSession, boolean tcpNoDelay, int maxInflight) {
+
+        MqttConnectOptions options = new MqttConnectOptions();
+
+        if(DelayTestMqttConfiguration.isAuthenticationRequired){
+            options.setUserName(DelayTestMqttCredentials.MQTT_USERNAME);
+            options.setPassword(new String(DelayTestMqttCredentials.MQTT_PASSWORD).toCharArray());
+        }
+
+        options.setCleanSession(cleanSession);
+        options.setConnectionTimeout(10);
+        options.setMaxInflight(maxInflight);
+
+        if(tcpNoDelay)
+            options.setSocketFactory(new NoDelaySocketFactory());
+
+        return options;
+    }
+
+    /**
+     * @return the CPU time used by the process in nanoseconds or 0 if not supported by the JVM
+     */
+    private static long getProcessCpuTime() {
+
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+
+        if(osBean instanceof com.sun.management.OperatingSystemMXBean)
+            return ((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuTime();
+
+        return 0;
+    }
+
+    /**
+     * Write the results as CSV and JSON files named after baseName and the current time
+     *
+     * @param results
+     * @param directory report directory, created if missing
+     * @param baseName
+     */
+    public static void writeReports(List<BenchmarkCellResult> results, String directory, String baseName) throws IOException {
+
+        Path reportDirectory = Paths.get(directory);
+        Files.createDirectories(reportDirectory);
+
+        String fileName = baseName + "-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+
+        List<String> lines = new ArrayList<>();
+        lines.add(BenchmarkCellResult.CSV_HEADER);
+        for(BenchmarkCellResult result : results)
+            lines.add(result.toCsvRow());
+
+        Path csvFile = reportDirectory.resolve(fileName + ".csv");
+        Files.write(csvFile, lines, StandardCharsets.UTF_8);
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        Path jsonFile = reportDirectory.resolve(fileName + ".json");
+        Files.write(jsonFile, gson.toJson(results).getBytes(StandardCharsets.UTF_8));
+
+        logger.info("Benchmark reports written to {} and {}", csvFile, jsonFile);
+    }
+
+    /**
+     * Recursively delete a directory (used for the FILE persistence of the cells)
+     */
+    public static void deleteDirectory(Path directory) {
+
+        if(directory == null)
+            return;
+
+        try(Stream<Path> paths = Files.walk(directory)){
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }catch (IOException e){
+            logger.error("Error deleting {} ! Error: {}", directory, e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Consumer side of a cell recording the latency of the messages sent after the warm-up
+     */
+    private static class CellReceiver implements IMqttMessageListener {
+
+        private final int warmupMessages;
+
+        private final LatencyHistogram histogram;
+
+        private volatile long measuredCount = 0;
+
+        private volatile long lastReceiveNanos = 0;
+
+        CellReceiver(int warmupMessages, long highestTrackableLatencyUs) {
+            this.warmupMessages = warmupMessages;
+            this.histogram = new LatencyHistogram(highestTrackableLatencyUs);
+        }
+
+        @Override
+        public void messageArrived(String topic, MqttMessage message) {
+
+            long receiveNanos = System.nanoTime();
+            byte[] payload = message.getPayload();
+
+            //Skip the message clearing the retained value
+            if(payload.length < PAYLOAD_HEADER_SIZE)
+                return;
+
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            long seq = buffer.getLong();
+            long sendNanos = buffer.getLong();
+
+            if(seq < warmupMessages)
+                return;
+
+            histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(receiveNanos - sendNanos));
+            lastReceiveNanos = receiveNanos;
+            measuredCount++;
+        }
+
+        long getMeasuredCount() {
+            return measuredCount;
+        }
+
+        long getLastReceiveNanos() {
+            return lastReceiveNanos;
+        }
+
+        LatencyHistogram getHistogram() {
+            return histogram;
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+import it.unimore.dipi.iot.mqtt.playground.broker.LoopbackMqttBroker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark matrix sweeping the delivery settings hard-coded by the producers and consumers of the playground
+ * (QoS, retained flag, clean session, client persistence type and TCP_NODELAY).
+ * Each cell is executed by a BenchmarkCellRunner; throughput, latency percentiles and process CPU usage
+ * of each cell are written to a CSV and a JSON report.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:49
+ */
+public class BenchmarkMatrixRunner {
+
+    private final static Logger logger = LoggerFactory.getLogger(BenchmarkMatrixRunner.class);
+
+    //If true the cells run against an embedded LoopbackMqttBroker, otherwise against DelayTestMqttConfiguration.BROKER_URL.
+    //The embedded broker shares the process CPU and always uses clean sessions
+    private static final boolean USE_LOOPBACK_BROKER = true;
+
+    //Matrix dimensions
+    private static final int[] QOS_LEVELS = {0, 1, 2};
+
+    private static final boolean[] RETAINED_FLAGS = {false, true};
+
+    private static final boolean[] CLEAN_SESSION_FLAGS = {true, false};
+
+    private static final PersistenceType[] PERSISTENCE_TYPES = {PersistenceType.MEMORY, PersistenceType.FILE};
+
+    private static final boolean[] TCP_NO_DELAY_FLAGS = {false, true};
+
+    //Messages sent in each cell, the first WARMUP_MESSAGES are excluded from the measures
+    private static final int MESSAGES_PER_CELL = 10000;
+
+    private static final int WARMUP_MESSAGES = 1000;
+
+    //Payload size in bytes (at least BenchmarkCellRunner.PAYLOAD_HEADER_SIZE)
+    private static final int PAYLOAD_SIZE = 64;
+
+    //Target publish rate in messages/second. 0 means as fast as the in-flight window of the publisher allows:
+    //in that case the latency includes the time spent by the messages waiting in the publisher queue
+    private static final double TARGET_RATE = 0;
+
+    //Maximum number of publish operations in flight on the asynchronous client
+    private static final int MAX_INFLIGHT = 100;
+
+    //Maximum number of messages waiting to be handed to the asynchronous client (kept small to bound the queueing delay)
+    private static final int MAX_PENDING = 1000;
+
+    //Maximum time waiting for the messages of a cell after the last send
+    private static final long CELL_DRAIN_TIMEOUT_MS = 30000;
+
+    private static final String TOPIC_PREFIX = "/iot/performance-matrix/cell-";
+
+    //Directory of the generated reports
+    private static final String REPORT_DIRECTORY = "target/benchmark-matrix";
+
+    public static void main(String[] args) {
+
+        LoopbackMqttBroker broker = USE_LOOPBACK_BROKER ? new LoopbackMqttBroker() : null;
+        Path persistenceDirectory = null;
+
+        try{
+
+            String brokerUrl = DelayTestMqttConfiguration.BROKER_URL;
+
+            if(broker != null){
+                broker.start();
+                brokerUrl = broker.getBrokerUrl();
+                logger.info("LoopbackMqttBroker started on {}", brokerUrl);
+            }
+
+            persistenceDirectory = Files.createTempDirectory("mqtt-benchmark-matrix");
+
+            BenchmarkCellRunner cellRunner = new BenchmarkCellRunner(brokerUrl, persistenceDirectory.toFile(), TOPIC_PREFIX, TARGET_RATE, CELL_DRAIN_TIMEOUT_MS);
+
+            List<BenchmarkCellResult> results = new ArrayList<>();
+            int cellIndex = 0;
+
+            for(int qos : QOS_LEVELS)
+                for(boolean retained : RETAINED_FLAGS)
+                    for(boolean cleanSession : CLEAN_SESSION_FLAGS)
+                        for(PersistenceType persistenceType : PERSISTENCE_TYPES)
+                            for(boolean tcpNoDelay : TCP_NO_DELAY_FLAGS){
+                                BenchmarkCellResult result = new BenchmarkCellResult(qos, retained, cleanSession, persistenceType, tcpNoDelay, PAYLOAD_SIZE);
+                                cellRunner.run(cellIndex++, MESSAGES_PER_CELL, WARMUP_MESSAGES, MAX_INFLIGHT, MAX_PENDING, result);
+                                logger.info("Cell {} -> {}", cellIndex, result);
+                                results.add(result);
+                            }
+
+            BenchmarkCellRunner.writeReports(results, REPORT_DIRECTORY, "benchmark-matrix");
+
+        }catch (Exception e){
+            e.printStackTrace();
+        }finally {
+            if(broker != null)
+                broker.stop();
+            BenchmarkCellRunner.deleteDirectory(persistenceDirectory);
+        }
+
+        System.exit(0);
+    }
+
+}
@@ -0,0 +1,149 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop scheduler driving a load generator at a constant target rate.
+ *
+ * The send time of the i-th message is fixed in advance (start + i * period) and never depends
+ * on how long the previous sends took. When a send is slower than the period the following ones
+ * are issued back to back until the generator catches up with the timeline, instead of silently
+ * shifting the whole schedule (coordinated omission). The difference between the intended and
+ * the actual send time is tracked and the generator is flagged as "behind" when it exceeds the
+ * configured tolerance.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:18
+ */
+public class ConstantRateScheduler {
+
+    private final static Logger logger = LoggerFactory.getLogger(ConstantRateScheduler.class);
+
+    //Below this threshold the scheduler spins instead of parking the thread
+    private static final long SPIN_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    //Minimum interval between two "falling behind" warnings
+    private static final long BEHIND_WARNING_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double periodNanos;
+
+    private final long maxLatenessNanos;
+
+    //Lateness of the generator with respect to the target timeline in microseconds
+    private final LatencyHistogram latenessHistogram = new LatencyHistogram(TimeUnit.MINUTES.toMicros(10));
+
+    private long startNanos;
+
+    private long startMillis;
+
+    private long behindCount = 0;
+
+    private long lastBehindWarningNanos = 0;
+
+    /**
+     * @param ratePerSecond target rate in messages per second
+     * @param maxLatenessNanos tolerated delay of an actual send with respect to its intended time
+     */
+    public ConstantRateScheduler(double ratePerSecond, long maxLatenessNanos) {
+
+        if(ratePerSecond <= 0)
+            throw new IllegalArgumentException("ratePerSecond must be > 0");
+
+        this.periodNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        this.maxLatenessNanos = maxLatenessNanos;
+    }
+
+    /**
+     * Fix the origin of the timeline. Must be called before the first awaitSlot()
+     */
+    public void start() {
+        this.startMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        this.lastBehindWarningNanos = this.startNanos;
+    }
+
+    /**
+     * @param sequence index of the message
+     * @return the intended send time (System.nanoTime() time base) of the message
+     */
+    public long intendedNanos(long sequence) {
+        return startNanos + (long)(sequence * periodNanos);
+    }
+
+    /**
+     * @param sequence index of the message
+     * @return the intended send time of the message as wall clock milliseconds
+     */
+    public long intendedMillis(long sequence) {
+        return startMillis + TimeUnit.NANOSECONDS.toMillis((long)(sequence * periodNanos));
+    }
+
+    /**
+     * Block the caller until the intended send time of the given message.
+     * Returns immediately if the generator is already late.
+     *
+     * @param sequence index of the message
+     * @return the intended send time of the message (System.nanoTime() time base)
+     */
+    public long awaitSlot(long sequence) {
+
+        long intended = intendedNanos(sequence);
+
+        long remaining;
+        while((remaining = intended - System.nanoTime()) > 0){
+            if(remaining > SPIN_THRESHOLD_NANOS)
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            else
+                Thread.yield();
+        }
+
+        return intended;
+    }
+
+    /**
+     * Record the lateness of a send with respect to its intended time
+     *
+     * @param sequence index of the message
+     * @param actualNanos System.nanoTime() read right before the send
+     * @return true if the generator is behind the target timeline more than the tolerated lateness
+     */
+    public boolean recordSend(long sequence, long actualNanos) {
+
+        long lateness = actualNanos - intendedNanos(sequence);
+
+        latenessHistogram.recordValue(TimeUnit.NANOSECONDS.toMicros(lateness));
+
+        if(lateness <= maxLatenessNanos)
+            return false;
+
+        behindCount++;
+
+        if(actualNanos - lastBehindWarningNanos >= BEHIND_WARNING_INTERVAL_NANOS){
+            lastBehindWarningNanos = actualNanos;
+            logger.warn("Load generator is falling behind the target rate ! Message: {} Lateness: {} ms Late Messages: {}",
+                    sequence,
+                    TimeUnit.NANOSECONDS.toMillis(lateness),
+                    behindCount);
+        }
+
+        return true;
+    }
+
+    public double getTargetRate() {
+        return TimeUnit.SECONDS.toNanos(1) / periodNanos;
+    }
+
+    public long getBehindCount() {
+        return behindCount;
+    }
+
+    public LatencyHistogram getLatenessHistogram() {
+        return latenessHistogram;
+    }
+
+}
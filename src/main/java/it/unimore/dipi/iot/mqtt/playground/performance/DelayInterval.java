@@ -0,0 +1,63 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+/**
+ * Statistics of the delays recorded by a DelayStatsRecorder during a reporting interval.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:40
+ */
+public class DelayInterval {
+
+    private final long startTimestamp;
+
+    private final long endTimestamp;
+
+    private final RunningStatistics statistics;
+
+    private final LatencyHistogram histogram;
+
+    public DelayInterval(long startTimestamp, long endTimestamp, RunningStatistics statistics, LatencyHistogram histogram) {
+        this.startTimestamp = startTimestamp;
+        this.endTimestamp = endTimestamp;
+        this.statistics = statistics;
+        this.histogram = histogram;
+    }
+
+    public long getStartTimestamp() {
+        return startTimestamp;
+    }
+
+    public long getEndTimestamp() {
+        return endTimestamp;
+    }
+
+    public long getDurationMillis() {
+        return endTimestamp - startTimestamp;
+    }
+
+    public RunningStatistics getStatistics() {
+        return statistics;
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * @return the number of recorded values per second
+     */
+    public double getRate() {
+        long duration = getDurationMillis();
+        return duration > 0 ? statistics.getCount() * 1000.0 / duration : 0.0;
+    }
+
+    /**
+     * @param unit label appended to the values (e.g. ms, us)
+     * @return a single line summary with rate, exact mean/stddev/min/max and histogram percentiles
+     */
+    public String toSummaryString(String unit) {
+        return DelayStatsRecorder.toSummaryString(statistics, histogram, unit) + String.format(" rate=%.1f/s", getRate());
+    }
+
+}
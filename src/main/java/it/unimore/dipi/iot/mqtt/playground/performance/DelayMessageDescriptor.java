@@ -0,0 +1,58 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+import it.unimore.dipi.iot.mqtt.playground.model.MessageDescriptor;
+
+/**
+ * MessageDescriptor extended with the information required by the open-loop load generator:
+ * the sequence number of the message and the time at which the message was supposed to be sent
+ * according to the target timeline. The timestamp field always carries the actual send time.
+ *
+ * Consumers parsing the payload as a plain MessageDescriptor simply ignore the additional fields.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:18
+ */
+public class DelayMessageDescriptor extends MessageDescriptor {
+
+	private long sequence;
+
+	private long intendedTimestamp;
+
+	public DelayMessageDescriptor() {
+	}
+
+	public DelayMessageDescriptor(long timestamp, String type, double value, long sequence, long intendedTimestamp) {
+		super(timestamp, type, value);
+		this.sequence = sequence;
+		this.intendedTimestamp = intendedTimestamp;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public void setSequence(long sequence) {
+		this.sequence = sequence;
+	}
+
+	public long getIntendedTimestamp() {
+		return intendedTimestamp;
+	}
+
+	public void setIntendedTimestamp(long intendedTimestamp) {
+		this.intendedTimestamp = intendedTimestamp;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuffer sb = new StringBuffer("DelayMessageDescriptor{");
+		sb.append("timestamp=").append(getTimestamp());
+		sb.append(", type='").append(getType()).append('\'');
+		sb.append(", value=").append(getValue());
+		sb.append(", sequence=").append(sequence);
+		sb.append(", intendedTimestamp=").append(intendedTimestamp);
+		sb.append('}');
+		return sb.toString();
+	}
+}
@@ -0,0 +1,147 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+/**
+ * Periodic delay report published by DelayStatsMqttConsumer. The corrected delay statistics
+ * (measured from the intended send time of open loop producers) are present only when
+ * open loop messages have been received in the interval.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:40
+ */
+public class DelayReportDescriptor {
+
+	private long timestamp;
+
+	private long intervalMs;
+
+	private long receivedCount;
+
+	private long parseErrorCount;
+
+	private IntervalStatistics delay;
+
+	private IntervalStatistics correctedDelay;
+
+	public DelayReportDescriptor() {
+	}
+
+	public DelayReportDescriptor(long timestamp, long receivedCount, long parseErrorCount, DelayInterval delayInterval, DelayInterval correctedDelayInterval) {
+		this.timestamp = timestamp;
+		this.intervalMs = delayInterval.getDurationMillis();
+		this.receivedCount = receivedCount;
+		this.parseErrorCount = parseErrorCount;
+		this.delay = new IntervalStatistics(delayInterval);
+		if(correctedDelayInterval != null && correctedDelayInterval.getStatistics().getCount() > 0)
+			this.correctedDelay = new IntervalStatistics(correctedDelayInterval);
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public long getIntervalMs() {
+		return intervalMs;
+	}
+
+	public long getReceivedCount() {
+		return receivedCount;
+	}
+
+	public long getParseErrorCount() {
+		return parseErrorCount;
+	}
+
+	public IntervalStatistics getDelay() {
+		return delay;
+	}
+
+	public IntervalStatistics getCorrectedDelay() {
+		return correctedDelay;
+	}
+
+	/**
+	 * Delay statistics (in ms) of a single interval
+	 */
+	public static class IntervalStatistics {
+
+		private long count;
+
+		private double rate;
+
+		private double mean;
+
+		private double stdDeviation;
+
+		private long min;
+
+		private long max;
+
+		private long p50;
+
+		private long p90;
+
+		private long p99;
+
+		private long p999;
+
+		public IntervalStatistics() {
+		}
+
+		public IntervalStatistics(DelayInterval interval) {
+			RunningStatistics statistics = interval.getStatistics();
+			LatencyHistogram histogram = interval.getHistogram();
+			this.count = statistics.getCount();
+			this.rate = interval.getRate();
+			this.mean = statistics.getMean();
+			this.stdDeviation = statistics.getStdDeviation();
+			this.min = statistics.getMinValue();
+			this.max = statistics.getMaxValue();
+			this.p50 = histogram.getValueAtPercentile(50.0);
+			this.p90 = histogram.getValueAtPercentile(90.0);
+			this.p99 = histogram.getValueAtPercentile(99.0);
+			this.p999 = histogram.getValueAtPercentile(99.9);
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getRate() {
+			return rate;
+		}
+
+		public double getMean() {
+			return mean;
+		}
+
+		public double getStdDeviation() {
+			return stdDeviation;
+		}
+
+		public long getMin() {
+			return min;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public long getP50() {
+			return p50;
+		}
+
+		public long getP90() {
+			return p90;
+		}
+
+		public long getP99() {
+			return p99;
+		}
+
+		public long getP999() {
+			return p999;
+		}
+	}
+
+}
@@ -1,14 +1,20 @@
 package it.unimore.dipi.iot.mqtt.playground.performance;
 
 import com.google.gson.Gson;
+import it.unimore.dipi.iot.mqtt.playground.codec.MessageJsonEncoder;
+import it.unimore.dipi.iot.mqtt.playground.metrics.DropReason;
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsRegistry;
+import it.unimore.dipi.iot.mqtt.playground.metrics.ProducerMetrics;
 import it.unimore.dipi.iot.mqtt.playground.model.EngineTemperatureSensor;
 import it.unimore.dipi.iot.mqtt.playground.model.MessageDescriptor;
+import it.unimore.dipi.iot.mqtt.playground.publisher.AsyncMqttPublisher;
 import org.eclipse.paho.client.mqttv3.*;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Simple MQTT Producer using the library Eclipse Paho
@@ -32,6 +38,26 @@ public class DelayStatMqttProducer {
     //Topic used to publish generated demo data
     private static final String TOPIC = "sensor/temperature";
 
+    //If true messages are sent against a constant rate timeline (open loop) instead of
+    //waiting one second after each publish (closed loop)
+    private static final boolean OPEN_LOOP_MODE = true;
+
+    //Target rate (messages per second) of the open loop mode
+    private static final double TARGET_RATE = 1000.0;
+
+    //Duration of the open loop test in seconds
+    private static final int OPEN_LOOP_DURATION_SECONDS = 60;
+
+    //Delay with respect to the intended send time above which the generator is considered behind the timeline
+    private static final long MAX_SCHEDULE_LATENESS_MS = 10;
+
+    //If true the JSON payload is written by the streaming MessageJsonEncoder directly into a reusable
+    //byte buffer, otherwise the MessageDescriptor is serialized through Gson
+    private static final boolean USE_STREAMING_ENCODER = true;
+
+    //Internal GSON instance to generate JSON messages
+    private static Gson gson = new Gson();
+
     public static void main(String[] args) {
 
         logger.info("JsonProducer started ...");
@@ -48,7 +74,13 @@ public class DelayStatMqttProducer {
 
             //The the persistence is not passed to the constructor the default file persistence is used.
             //In case of a file-based storage the same MQTT client UUID should be used
-            IMqttClient client = new MqttClient(DelayTestMqttConfiguration.BROKER_URL,mqttClientId, persistence);
+            IMqttAsyncClient client = new MqttAsyncClient(DelayTestMqttConfiguration.BROKER_URL,mqttClientId, persistence);
+
+            AsyncMqttPublisher publisher = new AsyncMqttPublisher(client);
+
+            //Publisher metrics exposed over JMX and periodically logged as a summary line
+            publisher.setMetrics(ProducerMetrics.register("DelayStatMqttProducer"));
+            MetricsRegistry.startSummaryReport();
 
             //Define MQTT Connection Options such as reconnection, persistent/clean session and connection timeout
             //Authentication option can be added -> See AuthProducer example
@@ -63,7 +95,7 @@ public class DelayStatMqttProducer {
             options.setCleanSession(true);
             options.setConnectionTimeout(10);
 
-            client.connect(options);
+            publisher.connect(options);
 
             //Connect to the target broker
             logger.info("Connected ! Client Id: {}", mqttClientId);
@@ -71,26 +103,13 @@ public class DelayStatMqttProducer {
             //Create an instance of an Engine Temperature Sensor
             EngineTemperatureSensor engineTemperatureSensor = new EngineTemperatureSensor();
 
-            //Start to publish MESSAGE_COUNT messages
-            for(int i = 0; i < MESSAGE_COUNT; i++) {
-
-                //Get updated temperature value and build the associated Json Message
-                //through the internal method buildJsonMessage
-            	double sensorValue = engineTemperatureSensor.getTemperatureValue();
-            	String payloadString = buildJsonMessage(sensorValue);
-
-            	//Internal Method to publish MQTT data using the created MQTT Client
-            	if(payloadString != null)
-            		publishData(client, MQTT_BASIC_TOPIC + TOPIC, payloadString);
-            	else
-            		logger.error("Skipping message send due to NULL Payload !");
-            	
-            	Thread.sleep(1000);
-            }
+            if(OPEN_LOOP_MODE)
+                runOpenLoop(publisher, engineTemperatureSensor);
+            else
+                runClosedLoop(publisher, engineTemperatureSensor);
 
             //Disconnect from the broker and close connection
-            client.disconnect();
-            client.close();
+            publisher.disconnect();
 
             logger.info("Disconnected !");
 
@@ -100,6 +119,78 @@ public class DelayStatMqttProducer {
 
     }
 
+    /**
+     * Send MESSAGE_COUNT messages waiting one second after each publish. The actual rate depends on
+     * the publish duration and a slow publish delays all the following messages.
+     *
+     * @param publisher
+     * @param engineTemperatureSensor
+     * @throws Exception
+     */
+    private static void runClosedLoop(AsyncMqttPublisher publisher, EngineTemperatureSensor engineTemperatureSensor) throws Exception {
+
+        //Start to publish MESSAGE_COUNT messages
+        for(int i = 0; i < MESSAGE_COUNT; i++) {
+
+            //Get updated temperature value and build the associated Json Message
+            //through the internal method buildJsonMessage
+        	double sensorValue = engineTemperatureSensor.getTemperatureValue();
+        	byte[] payload = buildJsonPayload(sensorValue);
+
+        	//Internal Method to publish MQTT data using the created MQTT Client
+        	if(payload != null)
+        		publishData(publisher, MQTT_BASIC_TOPIC + TOPIC, payload);
+        	else
+        		logger.error("Skipping message send due to NULL Payload !");
+        	
+        	Thread.sleep(1000);
+        }
+    }
+
+    /**
+     * Send messages at TARGET_RATE for OPEN_LOOP_DURATION_SECONDS following a precomputed timeline.
+     * Each message carries both its intended and actual send time so that the consumer can
+     * report latency corrected for coordinated omission.
+     *
+     * @param publisher
+     * @param engineTemperatureSensor
+     * @throws Exception
+     */
+    private static void runOpenLoop(AsyncMqttPublisher publisher, EngineTemperatureSensor engineTemperatureSensor) throws Exception {
+
+        long messageCount = (long)(TARGET_RATE * OPEN_LOOP_DURATION_SECONDS);
+
+        ConstantRateScheduler scheduler = new ConstantRateScheduler(TARGET_RATE, TimeUnit.MILLISECONDS.toNanos(MAX_SCHEDULE_LATENESS_MS));
+
+        logger.info("Starting Open Loop Generator -> Rate: {} msg/s Messages: {}", TARGET_RATE, messageCount);
+
+        scheduler.start();
+
+        for(long sequence = 0; sequence < messageCount; sequence++) {
+
+            //Wait for the intended send time of the message (returns immediately if the generator is late)
+            scheduler.awaitSlot(sequence);
+
+            long actualNanos = System.nanoTime();
+            scheduler.recordSend(sequence, actualNanos);
+
+            double sensorValue = engineTemperatureSensor.getTemperatureValue();
+            byte[] payload = buildJsonPayload(sequence, scheduler.intendedMillis(sequence), sensorValue);
+
+            if(payload != null)
+                publishData(publisher, MQTT_BASIC_TOPIC + TOPIC, payload);
+            else
+                logger.error("Skipping message send due to NULL Payload !");
+        }
+
+        logger.info("Open Loop Generator Completed -> Target Rate: {} msg/s Late Messages: {}/{}",
+                scheduler.getTargetRate(),
+                scheduler.getBehindCount(),
+                messageCount);
+
+        logger.info("Generator Lateness: {}", scheduler.getLatenessHistogram().toSummaryString("us"));
+    }
+
     /**
      * Create structure JSON message starting from the passed sensorValue
      * and using the MessageDescriptor class
@@ -126,26 +217,91 @@ public class DelayStatMqttProducer {
     }
 
     /**
-     * Send a target String Payload to the specified MQTT topic
+     * Create structure JSON message carrying the sequence number and the intended send time
+     * of the message in addition to the sensor value and the actual send time
+     *
+     * @param sequence
+     * @param intendedTimestamp
+     * @param sensorValue
+     * @return
+     */
+    public static String buildJsonMessage(long sequence, long intendedTimestamp, double sensorValue) {
+
+        try {
+
+            DelayMessageDescriptor messageDescriptor = new DelayMessageDescriptor(System.currentTimeMillis(),
+                    "ENGINE_TEMPERATURE_SENSOR",
+                    sensorValue,
+                    sequence,
+                    intendedTimestamp);
+
+            return gson.toJson(messageDescriptor);
+
+        }catch(Exception e) {
+            logger.error("Error creating json payload ! Message: {}", e.getLocalizedMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Build the payload of the message associated to the passed sensorValue either with the
+     * streaming MessageJsonEncoder or through buildJsonMessage according to USE_STREAMING_ENCODER
+     *
+     * @param sensorValue
+     * @return the payload bytes or null in case of error
+     */
+    public static byte[] buildJsonPayload(double sensorValue) {
+
+        if(USE_STREAMING_ENCODER)
+            return MessageJsonEncoder.encodeMessage(System.currentTimeMillis(), "ENGINE_TEMPERATURE_SENSOR", sensorValue).toByteArray();
+
+        String payloadString = buildJsonMessage(sensorValue);
+        return payloadString != null ? payloadString.getBytes() : null;
+    }
+
+    /**
+     * Build the payload of an open loop message either with the streaming MessageJsonEncoder
+     * or through buildJsonMessage according to USE_STREAMING_ENCODER
+     *
+     * @param sequence
+     * @param intendedTimestamp
+     * @param sensorValue
+     * @return the payload bytes or null in case of error
+     */
+    public static byte[] buildJsonPayload(long sequence, long intendedTimestamp, double sensorValue) {
+
+        if(USE_STREAMING_ENCODER)
+            return MessageJsonEncoder.encodeDelayMessage(System.currentTimeMillis(),
+                    "ENGINE_TEMPERATURE_SENSOR",
+                    sensorValue,
+                    sequence,
+                    intendedTimestamp).toByteArray();
+
+        String payloadString = buildJsonMessage(sequence, intendedTimestamp, sensorValue);
+        return payloadString != null ? payloadString.getBytes() : null;
+    }
+
+    /**
+     * Send a target Payload to the specified MQTT topic
      *
-     * @param mqttClient
+     * @param publisher
      * @param topic
-     * @param msgString
-     * @throws MqttException
+     * @param payload
      */
-    public static void publishData(IMqttClient mqttClient, String topic, String msgString) throws MqttException {
+    public static void publishData(AsyncMqttPublisher publisher, String topic, byte[] payload) {
 
-        logger.debug("Publishing to Topic: {} Data: {}", topic, msgString);
+        logger.debug("Publishing to Topic: {} Data: {} bytes", topic, payload != null ? payload.length : 0);
 
-        if (mqttClient.isConnected() && msgString != null && topic != null) {
+        if (publisher.isConnected() && payload != null && topic != null) {
         	
-            MqttMessage msg = new MqttMessage(msgString.getBytes());
+            MqttMessage msg = new MqttMessage(payload);
             msg.setQos(0);
             msg.setRetained(false);
-            mqttClient.publish(topic,msg);
-            logger.debug("Data Correctly Published !");
+            publisher.publish(topic, msg, null);
+            logger.debug("Data Correctly Enqueued for Publishing !");
         }
         else{
+            publisher.recordDrop(publisher.isConnected() ? DropReason.INVALID_MESSAGE : DropReason.NOT_CONNECTED);
             logger.error("Error: Topic or Msg = Null or MQTT Client is not Connected !");
         }
 
@@ -1,19 +1,28 @@
 package it.unimore.dipi.iot.mqtt.playground.performance;
 
 import com.google.gson.Gson;
+import it.unimore.dipi.iot.mqtt.playground.codec.MessageJsonParser;
+import it.unimore.dipi.iot.mqtt.playground.codec.SensorReading;
 import it.unimore.dipi.iot.mqtt.playground.model.MessageDescriptor;
 import org.eclipse.paho.client.mqttv3.IMqttClient;
 import org.eclipse.paho.client.mqttv3.MqttClient;
 import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.*;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Simple MQTT Consumer measuring transmission delay
+ * Simple MQTT Consumer measuring transmission delay.
+ * Delays are computed as soon as each message arrives and reported every REPORT_INTERVAL_SECONDS,
+ * so that the test can run indefinitely showing how the latency evolves over time.
  *
  * @author Marco Picone, Ph.D. - picone.m@gmail.com
  * @project mqtt-playground
@@ -26,11 +35,59 @@ public class DelayStatsMqttConsumer {
     //TODO Update it with correct your base topic associated to the MQTT User (If Necessary)
     private static final String TARGET_TOPIC = "/iot/performance/#";
 
-    private static final int MESSAGE_NUMBER_LIMIT = 10;
+    //Number of messages after which the test is stopped (0 to run indefinitely)
+    private static final int MESSAGE_NUMBER_LIMIT = 0;
 
-    private static Map<Long, String> messageMap = new HashMap<>();
+    //Duration after which the test is stopped (0 to run indefinitely)
+    private static final int TEST_DURATION_LIMIT_SECONDS = 0;
 
-    private static int receivedMessageCount = 0;
+    //Interval between two statistics reports
+    private static final int REPORT_INTERVAL_SECONDS = 10;
+
+    //If true interval reports are also published as JSON messages on REPORT_TOPIC
+    private static final boolean PUBLISH_REPORTS = false;
+
+    //Report topic (outside TARGET_TOPIC in order not to be consumed as a test message)
+    private static final String REPORT_TOPIC = "/iot/performance-stats/delay";
+
+    //Highest delay (in milliseconds) tracked with full precision by the histograms (1 hour)
+    private static final long HIGHEST_TRACKABLE_DELAY_MS = 60 * 60 * 1000L;
+
+    //Delays are recorded as soon as a message arrives into fixed size statistics
+    //so that memory usage does not depend on the number of received messages
+    private static final DelayStatsRecorder delayRecorder = new DelayStatsRecorder(HIGHEST_TRACKABLE_DELAY_MS);
+
+    //Delays measured from the intended send time of open loop producers (corrected for coordinated omission)
+    private static final DelayStatsRecorder correctedDelayRecorder = new DelayStatsRecorder(HIGHEST_TRACKABLE_DELAY_MS);
+
+    //Maximum number of concrete topics with dedicated statistics (the others are accounted together)
+    private static final int MAX_TRACKED_TOPICS = 10000;
+
+    //Number of topics listed in each ranking of the per-topic reports
+    private static final int TOPIC_REPORT_LIMIT = 10;
+
+    //Per-topic breakdown of the delays measured on the wildcard subscription
+    private static final TopicDelayBreakdown topicBreakdown = new TopicDelayBreakdown(HIGHEST_TRACKABLE_DELAY_MS, MAX_TRACKED_TOPICS);
+
+    //Byte-level parser and reusable reading, only used by the thread invoking the subscription callbacks
+    private static final MessageJsonParser jsonParser = new MessageJsonParser();
+
+    private static final SensorReading reading = new SensorReading();
+
+    private static final Gson gson = new Gson();
+
+    //Single daemon thread producing the periodic reports
+    private static final ScheduledExecutorService reportExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "delay-stats-report");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static volatile long parseErrorCount = 0;
+
+    private static volatile long receivedMessageCount = 0;
+
+    private static volatile boolean testCompleted = false;
 
     private static long startTime;
 
@@ -73,64 +130,126 @@ public class DelayStatsMqttConsumer {
                 //The topic variable contain the specific topic associated to the received message. Using MQTT wildcards
                 //messaged from multiple and different topic can be received with the same subscription
                 //The msg variable is a MqttMessage object containing all the information about the received message
-                receivedMessageCount ++;
+                long incomingTimestamp = System.currentTimeMillis();
+
+                if(testCompleted)
+                    return;
 
-                if(messageMap.size() == MESSAGE_NUMBER_LIMIT || receivedMessageCount == MESSAGE_NUMBER_LIMIT || (System.currentTimeMillis() - startTime) > (1000*60*5)) {
-                    client.unsubscribe(TARGET_TOPIC);
-                    startStatsThread();
+                TopicDelayStats topicStats = topicBreakdown.getTopicStats(topic);
+
+                //The delay is computed and recorded immediately, the payload is not retained
+                if(jsonParser.parse(msg.getPayload(), reading)) {
+                    long delay = incomingTimestamp - reading.getTimestamp();
+                    delayRecorder.recordValue(delay);
+                    topicStats.recordDelay(delay);
+
+                    //Messages generated by an open loop producer carry also their intended send time
+                    if(reading.getIntendedTimestamp() > 0)
+                        correctedDelayRecorder.recordValue(incomingTimestamp - reading.getIntendedTimestamp());
                 }
                 else {
-                    logger.info("Message Processed: {}", receivedMessageCount);
-                    messageMap.put(System.currentTimeMillis(), new String(msg.getPayload()));
+                    parseErrorCount++;
+                    topicStats.recordParseError();
+                }
+
+                receivedMessageCount++;
+
+                logger.debug("Message Processed: {}", receivedMessageCount);
+
+                //Blocking client operations are not allowed in the callback, the test is completed by the report thread
+                if(MESSAGE_NUMBER_LIMIT > 0 && receivedMessageCount >= MESSAGE_NUMBER_LIMIT) {
+                    testCompleted = true;
+                    reportExecutor.execute(() -> completeTest(client));
                 }
 
             });
 
+            reportExecutor.scheduleAtFixedRate(() -> {
+
+                if(testCompleted)
+                    return;
+
+                if(TEST_DURATION_LIMIT_SECONDS > 0 && System.currentTimeMillis() - startTime >= TimeUnit.SECONDS.toMillis(TEST_DURATION_LIMIT_SECONDS)) {
+                    testCompleted = true;
+                    completeTest(client);
+                }
+                else
+                    reportInterval(client);
+
+            }, REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
         }catch (Exception e){
             e.printStackTrace();
         }
     }
 
-    private static void startStatsThread(){
+    /**
+     * Log (and optionally publish) the statistics of the last interval
+     *
+     * @param client
+     */
+    private static void reportInterval(IMqttClient client) {
 
-       logger.info("Starting Statistics Thread ...");
+        try{
 
-       new Thread(new Runnable() {
-           @Override
-           public void run() {
+            DelayInterval delayInterval = delayRecorder.closeInterval();
+            DelayInterval correctedDelayInterval = correctedDelayRecorder.closeInterval();
 
-               logger.info("Total Received Messages: {}/{}", receivedMessageCount, MESSAGE_NUMBER_LIMIT);
+            logger.info("INTERVAL DELAY STATS: {}", delayInterval.toSummaryString("ms"));
 
-               List<Long> delayList = new ArrayList<>();
+            if(correctedDelayInterval.getStatistics().getCount() > 0)
+                logger.info("INTERVAL CORRECTED DELAY STATS: {}", correctedDelayInterval.toSummaryString("ms"));
 
-               messageMap.entrySet().forEach(messageEntry -> {
-                    try{
+            logger.info(topicBreakdown.closeInterval(TOPIC_REPORT_LIMIT, "ms"));
 
-                        long incomingTimestamp = messageEntry.getKey();
-                        String payloadString = messageEntry.getValue();
-                        MessageDescriptor messageDescriptor = parseJsonMessage(payloadString.getBytes());
+            if(PUBLISH_REPORTS && client.isConnected()) {
+                DelayReportDescriptor report = new DelayReportDescriptor(System.currentTimeMillis(),
+                        receivedMessageCount,
+                        parseErrorCount,
+                        delayInterval,
+                        correctedDelayInterval);
 
-                        long diff = incomingTimestamp - messageDescriptor.getTimestamp();
+                MqttMessage reportMessage = new MqttMessage(gson.toJson(report).getBytes(StandardCharsets.UTF_8));
+                reportMessage.setQos(0);
+                client.publish(REPORT_TOPIC, reportMessage);
+            }
 
-                        delayList.add(diff);
+        }catch (Exception e){
+            logger.error("Error producing the interval report ! Error: {}", e.getLocalizedMessage());
+        }
+    }
 
-                        logger.info("Delay: {}", diff);
+    /**
+     * Stop receiving messages and log the statistics of the whole test
+     *
+     * @param client
+     */
+    private static void completeTest(IMqttClient client) {
 
-                    }catch (Exception e){
-                        e.printStackTrace();
-                    }
-               });
+        try{
+            client.unsubscribe(TARGET_TOPIC);
+        }catch (Exception e){
+            logger.error("Error unsubscribing from {} ! Error: {}", TARGET_TOPIC, e.getLocalizedMessage());
+        }
+
+        reportInterval(client);
+        logStatistics();
+        reportExecutor.shutdown();
+    }
+
+    /**
+     * Log the statistics of all the messages received since the beginning of the test
+     */
+    public static void logStatistics() {
 
-               long sum = 0;
-               for(long delay: delayList)
-                   sum = sum + delay;
+        logger.info("Total Received Messages: {} Parsing Errors: {}", receivedMessageCount, parseErrorCount);
 
-               long averageDelay = sum / (long)delayList.size();
+        logger.info("DELAY STATS: {}", delayRecorder.toSummaryString("ms"));
 
-               logger.info("AVERAGE DELAY: {}", averageDelay);
-           }
-       }).start();
+        if(correctedDelayRecorder.getTotalCount() > 0)
+            logger.info("CORRECTED DELAY STATS (from intended send time): {}", correctedDelayRecorder.toSummaryString("ms"));
 
+        logger.info(topicBreakdown.toTotalReport(TOPIC_REPORT_LIMIT, "ms"));
     }
 
     /**
@@ -152,4 +271,25 @@ public class DelayStatsMqttConsumer {
 
     }
 
+    /**
+     * Parse the received MQTT message into a DelayMessageDescriptor object or null in case of error.
+     * Messages generated without the open loop information have sequence and intendedTimestamp equal to 0.
+     * The consumer callback uses MessageJsonParser, this Gson based version is kept as a reference for the benchmarks.
+     *
+     * @param payload
+     * @return the parsed DelayMessageDescriptor object or null in case or error.
+     */
+    public static DelayMessageDescriptor parseDelayJsonMessage(byte[] payload) {
+
+        try {
+
+            Gson gson = new Gson();
+            return gson.fromJson(new String(payload), DelayMessageDescriptor.class);
+
+        }catch(Exception e) {
+            return null;
+        }
+
+    }
+
 }
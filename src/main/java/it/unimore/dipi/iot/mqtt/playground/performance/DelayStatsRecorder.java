@@ -0,0 +1,110 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+/**
+ * Thread safe recorder of delays keeping both the cumulative statistics of the whole test and the
+ * statistics of the current reporting interval. Each value updates an exact Welford RunningStatistics
+ * (mean, variance, min, max) and a LatencyHistogram (percentiles) in constant time, so the delays can be
+ * recorded as soon as the messages arrive and reported periodically while the test is running.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:40
+ */
+public class DelayStatsRecorder {
+
+    private final long highestTrackableValue;
+
+    private final RunningStatistics totalStatistics = new RunningStatistics();
+
+    private final LatencyHistogram totalHistogram;
+
+    private RunningStatistics intervalStatistics = new RunningStatistics();
+
+    private LatencyHistogram intervalHistogram;
+
+    private long intervalStartTimestamp;
+
+    /**
+     * @param highestTrackableValue highest value tracked with full precision by the histograms
+     */
+    public DelayStatsRecorder(long highestTrackableValue) {
+        this.highestTrackableValue = highestTrackableValue;
+        this.totalHistogram = new LatencyHistogram(highestTrackableValue);
+        this.intervalHistogram = new LatencyHistogram(highestTrackableValue);
+        this.intervalStartTimestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * The histograms alone would not need the lock, but RunningStatistics is not thread safe (each Welford update
+     * reads and writes several fields) and closeInterval() must swap the interval statistics and histogram together,
+     * so that a value is never counted in the histogram of an interval and in the statistics of the next one.
+     * The lock is held for a few constant time updates and is only contended when the recorder is shared by several
+     * callback threads.
+     *
+     * @param value
+     */
+    public synchronized void recordValue(long value) {
+        totalStatistics.add(value);
+        totalHistogram.recordValue(value);
+        intervalStatistics.add(value);
+        intervalHistogram.recordValue(value);
+    }
+
+    /**
+     * Close the current interval and start a new one
+     *
+     * @return the statistics of the closed interval
+     */
+    public synchronized DelayInterval closeInterval() {
+
+        long now = System.currentTimeMillis();
+
+        DelayInterval interval = new DelayInterval(intervalStartTimestamp, now, intervalStatistics, intervalHistogram);
+
+        intervalStatistics = new RunningStatistics();
+        intervalHistogram = new LatencyHistogram(highestTrackableValue);
+        intervalStartTimestamp = now;
+
+        return interval;
+    }
+
+    public synchronized long getTotalCount() {
+        return totalStatistics.getCount();
+    }
+
+    /**
+     * @return a copy of the cumulative statistics
+     */
+    public synchronized RunningStatistics getTotalStatistics() {
+        return totalStatistics.copy();
+    }
+
+    public LatencyHistogram getTotalHistogram() {
+        return totalHistogram;
+    }
+
+    /**
+     * @param unit label appended to the values (e.g. ms, us)
+     * @return a single line summary of the cumulative statistics
+     */
+    public synchronized String toSummaryString(String unit) {
+        return toSummaryString(totalStatistics, totalHistogram, unit);
+    }
+
+    static String toSummaryString(RunningStatistics statistics, LatencyHistogram histogram, String unit) {
+
+        final StringBuilder sb = new StringBuilder(statistics.toSummaryString(unit));
+
+        for(double percentile : LatencyHistogram.DEFAULT_PERCENTILES)
+            sb.append(String.format(" p%s=%d%s",
+                    LatencyHistogram.formatPercentile(percentile),
+                    histogram.getValueAtPercentile(percentile),
+                    unit));
+
+        if(histogram.getSaturatedCount() > 0)
+            sb.append(" saturated=").append(histogram.getSaturatedCount());
+
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,309 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-footprint latency histogram inspired by HdrHistogram.
+ *
+ * Values are mapped into log-linear buckets: every power of two range is split into
+ * 2^(significantBits-1) equally sized sub-buckets, so the relative error of any reported value
+ * is bounded by 1/2^(significantBits-1) whatever its magnitude. All the counters live in a single
+ * primitive array allocated by the constructor, therefore recording a value is a constant time
+ * operation that does not allocate and does not need any lock (it can be safely called
+ * by multiple threads while another thread is reading the statistics).
+ *
+ * The histogram is unit agnostic: the caller decides if recorded values are milliseconds,
+ * microseconds or nanoseconds.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:17
+ */
+public class LatencyHistogram {
+
+    //Default number of significant bits (1024 sub-buckets for each power of two -> ~0.1% precision)
+    public static final int DEFAULT_SIGNIFICANT_BITS = 11;
+
+    //Percentiles reported by default in the summary
+    public static final double[] DEFAULT_PERCENTILES = {50.0, 90.0, 99.0, 99.9, 99.99};
+
+    private final long highestTrackableValue;
+
+    private final int significantBits;
+
+    private final int halfSubBucketCount;
+
+    private final AtomicLongArray counts;
+
+    private final AtomicLong totalCount = new AtomicLong();
+
+    private final AtomicLong totalSum = new AtomicLong();
+
+    private final AtomicLong minValue = new AtomicLong(Long.MAX_VALUE);
+
+    private final AtomicLong maxValue = new AtomicLong(Long.MIN_VALUE);
+
+    //Number of values above highestTrackableValue (recorded as highestTrackableValue)
+    private final AtomicLong saturatedCount = new AtomicLong();
+
+    public LatencyHistogram(long highestTrackableValue) {
+        this(highestTrackableValue, DEFAULT_SIGNIFICANT_BITS);
+    }
+
+    public LatencyHistogram(long highestTrackableValue, int significantBits) {
+
+        if(highestTrackableValue < 2)
+            throw new IllegalArgumentException("highestTrackableValue must be >= 2");
+
+        if(significantBits < 2 || significantBits > 20)
+            throw new IllegalArgumentException("significantBits must be in [2, 20]");
+
+        this.highestTrackableValue = highestTrackableValue;
+        this.significantBits = significantBits;
+        this.halfSubBucketCount = 1 << (significantBits - 1);
+        this.counts = new AtomicLongArray(indexOf(highestTrackableValue) + 1);
+    }
+
+    /**
+     * Record a single value. Negative values are recorded as 0 while values greater than the
+     * highest trackable one are clamped and counted as saturated.
+     *
+     * @param value
+     */
+    public void recordValue(long value) {
+        recordValueWithCount(value, 1);
+    }
+
+    /**
+     * Record the same value count times
+     *
+     * @param value
+     * @param count
+     */
+    public void recordValueWithCount(long value, long count) {
+
+        if(count <= 0)
+            return;
+
+        if(value < 0)
+            value = 0;
+
+        if(value > highestTrackableValue){
+            value = highestTrackableValue;
+            saturatedCount.addAndGet(count);
+        }
+
+        counts.addAndGet(indexOf(value), count);
+        totalCount.addAndGet(count);
+        totalSum.addAndGet(value * count);
+
+        updateMin(value);
+        updateMax(value);
+    }
+
+    /**
+     * Add all the values recorded by another histogram with the same configuration
+     *
+     * @param other
+     */
+    public void add(LatencyHistogram other) {
+
+        if(other.significantBits != significantBits || other.highestTrackableValue != highestTrackableValue)
+            throw new IllegalArgumentException("Histograms with a different configuration cannot be merged");
+
+        for(int i = 0; i < counts.length(); i++){
+            long count = other.counts.get(i);
+            if(count != 0)
+                counts.addAndGet(i, count);
+        }
+
+        totalCount.addAndGet(other.totalCount.get());
+        totalSum.addAndGet(other.totalSum.get());
+        saturatedCount.addAndGet(other.saturatedCount.get());
+
+        if(other.getTotalCount() > 0){
+            updateMin(other.minValue.get());
+            updateMax(other.maxValue.get());
+        }
+    }
+
+    /**
+     * Clear all the recorded values. Values recorded concurrently with a reset may be partially lost.
+     */
+    public void reset() {
+        for(int i = 0; i < counts.length(); i++)
+            counts.set(i, 0);
+        totalCount.set(0);
+        totalSum.set(0);
+        saturatedCount.set(0);
+        minValue.set(Long.MAX_VALUE);
+        maxValue.set(Long.MIN_VALUE);
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getSaturatedCount() {
+        return saturatedCount.get();
+    }
+
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    public long getMinValue() {
+        return getTotalCount() == 0 ? 0 : minValue.get();
+    }
+
+    public long getMaxValue() {
+        return getTotalCount() == 0 ? 0 : maxValue.get();
+    }
+
+    /**
+     * @return the exact mean of the recorded (clamped) values
+     */
+    public double getMean() {
+        long count = getTotalCount();
+        return count == 0 ? 0.0 : (double) totalSum.get() / (double) count;
+    }
+
+    /**
+     * @return the standard deviation computed on the bucket mid-points
+     */
+    public double getStdDeviation() {
+
+        long count = getTotalCount();
+
+        if(count == 0)
+            return 0.0;
+
+        double mean = getMean();
+        double squaredDeviationSum = 0.0;
+
+        for(int i = 0; i < counts.length(); i++){
+            long bucketCount = counts.get(i);
+            if(bucketCount != 0){
+                double deviation = medianEquivalentValue(i) - mean;
+                squaredDeviationSum += deviation * deviation * bucketCount;
+            }
+        }
+
+        return Math.sqrt(squaredDeviationSum / count);
+    }
+
+    /**
+     * Return the value below which the given percentage of the recorded values falls.
+     * The returned value is the highest value equivalent (same bucket) to the real one.
+     *
+     * @param percentile in the range [0, 100]
+     * @return the value at the given percentile or 0 if the histogram is empty
+     */
+    public long getValueAtPercentile(double percentile) {
+
+        long count = getTotalCount();
+
+        if(count == 0)
+            return 0;
+
+        double requestedPercentile = Math.min(Math.max(percentile, 0.0), 100.0);
+        long countAtPercentile = Math.max(1, (long) Math.ceil((requestedPercentile / 100.0) * count));
+
+        long cumulativeCount = 0;
+
+        for(int i = 0; i < counts.length(); i++){
+            cumulativeCount += counts.get(i);
+            if(cumulativeCount >= countAtPercentile)
+                return Math.min(highestEquivalentValue(i), getMaxValue());
+        }
+
+        return getMaxValue();
+    }
+
+    /**
+     * Build a single line summary of the histogram (count, min, max, mean, stddev and default percentiles)
+     *
+     * @param unit label appended to the values (e.g. ms, us)
+     * @return the summary line
+     */
+    public String toSummaryString(String unit) {
+
+        final StringBuilder sb = new StringBuilder();
+        sb.append("count=").append(getTotalCount());
+        sb.append(" min=").append(getMinValue()).append(unit);
+        sb.append(" max=").append(getMaxValue()).append(unit);
+        sb.append(String.format(" mean=%.3f%s", getMean(), unit));
+        sb.append(String.format(" stddev=%.3f%s", getStdDeviation(), unit));
+
+        for(double percentile : DEFAULT_PERCENTILES)
+            sb.append(" p").append(formatPercentile(percentile)).append('=').append(getValueAtPercentile(percentile)).append(unit);
+
+        if(getSaturatedCount() > 0)
+            sb.append(" saturated=").append(getSaturatedCount());
+
+        return sb.toString();
+    }
+
+    static String formatPercentile(double percentile) {
+        if(percentile == Math.rint(percentile))
+            return Long.toString((long) percentile);
+        return Double.toString(percentile);
+    }
+
+    private void updateMin(long value) {
+        long current;
+        while(value < (current = minValue.get()))
+            if(minValue.compareAndSet(current, value))
+                return;
+    }
+
+    private void updateMax(long value) {
+        long current;
+        while(value > (current = maxValue.get()))
+            if(maxValue.compareAndSet(current, value))
+                return;
+    }
+
+    /**
+     * Map a (non negative) value to its bucket index. Values lower than 2^significantBits have a
+     * dedicated bucket, higher values share a bucket with the values having the same
+     * significantBits most significant bits.
+     */
+    private int indexOf(long value) {
+
+        if(value < (halfSubBucketCount << 1))
+            return (int) value;
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - significantBits + 1;
+
+        return (int) (shift * halfSubBucketCount + (value >>> shift));
+    }
+
+    private long lowestEquivalentValue(int index) {
+
+        if(index < (halfSubBucketCount << 1))
+            return index;
+
+        int shift = index / halfSubBucketCount - 1;
+        long subBucket = index - (long) shift * halfSubBucketCount;
+
+        return subBucket << shift;
+    }
+
+    private long highestEquivalentValue(int index) {
+
+        if(index < (halfSubBucketCount << 1))
+            return index;
+
+        int shift = index / halfSubBucketCount - 1;
+
+        return lowestEquivalentValue(index) + (1L << shift) - 1;
+    }
+
+    private double medianEquivalentValue(int index) {
+        return (lowestEquivalentValue(index) + highestEquivalentValue(index)) / 2.0;
+    }
+
+}
@@ -0,0 +1,62 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+import it.unimore.dipi.iot.mqtt.playground.broker.LoopbackMqttBroker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Run the DelayStatsMqttConsumer and the DelayStatMqttProducer in the same JVM against an in-process
+ * LoopbackMqttBroker bound to an ephemeral port. The measured delay therefore includes only the client
+ * side overhead and the loopback network stack, without any external broker or clock skew.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:24
+ */
+public class LoopbackDelayBenchmark {
+
+    private final static Logger logger = LoggerFactory.getLogger(LoopbackDelayBenchmark.class);
+
+    //Time left to the consumer to receive the last messages before stopping the broker
+    private static final long DRAIN_TIME_MS = 5000;
+
+    public static void main(String[] args) {
+
+        LoopbackMqttBroker broker = new LoopbackMqttBroker();
+
+        try{
+
+            broker.start();
+
+            //Point both the consumer and the producer to the embedded broker
+            DelayTestMqttConfiguration.BROKER_URL = broker.getBrokerUrl();
+            DelayTestMqttConfiguration.isAuthenticationRequired = false;
+
+            logger.info("LoopbackMqttBroker started on {}", DelayTestMqttConfiguration.BROKER_URL);
+
+            //The consumer returns as soon as it is subscribed, messages are handled by the Paho threads
+            DelayStatsMqttConsumer.main(args);
+
+            //The producer returns when all the messages have been sent
+            DelayStatMqttProducer.main(args);
+
+            Thread.sleep(DRAIN_TIME_MS);
+
+            //The consumer runs indefinitely reporting interval statistics, log the statistics of the whole run
+            DelayStatsMqttConsumer.logStatistics();
+
+            logger.info("Broker Stats -> Received: {} Delivered: {}",
+                    broker.getReceivedPublishCount(),
+                    broker.getDeliveredPublishCount());
+
+        }catch (Exception e){
+            e.printStackTrace();
+        }finally {
+            broker.stop();
+        }
+
+        //Paho client threads of the consumer are not daemon threads
+        System.exit(0);
+    }
+
+}
@@ -0,0 +1,48 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+import it.unimore.dipi.iot.mqtt.playground.broker.LoopbackMqttBroker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the RoundTripResponder and the RoundTripOriginator against an embedded LoopbackMqttBroker,
+ * so that the round-trip test does not depend on an external broker.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:44
+ */
+public class LoopbackRoundTripBenchmark {
+
+    private final static Logger logger = LoggerFactory.getLogger(LoopbackRoundTripBenchmark.class);
+
+    public static void main(String[] args) {
+
+        LoopbackMqttBroker broker = new LoopbackMqttBroker();
+
+        try{
+
+            broker.start();
+
+            DelayTestMqttConfiguration.BROKER_URL = broker.getBrokerUrl();
+            DelayTestMqttConfiguration.isAuthenticationRequired = false;
+
+            logger.info("LoopbackMqttBroker started on {}", DelayTestMqttConfiguration.BROKER_URL);
+
+            //The responder returns as soon as it is subscribed
+            RoundTripResponder.main(args);
+
+            //The originator returns when all the replies have been received (or the drain timeout expires)
+            RoundTripOriginator.main(args);
+
+        }catch (Exception e){
+            e.printStackTrace();
+        }finally {
+            broker.stop();
+        }
+
+        //Paho client threads of the responder are not daemon threads
+        System.exit(0);
+    }
+
+}
@@ -0,0 +1,123 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+import it.unimore.dipi.iot.mqtt.playground.broker.LoopbackMqttBroker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Payload size sweep: publishes synthetic payloads from MIN_PAYLOAD_SIZE to MAX_PAYLOAD_SIZE on a geometric
+ * ladder (each bucket is LADDER_FACTOR times the previous one) and reports msgs/s, MB/s and latency
+ * percentiles for each size bucket, in order to find where the Paho framing or the broker becomes the bottleneck.
+ * The payload of each bucket is allocated and filled once by the BenchmarkCellRunner.
+ *
+ * The number of messages and the depth of the publisher queue of each bucket are derived from byte budgets,
+ * so that large payloads do not exhaust the heap and small payloads are sent in a meaningful number.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:53
+ */
+public class PayloadSizeSweep {
+
+    private final static Logger logger = LoggerFactory.getLogger(PayloadSizeSweep.class);
+
+    //If true the sweep runs against an embedded LoopbackMqttBroker, otherwise against DelayTestMqttConfiguration.BROKER_URL
+    private static final boolean USE_LOOPBACK_BROKER = true;
+
+    //Geometric ladder of the payload sizes in bytes
+    private static final int MIN_PAYLOAD_SIZE = 16;
+
+    private static final int MAX_PAYLOAD_SIZE = 8 * 1024 * 1024;
+
+    private static final int LADDER_FACTOR = 2;
+
+    //Delivery settings of the sweep
+    private static final int QOS = 0;
+
+    private static final boolean TCP_NO_DELAY = true;
+
+    //Bytes sent in each bucket, bounded by the minimum and maximum number of messages
+    private static final long BYTES_PER_BUCKET = 128L * 1024 * 1024;
+
+    private static final int MIN_MESSAGES_PER_BUCKET = 50;
+
+    private static final int MAX_MESSAGES_PER_BUCKET = 20000;
+
+    //Fraction of the messages of each bucket excluded from the measures
+    private static final double WARMUP_FRACTION = 0.1;
+
+    //Bytes that may be queued or in flight on the producer (it bounds both the pending queue and the in-flight window)
+    private static final long MAX_QUEUED_BYTES = 64L * 1024 * 1024;
+
+    private static final int MAX_INFLIGHT = 100;
+
+    private static final int MAX_PENDING = 1000;
+
+    //Target publish rate in messages/second. 0 means as fast as the in-flight window of the publisher allows
+    private static final double TARGET_RATE = 0;
+
+    //Maximum time waiting for the messages of a bucket after the last send
+    private static final long BUCKET_DRAIN_TIMEOUT_MS = 60000;
+
+    private static final String TOPIC_PREFIX = "/iot/performance-payload/size-";
+
+    //Directory of the generated reports
+    private static final String REPORT_DIRECTORY = "target/payload-sweep";
+
+    public static void main(String[] args) {
+
+        LoopbackMqttBroker broker = USE_LOOPBACK_BROKER ? new LoopbackMqttBroker() : null;
+        Path persistenceDirectory = null;
+
+        try{
+
+            String brokerUrl = DelayTestMqttConfiguration.BROKER_URL;
+
+            if(broker != null){
+                broker.start();
+                brokerUrl = broker.getBrokerUrl();
+                logger.info("LoopbackMqttBroker started on {}", brokerUrl);
+            }
+
+            persistenceDirectory = Files.createTempDirectory("mqtt-payload-sweep");
+
+            BenchmarkCellRunner cellRunner = new BenchmarkCellRunner(brokerUrl, persistenceDirectory.toFile(), TOPIC_PREFIX, TARGET_RATE, BUCKET_DRAIN_TIMEOUT_MS);
+
+            List<BenchmarkCellResult> results = new ArrayList<>();
+
+            for(long payloadSize = MIN_PAYLOAD_SIZE; payloadSize <= MAX_PAYLOAD_SIZE; payloadSize *= LADDER_FACTOR){
+
+                int size = (int) payloadSize;
+                int messageCount = (int) Math.max(MIN_MESSAGES_PER_BUCKET, Math.min(MAX_MESSAGES_PER_BUCKET, BYTES_PER_BUCKET / size));
+                int warmupMessages = (int) (messageCount * WARMUP_FRACTION);
+
+                int queuedMessages = (int) Math.max(2, Math.min(MAX_INFLIGHT + MAX_PENDING, MAX_QUEUED_BYTES / size));
+                int maxInflight = Math.max(1, Math.min(MAX_INFLIGHT, queuedMessages / 2));
+                int maxPending = Math.max(1, queuedMessages - maxInflight);
+
+                BenchmarkCellResult result = new BenchmarkCellResult(QOS, false, true, PersistenceType.MEMORY, TCP_NO_DELAY, size);
+                cellRunner.run(size, messageCount, warmupMessages, maxInflight, maxPending, result);
+
+                logger.info("Payload {} B -> {}", size, result);
+                results.add(result);
+            }
+
+            BenchmarkCellRunner.writeReports(results, REPORT_DIRECTORY, "payload-sweep");
+
+        }catch (Exception e){
+            e.printStackTrace();
+        }finally {
+            if(broker != null)
+                broker.stop();
+            BenchmarkCellRunner.deleteDirectory(persistenceDirectory);
+        }
+
+        System.exit(0);
+    }
+
+}
@@ -0,0 +1,31 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.eclipse.paho.client.mqttv3.persist.MqttDefaultFilePersistence;
+
+import java.io.File;
+
+/**
+ * Paho client persistence used to store the in-flight messages
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:49
+ */
+public enum PersistenceType {
+
+    MEMORY,
+    FILE;
+
+    /**
+     * @param directory base directory of the FILE persistence
+     * @return a new persistence instance of this type
+     */
+    public MqttClientPersistence create(File directory) {
+        if(this == FILE)
+            return new MqttDefaultFilePersistence(directory.getAbsolutePath());
+        return new MemoryPersistence();
+    }
+
+}
@@ -0,0 +1,201 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+import it.unimore.dipi.iot.mqtt.playground.publisher.AsyncMqttPublisher;
+import it.unimore.dipi.iot.mqtt.playground.publisher.OverflowPolicy;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.BitSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ping-pong latency test immune to the clock skew between producer and consumer hosts.
+ *
+ * Probes are published at a constant rate on RoundTripProbe.PROBE_TOPIC and echoed back by a
+ * RoundTripResponder on RoundTripProbe.REPLY_TOPIC. The round-trip time is measured with System.nanoTime()
+ * on the originator only, both from the actual send time and from the intended send time of the open loop
+ * timeline (corrected for coordinated omission). The one-way delay is estimated as half of the round-trip
+ * time without the turnaround of the responder, assuming symmetric paths.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:44
+ */
+public class RoundTripOriginator {
+
+    private final static Logger logger = LoggerFactory.getLogger(RoundTripOriginator.class);
+
+    //QoS used for probes and replies (0, 1 or 2)
+    private static final int QOS = 1;
+
+    //Probes sent per second
+    private static final double PROBE_RATE = 1000.0;
+
+    //Duration of the probe generation in seconds
+    private static final int TEST_DURATION_SECONDS = 30;
+
+    //Size of each probe (at least RoundTripProbe.HEADER_SIZE)
+    private static final int PROBE_PAYLOAD_SIZE = 64;
+
+    //Tolerated lateness of a probe with respect to its intended send time
+    private static final long MAX_SCHEDULE_LATENESS_MS = 10;
+
+    //Maximum time waited for the replies of the last probes
+    private static final long REPLY_DRAIN_TIMEOUT_MS = 10000;
+
+    //Interval between two statistics reports
+    private static final int REPORT_INTERVAL_SECONDS = 5;
+
+    //Maximum number of probes in flight on the asynchronous client
+    private static final int MAX_INFLIGHT = 1000;
+
+    //Maximum number of probes waiting to be sent
+    private static final int MAX_PENDING = 10000;
+
+    //Highest round-trip time (in microseconds) tracked with full precision (1 minute)
+    private static final long HIGHEST_TRACKABLE_RTT_US = TimeUnit.MINUTES.toMicros(1);
+
+    private static final DelayStatsRecorder rttRecorder = new DelayStatsRecorder(HIGHEST_TRACKABLE_RTT_US);
+
+    private static final DelayStatsRecorder correctedRttRecorder = new DelayStatsRecorder(HIGHEST_TRACKABLE_RTT_US);
+
+    private static final DelayStatsRecorder oneWayRecorder = new DelayStatsRecorder(HIGHEST_TRACKABLE_RTT_US);
+
+    private static volatile long receivedCount = 0;
+
+    private static volatile long duplicatedCount = 0;
+
+    private static volatile long invalidCount = 0;
+
+    public static void main(String[] args) {
+
+        logger.info("RoundTripOriginator started -> QoS: {} Rate: {} probes/s Duration: {} s", QOS, PROBE_RATE, TEST_DURATION_SECONDS);
+
+        ScheduledExecutorService reportExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "round-trip-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try{
+
+            String clientId = UUID.randomUUID().toString();
+            MqttClientPersistence persistence = new MemoryPersistence();
+            IMqttAsyncClient client = new MqttAsyncClient(DelayTestMqttConfiguration.BROKER_URL, clientId, persistence);
+            AsyncMqttPublisher publisher = new AsyncMqttPublisher(client, MAX_INFLIGHT, MAX_PENDING, OverflowPolicy.BLOCK);
+
+            MqttConnectOptions options = new MqttConnectOptions();
+
+            if(DelayTestMqttConfiguration.isAuthenticationRequired){
+                options.setUserName(DelayTestMqttCredentials.MQTT_USERNAME);
+                options.setPassword(new String(DelayTestMqttCredentials.MQTT_PASSWORD).toCharArray());
+            }
+
+            options.setAutomaticReconnect(true);
+            options.setCleanSession(true);
+            options.setConnectionTimeout(10);
+
+            publisher.connect(options);
+
+            logger.info("Connected ! Client Id: {}", clientId);
+
+            long probeCount = (long)(PROBE_RATE * TEST_DURATION_SECONDS);
+
+            //Sequences of the received replies, only accessed by the callback thread
+            BitSet receivedSequences = new BitSet((int) probeCount);
+
+            client.subscribe(RoundTripProbe.REPLY_TOPIC, QOS, (topic, msg) -> {
+
+                long receivedNanos = System.nanoTime();
+                byte[] probe = msg.getPayload();
+
+                if(!RoundTripProbe.isValid(probe)){
+                    invalidCount++;
+                    return;
+                }
+
+                int sequence = (int) RoundTripProbe.getSequence(probe);
+
+                //QoS 1 may deliver the same probe (or reply) more than once
+                if(sequence < 0 || sequence >= probeCount || receivedSequences.get(sequence)){
+                    duplicatedCount++;
+                    return;
+                }
+
+                receivedSequences.set(sequence);
+
+                long rttNanos = receivedNanos - RoundTripProbe.getSendNanos(probe);
+                long oneWayNanos = (rttNanos - RoundTripProbe.getTurnaroundNanos(probe)) / 2;
+
+                rttRecorder.recordValue(TimeUnit.NANOSECONDS.toMicros(rttNanos));
+                correctedRttRecorder.recordValue(TimeUnit.NANOSECONDS.toMicros(receivedNanos - RoundTripProbe.getIntendedNanos(probe)));
+                oneWayRecorder.recordValue(TimeUnit.NANOSECONDS.toMicros(oneWayNanos));
+
+                receivedCount++;
+
+            }).waitForCompletion();
+
+            reportExecutor.scheduleAtFixedRate(RoundTripOriginator::reportInterval, REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+            ConstantRateScheduler scheduler = new ConstantRateScheduler(PROBE_RATE, TimeUnit.MILLISECONDS.toNanos(MAX_SCHEDULE_LATENESS_MS));
+            scheduler.start();
+
+            for(long sequence = 0; sequence < probeCount; sequence++){
+
+                long intendedNanos = scheduler.awaitSlot(sequence);
+                long sendNanos = System.nanoTime();
+                scheduler.recordSend(sequence, sendNanos);
+
+                publisher.publish(RoundTripProbe.PROBE_TOPIC,
+                        RoundTripProbe.create(PROBE_PAYLOAD_SIZE, sequence, intendedNanos, sendNanos),
+                        QOS,
+                        false);
+            }
+
+            logger.info("All the probes have been sent, waiting for the last replies ...");
+
+            long drainDeadline = System.currentTimeMillis() + REPLY_DRAIN_TIMEOUT_MS;
+            while(receivedCount < probeCount && System.currentTimeMillis() < drainDeadline)
+                Thread.sleep(10);
+
+            reportExecutor.shutdownNow();
+
+            logger.info("Probes -> Sent: {} Received: {} Lost: {} Duplicated: {} Invalid: {} Late Sends: {}",
+                    probeCount,
+                    receivedCount,
+                    probeCount - receivedCount,
+                    duplicatedCount,
+                    invalidCount,
+                    scheduler.getBehindCount());
+
+            logger.info("RTT STATS: {}", rttRecorder.toSummaryString("us"));
+            logger.info("CORRECTED RTT STATS (from intended send time): {}", correctedRttRecorder.toSummaryString("us"));
+            logger.info("ONE-WAY ESTIMATE ((RTT - turnaround) / 2): {}", oneWayRecorder.toSummaryString("us"));
+
+            client.unsubscribe(RoundTripProbe.REPLY_TOPIC);
+            publisher.disconnect();
+
+            logger.info("Disconnected !");
+
+        }catch (Exception e){
+            e.printStackTrace();
+        }finally {
+            reportExecutor.shutdownNow();
+        }
+    }
+
+    private static void reportInterval() {
+        logger.info("INTERVAL RTT STATS: {}", rttRecorder.closeInterval().toSummaryString("us"));
+        logger.info("INTERVAL CORRECTED RTT STATS: {}", correctedRttRecorder.closeInterval().toSummaryString("us"));
+        logger.info("INTERVAL ONE-WAY ESTIMATE: {}", oneWayRecorder.closeInterval().toSummaryString("us"));
+    }
+
+}
@@ -0,0 +1,96 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+/**
+ * Binary layout of the probes exchanged by RoundTripOriginator and RoundTripResponder.
+ *
+ * All the times are System.nanoTime() values read on the originator, except the turnaround that is a
+ * duration measured by the responder: no absolute clock of the two hosts is ever compared, therefore
+ * the measures are not affected by clock skew.
+ *
+ *   0-7   sequence number
+ *   8-15  intended send time (originator)
+ *   16-23 actual send time (originator)
+ *   24-31 time spent by the responder between reception and republish
+ *   32-   optional padding
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:44
+ */
+public class RoundTripProbe {
+
+    //Topic on which the originator publishes the probes
+    public static final String PROBE_TOPIC = "/iot/performance-rtt/probe";
+
+    //Topic on which the responder republishes the probes
+    public static final String REPLY_TOPIC = "/iot/performance-rtt/reply";
+
+    public static final int HEADER_SIZE = 32;
+
+    private static final int SEQUENCE_OFFSET = 0;
+
+    private static final int INTENDED_NANOS_OFFSET = 8;
+
+    private static final int SEND_NANOS_OFFSET = 16;
+
+    private static final int TURNAROUND_NANOS_OFFSET = 24;
+
+    private RoundTripProbe() {
+    }
+
+    /**
+     * Create a new probe
+     *
+     * @param size total size of the probe (at least HEADER_SIZE)
+     * @param sequence
+     * @param intendedNanos
+     * @param sendNanos
+     * @return the probe payload
+     */
+    public static byte[] create(int size, long sequence, long intendedNanos, long sendNanos) {
+        byte[] probe = new byte[Math.max(size, HEADER_SIZE)];
+        writeLong(probe, SEQUENCE_OFFSET, sequence);
+        writeLong(probe, INTENDED_NANOS_OFFSET, intendedNanos);
+        writeLong(probe, SEND_NANOS_OFFSET, sendNanos);
+        return probe;
+    }
+
+    public static boolean isValid(byte[] probe) {
+        return probe != null && probe.length >= HEADER_SIZE;
+    }
+
+    public static long getSequence(byte[] probe) {
+        return readLong(probe, SEQUENCE_OFFSET);
+    }
+
+    public static long getIntendedNanos(byte[] probe) {
+        return readLong(probe, INTENDED_NANOS_OFFSET);
+    }
+
+    public static long getSendNanos(byte[] probe) {
+        return readLong(probe, SEND_NANOS_OFFSET);
+    }
+
+    public static long getTurnaroundNanos(byte[] probe) {
+        return readLong(probe, TURNAROUND_NANOS_OFFSET);
+    }
+
+    public static void setTurnaroundNanos(byte[] probe, long turnaroundNanos) {
+        writeLong(probe, TURNAROUND_NANOS_OFFSET, turnaroundNanos);
+    }
+
+    private static void writeLong(byte[] buffer, int offset, long value) {
+        for(int i = 7; i >= 0; i--){
+            buffer[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long readLong(byte[] buffer, int offset) {
+        long value = 0;
+        for(int i = 0; i < 8; i++)
+            value = (value << 8) | (buffer[offset + i] & 0xFF);
+        return value;
+    }
+
+}
@@ -0,0 +1,118 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsRegistry;
+import it.unimore.dipi.iot.mqtt.playground.metrics.ProducerMetrics;
+import it.unimore.dipi.iot.mqtt.playground.publisher.AsyncMqttPublisher;
+import it.unimore.dipi.iot.mqtt.playground.publisher.OverflowPolicy;
+import it.unimore.dipi.iot.mqtt.playground.publisher.PublishListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+
+/**
+ * Echo side of the round-trip latency test: every probe received on RoundTripProbe.PROBE_TOPIC is
+ * republished unchanged on RoundTripProbe.REPLY_TOPIC with the same QoS, adding only the time spent
+ * by the responder to handle it. The turnaround is stamped by the publisher sender thread right before the
+ * reply is handed to the client, so it includes the wait in the reply queue.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:44
+ */
+public class RoundTripResponder {
+
+    private final static Logger logger = LoggerFactory.getLogger(RoundTripResponder.class);
+
+    //Maximum QoS requested for the probe subscription (probes are echoed with the QoS they were received with)
+    private static final int SUBSCRIPTION_QOS = 2;
+
+    //Maximum number of replies in flight on the asynchronous client
+    private static final int MAX_INFLIGHT = 1000;
+
+    //Maximum number of replies waiting to be sent. Further replies are dropped and seen as lost probes by the
+    //originator: blocking the Paho callback thread would also block the delivery of the completions that free the queue
+    private static final int MAX_PENDING = 10000;
+
+    public static void main(String[] args) {
+
+        logger.info("RoundTripResponder started ...");
+
+        try{
+
+            String clientId = UUID.randomUUID().toString();
+            MqttClientPersistence persistence = new MemoryPersistence();
+            IMqttAsyncClient client = new MqttAsyncClient(DelayTestMqttConfiguration.BROKER_URL, clientId, persistence);
+
+            //Replies are handed to the publisher thread, blocking client operations are not allowed in the callback
+            AsyncMqttPublisher publisher = new AsyncMqttPublisher(client, MAX_INFLIGHT, MAX_PENDING, OverflowPolicy.DROP);
+            publisher.setMetrics(ProducerMetrics.register("RoundTripResponder"));
+            MetricsRegistry.startSummaryReport();
+
+            MqttConnectOptions options = new MqttConnectOptions();
+
+            if(DelayTestMqttConfiguration.isAuthenticationRequired){
+                options.setUserName(DelayTestMqttCredentials.MQTT_USERNAME);
+                options.setPassword(new String(DelayTestMqttCredentials.MQTT_PASSWORD).toCharArray());
+            }
+
+            options.setAutomaticReconnect(true);
+            options.setCleanSession(true);
+            options.setConnectionTimeout(10);
+
+            publisher.connect(options);
+
+            logger.info("Connected ! Client Id: {}", clientId);
+
+            client.subscribe(RoundTripProbe.PROBE_TOPIC, SUBSCRIPTION_QOS, (topic, msg) -> {
+
+                long receivedNanos = System.nanoTime();
+                byte[] probe = msg.getPayload();
+
+                if(!RoundTripProbe.isValid(probe)){
+                    logger.error("Invalid probe received ({}) Size: {}", topic, probe.length);
+                    return;
+                }
+
+                if(!publisher.publish(RoundTripProbe.REPLY_TOPIC, probe, msg.getQos(), false, new TurnaroundStamp(receivedNanos)))
+                    logger.debug("Reply queue full, probe dropped ({})", topic);
+
+            }).waitForCompletion();
+
+            logger.info("Echoing probes from {} to {}", RoundTripProbe.PROBE_TOPIC, RoundTripProbe.REPLY_TOPIC);
+
+        }catch (Exception e){
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Write the turnaround time into the reply when the sender thread hands it to the client
+     */
+    private static class TurnaroundStamp implements PublishListener {
+
+        //Reception time of the probe (System.nanoTime())
+        private final long receivedNanos;
+
+        private TurnaroundStamp(long receivedNanos) {
+            this.receivedNanos = receivedNanos;
+        }
+
+        @Override
+        public void onSend(String topic, MqttMessage message) {
+            RoundTripProbe.setTurnaroundNanos(message.getPayload(), System.nanoTime() - receivedNanos);
+        }
+
+        @Override
+        public void onComplete(String topic, MqttMessage message, Throwable error) {
+            //Failed replies are counted as lost probes by the originator
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+/**
+ * Online count, mean, variance, min and max of a stream of values computed with the Welford algorithm,
+ * numerically stable and requiring constant memory whatever the number of recorded values.
+ * Differently from LatencyHistogram values are neither clamped nor bucketed (e.g. negative delays
+ * caused by clock skew are kept as they are).
+ *
+ * Instances are not thread safe.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:40
+ */
+public class RunningStatistics {
+
+    private long count = 0;
+
+    private double mean = 0.0;
+
+    //Sum of the squared differences from the current mean
+    private double squaredDeviationSum = 0.0;
+
+    private long minValue = Long.MAX_VALUE;
+
+    private long maxValue = Long.MIN_VALUE;
+
+    public void add(long value) {
+
+        count++;
+
+        double delta = value - mean;
+        mean += delta / count;
+        squaredDeviationSum += delta * (value - mean);
+
+        if(value < minValue)
+            minValue = value;
+
+        if(value > maxValue)
+            maxValue = value;
+    }
+
+    /**
+     * Merge the values recorded by another instance (Chan et al. parallel variant of the algorithm)
+     *
+     * @param other
+     */
+    public void add(RunningStatistics other) {
+
+        if(other.count == 0)
+            return;
+
+        if(count == 0){
+            count = other.count;
+            mean = other.mean;
+            squaredDeviationSum = other.squaredDeviationSum;
+            minValue = other.minValue;
+            maxValue = other.maxValue;
+            return;
+        }
+
+        long mergedCount = count + other.count;
+        double delta = other.mean - mean;
+
+        mean += delta * other.count / mergedCount;
+        squaredDeviationSum += other.squaredDeviationSum + delta * delta * ((double) count * other.count / mergedCount);
+        count = mergedCount;
+        minValue = Math.min(minValue, other.minValue);
+        maxValue = Math.max(maxValue, other.maxValue);
+    }
+
+    public void reset() {
+        count = 0;
+        mean = 0.0;
+        squaredDeviationSum = 0.0;
+        minValue = Long.MAX_VALUE;
+        maxValue = Long.MIN_VALUE;
+    }
+
+    public RunningStatistics copy() {
+        RunningStatistics copy = new RunningStatistics();
+        copy.add(this);
+        return copy;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return the sample variance of the recorded values (0 with less than two values)
+     */
+    public double getVariance() {
+        return count > 1 ? squaredDeviationSum / (count - 1) : 0.0;
+    }
+
+    public double getStdDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public long getMinValue() {
+        return count == 0 ? 0 : minValue;
+    }
+
+    public long getMaxValue() {
+        return count == 0 ? 0 : maxValue;
+    }
+
+    /**
+     * @param unit label appended to the values (e.g. ms, us)
+     * @return a single line summary (count, min, max, mean and stddev)
+     */
+    public String toSummaryString(String unit) {
+        return String.format("count=%d min=%d%s max=%d%s mean=%.3f%s stddev=%.3f%s",
+                getCount(),
+                getMinValue(), unit,
+                getMaxValue(), unit,
+                getMean(), unit,
+                getStdDeviation(), unit);
+    }
+
+}
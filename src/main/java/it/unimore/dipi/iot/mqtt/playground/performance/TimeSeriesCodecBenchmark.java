@@ -0,0 +1,264 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+import it.unimore.dipi.iot.mqtt.playground.codec.BinaryMessageCodec;
+import it.unimore.dipi.iot.mqtt.playground.codec.GorillaBlockDecoder;
+import it.unimore.dipi.iot.mqtt.playground.codec.GorillaBlockEncoder;
+import it.unimore.dipi.iot.mqtt.playground.codec.MessageJsonEncoder;
+import it.unimore.dipi.iot.mqtt.playground.codec.MessageJsonParser;
+import it.unimore.dipi.iot.mqtt.playground.codec.PayloadCompressor;
+import it.unimore.dipi.iot.mqtt.playground.codec.ReadingBatchDecoder;
+import it.unimore.dipi.iot.mqtt.playground.codec.ReadingBatchEncoder;
+import it.unimore.dipi.iot.mqtt.playground.codec.SensorReading;
+import it.unimore.dipi.iot.mqtt.playground.codec.SensorTypeRegistry;
+import it.unimore.dipi.iot.mqtt.playground.model.EngineTemperatureSensor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Offline benchmark of the telemetry wire formats: bytes per sample and encode/decode time per sample of
+ * JSON messages (plain and compressed with the preset dictionary), single binary messages, fixed size record
+ * batches and Gorilla time series blocks.
+ *
+ * Two signals are generated for each device with near-regular timestamps (DEVICE_INTERVAL_MS +/- DEVICE_JITTER_MS):
+ * the values of EngineTemperatureSensor, uniformly random in [80, 100], and a slowly varying temperature
+ * (random walk with SENSOR_RESOLUTION steps), which is what a real engine sensor reports.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:22
+ */
+public class TimeSeriesCodecBenchmark {
+
+    private final static Logger logger = LoggerFactory.getLogger(TimeSeriesCodecBenchmark.class);
+
+    //Number of simulated devices and samples generated for each one
+    private static final int DEVICE_COUNT = 200;
+
+    private static final int SAMPLES_PER_DEVICE = 3600;
+
+    //Number of samples of a batch or time series block
+    private static final int BLOCK_SIZE = 120;
+
+    //Nominal sampling interval and maximum random deviation (+/-) of the timestamps
+    private static final long DEVICE_INTERVAL_MS = 1000;
+
+    private static final long DEVICE_JITTER_MS = 5;
+
+    //Resolution of the slowly varying signal (degrees)
+    private static final double SENSOR_RESOLUTION = 0.1;
+
+    //Iterations run before the measured one to let the JIT compile the codecs
+    private static final int WARMUP_ITERATIONS = 3;
+
+    //Accumulates the decoded values so that the JIT cannot drop the decoding
+    private static double checksum = 0;
+
+    public static void main(String[] args) {
+
+        Random random = new Random(42);
+        EngineTemperatureSensor engineTemperatureSensor = new EngineTemperatureSensor();
+
+        List<long[]> timestampList = new ArrayList<>();
+        List<double[]> randomValueList = new ArrayList<>();
+        List<double[]> slowValueList = new ArrayList<>();
+
+        for(int d = 0; d < DEVICE_COUNT; d++){
+
+            long[] timestamps = new long[SAMPLES_PER_DEVICE];
+            double[] randomValues = new double[SAMPLES_PER_DEVICE];
+            double[] slowValues = new double[SAMPLES_PER_DEVICE];
+
+            long timestamp = 1792000000000L + random.nextInt(1000);
+            double slowValue = 80.0 + random.nextInt(200) * SENSOR_RESOLUTION;
+
+            for(int i = 0; i < SAMPLES_PER_DEVICE; i++){
+
+                timestamp += DEVICE_INTERVAL_MS + random.nextInt((int) (2 * DEVICE_JITTER_MS + 1)) - DEVICE_JITTER_MS;
+
+                //The slow signal changes by one resolution step in about one sample out of three
+                int step = random.nextInt(6);
+                if(step == 0)
+                    slowValue -= SENSOR_RESOLUTION;
+                else if(step == 1)
+                    slowValue += SENSOR_RESOLUTION;
+
+                timestamps[i] = timestamp;
+                randomValues[i] = engineTemperatureSensor.getTemperatureValue();
+                slowValues[i] = Math.round(slowValue / SENSOR_RESOLUTION) * SENSOR_RESOLUTION;
+            }
+
+            timestampList.add(timestamps);
+            randomValueList.add(randomValues);
+            slowValueList.add(slowValues);
+        }
+
+        for(int iteration = 0; iteration <= WARMUP_ITERATIONS; iteration++){
+
+            boolean measured = iteration == WARMUP_ITERATIONS;
+
+            run("EngineTemperatureSensor", timestampList, randomValueList, measured);
+            run("Slowly varying (" + SENSOR_RESOLUTION + " resolution)", timestampList, slowValueList, measured);
+        }
+
+        logger.info("Checksum: {}", checksum);
+    }
+
+    private static void run(String signal, List<long[]> timestampList, List<double[]> valueList, boolean measured) {
+
+        long sampleCount = (long) DEVICE_COUNT * SAMPLES_PER_DEVICE;
+
+        if(measured)
+            logger.info("Signal: {} -> Devices: {} Samples: {} Block Size: {}", signal, DEVICE_COUNT, sampleCount, BLOCK_SIZE);
+
+        report("JSON", sampleCount, measured, benchmarkJson(timestampList, valueList, null));
+        report("JSON + dictionary deflate", sampleCount, measured, benchmarkJson(timestampList, valueList, new PayloadCompressor()));
+        report("Binary message", sampleCount, measured, benchmarkBinary(timestampList, valueList));
+        report("Record batch", sampleCount, measured, benchmarkRecordBatch(timestampList, valueList));
+        report("Gorilla block", sampleCount, measured, benchmarkGorilla(timestampList, valueList));
+    }
+
+    /**
+     * @param result total bytes, encode nanos and decode nanos
+     */
+    private static void report(String format, long sampleCount, boolean measured, long[] result) {
+        if(measured)
+            logger.info(String.format(Locale.ROOT, "  %-26s %8.2f bytes/sample  encode %7.1f ns/sample  decode %7.1f ns/sample",
+                    format, (double) result[0] / sampleCount, (double) result[1] / sampleCount, (double) result[2] / sampleCount));
+    }
+
+    private static long[] benchmarkJson(List<long[]> timestampList, List<double[]> valueList, PayloadCompressor compressor) {
+
+        List<byte[]> payloadList = new ArrayList<>(DEVICE_COUNT * SAMPLES_PER_DEVICE);
+        long bytes = 0;
+
+        long encodeStart = System.nanoTime();
+        for(int d = 0; d < DEVICE_COUNT; d++){
+            long[] timestamps = timestampList.get(d);
+            double[] values = valueList.get(d);
+            for(int i = 0; i < SAMPLES_PER_DEVICE; i++){
+                byte[] payload = MessageJsonEncoder.encodeMessage(timestamps[i], SensorTypeRegistry.ENGINE_TEMPERATURE_SENSOR, values[i]).toByteArray();
+                if(compressor != null)
+                    payload = compressor.compress(payload);
+                payloadList.add(payload);
+                bytes += payload.length;
+            }
+        }
+        long encodeNanos = System.nanoTime() - encodeStart;
+
+        MessageJsonParser parser = new MessageJsonParser();
+        SensorReading reading = new SensorReading();
+
+        long decodeStart = System.nanoTime();
+        for(byte[] payload : payloadList){
+            if(parser.parse(compressor != null ? compressor.decompress(payload) : payload, reading))
+                checksum += reading.getValue();
+        }
+        long decodeNanos = System.nanoTime() - decodeStart;
+
+        return new long[]{bytes, encodeNanos, decodeNanos};
+    }
+
+    private static long[] benchmarkBinary(List<long[]> timestampList, List<double[]> valueList) {
+
+        BinaryMessageCodec codec = new BinaryMessageCodec();
+        List<byte[]> payloadList = new ArrayList<>(DEVICE_COUNT * SAMPLES_PER_DEVICE);
+        long bytes = 0;
+
+        long encodeStart = System.nanoTime();
+        for(int d = 0; d < DEVICE_COUNT; d++){
+            long[] timestamps = timestampList.get(d);
+            double[] values = valueList.get(d);
+            for(int i = 0; i < SAMPLES_PER_DEVICE; i++){
+                byte[] payload = codec.encode(timestamps[i], SensorTypeRegistry.ENGINE_TEMPERATURE_SENSOR, values[i]);
+                payloadList.add(payload);
+                bytes += payload.length;
+            }
+        }
+        long encodeNanos = System.nanoTime() - encodeStart;
+
+        SensorReading reading = new SensorReading();
+
+        long decodeStart = System.nanoTime();
+        for(byte[] payload : payloadList){
+            codec.decode(payload, 0, payload.length, reading);
+            checksum += reading.getValue();
+        }
+        long decodeNanos = System.nanoTime() - decodeStart;
+
+        return new long[]{bytes, encodeNanos, decodeNanos};
+    }
+
+    private static long[] benchmarkRecordBatch(List<long[]> timestampList, List<double[]> valueList) {
+
+        ReadingBatchEncoder encoder = new ReadingBatchEncoder(new BinaryMessageCodec(), BLOCK_SIZE);
+        List<byte[]> payloadList = new ArrayList<>();
+        long bytes = 0;
+
+        long encodeStart = System.nanoTime();
+        for(int d = 0; d < DEVICE_COUNT; d++){
+            long[] timestamps = timestampList.get(d);
+            double[] values = valueList.get(d);
+            for(int i = 0; i < SAMPLES_PER_DEVICE; i++){
+                if(encoder.add(timestamps[i], SensorTypeRegistry.ENGINE_TEMPERATURE_SENSOR, values[i]) || i == SAMPLES_PER_DEVICE - 1){
+                    byte[] payload = encoder.toPayload();
+                    encoder.reset();
+                    payloadList.add(payload);
+                    bytes += payload.length;
+                }
+            }
+        }
+        long encodeNanos = System.nanoTime() - encodeStart;
+
+        ReadingBatchDecoder decoder = new ReadingBatchDecoder();
+
+        long decodeStart = System.nanoTime();
+        for(byte[] payload : payloadList){
+            decoder.wrap(payload);
+            for(int i = 0; i < decoder.size(); i++)
+                checksum += decoder.getValue(i) + decoder.getTimestamp(i);
+        }
+        long decodeNanos = System.nanoTime() - decodeStart;
+
+        return new long[]{bytes, encodeNanos, decodeNanos};
+    }
+
+    private static long[] benchmarkGorilla(List<long[]> timestampList, List<double[]> valueList) {
+
+        GorillaBlockEncoder encoder = new GorillaBlockEncoder(new BinaryMessageCodec(), BLOCK_SIZE);
+        List<byte[]> payloadList = new ArrayList<>();
+        long bytes = 0;
+
+        long encodeStart = System.nanoTime();
+        for(int d = 0; d < DEVICE_COUNT; d++){
+            long[] timestamps = timestampList.get(d);
+            double[] values = valueList.get(d);
+            for(int i = 0; i < SAMPLES_PER_DEVICE; i++){
+                if(encoder.add(timestamps[i], SensorTypeRegistry.ENGINE_TEMPERATURE_SENSOR, values[i]) || i == SAMPLES_PER_DEVICE - 1){
+                    byte[] payload = encoder.toPayload();
+                    encoder.reset();
+                    payloadList.add(payload);
+                    bytes += payload.length;
+                }
+            }
+        }
+        long encodeNanos = System.nanoTime() - encodeStart;
+
+        GorillaBlockDecoder decoder = new GorillaBlockDecoder();
+
+        long decodeStart = System.nanoTime();
+        for(byte[] payload : payloadList){
+            decoder.wrap(payload);
+            while(decoder.next())
+                checksum += decoder.getValue() + decoder.getTimestamp();
+        }
+        long decodeNanos = System.nanoTime() - decodeStart;
+
+        return new long[]{bytes, encodeNanos, decodeNanos};
+    }
+
+}
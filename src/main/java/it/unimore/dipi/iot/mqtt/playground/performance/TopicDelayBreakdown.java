@@ -0,0 +1,177 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-topic breakdown of the delays measured on a wildcard subscription.
+ *
+ * Each concrete topic gets its own lock-free TopicDelayStats. Topics are interned when first seen so
+ * that the map keeps a single canonical key per topic and the lookup of a known topic does not allocate.
+ * Histograms use a reduced precision to keep the memory footprint of thousands of topics bounded,
+ * and topics beyond maxTrackedTopics are accounted together under OVERFLOW_TOPIC.
+ *
+ * Reports rank the topics by p99 delay and by throughput (msgs/s).
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:41
+ */
+public class TopicDelayBreakdown {
+
+    //Key of the statistics shared by the topics exceeding maxTrackedTopics
+    public static final String OVERFLOW_TOPIC = "<other topics>";
+
+    //Per topic histogram precision (64 sub-buckets for each power of two -> ~1.6% precision)
+    public static final int TOPIC_SIGNIFICANT_BITS = 7;
+
+    private final ConcurrentHashMap<String, TopicDelayStats> topicMap = new ConcurrentHashMap<>();
+
+    private final long highestTrackableValue;
+
+    private final int maxTrackedTopics;
+
+    private final TopicDelayStats overflowStats;
+
+    public TopicDelayBreakdown(long highestTrackableValue, int maxTrackedTopics) {
+        this.highestTrackableValue = highestTrackableValue;
+        this.maxTrackedTopics = maxTrackedTopics;
+        this.overflowStats = new TopicDelayStats(OVERFLOW_TOPIC, highestTrackableValue, TOPIC_SIGNIFICANT_BITS);
+    }
+
+    /**
+     * @return the statistics associated to the topic, created at the first lookup
+     */
+    public TopicDelayStats getTopicStats(String topic) {
+
+        TopicDelayStats stats = topicMap.get(topic);
+
+        if(stats != null)
+            return stats;
+
+        if(topicMap.size() >= maxTrackedTopics)
+            return overflowStats;
+
+        return topicMap.computeIfAbsent(topic.intern(), key -> new TopicDelayStats(key, highestTrackableValue, TOPIC_SIGNIFICANT_BITS));
+    }
+
+    public int getTopicCount() {
+        return topicMap.size();
+    }
+
+    /**
+     * Close the current interval of all the topics and build a report ranking them by p99 delay and rate
+     *
+     * @param limit maximum number of topics listed in each ranking
+     * @param unit label appended to the delays (e.g. ms)
+     * @return the multi-line report
+     */
+    public String closeInterval(int limit, String unit) {
+
+        long now = System.currentTimeMillis();
+        List<TopicSummary> summaryList = new ArrayList<>();
+
+        for(TopicDelayStats stats : allTopicStats()){
+            long startTimestamp = stats.getIntervalStartTimestamp();
+            LatencyHistogram histogram = stats.closeInterval();
+            if(histogram.getTotalCount() > 0)
+                summaryList.add(new TopicSummary(stats.getTopic(), histogram, now - startTimestamp, stats.getParseErrorCount()));
+        }
+
+        return buildReport("INTERVAL", summaryList, limit, unit);
+    }
+
+    /**
+     * Build a report of the cumulative statistics ranking the topics by p99 delay and average rate
+     *
+     * @param limit maximum number of topics listed in each ranking
+     * @param unit label appended to the delays (e.g. ms)
+     * @return the multi-line report
+     */
+    public String toTotalReport(int limit, String unit) {
+
+        long now = System.currentTimeMillis();
+        List<TopicSummary> summaryList = new ArrayList<>();
+
+        for(TopicDelayStats stats : allTopicStats())
+            if(stats.getMessageCount() > 0)
+                summaryList.add(new TopicSummary(stats.getTopic(), stats.getTotalHistogram(), now - stats.getCreationTimestamp(), stats.getParseErrorCount()));
+
+        return buildReport("TOTAL", summaryList, limit, unit);
+    }
+
+    private List<TopicDelayStats> allTopicStats() {
+        List<TopicDelayStats> statsList = new ArrayList<>(topicMap.values());
+        statsList.add(overflowStats);
+        return statsList;
+    }
+
+    private static String buildReport(String label, List<TopicSummary> summaryList, int limit, String unit) {
+
+        final StringBuilder sb = new StringBuilder();
+        sb.append(label).append(" PER-TOPIC STATS (").append(summaryList.size()).append(" topics)");
+
+        if(summaryList.isEmpty())
+            return sb.toString();
+
+        summaryList.sort(Comparator.comparingLong((TopicSummary summary) -> summary.p99).reversed());
+        sb.append("\n  Slowest topics by p99:");
+        appendRanking(sb, summaryList, limit, unit);
+
+        summaryList.sort(Comparator.comparingDouble((TopicSummary summary) -> summary.rate).reversed());
+        sb.append("\n  Busiest topics by msgs/s:");
+        appendRanking(sb, summaryList, limit, unit);
+
+        return sb.toString();
+    }
+
+    private static void appendRanking(StringBuilder sb, List<TopicSummary> summaryList, int limit, String unit) {
+        for(int i = 0; i < Math.min(limit, summaryList.size()); i++){
+            TopicSummary summary = summaryList.get(i);
+            sb.append(String.format("%n    %2d. %s -> count=%d rate=%.1f/s mean=%.3f%s p50=%d%s p99=%d%s max=%d%s errors=%d",
+                    i + 1,
+                    summary.topic,
+                    summary.count,
+                    summary.rate,
+                    summary.mean, unit,
+                    summary.p50, unit,
+                    summary.p99, unit,
+                    summary.max, unit,
+                    summary.parseErrorCount));
+        }
+    }
+
+    //Immutable snapshot of the statistics of a topic used to build the rankings
+    private static class TopicSummary {
+
+        private final String topic;
+
+        private final long count;
+
+        private final double rate;
+
+        private final double mean;
+
+        private final long p50;
+
+        private final long p99;
+
+        private final long max;
+
+        private final long parseErrorCount;
+
+        private TopicSummary(String topic, LatencyHistogram histogram, long durationMillis, long parseErrorCount) {
+            this.topic = topic;
+            this.count = histogram.getTotalCount();
+            this.rate = durationMillis > 0 ? count * 1000.0 / durationMillis : 0.0;
+            this.mean = histogram.getMean();
+            this.p50 = histogram.getValueAtPercentile(50.0);
+            this.p99 = histogram.getValueAtPercentile(99.0);
+            this.max = histogram.getMaxValue();
+            this.parseErrorCount = parseErrorCount;
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package it.unimore.dipi.iot.mqtt.playground.performance;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free delay statistics of a single concrete topic: cumulative and current interval histograms
+ * plus message and parse error counters.
+ *
+ * The interval histogram is swapped by closeInterval(): values recorded concurrently with the swap
+ * may end up in the closed histogram after it has been reported, so they are only accounted in the
+ * cumulative statistics.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:41
+ */
+public class TopicDelayStats {
+
+    private final String topic;
+
+    private final long highestTrackableValue;
+
+    private final int significantBits;
+
+    private final LatencyHistogram totalHistogram;
+
+    private final AtomicReference<LatencyHistogram> intervalHistogram;
+
+    private final AtomicLong parseErrorCount = new AtomicLong();
+
+    private final long creationTimestamp;
+
+    private volatile long intervalStartTimestamp;
+
+    public TopicDelayStats(String topic, long highestTrackableValue, int significantBits) {
+        this.topic = topic;
+        this.highestTrackableValue = highestTrackableValue;
+        this.significantBits = significantBits;
+        this.totalHistogram = new LatencyHistogram(highestTrackableValue, significantBits);
+        this.intervalHistogram = new AtomicReference<>(new LatencyHistogram(highestTrackableValue, significantBits));
+        this.creationTimestamp = System.currentTimeMillis();
+        this.intervalStartTimestamp = creationTimestamp;
+    }
+
+    public void recordDelay(long delay) {
+        totalHistogram.recordValue(delay);
+        intervalHistogram.get().recordValue(delay);
+    }
+
+    public void recordParseError() {
+        parseErrorCount.incrementAndGet();
+    }
+
+    /**
+     * Close the current interval and start a new one
+     *
+     * @return the histogram of the closed interval
+     */
+    public LatencyHistogram closeInterval() {
+        intervalStartTimestamp = System.currentTimeMillis();
+        return intervalHistogram.getAndSet(new LatencyHistogram(highestTrackableValue, significantBits));
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public LatencyHistogram getTotalHistogram() {
+        return totalHistogram;
+    }
+
+    public long getMessageCount() {
+        return totalHistogram.getTotalCount();
+    }
+
+    public long getParseErrorCount() {
+        return parseErrorCount.get();
+    }
+
+    /**
+     * @return the time at which the first message of the topic was received
+     */
+    public long getCreationTimestamp() {
+        return creationTimestamp;
+    }
+
+    public long getIntervalStartTimestamp() {
+        return intervalStartTimestamp;
+    }
+
+}
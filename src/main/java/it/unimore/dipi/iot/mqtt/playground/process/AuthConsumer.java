@@ -1,5 +1,6 @@
 package it.unimore.dipi.iot.mqtt.playground.process;
 
+import it.unimore.dipi.iot.mqtt.playground.metrics.ConsumerMetrics;
 import org.eclipse.paho.client.mqttv3.IMqttClient;
 import org.eclipse.paho.client.mqttv3.MqttClient;
 import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
@@ -73,14 +74,19 @@ public class AuthConsumer {
 
             logger.info("Connected !");
 
+            //Ingestion metrics exposed over JMX
+            ConsumerMetrics metrics = ConsumerMetrics.register("AuthConsumer");
+
             //Subscribe to the target topic #. In that case the consumer will receive (if authorized) all the message
             //passing through the broker
             client.subscribe(MQTT_BASIC_TOPIC + "#", (topic, msg) -> {
+                long handlerStart = System.nanoTime();
                 //The topic variable contain the specific topic associated to the received message. Using MQTT wildcards
                 //messaged from multiple and different topic can be received with the same subscription
                 //The msg variable is a MqttMessage object containing all the information about the received message
             	byte[] payload = msg.getPayload();
             	logger.info("Message Received ({}) Message Received: {}", topic, new String(payload));
+                metrics.recordMessage(payload.length, System.nanoTime() - handlerStart);
             });
 
         }catch (Exception e){
@@ -1,6 +1,10 @@
 package it.unimore.dipi.iot.mqtt.playground.process;
 
+import it.unimore.dipi.iot.mqtt.playground.metrics.DropReason;
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsRegistry;
+import it.unimore.dipi.iot.mqtt.playground.metrics.ProducerMetrics;
 import it.unimore.dipi.iot.mqtt.playground.model.EngineTemperatureSensor;
+import it.unimore.dipi.iot.mqtt.playground.publisher.AsyncMqttPublisher;
 import org.eclipse.paho.client.mqttv3.*;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import org.slf4j.Logger;
@@ -55,7 +59,13 @@ public class AuthProducer {
 
             //The the persistence is not passed to the constructor the default file persistence is used.
             //In case of a file-based storage the same MQTT client UUID should be used
-            IMqttClient client = new MqttClient(BROKER_URL, publisherId, persistence);
+            IMqttAsyncClient client = new MqttAsyncClient(BROKER_URL, publisherId, persistence);
+
+            AsyncMqttPublisher publisher = new AsyncMqttPublisher(client);
+
+            //Publisher metrics exposed over JMX and periodically logged as a summary line
+            publisher.setMetrics(ProducerMetrics.register("AuthProducer"));
+            MetricsRegistry.startSummaryReport();
 
             //Define MQTT Connection Options such as reconnection, persistent/clean session and connection timeout
             //Authentication option can be added -> See AuthProducer example
@@ -67,7 +77,7 @@ public class AuthProducer {
             options.setConnectionTimeout(10);
 
             //Connect to the target broker
-            client.connect(options);
+            publisher.connect(options);
 
             logger.info("Connected !");
 
@@ -85,15 +95,14 @@ public class AuthProducer {
                 //The final topic is obtained merging the MQTT_BASIC_TOPIC and TOPIC in order to send the messages
                 //to the correct topic root associated to the authenticated user
                 //Eg. /iot/user/000001/sensor/temperature
-            	publishData(client, MQTT_BASIC_TOPIC + TOPIC, payloadString);
+            	publishData(publisher, MQTT_BASIC_TOPIC + TOPIC, payloadString);
 
                 //Sleep for 1 Second
             	Thread.sleep(1000);
             }
 
             //Disconnect from the broker and close the connection
-            client.disconnect();
-            client.close();
+            publisher.disconnect();
 
             logger.info("Disconnected !");
 
@@ -106,25 +115,25 @@ public class AuthProducer {
     /**
      * Send a target String Payload to the specified MQTT topic
      *
-     * @param mqttClient
+     * @param publisher
      * @param topic
      * @param msgString
-     * @throws MqttException
      */
-    public static void publishData(IMqttClient mqttClient, String topic, String msgString) throws MqttException {
+    public static void publishData(AsyncMqttPublisher publisher, String topic, String msgString) {
 
         logger.debug("Publishing to Topic: {} Data: {}", topic, msgString);
 
-        if (mqttClient.isConnected() && msgString != null && topic != null) {
+        if (publisher.isConnected() && msgString != null && topic != null) {
         	
             MqttMessage msg = new MqttMessage(msgString.getBytes());
             msg.setQos(0);
             msg.setRetained(false);
-            mqttClient.publish(topic,msg);
+            publisher.publish(topic, msg, null);
             
-            logger.debug("(If Authorized by Broker ACL) Data Correctly Published !");
+            logger.debug("Data Correctly Enqueued for Publishing !");
         }
         else{
+            publisher.recordDrop(publisher.isConnected() ? DropReason.INVALID_MESSAGE : DropReason.NOT_CONNECTED);
             logger.error("Error: Topic or Msg = Null or MQTT Client is not Connected !");
         }
 
@@ -0,0 +1,255 @@
+package it.unimore.dipi.iot.mqtt.playground.process;
+
+import it.unimore.dipi.iot.mqtt.playground.aggregate.AggregateJsonEncoder;
+import it.unimore.dipi.iot.mqtt.playground.aggregate.WindowedAggregator;
+import it.unimore.dipi.iot.mqtt.playground.codec.BinaryMessageCodec;
+import it.unimore.dipi.iot.mqtt.playground.codec.MessageJsonParser;
+import it.unimore.dipi.iot.mqtt.playground.codec.PayloadFormat;
+import it.unimore.dipi.iot.mqtt.playground.codec.PayloadCompressor;
+import it.unimore.dipi.iot.mqtt.playground.codec.ReadingBatchDecoder;
+import it.unimore.dipi.iot.mqtt.playground.codec.SensorReading;
+import it.unimore.dipi.iot.mqtt.playground.codec.SensorTypeRegistry;
+import it.unimore.dipi.iot.mqtt.playground.dispatch.BackpressurePolicy;
+import it.unimore.dipi.iot.mqtt.playground.dispatch.ShardKey;
+import it.unimore.dipi.iot.mqtt.playground.dispatch.ShardedMessageDispatcher;
+import it.unimore.dipi.iot.mqtt.playground.metrics.CompressionMetrics;
+import it.unimore.dipi.iot.mqtt.playground.metrics.ConsumerMetrics;
+import it.unimore.dipi.iot.mqtt.playground.metrics.DropReason;
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsRegistry;
+import it.unimore.dipi.iot.mqtt.playground.metrics.ProducerMetrics;
+import it.unimore.dipi.iot.mqtt.playground.publisher.AsyncMqttPublisher;
+import it.unimore.dipi.iot.mqtt.playground.publisher.OverflowPolicy;
+import it.unimore.dipi.iot.mqtt.playground.topic.TopicTemplate;
+import org.eclipse.paho.client.mqttv3.IMqttClient;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+
+/**
+ * Aggregation stage consuming the device telemetry and publishing per-device rollups back to MQTT.
+ *
+ * Readings received on device/+/sensor/# are aggregated by a WindowedAggregator per series (device and sensor)
+ * over tumbling windows of TUMBLING_WINDOW_MS and sliding windows of SLIDING_WINDOW_MS. When a window is closed
+ * its rollup (count, min, max, avg and last value) is published on the derived topic
+ * device/&lt;id&gt;/sensor/&lt;type&gt;/agg, so that downstream services can subscribe to one message per window
+ * instead of every raw reading. Rollup topics match the input filter and are ignored by the stage.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:11
+ */
+public class DeviceAggregator {
+
+    private final static Logger logger = LoggerFactory.getLogger(DeviceAggregator.class);
+
+    //BROKER URL
+    private static String BROKER_URL = "tcp://127.0.0.1:1883";
+
+    //Topic of the device telemetry, e.g. device/00001/sensor/temperature, device/00002/sensor/temperature/bin
+    private static final TopicTemplate SENSOR_TOPIC = TopicTemplate.compile("device/{deviceId}/sensor/#");
+
+    //Size of the tumbling windows (and slide of the sliding windows)
+    private static final long TUMBLING_WINDOW_MS = 10000;
+
+    //Size of the sliding windows, multiple of TUMBLING_WINDOW_MS
+    private static final long SLIDING_WINDOW_MS = 60000;
+
+    //Maximum delay of a reading (event time) with respect to the wall clock: older readings are discarded as late
+    private static final long ALLOWED_LATENESS_MS = 5000;
+
+    //Maximum number of aggregated series (device and sensor)
+    private static final int MAX_SERIES = 20000;
+
+    //Interval between two checks of the windows to be closed
+    private static final long ADVANCE_INTERVAL_MS = 1000;
+
+    //Number of single-threaded lanes parsing and aggregating the readings, the readings of a device are handled by the same lane
+    private static final int DISPATCH_SHARD_COUNT = Runtime.getRuntime().availableProcessors();
+
+    //Capacity of the ring buffer between the Paho callback thread and the worker of each lane
+    private static final int DISPATCH_SHARD_CAPACITY = 2048;
+
+    //Behaviour when the workers do not keep up with the incoming messages
+    private static final BackpressurePolicy DISPATCH_POLICY = BackpressurePolicy.BLOCK;
+
+    //Maximum number of rollups in flight on the asynchronous client
+    private static final int MAX_INFLIGHT = 1000;
+
+    //Maximum number of rollups waiting to be sent (further rollups are dropped)
+    private static final int MAX_PENDING = 100000;
+
+    //Binary codec backed by the default sensor type registry, updated with the retained registry message
+    private static final BinaryMessageCodec binaryCodec = new BinaryMessageCodec();
+
+    //Byte-level parser of each dispatcher worker thread, resolving sensor types against the same registry of the binary codec
+    private static final ThreadLocal<MessageJsonParser> threadJsonParser = ThreadLocal.withInitial(() -> new MessageJsonParser(binaryCodec.getRegistry()));
+
+    //Reusable reading of each dispatcher worker thread
+    private static final ThreadLocal<SensorReading> threadReading = ThreadLocal.withInitial(SensorReading::new);
+
+    //Flyweight decoder of the batches of readings of each dispatcher worker thread
+    private static final ThreadLocal<ReadingBatchDecoder> threadBatchDecoder = ThreadLocal.withInitial(() -> new ReadingBatchDecoder(binaryCodec.getRegistry()));
+
+    //Decompressor of the payloads deflated by the producers with the shared preset dictionary
+    private static final PayloadCompressor payloadCompressor = new PayloadCompressor();
+
+    private static final byte[] EMPTY_PAYLOAD = new byte[0];
+
+    public static void main(String[] args) {
+
+        logger.info("DeviceAggregator started ...");
+
+        try{
+
+            //Publisher of the rollups
+            AsyncMqttPublisher publisher = new AsyncMqttPublisher(
+                    new MqttAsyncClient(BROKER_URL, UUID.randomUUID().toString(), new MemoryPersistence()),
+                    MAX_INFLIGHT, MAX_PENDING, OverflowPolicy.DROP);
+
+            publisher.setMetrics(ProducerMetrics.register("DeviceAggregator"));
+
+            //Subscriber of the raw telemetry
+            String clientId = UUID.randomUUID().toString();
+            IMqttClient subscriber = new MqttClient(BROKER_URL, clientId, new MemoryPersistence());
+
+            MqttConnectOptions options = new MqttConnectOptions();
+            options.setAutomaticReconnect(true);
+            options.setCleanSession(true);
+            options.setConnectionTimeout(10);
+
+            publisher.connect(options);
+            subscriber.connect(options);
+
+            logger.info("Connected ! Client Id: {}", clientId);
+
+            //Rollups are published by the thread closing the windows
+            WindowedAggregator aggregator = new WindowedAggregator("DeviceAggregator",
+                    TUMBLING_WINDOW_MS,
+                    SLIDING_WINDOW_MS,
+                    ALLOWED_LATENESS_MS,
+                    MAX_SERIES,
+                    rollup -> {
+                        if(publisher.isConnected()){
+                            MqttMessage msg = new MqttMessage(AggregateJsonEncoder.encode(rollup).toByteArray());
+                            msg.setQos(0);
+                            msg.setRetained(false);
+                            publisher.publish(rollup.getAggregateTopic(), msg, null);
+                        }
+                        else
+                            publisher.recordDrop(DropReason.NOT_CONNECTED);
+                    });
+
+            aggregator.start(ADVANCE_INTERVAL_MS);
+
+            ConsumerMetrics metrics = ConsumerMetrics.register("DeviceAggregator");
+
+            //Compression ratio of the received payloads and CPU cost of their decompression
+            payloadCompressor.setMetrics(CompressionMetrics.register("DeviceAggregator"));
+            MetricsRegistry.startSummaryReport();
+
+            //Subscribe to the sensor type registry used to decode binary telemetry
+            subscriber.subscribe(SensorTypeRegistry.REGISTRY_TOPIC, (topic, msg) -> {
+                try{
+                    binaryCodec.getRegistry().merge(msg.getPayload());
+                    logger.info("Sensor Type Registry Updated ({}) -> Types: {}", topic, binaryCodec.getRegistry().size());
+                }catch (IllegalArgumentException e){
+                    logger.error("Invalid Sensor Type Registry ({}) Error: {}", topic, e.getLocalizedMessage());
+                }
+            });
+
+            //Readings are parsed and aggregated by the lane of their device
+            ShardedMessageDispatcher dispatcher = new ShardedMessageDispatcher("DeviceAggregator", (topic, msg) -> {
+
+                long handlerStart = System.nanoTime();
+                SensorReading reading = threadReading.get();
+                byte[] payload = decompressPayload(msg.getPayload());
+
+                ReadingBatchDecoder batch = parseBatch(payload);
+
+                //Batched readings are aggregated reading the fields in place
+                if(batch != null) {
+                    for(int i = 0; i < batch.size(); i++)
+                        aggregator.add(topic, batch.getType(i), batch.getTimestamp(i), batch.getValue(i));
+                }
+                else if(parseMessage(topic, payload, reading))
+                    aggregator.add(topic, reading.getType(), reading.getTimestamp(), reading.getValue());
+                else
+                    metrics.recordParseFailure();
+
+                metrics.recordMessage(msg.getPayload().length, System.nanoTime() - handlerStart);
+
+            }, ShardKey.topicSegment(SENSOR_TOPIC.levelOf("deviceId")), DISPATCH_SHARD_COUNT, DISPATCH_SHARD_CAPACITY, DISPATCH_POLICY);
+
+            dispatcher.start();
+
+            //The rollups published by the stage match the same filter and are not aggregated again
+            subscriber.subscribe(SENSOR_TOPIC.toFilter(), (topic, msg) -> {
+                if(!WindowedAggregator.isAggregateTopic(topic))
+                    dispatcher.messageArrived(topic, msg);
+            });
+
+        }catch (Exception e){
+            e.printStackTrace();
+        }
+
+    }
+
+    /**
+     * Inflate the received payload if it has been compressed by the producer
+     *
+     * @param payload
+     * @return the original payload, or an empty one if the compressed frame is malformed
+     */
+    public static byte[] decompressPayload(byte[] payload) {
+        try {
+            return payloadCompressor.decompress(payload);
+        }catch(IllegalArgumentException e) {
+            return EMPTY_PAYLOAD;
+        }
+    }
+
+    /**
+     * Wrap the received MQTT message into the decoder of the current thread if it is a batch of readings
+     *
+     * @param payload
+     * @return the decoder or null if the message is not a valid batch
+     */
+    public static ReadingBatchDecoder parseBatch(byte[] payload) {
+        ReadingBatchDecoder decoder = threadBatchDecoder.get();
+        try {
+            return decoder.wrap(payload) ? decoder : null;
+        }catch(IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parse a JSON or binary MQTT message into the passed SensorReading.
+     * The format is detected from the header byte or, if not recognized, from the topic suffix.
+     *
+     * @param topic
+     * @param payload
+     * @param reading
+     * @return true if the message has been parsed, false in case of error.
+     */
+    public static boolean parseMessage(String topic, byte[] payload, SensorReading reading) {
+
+        if(PayloadFormat.of(topic, payload) == PayloadFormat.BINARY){
+            try {
+                binaryCodec.decode(payload, 0, payload.length, reading);
+                return true;
+            }catch(IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        return threadJsonParser.get().parse(payload, reading);
+    }
+
+}
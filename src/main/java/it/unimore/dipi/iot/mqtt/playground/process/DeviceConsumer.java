@@ -1,7 +1,24 @@
 package it.unimore.dipi.iot.mqtt.playground.process;
 
+import it.unimore.dipi.iot.mqtt.playground.aggregate.WindowedAggregator;
+import it.unimore.dipi.iot.mqtt.playground.cache.DeviceMetadataCache;
+import it.unimore.dipi.iot.mqtt.playground.cache.MissingMetadataPolicy;
+import it.unimore.dipi.iot.mqtt.playground.codec.BinaryMessageCodec;
+import it.unimore.dipi.iot.mqtt.playground.codec.MessageJsonParser;
+import it.unimore.dipi.iot.mqtt.playground.codec.PayloadFormat;
+import it.unimore.dipi.iot.mqtt.playground.codec.PayloadCompressor;
+import it.unimore.dipi.iot.mqtt.playground.codec.ReadingBatchDecoder;
+import it.unimore.dipi.iot.mqtt.playground.codec.SensorReading;
+import it.unimore.dipi.iot.mqtt.playground.codec.SensorTypeRegistry;
+import it.unimore.dipi.iot.mqtt.playground.dispatch.BackpressurePolicy;
+import it.unimore.dipi.iot.mqtt.playground.dispatch.ShardKey;
+import it.unimore.dipi.iot.mqtt.playground.dispatch.ShardedMessageDispatcher;
+import it.unimore.dipi.iot.mqtt.playground.metrics.CompressionMetrics;
+import it.unimore.dipi.iot.mqtt.playground.metrics.ConsumerMetrics;
 import it.unimore.dipi.iot.mqtt.playground.model.DeviceDescriptor;
 import it.unimore.dipi.iot.mqtt.playground.model.MessageDescriptor;
+import it.unimore.dipi.iot.mqtt.playground.topic.TopicMatch;
+import it.unimore.dipi.iot.mqtt.playground.topic.TopicTemplate;
 import org.eclipse.paho.client.mqttv3.IMqttClient;
 import org.eclipse.paho.client.mqttv3.MqttClient;
 import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
@@ -35,6 +52,50 @@ public class DeviceConsumer {
     
     private static Gson gson = new Gson();
 
+    //Topic of the device information, e.g. device/00001/info
+    private static final TopicTemplate DEVICE_INFO_TOPIC = TopicTemplate.compile("device/{deviceId}/info");
+
+    //Topic of the device telemetry, e.g. device/00001/sensor/temperature, device/00002/sensor/temperature/bin
+    private static final TopicTemplate SENSOR_TOPIC = TopicTemplate.compile("device/{deviceId}/sensor/#");
+
+    //Reusable matches of the device info topics (Paho callback thread) and of the telemetry topics (dispatcher worker threads)
+    private static final ThreadLocal<TopicMatch> threadInfoTopicMatch = ThreadLocal.withInitial(DEVICE_INFO_TOPIC::newMatch);
+
+    private static final ThreadLocal<TopicMatch> threadSensorTopicMatch = ThreadLocal.withInitial(SENSOR_TOPIC::newMatch);
+
+    //Binary codec backed by the default sensor type registry, updated with the retained registry message
+    private static final BinaryMessageCodec binaryCodec = new BinaryMessageCodec();
+
+    //Byte-level parser of each dispatcher worker thread, resolving sensor types against the same registry of the binary codec
+    private static final ThreadLocal<MessageJsonParser> threadJsonParser = ThreadLocal.withInitial(() -> new MessageJsonParser(binaryCodec.getRegistry()));
+
+    //Reusable reading of each dispatcher worker thread
+    private static final ThreadLocal<SensorReading> threadReading = ThreadLocal.withInitial(SensorReading::new);
+
+    //Flyweight decoder of the batches of readings of each dispatcher worker thread
+    private static final ThreadLocal<ReadingBatchDecoder> threadBatchDecoder = ThreadLocal.withInitial(() -> new ReadingBatchDecoder(binaryCodec.getRegistry()));
+
+    //Decompressor of the payloads deflated by the producers with the shared preset dictionary
+    private static final PayloadCompressor payloadCompressor = new PayloadCompressor();
+
+    private static final byte[] EMPTY_PAYLOAD = new byte[0];
+
+    //Number of single-threaded lanes parsing and handling the telemetry messages. The readings of a device
+    //are always handled by the same lane, preserving their order
+    private static final int DISPATCH_SHARD_COUNT = Runtime.getRuntime().availableProcessors();
+
+    //Capacity of the ring buffer between the Paho callback thread and the worker of each lane
+    private static final int DISPATCH_SHARD_CAPACITY = 2048;
+
+    //Behaviour when the workers do not keep up with the incoming messages
+    private static final BackpressurePolicy DISPATCH_POLICY = BackpressurePolicy.BLOCK;
+
+    //Maximum number of devices whose descriptor is cached to enrich the telemetry readings
+    private static final int DEVICE_CACHE_CAPACITY = 100000;
+
+    //Handling of the readings received before the descriptor of their device
+    private static final MissingMetadataPolicy MISSING_METADATA_POLICY = MissingMetadataPolicy.PASS_THROUGH;
+
     public static void main(String [ ] args) {
 
     	logger.info("MQTT DeviceConsumer Tester Started ...");
@@ -68,39 +129,103 @@ public class DeviceConsumer {
 
             logger.info("Connected ! Client Id: {}", clientId);
 
+            //Ingestion metrics exposed over JMX
+            ConsumerMetrics metrics = ConsumerMetrics.register("DeviceConsumer");
+
+            //Compression ratio of the received payloads and CPU cost of their decompression
+            payloadCompressor.setMetrics(CompressionMetrics.register("DeviceConsumer"));
+
+            //Device descriptors received on the info topics, exposed over JMX with their hit/miss counters
+            DeviceMetadataCache deviceCache = DeviceMetadataCache.register("DeviceConsumer", DEVICE_CACHE_CAPACITY, MISSING_METADATA_POLICY);
+
             //Subscribe to device information
             //E.g., device/00001/info, device/00002/info
-            subscriber.subscribe("device/+/info", (topic, msg) -> {
+            subscriber.subscribe(DEVICE_INFO_TOPIC.toFilter(), (topic, msg) -> {
 
+                long handlerStart = System.nanoTime();
             	byte[] payload = msg.getPayload();
 
-            	//Parse DeviceDescriptor with a dedicated internal method
-            	DeviceDescriptor deviceDescriptor = parseDeviceJsonMessage(payload);
+            	TopicMatch topicMatch = threadInfoTopicMatch.get();
+
+            	//An empty retained message clears the device information
+            	if(payload.length == 0) {
+            		if(DEVICE_INFO_TOPIC.match(topic, topicMatch) && deviceCache.remove(topicMatch.getString(0)))
+            			logger.info("Device Descriptor ({}) Removed !", topic);
+            		return;
+            	}
 
-                if(deviceDescriptor != null)
+            	//Parse DeviceDescriptor (inflated if compressed by the producer) with a dedicated internal method
+            	DeviceDescriptor deviceDescriptor = parseDeviceJsonMessage(decompressPayload(payload));
+
+                if(deviceDescriptor != null && DEVICE_INFO_TOPIC.match(topic, topicMatch)) {
                 	logger.info("Device Descriptor ({}) Data -> Id: {}, Producer: {}, Software Version: {}", 
                 			topic, 
                 			deviceDescriptor.getDeviceId(), 
                 			deviceDescriptor.getProducer(), 
                 			deviceDescriptor.getSoftwareVersion());
-                else
+
+                	//The device id of the topic is compared in place with the one of the descriptor
+                	if(deviceDescriptor.getDeviceId() == null || !topicMatch.contentEquals(0, deviceDescriptor.getDeviceId()))
+                		logger.warn("Device Descriptor ({}) Id {} does not match the topic device id {} !", topic, deviceDescriptor.getDeviceId(), topicMatch.get(0));
+
+                	//Telemetry readings are enriched looking up the device id of their topic
+                	deviceCache.put(topicMatch.getString(0), deviceDescriptor);
+                }
+                else {
+                	metrics.recordParseFailure();
                 	logger.info("Message Received ({}) Message Received: {}", topic, new String(payload));
+                }
+
+                metrics.recordMessage(payload.length, System.nanoTime() - handlerStart);
             });
             
-            //Subscribe to device incoming telemetry data
-            //E.g., device/00001/sensor, device/00002/sensor
-            subscriber.subscribe("device/+/sensor/#", (topic, msg) -> {
+            //Subscribe to the sensor type registry used to decode binary telemetry
+            subscriber.subscribe(SensorTypeRegistry.REGISTRY_TOPIC, (topic, msg) -> {
+                try{
+                    binaryCodec.getRegistry().merge(msg.getPayload());
+                    logger.info("Sensor Type Registry Updated ({}) -> Types: {}", topic, binaryCodec.getRegistry().size());
+                }catch (IllegalArgumentException e){
+                    logger.error("Invalid Sensor Type Registry ({}) Error: {}", topic, e.getLocalizedMessage());
+                }
+            });
 
-            	byte[] payload = msg.getPayload();
+            //Telemetry messages are handed by the Paho callback thread to the lane of their device
+            ShardedMessageDispatcher dispatcher = new ShardedMessageDispatcher("DeviceConsumer", (topic, msg) -> {
 
-            	//Parse DeviceDescriptor with a dedicated internal method
-                MessageDescriptor msgDescriptor = parseJsonMessage(payload);
+                //Rollups published by DeviceAggregator on <series topic>/agg match the subscription but are not readings
+                if(WindowedAggregator.isAggregateTopic(topic))
+                    return;
 
-                if(msgDescriptor != null)
-                	logger.info("MessageDescriptor Received ({}) Data -> Timestamp: {}, Type: {}, Value: {}", topic, msgDescriptor.getTimestamp(), msgDescriptor.getType(), msgDescriptor.getValue());
-                else
-                	logger.info("Message Received ({}) Message Received: {}", topic, new String(payload));
-            });
+                long handlerStart = System.nanoTime();
+                SensorReading reading = threadReading.get();
+                TopicMatch topicMatch = threadSensorTopicMatch.get();
+            	byte[] payload = decompressPayload(msg.getPayload());
+
+            	//Capture the device id from the topic without splitting it and parse the message according to the
+            	//payload format (batch, JSON or binary) into the reusable reading
+            	ReadingBatchDecoder batch = SENSOR_TOPIC.match(topic, topicMatch) ? parseBatch(payload) : null;
+
+                if(batch != null) {
+                	//Readings are read in place from the batch payload into the same reusable reading
+                	for(SensorReading batchReading : batch)
+                		handleReading(topic, topicMatch.get(0), batchReading, deviceCache);
+                }
+                else if(topicMatch.isMatched() && parseMessage(topic, payload, reading))
+                	handleReading(topic, topicMatch.get(0), reading, deviceCache);
+                else {
+                	metrics.recordParseFailure();
+                	logger.info("Message Received ({}) Message Received: {}", topic, new String(msg.getPayload()));
+                }
+
+                metrics.recordMessage(msg.getPayload().length, System.nanoTime() - handlerStart);
+
+            }, ShardKey.topicSegment(SENSOR_TOPIC.levelOf("deviceId")), DISPATCH_SHARD_COUNT, DISPATCH_SHARD_CAPACITY, DISPATCH_POLICY);
+
+            dispatcher.start();
+
+            //Subscribe to device incoming telemetry data
+            //E.g., device/00001/sensor, device/00002/sensor, device/00002/sensor/temperature/bin
+            subscriber.subscribe(SENSOR_TOPIC.toFilter(), dispatcher);
 
         }catch (Exception e){
             e.printStackTrace();
@@ -108,6 +233,60 @@ public class DeviceConsumer {
 
     }
 
+    /**
+     * Enrich a telemetry reading with the cached descriptor of its device, applying the MissingMetadataPolicy
+     * of the cache to the readings of unknown devices
+     *
+     * @param topic
+     * @param deviceId device id captured from the topic
+     * @param reading
+     * @param deviceCache
+     */
+    private static void handleReading(String topic, CharSequence deviceId, SensorReading reading, DeviceMetadataCache deviceCache) {
+
+        DeviceDescriptor deviceDescriptor = deviceCache.get(deviceId);
+
+        if(deviceDescriptor != null)
+            logger.info("MessageDescriptor Received ({}) Data -> Device: {}, Producer: {}, Software Version: {}, Timestamp: {}, Type: {}, Value: {}",
+                    topic, deviceId, deviceDescriptor.getProducer(), deviceDescriptor.getSoftwareVersion(), reading.getTimestamp(), reading.getType(), reading.getValue());
+        else if(deviceCache.getPolicy() == MissingMetadataPolicy.PASS_THROUGH)
+            logger.info("MessageDescriptor Received ({}) Data -> Device: {}, Producer: {}, Software Version: {}, Timestamp: {}, Type: {}, Value: {}",
+                    topic, deviceId, DeviceMetadataCache.UNKNOWN, DeviceMetadataCache.UNKNOWN, reading.getTimestamp(), reading.getType(), reading.getValue());
+        else {
+            deviceCache.recordMissingMetadataDrop();
+            logger.debug("MessageDescriptor Discarded ({}) -> Missing Device Descriptor", topic);
+        }
+    }
+
+    /**
+     * Inflate the received payload if it has been compressed by the producer
+     *
+     * @param payload
+     * @return the original payload, or an empty one if the compressed frame is malformed
+     */
+    public static byte[] decompressPayload(byte[] payload) {
+        try {
+            return payloadCompressor.decompress(payload);
+        }catch(IllegalArgumentException e) {
+            return EMPTY_PAYLOAD;
+        }
+    }
+
+    /**
+     * Wrap the received MQTT message into the decoder of the current thread if it is a batch of readings
+     *
+     * @param payload
+     * @return the decoder or null if the message is not a valid batch
+     */
+    public static ReadingBatchDecoder parseBatch(byte[] payload) {
+        ReadingBatchDecoder decoder = threadBatchDecoder.get();
+        try {
+            return decoder.wrap(payload) ? decoder : null;
+        }catch(IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     /**
      * Parse the received MQTT message into a DeviceDescriptor object or null in case of error
      *
@@ -123,6 +302,59 @@ public class DeviceConsumer {
     	}
     }
 
+    /**
+     * Parse a JSON or binary MQTT message into a MessageDescriptor object or null in case of error.
+     * The format is detected from the header byte or, if not recognized, from the topic suffix.
+     *
+     * @param topic
+     * @param payload
+     * @return the parsed MessageDescriptor object or null in case or error.
+     */
+    public static MessageDescriptor parseMessage(String topic, byte[] payload) {
+
+        if(PayloadFormat.of(topic, payload) == PayloadFormat.BINARY)
+            return parseBinaryMessage(payload);
+
+        return parseJsonMessage(payload);
+    }
+
+    /**
+     * Parse a JSON or binary MQTT message into the passed SensorReading without creating intermediate objects.
+     * The format is detected from the header byte or, if not recognized, from the topic suffix.
+     *
+     * @param topic
+     * @param payload
+     * @param reading
+     * @return true if the message has been parsed, false in case of error.
+     */
+    public static boolean parseMessage(String topic, byte[] payload, SensorReading reading) {
+
+        if(PayloadFormat.of(topic, payload) == PayloadFormat.BINARY){
+            try {
+                binaryCodec.decode(payload, 0, payload.length, reading);
+                return true;
+            }catch(IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        return threadJsonParser.get().parse(payload, reading);
+    }
+
+    /**
+     * Parse a binary MQTT message into a MessageDescriptor object or null in case of error
+     *
+     * @param payload
+     * @return the parsed MessageDescriptor object or null in case or error.
+     */
+    public static MessageDescriptor parseBinaryMessage(byte[] payload) {
+        try {
+            return binaryCodec.decode(payload);
+        }catch(Exception e) {
+            return null;
+        }
+    }
+
     /**
      * Parse the received MQTT message into a MessageDescriptor object or null in case of error
      *
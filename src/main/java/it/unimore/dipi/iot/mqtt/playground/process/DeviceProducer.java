@@ -1,14 +1,28 @@
 package it.unimore.dipi.iot.mqtt.playground.process;
 
 import com.google.gson.Gson;
+import it.unimore.dipi.iot.mqtt.playground.codec.BinaryMessageCodec;
+import it.unimore.dipi.iot.mqtt.playground.codec.MessageJsonEncoder;
+import it.unimore.dipi.iot.mqtt.playground.codec.PayloadCompressor;
+import it.unimore.dipi.iot.mqtt.playground.codec.PayloadFormat;
+import it.unimore.dipi.iot.mqtt.playground.codec.SensorTypeRegistry;
+import it.unimore.dipi.iot.mqtt.playground.metrics.CompressionMetrics;
+import it.unimore.dipi.iot.mqtt.playground.metrics.DropReason;
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsRegistry;
+import it.unimore.dipi.iot.mqtt.playground.metrics.ProducerMetrics;
 import it.unimore.dipi.iot.mqtt.playground.model.DeviceDescriptor;
 import it.unimore.dipi.iot.mqtt.playground.model.MessageDescriptor;
 import it.unimore.dipi.iot.mqtt.playground.model.EngineTemperatureSensor;
-import org.eclipse.paho.client.mqttv3.IMqttClient;
-import org.eclipse.paho.client.mqttv3.MqttClient;
+import it.unimore.dipi.iot.mqtt.playground.publisher.AsyncMqttPublisher;
+import it.unimore.dipi.iot.mqtt.playground.publisher.BatchingPublisher;
+import it.unimore.dipi.iot.mqtt.playground.report.ReportByExceptionFilter;
+import it.unimore.dipi.iot.mqtt.playground.report.ReportSink;
+import it.unimore.dipi.iot.mqtt.playground.report.ReportingPolicy;
+import it.unimore.dipi.iot.mqtt.playground.topic.TopicTemplate;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
 import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
-import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import org.slf4j.Logger;
@@ -37,13 +51,50 @@ public class DeviceProducer {
     private static final int MESSAGE_COUNT = 1000;
 
     //Topic used to publish device information
-    private static final String DEVICE_TOPIC = "device";
-
-    //Info Sub-Topic used to publish device information
-    private static final String DEVICE_INFO_TOPIC = "info";
+    private static final TopicTemplate DEVICE_INFO_TOPIC = TopicTemplate.compile("device/{deviceId}/info");
 
     //Topic used to publish generated demo data
-    private static final String SENSOR_TOPIC = "sensor/temperature";
+    private static final TopicTemplate SENSOR_TOPIC = TopicTemplate.compile("device/{deviceId}/sensor/{type}");
+
+    //Sensor type level of the published data topic
+    private static final String SENSOR_TYPE = "temperature";
+
+    //If true the JSON payload is written by the streaming MessageJsonEncoder directly into a reusable
+    //byte buffer, otherwise the MessageDescriptor is serialized through Gson
+    private static final boolean USE_STREAMING_ENCODER = true;
+
+    //Wire format of the telemetry messages. BINARY messages are published on device/<id>/sensor/temperature/bin
+    //together with the retained sensor type registry needed to decode them
+    private static final PayloadFormat PAYLOAD_FORMAT = PayloadFormat.JSON;
+
+    //If true the readings are coalesced into binary batches published on device/<id>/sensor/temperature/bin
+    //(see BatchingPublisher) instead of sending one message for each reading in the configured PAYLOAD_FORMAT
+    private static final boolean BATCHING_ENABLED = false;
+
+    //Maximum number of readings of a batch
+    private static final int MAX_BATCH_SIZE = 100;
+
+    //Maximum time a reading waits for its batch to be published
+    private static final long MAX_BATCH_LINGER_MS = 5000;
+
+    //If true the batches are bit-packed time series blocks (delta-of-delta timestamps and XOR encoded values,
+    //see GorillaBlockEncoder) instead of fixed size records
+    private static final boolean GORILLA_BLOCKS_ENABLED = false;
+
+    //If true the payloads are deflated with the preset dictionary shared with the consumers (see PayloadCompressor).
+    //Payloads below PayloadCompressor.DEFAULT_MIN_PAYLOAD_SIZE bytes are sent as they are
+    private static final boolean COMPRESSION_ENABLED = false;
+
+    //Compressor shared by the messages of the producer
+    private static final PayloadCompressor payloadCompressor = new PayloadCompressor();
+
+    //Readings published by the producer: ReportingPolicy.always() publishes every reading, while e.g.
+    //ReportingPolicy.absoluteDeadband(0.5, 60000) publishes a reading only when it moves by more than 0.5 degrees
+    //from the last published one or after 60 seconds of silence (see ReportByExceptionFilter)
+    private static final ReportingPolicy REPORTING_POLICY = ReportingPolicy.always();
+
+    //Binary codec backed by the default sensor type registry
+    private static final BinaryMessageCodec binaryCodec = new BinaryMessageCodec();
 
     //Internal GSON instance to generate and parse JSON messages
     private static Gson gson = new Gson();
@@ -64,7 +115,17 @@ public class DeviceProducer {
 
             //The the persistence is not passed to the constructor the default file persistence is used.
             //In case of a file-based storage the same MQTT client UUID should be used
-            IMqttClient client = new MqttClient(BROKER_URL,clientId, persistence);
+            IMqttAsyncClient client = new MqttAsyncClient(BROKER_URL,clientId, persistence);
+
+            AsyncMqttPublisher publisher = new AsyncMqttPublisher(client);
+
+            //Publisher metrics exposed over JMX and periodically logged as a summary line
+            publisher.setMetrics(ProducerMetrics.register("DeviceProducer"));
+            MetricsRegistry.startSummaryReport();
+
+            //Compression ratio and CPU cost per message exposed over JMX and logged with the summary
+            if(COMPRESSION_ENABLED)
+                payloadCompressor.setMetrics(CompressionMetrics.register("DeviceProducer"));
 
             //Define MQTT Connection Options such as reconnection, persistent/clean session and connection timeout
             //Authentication option can be added -> See AuthProducer example
@@ -74,7 +135,7 @@ public class DeviceProducer {
             options.setConnectionTimeout(10);
 
             //Connect to the target broker
-            client.connect(options);
+            publisher.connect(options);
 
             logger.info("Connected ! Client Id: {}", clientId);
             
@@ -85,36 +146,68 @@ public class DeviceProducer {
                     "0.1-beta");
 
             //Internal method to publish the device information as retained messages
-            publishDeviceInfo(client, deviceDescriptor);
+            publishDeviceInfo(publisher, deviceDescriptor);
+
+            //Binary consumers need the registry of the sensor type codes
+            if(PAYLOAD_FORMAT == PayloadFormat.BINARY || BATCHING_ENABLED)
+                publishSensorTypeRegistry(publisher, binaryCodec.getRegistry());
+
+            //Batches are binary payloads published on the topic with the binary suffix
+            BatchingPublisher batchingPublisher = BATCHING_ENABLED ?
+                    new BatchingPublisher(publisher, binaryCodec, MAX_BATCH_SIZE, MAX_BATCH_LINGER_MS, 0) : null;
+
+            if(batchingPublisher != null && COMPRESSION_ENABLED)
+                batchingPublisher.setCompressor(payloadCompressor);
+
+            if(batchingPublisher != null)
+                batchingPublisher.setGorillaBlocks(GORILLA_BLOCKS_ENABLED);
 
             //Create an instance of an Engine Temperature Sensor
             EngineTemperatureSensor engineTemperatureSensor = new EngineTemperatureSensor();
 
-            //Start to publish MESSAGE_COUNT messages
+            //The topic is combined with a hierarchical structure and computed once for the device
+            //Reference Topic Structure: device/<id>/sensor/temperature[/bin]
+            String sensorTopic = (BATCHING_ENABLED ? PayloadFormat.BINARY : PAYLOAD_FORMAT).topic(SENSOR_TOPIC.expand(deviceDescriptor.getDeviceId(), SENSOR_TYPE));
+
+            //Readings not needed by the consumers to reconstruct the signal within the tolerance of the REPORTING_POLICY
+            //are suppressed (one series for each device id). The suppression ratio is exposed over JMX and logged with the summary
+            ReportByExceptionFilter reportFilter = ReportByExceptionFilter.register("DeviceProducer", REPORTING_POLICY);
+
+            //The published readings are either coalesced into the batch of the topic or sent as a single message
+            ReportSink reportSink = (deviceId, timestamp, value) -> {
+
+            	if(batchingPublisher != null)
+            		batchingPublisher.add(sensorTopic, timestamp, SensorTypeRegistry.ENGINE_TEMPERATURE_SENSOR, value);
+            	else {
+            		byte[] payload = buildPayload(timestamp, value);
+
+            		//Internal Method to publish MQTT data using the created MQTT Client
+            		if(payload != null)
+            			publishData(publisher, sensorTopic, compressPayload(payload));
+            		else
+            			logger.error("Skipping message send due to NULL Payload !");
+            	}
+            };
+
+            //Start to read MESSAGE_COUNT values
             for(int i = 0; i < MESSAGE_COUNT; i++) {
 
-                //Get updated temperature value and build the associated Json Message
-                //through the internal method buildJsonMessage
+                //Get updated temperature value and hand it to the reporting policy
             	double sensorValue = engineTemperatureSensor.getTemperatureValue();
-            	String payloadString = buildJsonMessage(sensorValue);
-
-                //Internal Method to publish MQTT data using the created MQTT Client
-            	if(payloadString != null)
-            	    //The topic is combined with a hierarchical structure
-                    //Reference Topic Structure: device/<id>/sensor/temperature
-            		publishData(client, String.format("%s/%s/%s",
-                            DEVICE_TOPIC,
-                            deviceDescriptor.getDeviceId(),
-                            SENSOR_TOPIC), payloadString);
-            	else
-            		logger.error("Skipping message send due to NULL Payload !");
+            	reportFilter.offer(deviceDescriptor.getDeviceId(), System.currentTimeMillis(), sensorValue, reportSink);
             	
             	Thread.sleep(1000);
             }
 
+            //Publish the readings held by the reporting policy
+            reportFilter.flush(reportSink);
+
+            //Publish the open batches before disconnecting
+            if(batchingPublisher != null)
+                batchingPublisher.close();
+
             //Disconnect from the broker and close connection
-            client.disconnect();
-            client.close();
+            publisher.disconnect();
 
             logger.info("Disconnected !");
 
@@ -127,30 +220,32 @@ public class DeviceProducer {
     /**
      * Publish Device information as a retained message
      *
-     * @param mqttClient
+     * @param publisher
      * @param deviceDescriptor
      */
-    public static void publishDeviceInfo(IMqttClient mqttClient, DeviceDescriptor deviceDescriptor) {
+    public static void publishDeviceInfo(AsyncMqttPublisher publisher, DeviceDescriptor deviceDescriptor) {
     	
     	try {
     		
-            if (mqttClient.isConnected() ) {
+            if (publisher.isConnected() ) {
 
                 //Topic Structure: device/<id>/info
-            	String topic = String.format("%s/%s/%s",
-                        DEVICE_TOPIC,
-                        deviceDescriptor.getDeviceId(),
-                        DEVICE_INFO_TOPIC);
+            	String topic = DEVICE_INFO_TOPIC.expand(deviceDescriptor.getDeviceId());
+
+                byte[] payload = compressPayload(USE_STREAMING_ENCODER ?
+                        MessageJsonEncoder.encode(deviceDescriptor).toByteArray() :
+                        gson.toJson(deviceDescriptor).getBytes());
 
-                MqttMessage msg = new MqttMessage(gson.toJson(deviceDescriptor).getBytes());
+                MqttMessage msg = new MqttMessage(payload);
                 msg.setQos(0);
                 msg.setRetained(true);
-                mqttClient.publish(topic,msg);
+                publisher.publish(topic, msg, null);
                 
-                logger.debug("Device Data Correctly Published !");
+                logger.debug("Device Data Correctly Enqueued for Publishing !");
             }
             else{
-                logger.error("Error: Topic or Msg = Null or MQTT Client is not Connected !");
+                publisher.recordDrop(DropReason.NOT_CONNECTED);
+                logger.error("Error: MQTT Client is not Connected !");
             }
     		
     	}catch(Exception e) {
@@ -159,6 +254,27 @@ public class DeviceProducer {
     	
     }
 
+    /**
+     * Publish the sensor type registry as a retained message
+     *
+     * @param publisher
+     * @param registry
+     */
+    public static void publishSensorTypeRegistry(AsyncMqttPublisher publisher, SensorTypeRegistry registry) {
+
+        if (publisher.isConnected()) {
+            MqttMessage msg = new MqttMessage(registry.toJsonPayload());
+            msg.setQos(0);
+            msg.setRetained(true);
+            publisher.publish(SensorTypeRegistry.REGISTRY_TOPIC, msg, null);
+            logger.debug("Sensor Type Registry Correctly Enqueued for Publishing !");
+        }
+        else{
+            publisher.recordDrop(DropReason.NOT_CONNECTED);
+            logger.error("Error: MQTT Client is not Connected !");
+        }
+    }
+
     /**
      * Create structure JSON message starting from the passed sensorValue
      * and using the MessageDescriptor class
@@ -167,10 +283,22 @@ public class DeviceProducer {
      * @return
      */
     public static String buildJsonMessage(double sensorValue) {
+        return buildJsonMessage(System.currentTimeMillis(), sensorValue);
+    }
+
+    /**
+     * Create structure JSON message starting from the passed timestamp and sensorValue
+     * and using the MessageDescriptor class
+     *
+     * @param timestamp
+     * @param sensorValue
+     * @return
+     */
+    public static String buildJsonMessage(long timestamp, double sensorValue) {
     	
     	try {
     		    	
-        	MessageDescriptor messageDescriptor = new MessageDescriptor(System.currentTimeMillis(), "ENGINE_TEMPERATURE_SENSOR", sensorValue);
+        	MessageDescriptor messageDescriptor = new MessageDescriptor(timestamp, "ENGINE_TEMPERATURE_SENSOR", sensorValue);
         	
         	String jsonStringPayload = gson.toJson(messageDescriptor);
         	
@@ -183,26 +311,89 @@ public class DeviceProducer {
     }
 
     /**
-     * Send a target String Payload to the specified MQTT topic
+     * Build the payload of the message associated to the passed sensorValue either with the
+     * streaming MessageJsonEncoder or through buildJsonMessage according to USE_STREAMING_ENCODER
+     *
+     * @param sensorValue
+     * @return the payload bytes or null in case of error
+     */
+    public static byte[] buildJsonPayload(double sensorValue) {
+        return buildJsonPayload(System.currentTimeMillis(), sensorValue);
+    }
+
+    /**
+     * Build the payload of the message associated to the passed timestamp and sensorValue either with the
+     * streaming MessageJsonEncoder or through buildJsonMessage according to USE_STREAMING_ENCODER
+     *
+     * @param timestamp
+     * @param sensorValue
+     * @return the payload bytes or null in case of error
+     */
+    public static byte[] buildJsonPayload(long timestamp, double sensorValue) {
+
+        if(USE_STREAMING_ENCODER)
+            return MessageJsonEncoder.encodeMessage(timestamp, "ENGINE_TEMPERATURE_SENSOR", sensorValue).toByteArray();
+
+        String payloadString = buildJsonMessage(timestamp, sensorValue);
+        return payloadString != null ? payloadString.getBytes() : null;
+    }
+
+    /**
+     * Build the payload of the message associated to the passed sensorValue in the configured PAYLOAD_FORMAT
+     *
+     * @param sensorValue
+     * @return the payload bytes or null in case of error
+     */
+    public static byte[] buildPayload(double sensorValue) {
+        return buildPayload(System.currentTimeMillis(), sensorValue);
+    }
+
+    /**
+     * Build the payload of the message associated to the passed timestamp and sensorValue in the configured PAYLOAD_FORMAT
+     *
+     * @param timestamp
+     * @param sensorValue
+     * @return the payload bytes or null in case of error
+     */
+    public static byte[] buildPayload(long timestamp, double sensorValue) {
+
+        if(PAYLOAD_FORMAT == PayloadFormat.BINARY)
+            return binaryCodec.encode(timestamp, SensorTypeRegistry.ENGINE_TEMPERATURE_SENSOR, sensorValue);
+
+        return buildJsonPayload(timestamp, sensorValue);
+    }
+
+    /**
+     * Compress the payload with the preset dictionary shared with the consumers if COMPRESSION_ENABLED
+     *
+     * @param payload
+     * @return the compressed frame or the same payload
+     */
+    public static byte[] compressPayload(byte[] payload) {
+        return COMPRESSION_ENABLED ? payloadCompressor.compress(payload) : payload;
+    }
+
+    /**
+     * Send a target Payload to the specified MQTT topic
      *
-     * @param mqttClient
+     * @param publisher
      * @param topic
-     * @param msgString
-     * @throws MqttException
+     * @param payload
      */
-    public static void publishData(IMqttClient mqttClient, String topic, String msgString) throws MqttException {
+    public static void publishData(AsyncMqttPublisher publisher, String topic, byte[] payload) {
 
-        logger.debug("Publishing to Topic: {} Data: {}", topic, msgString);
+        logger.debug("Publishing to Topic: {} Data: {} bytes", topic, payload != null ? payload.length : 0);
 
-        if (mqttClient.isConnected() && msgString != null && topic != null) {
+        if (publisher.isConnected() && payload != null && topic != null) {
         	
-            MqttMessage msg = new MqttMessage(msgString.getBytes());
+            MqttMessage msg = new MqttMessage(payload);
             msg.setQos(0);
             msg.setRetained(false);
-            mqttClient.publish(topic,msg);
-            logger.debug("Data Correctly Published !");
+            publisher.publish(topic, msg, null);
+            logger.debug("Data Correctly Enqueued for Publishing !");
         }
         else{
+            publisher.recordDrop(publisher.isConnected() ? DropReason.INVALID_MESSAGE : DropReason.NOT_CONNECTED);
             logger.error("Error: Topic or Msg = Null or MQTT Client is not Connected !");
         }
 
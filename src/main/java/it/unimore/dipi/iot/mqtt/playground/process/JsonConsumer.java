@@ -1,5 +1,14 @@
 package it.unimore.dipi.iot.mqtt.playground.process;
 
+import it.unimore.dipi.iot.mqtt.playground.aggregate.WindowedAggregator;
+import it.unimore.dipi.iot.mqtt.playground.codec.MessageJsonParser;
+import it.unimore.dipi.iot.mqtt.playground.codec.PayloadCompressor;
+import it.unimore.dipi.iot.mqtt.playground.codec.ReadingBatchDecoder;
+import it.unimore.dipi.iot.mqtt.playground.codec.SensorReading;
+import it.unimore.dipi.iot.mqtt.playground.dispatch.BackpressurePolicy;
+import it.unimore.dipi.iot.mqtt.playground.dispatch.MessageDispatcher;
+import it.unimore.dipi.iot.mqtt.playground.metrics.CompressionMetrics;
+import it.unimore.dipi.iot.mqtt.playground.metrics.ConsumerMetrics;
 import it.unimore.dipi.iot.mqtt.playground.model.MessageDescriptor;
 import org.eclipse.paho.client.mqttv3.IMqttClient;
 import org.eclipse.paho.client.mqttv3.MqttClient;
@@ -31,6 +40,28 @@ public class JsonConsumer {
     //PORT of the target MQTT Broker
     private static int BROKER_PORT = 1883;
 
+    //Number of worker threads parsing and handling the received messages
+    private static final int DISPATCH_WORKER_COUNT = Runtime.getRuntime().availableProcessors();
+
+    //Capacity of the ring buffer between the Paho callback thread and the workers
+    private static final int DISPATCH_QUEUE_CAPACITY = 8192;
+
+    //Behaviour when the workers do not keep up with the incoming messages
+    private static final BackpressurePolicy DISPATCH_POLICY = BackpressurePolicy.BLOCK;
+
+    //Byte-level parser and reusable reading of each dispatcher worker thread
+    private static final ThreadLocal<MessageJsonParser> threadJsonParser = ThreadLocal.withInitial(MessageJsonParser::new);
+
+    private static final ThreadLocal<SensorReading> threadReading = ThreadLocal.withInitial(SensorReading::new);
+
+    //Flyweight decoder of the batches of readings published by the batching producers
+    private static final ThreadLocal<ReadingBatchDecoder> threadBatchDecoder = ThreadLocal.withInitial(ReadingBatchDecoder::new);
+
+    //Decompressor of the payloads deflated by the producers with the shared preset dictionary
+    private static final PayloadCompressor payloadCompressor = new PayloadCompressor();
+
+    private static final byte[] EMPTY_PAYLOAD = new byte[0];
+
     public static void main(String [ ] args) {
 
     	logger.info("MQTT JsonConsumer Started ...");
@@ -64,28 +95,62 @@ public class JsonConsumer {
 
             logger.info("Connected ! Client Id: {}", clientId);
 
-            //Subscribe to the target topic #. In that case the consumer will receive (if authorized) all the message
-            //passing through the broker
-            subscriber.subscribe("#", (topic, msg) -> {
+            //Ingestion metrics exposed over JMX
+            ConsumerMetrics metrics = ConsumerMetrics.register("JsonConsumer");
+
+            //Compression ratio of the received payloads and CPU cost of their decompression
+            payloadCompressor.setMetrics(CompressionMetrics.register("JsonConsumer"));
+
+            //Messages are handed by the Paho callback thread to DISPATCH_WORKER_COUNT workers
+            MessageDispatcher dispatcher = new MessageDispatcher("JsonConsumer", (topic, msg) -> {
+
+                //Rollups published by DeviceAggregator on <series topic>/agg match the subscription but are not readings
+                if(WindowedAggregator.isAggregateTopic(topic))
+                    return;
+
+                long handlerStart = System.nanoTime();
+                SensorReading reading = threadReading.get();
 
                 //The topic variable contain the specific topic associated to the received message. Using MQTT wildcards
                 //messaged from multiple and different topic can be received with the same subscription
                 //The msg variable is a MqttMessage object containing all the information about the received message
-            	byte[] payload = msg.getPayload();
-
-            	//Through the internal method parseJsonMessage() de-serialize the received Message Descriptor
-                MessageDescriptor msgDescriptor = parseJsonMessage(payload);
+            	//Compressed payloads are inflated before being parsed
+            	byte[] payload = decompressPayload(msg.getPayload());
 
+            	//Through the internal method parseJsonMessage() read the received Message Descriptor
+                //directly from the payload bytes into the reusable reading
                 //Check and print the received Message
-                if(msgDescriptor != null)
+                ReadingBatchDecoder batch = parseBatch(payload);
+
+                if(batch != null) {
+                	//Readings are read in place from the batch payload into the same reusable reading
+                	for(SensorReading batchReading : batch)
+                		logger.info("Batched MessageDescriptor Received ({}) Data -> Timestamp: {}, Type: {}, Value: {}",
+                				topic,
+                				batchReading.getTimestamp(),
+                				batchReading.getType(),
+                				batchReading.getValue());
+                }
+                else if(parseJsonMessage(payload, reading))
                 	logger.info("JSON MessageDescriptor Received ({}) Data -> Timestamp: {}, Type: {}, Value: {}", 
                 			topic, 
-                			msgDescriptor.getTimestamp(), 
-                			msgDescriptor.getType(), 
-                			msgDescriptor.getValue());
-                else
-                	logger.info("Message Received ({}) Message Received: {}", topic, new String(payload));
-            });
+                			reading.getTimestamp(), 
+                			reading.getType(), 
+                			reading.getValue());
+                else {
+                	metrics.recordParseFailure();
+                	logger.info("Message Received ({}) Message Received: {}", topic, new String(msg.getPayload()));
+                }
+
+                metrics.recordMessage(msg.getPayload().length, System.nanoTime() - handlerStart);
+
+            }, DISPATCH_WORKER_COUNT, DISPATCH_QUEUE_CAPACITY, DISPATCH_POLICY);
+
+            dispatcher.start();
+
+            //Subscribe to the target topic #. In that case the consumer will receive (if authorized) all the message
+            //passing through the broker
+            subscriber.subscribe("#", dispatcher);
 
         }catch (Exception e){
             e.printStackTrace();
@@ -93,6 +158,47 @@ public class JsonConsumer {
 
     }
 
+    /**
+     * Inflate the received payload if it has been compressed by the producer
+     *
+     * @param payload
+     * @return the original payload, or an empty one if the compressed frame is malformed
+     */
+    public static byte[] decompressPayload(byte[] payload) {
+        try {
+            return payloadCompressor.decompress(payload);
+        }catch(IllegalArgumentException e) {
+            return EMPTY_PAYLOAD;
+        }
+    }
+
+    /**
+     * Wrap the received MQTT message into the decoder of the current thread if it is a batch of readings
+     *
+     * @param payload
+     * @return the decoder or null if the message is not a valid batch
+     */
+    public static ReadingBatchDecoder parseBatch(byte[] payload) {
+        ReadingBatchDecoder decoder = threadBatchDecoder.get();
+        try {
+            return decoder.wrap(payload) ? decoder : null;
+        }catch(IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parse the received MQTT message into the passed SensorReading without creating intermediate Strings
+     * (Gson is used only for messages that cannot be handled by the byte-level parser)
+     *
+     * @param payload
+     * @param reading
+     * @return true if the message has been parsed, false in case of error.
+     */
+    public static boolean parseJsonMessage(byte[] payload, SensorReading reading) {
+        return threadJsonParser.get().parse(payload, reading);
+    }
+
     /**
      * Parse the received MQTT message into a MessageDescriptor object or null in case of error
      *
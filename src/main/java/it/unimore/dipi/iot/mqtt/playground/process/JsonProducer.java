@@ -1,13 +1,26 @@
 package it.unimore.dipi.iot.mqtt.playground.process;
 
 import com.google.gson.Gson;
+import it.unimore.dipi.iot.mqtt.playground.codec.BinaryMessageCodec;
+import it.unimore.dipi.iot.mqtt.playground.codec.MessageJsonEncoder;
+import it.unimore.dipi.iot.mqtt.playground.codec.PayloadCompressor;
+import it.unimore.dipi.iot.mqtt.playground.codec.PayloadFormat;
+import it.unimore.dipi.iot.mqtt.playground.codec.SensorTypeRegistry;
+import it.unimore.dipi.iot.mqtt.playground.metrics.CompressionMetrics;
+import it.unimore.dipi.iot.mqtt.playground.metrics.DropReason;
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsRegistry;
+import it.unimore.dipi.iot.mqtt.playground.metrics.ProducerMetrics;
 import it.unimore.dipi.iot.mqtt.playground.model.MessageDescriptor;
 import it.unimore.dipi.iot.mqtt.playground.model.EngineTemperatureSensor;
-import org.eclipse.paho.client.mqttv3.IMqttClient;
-import org.eclipse.paho.client.mqttv3.MqttClient;
+import it.unimore.dipi.iot.mqtt.playground.publisher.AsyncMqttPublisher;
+import it.unimore.dipi.iot.mqtt.playground.publisher.BatchingPublisher;
+import it.unimore.dipi.iot.mqtt.playground.report.ReportByExceptionFilter;
+import it.unimore.dipi.iot.mqtt.playground.report.ReportSink;
+import it.unimore.dipi.iot.mqtt.playground.report.ReportingPolicy;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
 import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
-import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import org.slf4j.Logger;
@@ -35,6 +48,34 @@ public class JsonProducer {
 
     //Topic used to publish generated demo data
     private static final String TOPIC = "sensor/temperature";
+
+    //If true the JSON payload is written by the streaming MessageJsonEncoder directly into a reusable
+    //byte buffer, otherwise the MessageDescriptor is serialized through Gson
+    private static final boolean USE_STREAMING_ENCODER = true;
+
+    //If true the readings are coalesced into binary batches published on sensor/temperature/bin
+    //(see BatchingPublisher) instead of sending one JSON message for each reading
+    private static final boolean BATCHING_ENABLED = false;
+
+    //Maximum number of readings of a batch
+    private static final int MAX_BATCH_SIZE = 100;
+
+    //Maximum time a reading waits for its batch to be published
+    private static final long MAX_BATCH_LINGER_MS = 5000;
+
+    //If true the batches are bit-packed time series blocks (delta-of-delta timestamps and XOR encoded values,
+    //see GorillaBlockEncoder) instead of fixed size records
+    private static final boolean GORILLA_BLOCKS_ENABLED = false;
+
+    //If true the payloads are deflated with the preset dictionary shared with the consumers (see PayloadCompressor).
+    //Payloads below PayloadCompressor.DEFAULT_MIN_PAYLOAD_SIZE bytes are sent as they are
+    private static final boolean COMPRESSION_ENABLED = false;
+
+    //Compressor shared by the messages of the producer
+    private static final PayloadCompressor payloadCompressor = new PayloadCompressor();
+
+    //Report by exception policy of the readings published on TOPIC (same policies of DeviceProducer)
+    private static final ReportingPolicy REPORTING_POLICY = ReportingPolicy.always();
     
     public static void main(String[] args) {
 
@@ -52,7 +93,17 @@ public class JsonProducer {
 
             //The the persistence is not passed to the constructor the default file persistence is used.
             //In case of a file-based storage the same MQTT client UUID should be used
-            IMqttClient client = new MqttClient(BROKER_URI,mqttClientId, persistence);
+            IMqttAsyncClient client = new MqttAsyncClient(BROKER_URI,mqttClientId, persistence);
+
+            AsyncMqttPublisher publisher = new AsyncMqttPublisher(client);
+
+            //Publisher metrics exposed over JMX and periodically logged as a summary line
+            publisher.setMetrics(ProducerMetrics.register("JsonProducer"));
+            MetricsRegistry.startSummaryReport();
+
+            //Compression ratio and CPU cost per message exposed over JMX and logged with the summary
+            if(COMPRESSION_ENABLED)
+                payloadCompressor.setMetrics(CompressionMetrics.register("JsonProducer"));
 
             //Define MQTT Connection Options such as reconnection, persistent/clean session and connection timeout
             //Authentication option can be added -> See AuthProducer example
@@ -60,7 +111,7 @@ public class JsonProducer {
             options.setAutomaticReconnect(true);
             options.setCleanSession(true);
             options.setConnectionTimeout(10);
-            client.connect(options);
+            publisher.connect(options);
 
             //Connect to the target broker
             logger.info("Connected ! Client Id: {}", mqttClientId);
@@ -68,26 +119,55 @@ public class JsonProducer {
             //Create an instance of an Engine Temperature Sensor
             EngineTemperatureSensor engineTemperatureSensor = new EngineTemperatureSensor();
 
-            //Start to publish MESSAGE_COUNT messages
+            //Batches are binary payloads published on the topic with the binary suffix
+            BatchingPublisher batchingPublisher = BATCHING_ENABLED ?
+                    new BatchingPublisher(publisher, new BinaryMessageCodec(), MAX_BATCH_SIZE, MAX_BATCH_LINGER_MS, 0) : null;
+
+            if(batchingPublisher != null && COMPRESSION_ENABLED)
+                batchingPublisher.setCompressor(payloadCompressor);
+
+            if(batchingPublisher != null)
+                batchingPublisher.setGorillaBlocks(GORILLA_BLOCKS_ENABLED);
+
+            //A single series keyed by TOPIC, flushed before disconnecting so the last reading is not lost
+            ReportByExceptionFilter reportFilter = ReportByExceptionFilter.register("JsonProducer", REPORTING_POLICY);
+
+            //The published readings are either coalesced into the batch of the topic or sent as a single message
+            ReportSink reportSink = (topic, timestamp, value) -> {
+
+            	if(batchingPublisher != null)
+            		batchingPublisher.add(PayloadFormat.BINARY.topic(topic), timestamp, SensorTypeRegistry.ENGINE_TEMPERATURE_SENSOR, value);
+            	else {
+            		byte[] payload = buildJsonPayload(timestamp, value);
+
+            		//Internal Method to publish MQTT data using the created MQTT Client
+            		if(payload != null)
+            			publishData(publisher, topic, compressPayload(payload));
+            		else
+            			logger.error("Skipping message send due to NULL Payload !");
+            	}
+            };
+
+            //Start to read MESSAGE_COUNT values
             for(int i = 0; i < MESSAGE_COUNT; i++) {
 
-                //Get updated temperature value and build the associated Json Message
-                //through the internal method buildJsonMessage
+                //Get updated temperature value and hand it to the reporting policy, which builds
+                //the associated Json Message through the internal method buildJsonPayload
             	double sensorValue = engineTemperatureSensor.getTemperatureValue();
-            	String payloadString = buildJsonMessage(sensorValue);
-
-            	//Internal Method to publish MQTT data using the created MQTT Client
-            	if(payloadString != null)
-            		publishData(client, TOPIC, payloadString);
-            	else
-            		logger.error("Skipping message send due to NULL Payload !");
+            	reportFilter.offer(TOPIC, System.currentTimeMillis(), sensorValue, reportSink);
             	
             	Thread.sleep(1000);
             }
 
+            //Publish the readings held by the reporting policy
+            reportFilter.flush(reportSink);
+
+            //Publish the open batches before disconnecting
+            if(batchingPublisher != null)
+                batchingPublisher.close();
+
             //Disconnect from the broker and close connection
-            client.disconnect();
-            client.close();
+            publisher.disconnect();
 
             logger.info("Disconnected !");
 
@@ -105,13 +185,25 @@ public class JsonProducer {
      * @return
      */
     public static String buildJsonMessage(double sensorValue) {
+        return buildJsonMessage(System.currentTimeMillis(), sensorValue);
+    }
+
+    /**
+     * Create structure JSON message starting from the passed timestamp and sensorValue
+     * and using the MessageDescriptor class
+     *
+     * @param timestamp
+     * @param sensorValue
+     * @return
+     */
+    public static String buildJsonMessage(long timestamp, double sensorValue) {
     	
     	try {
     		
     		Gson gson = new Gson();
         	
         	MessageDescriptor messageDescriptor = new MessageDescriptor(
-                    System.currentTimeMillis(),
+                    timestamp,
                     "ENGINE_TEMPERATURE_SENSOR",
                     sensorValue);
         	
@@ -124,26 +216,64 @@ public class JsonProducer {
     }
 
     /**
-     * Send a target String Payload to the specified MQTT topic
+     * Build the payload of the message associated to the passed sensorValue either with the
+     * streaming MessageJsonEncoder or through buildJsonMessage according to USE_STREAMING_ENCODER
+     *
+     * @param sensorValue
+     * @return the payload bytes or null in case of error
+     */
+    public static byte[] buildJsonPayload(double sensorValue) {
+        return buildJsonPayload(System.currentTimeMillis(), sensorValue);
+    }
+
+    /**
+     * Build the payload of the message associated to the passed timestamp and sensorValue either with the
+     * streaming MessageJsonEncoder or through buildJsonMessage according to USE_STREAMING_ENCODER
+     *
+     * @param timestamp
+     * @param sensorValue
+     * @return the payload bytes or null in case of error
+     */
+    public static byte[] buildJsonPayload(long timestamp, double sensorValue) {
+
+        if(USE_STREAMING_ENCODER)
+            return MessageJsonEncoder.encodeMessage(timestamp, "ENGINE_TEMPERATURE_SENSOR", sensorValue).toByteArray();
+
+        String payloadString = buildJsonMessage(timestamp, sensorValue);
+        return payloadString != null ? payloadString.getBytes() : null;
+    }
+
+    /**
+     * Compress the payload with the preset dictionary shared with the consumers if COMPRESSION_ENABLED
+     *
+     * @param payload
+     * @return the compressed frame or the same payload
+     */
+    public static byte[] compressPayload(byte[] payload) {
+        return COMPRESSION_ENABLED ? payloadCompressor.compress(payload) : payload;
+    }
+
+    /**
+     * Send a target Payload to the specified MQTT topic
      *
-     * @param mqttClient
+     * @param publisher
      * @param topic
-     * @param msgString
-     * @throws MqttException
+     * @param payload
      */
-    public static void publishData(IMqttClient mqttClient, String topic, String msgString) throws MqttException {
+    public static void publishData(AsyncMqttPublisher publisher, String topic, byte[] payload) {
 
-        logger.debug("Publishing to Topic: {} Data: {}", topic, msgString);
+        logger.debug("Publishing to Topic: {} Data: {} bytes", topic, payload != null ? payload.length : 0);
 
-        if (mqttClient.isConnected() && msgString != null && topic != null) {
+        if (publisher.isConnected() && payload != null && topic != null) {
         	
-            MqttMessage msg = new MqttMessage(msgString.getBytes());
+            MqttMessage msg = new MqttMessage(payload);
             msg.setQos(0);
             msg.setRetained(false);
-            mqttClient.publish(topic,msg);
-            logger.debug("Data Correctly Published !");
+            publisher.publish(topic, msg, null);
+            logger.debug("Data Correctly Enqueued for Publishing !");
         }
         else{
+            publisher.recordDrop(publisher.isConnected() ? DropReason.INVALID_MESSAGE : DropReason.NOT_CONNECTED);
             logger.error("Error: Topic or Msg = Null or MQTT Client is not Connected !");
         }
 
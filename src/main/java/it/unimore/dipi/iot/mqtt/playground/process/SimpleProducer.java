@@ -1,11 +1,14 @@
 package it.unimore.dipi.iot.mqtt.playground.process;
 
+import it.unimore.dipi.iot.mqtt.playground.metrics.DropReason;
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsRegistry;
+import it.unimore.dipi.iot.mqtt.playground.metrics.ProducerMetrics;
 import it.unimore.dipi.iot.mqtt.playground.model.EngineTemperatureSensor;
-import org.eclipse.paho.client.mqttv3.IMqttClient;
-import org.eclipse.paho.client.mqttv3.MqttClient;
+import it.unimore.dipi.iot.mqtt.playground.publisher.AsyncMqttPublisher;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
 import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
-import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import org.slf4j.Logger;
@@ -49,7 +52,13 @@ public class SimpleProducer {
 
             //The the persistence is not passed to the constructor the default file persistence is used.
             //In case of a file-based storage the same MQTT client UUID should be used
-            IMqttClient client = new MqttClient(BROKER_URL,mqttClientId, persistence);
+            IMqttAsyncClient client = new MqttAsyncClient(BROKER_URL,mqttClientId, persistence);
+
+            AsyncMqttPublisher publisher = new AsyncMqttPublisher(client);
+
+            //Publisher metrics exposed over JMX and periodically logged as a summary line
+            publisher.setMetrics(ProducerMetrics.register("SimpleProducer"));
+            MetricsRegistry.startSummaryReport();
 
             //Define MQTT Connection Options such as reconnection, persistent/clean session and connection timeout
             //Authentication option can be added -> See AuthProducer example
@@ -59,7 +68,7 @@ public class SimpleProducer {
             options.setConnectionTimeout(10);
 
             //Connect to the target broker
-            client.connect(options);
+            publisher.connect(options);
 
             logger.info("Connected ! Client Id: {}", mqttClientId);
 
@@ -74,15 +83,14 @@ public class SimpleProducer {
             	String payloadString = Double.toString(sensorValue);
 
             	//Internal Method to publish MQTT data using the created MQTT Client
-            	publishData(client, TOPIC, payloadString);
+            	publishData(publisher, TOPIC, payloadString);
 
             	//Sleep for 1 Second
             	Thread.sleep(1000);
             }
 
             //Disconnect from the broker and close the connection
-            client.disconnect();
-            client.close();
+            publisher.disconnect();
 
             logger.info("Disconnected !");
 
@@ -95,29 +103,29 @@ public class SimpleProducer {
     /**
      * Send a target String Payload to the specified MQTT topic
      *
-     * @param mqttClient
+     * @param publisher
      * @param topic
      * @param msgString
-     * @throws MqttException
      */
-    public static void publishData(IMqttClient mqttClient,
+    public static void publishData(AsyncMqttPublisher publisher,
                                    String topic,
-                                   String msgString) throws MqttException {
+                                   String msgString) {
 
         logger.debug("Publishing to Topic: {} Data: {}", topic, msgString);
 
-        if (mqttClient.isConnected() && msgString != null && topic != null) {
+        if (publisher.isConnected() && msgString != null && topic != null) {
 
             //Create an MQTT Message defining the required QoS Level and if the message is retained or not
             MqttMessage msg = new MqttMessage(msgString.getBytes());
             msg.setQos(0);
             msg.setRetained(false);
 
-            mqttClient.publish(topic,msg);
+            publisher.publish(topic, msg, null);
             
-            logger.debug("Data Correctly Published !");
+            logger.debug("Data Correctly Enqueued for Publishing !");
         }
         else{
+            publisher.recordDrop(publisher.isConnected() ? DropReason.INVALID_MESSAGE : DropReason.NOT_CONNECTED);
             logger.error("Error: Topic or Msg = Null or MQTT Client is not Connected !");
         }
 
@@ -0,0 +1,503 @@
+package it.unimore.dipi.iot.mqtt.playground.publisher;
+
+import it.unimore.dipi.iot.mqtt.playground.metrics.DropReason;
+import it.unimore.dipi.iot.mqtt.playground.metrics.ProducerMetrics;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous MQTT publisher built on top of a Paho IMqttAsyncClient.
+ *
+ * Messages are accepted into a bounded pending queue (blocking the caller or dropping the message
+ * when the queue is full, according to the configured OverflowPolicy) and a dedicated sender thread
+ * hands them to the client keeping up to maxInflight publish operations outstanding at the same time.
+ * With QoS 1/2 the producer is therefore no longer limited to one message per round trip.
+ *
+ * When ProducerMetrics are attached with setMetrics() the publisher records the publish call latency,
+ * the delivery latency of QoS 1/2 messages, the dropped messages and the connection events
+ * (the publisher installs its own MqttCallbackExtended on the client for the latter).
+ *
+ * The publisher owns the callback of the client: a callback set directly on the client is replaced by connect(),
+ * so applications that need the client events (e.g. messageArrived for subscriptions without a listener)
+ * must register their MqttCallbackExtended with setCallback(), which receives every event after the publisher.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:20
+ */
+public class AsyncMqttPublisher {
+
+    private final static Logger logger = LoggerFactory.getLogger(AsyncMqttPublisher.class);
+
+    //Wait time of the sender thread when the pending queue is empty or the client is not connected
+    private static final long IDLE_WAIT_MS = 10;
+
+    //Default window and queue of the producers: enough in-flight messages to hide the broker round trip
+    //and a queue absorbing short bursts before the caller is blocked
+    public static final int DEFAULT_MAX_INFLIGHT = 100;
+
+    public static final int DEFAULT_MAX_PENDING = 10000;
+
+    //Default maximum wait time for pending messages when disconnecting
+    public static final long DEFAULT_DISCONNECT_TIMEOUT_MS = 10000;
+
+    private final IMqttAsyncClient client;
+
+    private final int maxInflight;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final BlockingQueue<PendingPublish> pendingQueue;
+
+    //One permit for each publish operation that can be outstanding on the client
+    private final Semaphore inflightWindow;
+
+    private final IMqttActionListener completionListener = new CompletionListener();
+
+    private final AtomicLong submittedCount = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final AtomicLong completedCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private volatile ProducerMetrics metrics = null;
+
+    //Application callback chained by the ConnectionCallback installed on the client
+    private volatile MqttCallbackExtended callback = null;
+
+    private volatile boolean running = false;
+
+    private Thread senderThread;
+
+    /**
+     * Publisher with the default window and queue, blocking the caller when the queue is full
+     *
+     * @param client the asynchronous client used to publish messages
+     */
+    public AsyncMqttPublisher(IMqttAsyncClient client) {
+        this(client, DEFAULT_MAX_INFLIGHT, DEFAULT_MAX_PENDING, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * @param client the asynchronous client used to publish messages
+     * @param maxInflight maximum number of outstanding publish operations
+     * @param maxPending capacity of the pending queue
+     * @param overflowPolicy behaviour when the pending queue is full
+     */
+    public AsyncMqttPublisher(IMqttAsyncClient client, int maxInflight, int maxPending, OverflowPolicy overflowPolicy) {
+
+        if(maxInflight <= 0 || maxPending <= 0)
+            throw new IllegalArgumentException("maxInflight and maxPending must be > 0");
+
+        this.client = client;
+        this.maxInflight = maxInflight;
+        this.overflowPolicy = overflowPolicy;
+        this.pendingQueue = new ArrayBlockingQueue<>(maxPending);
+        this.inflightWindow = new Semaphore(maxInflight);
+    }
+
+    /**
+     * Connect the client to the broker (configuring the Paho in-flight window) and start the sender thread
+     *
+     * @param options connection options, the max inflight value is overwritten with the publisher one
+     * @throws MqttException
+     */
+    public void connect(MqttConnectOptions options) throws MqttException {
+
+        options.setMaxInflight(maxInflight);
+
+        client.setCallback(new ConnectionCallback());
+
+        long connectStart = System.nanoTime();
+
+        client.connect(options).waitForCompletion();
+
+        ProducerMetrics currentMetrics = metrics;
+        if(currentMetrics != null)
+            currentMetrics.recordConnect(System.nanoTime() - connectStart);
+
+        if(!running){
+            running = true;
+            senderThread = new Thread(this::sendLoop, "async-publisher-" + client.getClientId());
+            senderThread.setDaemon(true);
+            senderThread.start();
+        }
+    }
+
+    /**
+     * Enqueue a message for publishing
+     *
+     * @param topic
+     * @param payload
+     * @param qos
+     * @param retained
+     * @return true if the message has been accepted, false if it has been dropped
+     */
+    public boolean publish(String topic, byte[] payload, int qos, boolean retained) {
+        return publish(topic, payload, qos, retained, null);
+    }
+
+    /**
+     * Enqueue a message for publishing
+     *
+     * @param topic
+     * @param payload
+     * @param qos
+     * @param retained
+     * @param listener optional callback notified when the publish operation completes
+     * @return true if the message has been accepted, false if it has been dropped
+     */
+    public boolean publish(String topic, byte[] payload, int qos, boolean retained, PublishListener listener) {
+
+        MqttMessage msg = new MqttMessage(payload);
+        msg.setQos(qos);
+        msg.setRetained(retained);
+
+        return publish(topic, msg, listener);
+    }
+
+    /**
+     * Enqueue a message for publishing
+     *
+     * @param topic
+     * @param msg
+     * @param listener optional callback notified when the publish operation completes
+     * @return true if the message has been accepted, false if it has been dropped
+     */
+    public boolean publish(String topic, MqttMessage msg, PublishListener listener) {
+
+        if(!running)
+            throw new IllegalStateException("AsyncMqttPublisher is not connected");
+
+        long callStart = System.nanoTime();
+        PendingPublish pendingPublish = new PendingPublish(topic, msg, listener);
+
+        if(overflowPolicy == OverflowPolicy.DROP){
+            if(!pendingQueue.offer(pendingPublish)){
+                droppedCount.incrementAndGet();
+                recordDrop(DropReason.QUEUE_FULL);
+                return false;
+            }
+        }
+        else {
+            try {
+                pendingQueue.put(pendingPublish);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                droppedCount.incrementAndGet();
+                recordDrop(DropReason.INTERRUPTED);
+                return false;
+            }
+        }
+
+        submittedCount.incrementAndGet();
+
+        ProducerMetrics currentMetrics = metrics;
+        if(currentMetrics != null)
+            currentMetrics.recordPublishCall(System.nanoTime() - callStart);
+
+        return true;
+    }
+
+    /**
+     * Record in the attached metrics a message dropped by the caller before reaching the publisher
+     * (e.g. because the client is not connected)
+     *
+     * @param reason
+     */
+    public void recordDrop(DropReason reason) {
+        ProducerMetrics currentMetrics = metrics;
+        if(currentMetrics != null)
+            currentMetrics.recordDrop(reason);
+    }
+
+    /**
+     * Wait until all the accepted messages have been completed
+     *
+     * @param timeoutMs maximum wait time
+     * @return true if all the messages have been completed within the timeout
+     * @throws InterruptedException
+     */
+    public boolean flush(long timeoutMs) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + timeoutMs;
+
+        while(getOutstandingCount() > 0){
+            if(System.currentTimeMillis() >= deadline)
+                return false;
+            Thread.sleep(1);
+        }
+
+        return true;
+    }
+
+    /**
+     * Flush the pending messages, stop the sender thread, disconnect and close the client
+     * waiting at most DEFAULT_DISCONNECT_TIMEOUT_MS
+     *
+     * @throws MqttException
+     * @throws InterruptedException
+     */
+    public void disconnect() throws MqttException, InterruptedException {
+        disconnect(DEFAULT_DISCONNECT_TIMEOUT_MS);
+    }
+
+    /**
+     * Flush the pending messages, stop the sender thread, disconnect and close the client
+     *
+     * @param timeoutMs maximum time to wait for pending messages
+     * @throws MqttException
+     * @throws InterruptedException
+     */
+    public void disconnect(long timeoutMs) throws MqttException, InterruptedException {
+
+        if(!flush(timeoutMs))
+            logger.warn("Disconnecting with {} pending and {} in-flight messages !", getPendingCount(), getInflightCount());
+
+        running = false;
+
+        if(senderThread != null)
+            senderThread.join(timeoutMs);
+
+        client.disconnect().waitForCompletion(timeoutMs);
+        client.close();
+
+        ProducerMetrics currentMetrics = metrics;
+        if(currentMetrics != null)
+            currentMetrics.recordDisconnect();
+    }
+
+    public boolean isConnected() {
+        return client.isConnected();
+    }
+
+    public IMqttAsyncClient getClient() {
+        return client;
+    }
+
+    /**
+     * Set the application callback notified of the client events, replacing the previous one
+     *
+     * @param callback the callback or null to remove it
+     */
+    public void setCallback(MqttCallbackExtended callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Attach the metrics updated by this publisher (null to detach them)
+     *
+     * @param metrics
+     */
+    public void setMetrics(ProducerMetrics metrics) {
+        if(metrics != null)
+            metrics.bindGauges(this::getInflightCount, this::getPendingCount);
+        this.metrics = metrics;
+    }
+
+    public ProducerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getPendingCount() {
+        return pendingQueue.size();
+    }
+
+    public int getInflightCount() {
+        return maxInflight - inflightWindow.availablePermits();
+    }
+
+    /**
+     * @return number of accepted messages not yet completed (pending or in-flight)
+     */
+    public long getOutstandingCount() {
+        return submittedCount.get() - completedCount.get() - failedCount.get();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    private void sendLoop() {
+
+        try {
+
+            while(running){
+
+                //Do not consume the window while the client is reconnecting
+                if(!client.isConnected()){
+                    Thread.sleep(IDLE_WAIT_MS);
+                    continue;
+                }
+
+                PendingPublish pendingPublish = pendingQueue.poll(IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+
+                if(pendingPublish == null)
+                    continue;
+
+                inflightWindow.acquire();
+
+                if(pendingPublish.listener != null){
+                    try {
+                        pendingPublish.listener.onSend(pendingPublish.topic, pendingPublish.message);
+                    } catch (Exception e) {
+                        logger.error("Error in publish listener ! Error: {}", e.getLocalizedMessage());
+                    }
+                }
+
+                try {
+                    pendingPublish.sentNanos = System.nanoTime();
+                    client.publish(pendingPublish.topic, pendingPublish.message, pendingPublish, completionListener);
+                } catch (MqttException e) {
+                    inflightWindow.release();
+                    onPublishCompleted(pendingPublish, e);
+                }
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        logger.debug("Sender thread stopped !");
+    }
+
+    private void onPublishCompleted(PendingPublish pendingPublish, Throwable error) {
+
+        ProducerMetrics currentMetrics = metrics;
+
+        if(error == null){
+            completedCount.incrementAndGet();
+            if(currentMetrics != null && pendingPublish.message.getQos() > 0)
+                currentMetrics.recordDelivery(System.nanoTime() - pendingPublish.sentNanos);
+        }
+        else {
+            failedCount.incrementAndGet();
+            if(currentMetrics != null)
+                currentMetrics.recordDrop(DropReason.PUBLISH_FAILED);
+            logger.debug("Error publishing on topic {} ! Error: {}", pendingPublish.topic, error.getLocalizedMessage());
+        }
+
+        if(pendingPublish.listener != null){
+            try {
+                pendingPublish.listener.onComplete(pendingPublish.topic, pendingPublish.message, error);
+            } catch (Exception e) {
+                logger.error("Error in publish listener ! Error: {}", e.getLocalizedMessage());
+            }
+        }
+    }
+
+    /**
+     * Shared Paho action listener releasing the in-flight window on completion
+     */
+    private class CompletionListener implements IMqttActionListener {
+
+        @Override
+        public void onSuccess(IMqttToken asyncActionToken) {
+            inflightWindow.release();
+            onPublishCompleted((PendingPublish) asyncActionToken.getUserContext(), null);
+        }
+
+        @Override
+        public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+            inflightWindow.release();
+            onPublishCompleted((PendingPublish) asyncActionToken.getUserContext(), exception);
+        }
+    }
+
+    /**
+     * Client callback reporting the connection losses and the automatic reconnections to the metrics
+     */
+    private class ConnectionCallback implements MqttCallbackExtended {
+
+        @Override
+        public void connectComplete(boolean reconnect, String serverURI) {
+            ProducerMetrics currentMetrics = metrics;
+            if(reconnect && currentMetrics != null)
+                currentMetrics.recordReconnect();
+            if(reconnect)
+                logger.info("Reconnected to {}", serverURI);
+            MqttCallbackExtended currentCallback = callback;
+            if(currentCallback != null)
+                currentCallback.connectComplete(reconnect, serverURI);
+        }
+
+        @Override
+        public void connectionLost(Throwable cause) {
+            ProducerMetrics currentMetrics = metrics;
+            if(currentMetrics != null)
+                currentMetrics.recordConnectionLost();
+            logger.warn("Connection lost ! Cause: {}", cause != null ? cause.getLocalizedMessage() : null);
+            MqttCallbackExtended currentCallback = callback;
+            if(currentCallback != null)
+                currentCallback.connectionLost(cause);
+        }
+
+        @Override
+        public void messageArrived(String topic, MqttMessage message) throws Exception {
+            //Messages of subscriptions with a listener are delivered to the listener and never reach this method
+            MqttCallbackExtended currentCallback = callback;
+            if(currentCallback != null)
+                currentCallback.messageArrived(topic, message);
+        }
+
+        @Override
+        public void deliveryComplete(IMqttDeliveryToken token) {
+            //Completions of the publisher messages are also handled by the CompletionListener
+            MqttCallbackExtended currentCallback = callback;
+            if(currentCallback != null)
+                currentCallback.deliveryComplete(token);
+        }
+    }
+
+    /**
+     * Message waiting in the pending queue or in-flight on the client
+     */
+    private static class PendingPublish {
+
+        private final String topic;
+
+        private final MqttMessage message;
+
+        private final PublishListener listener;
+
+        //Time the sender thread hands the message to the client (System.nanoTime()), so that the delivery
+        //latency does not include the wait in the pending queue. Written before client.publish(), which
+        //publishes it to the Paho thread invoking the completion listener
+        private long sentNanos;
+
+        private PendingPublish(String topic, MqttMessage message, PublishListener listener) {
+            this.topic = topic;
+            this.message = message;
+            this.listener = listener;
+        }
+    }
+
+}
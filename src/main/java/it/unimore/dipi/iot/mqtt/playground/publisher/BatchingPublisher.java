@@ -0,0 +1,279 @@
+package it.unimore.dipi.iot.mqtt.playground.publisher;
+
+import it.unimore.dipi.iot.mqtt.playground.codec.BinaryMessageCodec;
+import it.unimore.dipi.iot.mqtt.playground.codec.GorillaBlockEncoder;
+import it.unimore.dipi.iot.mqtt.playground.codec.PayloadCompressor;
+import it.unimore.dipi.iot.mqtt.playground.codec.ReadingBatchEncoder;
+import it.unimore.dipi.iot.mqtt.playground.metrics.DropReason;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publisher coalescing the readings of each topic into binary batches (see ReadingBatchEncoder) published
+ * through an AsyncMqttPublisher, so that the fixed header, topic and broker routing costs of a PUBLISH are paid
+ * once for up to maxBatchSize readings.
+ *
+ * The batch of a topic is published when it reaches maxBatchSize readings, when its first reading has waited
+ * maxLingerMs (checked by a daemon thread) or when flush() / close() are called.
+ *
+ * With setGorillaBlocks(true) the readings are bit-packed into time series blocks (see GorillaBlockEncoder)
+ * instead of fixed size records: a block holds a single sensor type, so a reading of another type publishes
+ * the open block of the topic first.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:14
+ */
+public class BatchingPublisher {
+
+    private final static Logger logger = LoggerFactory.getLogger(BatchingPublisher.class);
+
+    private final AsyncMqttPublisher publisher;
+
+    private final BinaryMessageCodec codec;
+
+    private final int maxBatchSize;
+
+    private final long maxLingerNanos;
+
+    private final int qos;
+
+    //Open batch of each topic
+    private final Map<String, TopicBatch> batchMap = new HashMap<>();
+
+    private final ScheduledExecutorService lingerExecutor;
+
+    //Optional compressor of the published batches
+    private PayloadCompressor compressor = null;
+
+    //If true the batches of the topics opened from now on are time series blocks
+    private boolean gorillaBlocks = false;
+
+    private boolean closed = false;
+
+    private long batchCount = 0;
+
+    private long readingCount = 0;
+
+    private long sizeFlushCount = 0;
+
+    private long lingerFlushCount = 0;
+
+    /**
+     * @param publisher publisher of the batches
+     * @param codec codec whose registry resolves the sensor type codes
+     * @param maxBatchSize maximum number of readings of a batch
+     * @param maxLingerMs maximum time a reading waits for its batch to be published
+     * @param qos QoS of the published batches
+     */
+    public BatchingPublisher(AsyncMqttPublisher publisher, BinaryMessageCodec codec, int maxBatchSize, long maxLingerMs, int qos) {
+
+        if(maxLingerMs <= 0)
+            throw new IllegalArgumentException("maxLingerMs must be > 0");
+
+        this.publisher = publisher;
+        this.codec = codec;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLingerMs);
+        this.qos = qos;
+
+        this.lingerExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batching-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        //Batches are checked a few times for each linger period to bound the additional wait
+        long checkIntervalMs = Math.max(1, maxLingerMs / 4);
+        lingerExecutor.scheduleAtFixedRate(this::flushExpired, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Compress the published batches (null to publish them as they are)
+     */
+    public synchronized void setCompressor(PayloadCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    /**
+     * Bit-pack the readings of the topics receiving their first reading from now on into time series blocks
+     */
+    public synchronized void setGorillaBlocks(boolean gorillaBlocks) {
+        this.gorillaBlocks = gorillaBlocks;
+    }
+
+    /**
+     * Add a reading to the batch of the topic, publishing the batch if it is full
+     *
+     * @param topic
+     * @param timestamp
+     * @param type sensor type (registered in the registry of the codec)
+     * @param value
+     * @throws IllegalArgumentException if the type is not registered
+     */
+    public synchronized void add(String topic, long timestamp, String type, double value) {
+
+        if(closed)
+            throw new IllegalStateException("BatchingPublisher closed");
+
+        TopicBatch batch = batchMap.get(topic);
+
+        if(batch == null){
+            batch = gorillaBlocks ?
+                    new TopicBatch(null, new GorillaBlockEncoder(codec, maxBatchSize)) :
+                    new TopicBatch(new ReadingBatchEncoder(codec, maxBatchSize), null);
+            batchMap.put(topic, batch);
+        }
+
+        //A time series block holds the readings of a single sensor type
+        if(batch.blockEncoder != null && !batch.isEmpty() && batch.blockEncoder.getTypeCode() != codec.getRegistry().getCode(type))
+            publish(topic, batch);
+
+        if(batch.isEmpty())
+            batch.firstReadingNanos = System.nanoTime();
+
+        if(batch.add(timestamp, type, value)){
+            sizeFlushCount++;
+            publish(topic, batch);
+        }
+    }
+
+    /**
+     * Publish the batches whose first reading has waited at least maxLingerMs
+     */
+    private synchronized void flushExpired() {
+
+        long now = System.nanoTime();
+
+        try{
+            for(Map.Entry<String, TopicBatch> entry : batchMap.entrySet()){
+                TopicBatch batch = entry.getValue();
+                if(!batch.isEmpty() && now - batch.firstReadingNanos >= maxLingerNanos){
+                    lingerFlushCount++;
+                    publish(entry.getKey(), batch);
+                }
+            }
+        }catch (Exception e){
+            logger.error("Error publishing the expired batches ! Error: {}", e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Publish all the open batches
+     */
+    public synchronized void flush() {
+        for(Map.Entry<String, TopicBatch> entry : batchMap.entrySet())
+            if(!entry.getValue().isEmpty())
+                publish(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * Stop the linger thread and publish all the open batches. The AsyncMqttPublisher is not disconnected.
+     */
+    public void close() {
+
+        lingerExecutor.shutdown();
+
+        synchronized (this) {
+
+            if(closed)
+                return;
+
+            flush();
+            closed = true;
+        }
+
+        logger.info("BatchingPublisher closed -> Batches: {} Readings: {} Average Batch Size: {} Size Flushes: {} Linger Flushes: {}",
+                getBatchCount(), getReadingCount(), String.format("%.1f", getAverageBatchSize()), getSizeFlushCount(), getLingerFlushCount());
+    }
+
+    private void publish(String topic, TopicBatch batch) {
+
+        int size = batch.size();
+        byte[] payload = compressor != null ? compressor.compress(batch.toPayload()) : batch.toPayload();
+        batch.reset();
+
+        if(!publisher.isConnected()){
+            publisher.recordDrop(DropReason.NOT_CONNECTED);
+            logger.error("Error: MQTT Client is not Connected ! Dropping a batch of {} readings", size);
+            return;
+        }
+
+        if(publisher.publish(topic, payload, qos, false)){
+            batchCount++;
+            readingCount += size;
+        }
+    }
+
+    public synchronized long getBatchCount() {
+        return batchCount;
+    }
+
+    public synchronized long getReadingCount() {
+        return readingCount;
+    }
+
+    public synchronized double getAverageBatchSize() {
+        return batchCount > 0 ? (double) readingCount / batchCount : 0.0;
+    }
+
+    public synchronized long getSizeFlushCount() {
+        return sizeFlushCount;
+    }
+
+    public synchronized long getLingerFlushCount() {
+        return lingerFlushCount;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Open batch of a topic, either fixed size records or a time series block
+     */
+    private static class TopicBatch {
+
+        private final ReadingBatchEncoder encoder;
+
+        private final GorillaBlockEncoder blockEncoder;
+
+        private long firstReadingNanos;
+
+        private TopicBatch(ReadingBatchEncoder encoder, GorillaBlockEncoder blockEncoder) {
+            this.encoder = encoder;
+            this.blockEncoder = blockEncoder;
+        }
+
+        private boolean add(long timestamp, String type, double value) {
+            return encoder != null ? encoder.add(timestamp, type, value) : blockEncoder.add(timestamp, type, value);
+        }
+
+        private byte[] toPayload() {
+            return encoder != null ? encoder.toPayload() : blockEncoder.toPayload();
+        }
+
+        private void reset() {
+            if(encoder != null)
+                encoder.reset();
+            else
+                blockEncoder.reset();
+        }
+
+        private int size() {
+            return encoder != null ? encoder.size() : blockEncoder.size();
+        }
+
+        private boolean isEmpty() {
+            return size() == 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,18 @@
+package it.unimore.dipi.iot.mqtt.playground.publisher;
+
+/**
+ * Behaviour of the AsyncMqttPublisher when its pending queue is full
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:20
+ */
+public enum OverflowPolicy {
+
+    //The caller is blocked until there is room in the pending queue
+    BLOCK,
+
+    //The new message is discarded and the publish call returns immediately
+    DROP
+
+}
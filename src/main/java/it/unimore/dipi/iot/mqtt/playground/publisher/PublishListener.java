@@ -0,0 +1,35 @@
+package it.unimore.dipi.iot.mqtt.playground.publisher;
+
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+
+/**
+ * Callback notified by the AsyncMqttPublisher when a publish operation completes.
+ * For QoS 0 messages completion means that the message has been written to the network,
+ * for QoS 1 and 2 that the broker acknowledged it. Invoked on a Paho internal thread.
+ * Optionally notified on the sender thread right before the message is handed to the client.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 00:20
+ */
+@FunctionalInterface
+public interface PublishListener {
+
+    /**
+     * @param topic topic of the message
+     * @param message the published message
+     * @param error null if the message has been delivered, the failure cause otherwise
+     */
+    void onComplete(String topic, MqttMessage message, Throwable error);
+
+    /**
+     * Invoked by the sender thread right before the message is handed to the client, after the wait in the
+     * pending queue. The payload can still be modified (e.g. to stamp the send time). Does nothing by default.
+     *
+     * @param topic topic of the message
+     * @param message the message about to be published
+     */
+    default void onSend(String topic, MqttMessage message) {
+    }
+
+}
@@ -0,0 +1,360 @@
+package it.unimore.dipi.iot.mqtt.playground.report;
+
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsRegistry;
+import it.unimore.dipi.iot.mqtt.playground.metrics.MetricsSource;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Report-by-exception layer between the sensors and the publishing code: the readings of each signal
+ * (e.g. of each device) are offered to the filter, which hands to a ReportSink only the ones needed by the
+ * consumers to reconstruct the signal within the tolerance of the ReportingPolicy.
+ *
+ * With SWINGING_DOOR the published value of a reading may differ from the sensor value by up to the tolerance:
+ * it is moved onto the line that covers all the suppressed readings, so that the linear interpolation of the
+ * consumers stays within the tolerance (the classic algorithm only bounds the error in most cases).
+ * The last reading of a signal is held until the door closes, so flush() has to be called before shutting down.
+ *
+ * The state of each signal is created at its first reading and guarded by its own lock. Instances created
+ * through register() are exposed by the MetricsRegistry as MBeans named
+ * it.unimore.dipi.iot.mqtt.playground:type=ReportByExceptionFilter,name=&lt;filter name&gt;.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:25
+ */
+public class ReportByExceptionFilter implements ReportByExceptionFilterMBean, MetricsSource {
+
+    private final String name;
+
+    private final ReportingPolicy policy;
+
+    private final Map<String, SignalState> stateMap = new ConcurrentHashMap<>();
+
+    private final LongAdder offeredCount = new LongAdder();
+
+    private final LongAdder reportedCount = new LongAdder();
+
+    private final LongAdder heartbeatCount = new LongAdder();
+
+    /**
+     * @param name filter name, used for the MBean
+     * @param policy reporting policy applied to every signal
+     */
+    public ReportByExceptionFilter(String name, ReportingPolicy policy) {
+        this.name = name;
+        this.policy = policy;
+    }
+
+    /**
+     * Create a filter and register it in the MetricsRegistry
+     *
+     * @return the registered filter
+     */
+    public static ReportByExceptionFilter register(String name, ReportingPolicy policy) {
+        ReportByExceptionFilter filter = new ReportByExceptionFilter(name, policy);
+        MetricsRegistry.register(filter, "ReportByExceptionFilter");
+        return filter;
+    }
+
+    public void unregister() {
+        MetricsRegistry.unregister(this);
+    }
+
+    /**
+     * Offer a reading of a signal, reporting to the sink the readings that have to be published
+     *
+     * @param key key of the signal (e.g. the device id)
+     * @param timestamp timestamp of the reading (ms)
+     * @param value value of the reading
+     * @param sink receiver of the readings to publish
+     * @return the number of readings reported to the sink (0, 1 or 2)
+     */
+    public int offer(String key, long timestamp, double value, ReportSink sink) {
+
+        offeredCount.increment();
+        SignalState state = stateMap.computeIfAbsent(key, SignalState::new);
+
+        synchronized (state) {
+
+            state.offeredCount++;
+
+            switch (policy.getMode()) {
+                case DEADBAND:
+                    return offerDeadband(state, timestamp, value, sink);
+                case SWINGING_DOOR:
+                    return offerSwingingDoor(state, timestamp, value, sink);
+                default:
+                    report(state, timestamp, value, sink);
+                    return 1;
+            }
+        }
+    }
+
+    private int offerDeadband(SignalState state, long timestamp, double value, ReportSink sink) {
+
+        if(!state.started || Math.abs(value - state.archiveValue) > policy.tolerance(state.archiveValue)){
+            report(state, timestamp, value, sink);
+            return 1;
+        }
+
+        if(isSilent(state, timestamp)){
+            heartbeatCount.increment();
+            report(state, timestamp, value, sink);
+            return 1;
+        }
+
+        return 0;
+    }
+
+    private int offerSwingingDoor(SignalState state, long timestamp, double value, ReportSink sink) {
+
+        if(!state.started){
+            report(state, timestamp, value, sink);
+            state.openDoor();
+            return 1;
+        }
+
+        int reported = 0;
+
+        //Readings that are not after the last published one restart the door from themselves
+        if(timestamp <= state.archiveTimestamp){
+            reported += reportHeld(state, sink);
+            report(state, timestamp, value, sink);
+            state.openDoor();
+            return reported + 1;
+        }
+
+        if(!state.narrowDoor(timestamp, value, policy.tolerance(state.archiveValue))){
+
+            //No line from the last published value covers the held reading and this one: the held reading
+            //is published and the door restarts from it
+            reported += reportHeld(state, sink);
+
+            if(timestamp <= state.archiveTimestamp){
+                report(state, timestamp, value, sink);
+                state.openDoor();
+                return reported + 1;
+            }
+
+            state.narrowDoor(timestamp, value, policy.tolerance(state.archiveValue));
+        }
+
+        state.hold(timestamp, value);
+
+        if(isSilent(state, timestamp)){
+            heartbeatCount.increment();
+            reported += reportHeld(state, sink);
+        }
+
+        return reported;
+    }
+
+    /**
+     * Publish the held reading of the signal moved onto the door, which becomes the new archived point
+     */
+    private int reportHeld(SignalState state, ReportSink sink) {
+
+        if(!state.holding)
+            return 0;
+
+        double slope = (state.heldValue - state.archiveValue) / (state.heldTimestamp - state.archiveTimestamp);
+        slope = Math.max(state.lowerSlope, Math.min(state.upperSlope, slope));
+        double value = state.archiveValue + slope * (state.heldTimestamp - state.archiveTimestamp);
+
+        report(state, state.heldTimestamp, value, sink);
+        state.openDoor();
+        return 1;
+    }
+
+    private boolean isSilent(SignalState state, long timestamp) {
+        return policy.getMaxSilenceMs() > 0 && timestamp - state.archiveTimestamp >= policy.getMaxSilenceMs();
+    }
+
+    private void report(SignalState state, long timestamp, double value, ReportSink sink) {
+
+        state.started = true;
+        state.archiveTimestamp = timestamp;
+        state.archiveValue = value;
+        state.reportedCount++;
+        reportedCount.increment();
+
+        sink.report(state.key, timestamp, value);
+    }
+
+    /**
+     * Publish the readings held by the signal (SWINGING_DOOR only), e.g. before shutting down
+     *
+     * @return the number of readings reported to the sink
+     */
+    public int flush(String key, ReportSink sink) {
+
+        SignalState state = stateMap.get(key);
+
+        if(state == null)
+            return 0;
+
+        synchronized (state) {
+            return reportHeld(state, sink);
+        }
+    }
+
+    /**
+     * Publish the readings held by all the signals
+     *
+     * @return the number of readings reported to the sink
+     */
+    public int flush(ReportSink sink) {
+        int reported = 0;
+        for(String key : stateMap.keySet())
+            reported += flush(key, sink);
+        return reported;
+    }
+
+    /**
+     * Forget the state of a signal (e.g. of a decommissioned device) without publishing its held reading
+     */
+    public void remove(String key) {
+        stateMap.remove(key);
+    }
+
+    /**
+     * @return the fraction of the readings of the signal that have not been published (0 if unknown)
+     */
+    public double getSuppressionRatio(String key) {
+
+        SignalState state = stateMap.get(key);
+
+        if(state == null)
+            return 0.0;
+
+        synchronized (state) {
+            return suppressionRatio(state.offeredCount, state.reportedCount);
+        }
+    }
+
+    private static double suppressionRatio(long offered, long reported) {
+        return offered > 0 ? 1.0 - (double) reported / offered : 0.0;
+    }
+
+    public ReportingPolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toSummaryString() {
+        return String.format(Locale.ROOT, "signals=%d offered=%d reported=%d heartbeats=%d suppression=%.1f%%",
+                getSignalCount(), getOfferedCount(), getReportedCount(), getHeartbeatCount(), getSuppressionRatio() * 100.0);
+    }
+
+    @Override
+    public String getReportingPolicy() {
+        return policy.toString();
+    }
+
+    @Override
+    public int getSignalCount() {
+        return stateMap.size();
+    }
+
+    @Override
+    public long getOfferedCount() {
+        return offeredCount.sum();
+    }
+
+    @Override
+    public long getReportedCount() {
+        return reportedCount.sum();
+    }
+
+    @Override
+    public long getSuppressedCount() {
+        return Math.max(0, offeredCount.sum() - reportedCount.sum());
+    }
+
+    @Override
+    public long getHeartbeatCount() {
+        return heartbeatCount.sum();
+    }
+
+    @Override
+    public double getSuppressionRatio() {
+        return suppressionRatio(offeredCount.sum(), reportedCount.sum());
+    }
+
+    /**
+     * Reporting state of a signal
+     */
+    private static class SignalState {
+
+        private final String key;
+
+        private boolean started = false;
+
+        //Last published reading
+        private long archiveTimestamp;
+
+        private double archiveValue;
+
+        //Swinging door: range of the slopes of the lines from the archived point covering the held readings
+        private double upperSlope;
+
+        private double lowerSlope;
+
+        //Swinging door: last offered reading, not yet published
+        private boolean holding = false;
+
+        private long heldTimestamp;
+
+        private double heldValue;
+
+        private long offeredCount = 0;
+
+        private long reportedCount = 0;
+
+        private SignalState(String key) {
+            this.key = key;
+        }
+
+        private void openDoor() {
+            upperSlope = Double.POSITIVE_INFINITY;
+            lowerSlope = Double.NEGATIVE_INFINITY;
+            holding = false;
+        }
+
+        /**
+         * Narrow the door with a reading after the archived point
+         *
+         * @return false if the door would close (the door is left unchanged)
+         */
+        private boolean narrowDoor(long timestamp, double value, double tolerance) {
+
+            double elapsed = timestamp - archiveTimestamp;
+            double upper = Math.min(upperSlope, (value + tolerance - archiveValue) / elapsed);
+            double lower = Math.max(lowerSlope, (value - tolerance - archiveValue) / elapsed);
+
+            if(lower > upper)
+                return false;
+
+            upperSlope = upper;
+            lowerSlope = lower;
+            return true;
+        }
+
+        private void hold(long timestamp, double value) {
+            holding = true;
+            heldTimestamp = timestamp;
+            heldValue = value;
+        }
+
+    }
+
+}
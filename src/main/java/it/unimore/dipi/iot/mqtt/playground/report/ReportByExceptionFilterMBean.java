@@ -0,0 +1,26 @@
+package it.unimore.dipi.iot.mqtt.playground.report;
+
+/**
+ * JMX management interface of ReportByExceptionFilter
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:25
+ */
+public interface ReportByExceptionFilterMBean {
+
+    String getReportingPolicy();
+
+    int getSignalCount();
+
+    long getOfferedCount();
+
+    long getReportedCount();
+
+    long getSuppressedCount();
+
+    long getHeartbeatCount();
+
+    double getSuppressionRatio();
+
+}
@@ -0,0 +1,20 @@
+package it.unimore.dipi.iot.mqtt.playground.report;
+
+/**
+ * Receiver of the readings that a ReportByExceptionFilter decided to publish
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:25
+ */
+@FunctionalInterface
+public interface ReportSink {
+
+    /**
+     * @param key key of the signal (e.g. the device id)
+     * @param timestamp timestamp of the reading, earlier than the last offered one with SWINGING_DOOR
+     * @param value value to publish
+     */
+    void report(String key, long timestamp, double value);
+
+}
@@ -0,0 +1,24 @@
+package it.unimore.dipi.iot.mqtt.playground.report;
+
+/**
+ * Strategies of a ReportingPolicy deciding which sensor readings are published
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:25
+ */
+public enum ReportingMode {
+
+    //Every reading is published
+    ALWAYS,
+
+    //A reading is published when it moves outside the deadband around the last published value.
+    //Consumers reconstruct the signal holding the last received value
+    DEADBAND,
+
+    //Swinging door compression: a reading is published when the readings since the last published one can no
+    //longer be covered by a single line within the tolerance. Consumers reconstruct the signal interpolating
+    //linearly between the received values
+    SWINGING_DOOR
+
+}
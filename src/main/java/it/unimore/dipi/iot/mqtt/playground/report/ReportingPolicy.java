@@ -0,0 +1,97 @@
+package it.unimore.dipi.iot.mqtt.playground.report;
+
+/**
+ * Immutable configuration of a ReportByExceptionFilter: reporting mode, tolerance and heartbeat.
+ *
+ * The tolerance around a reference value (the last published one) is the largest between the absolute
+ * deadband and the percentage deadband of the reference. Consumers reconstructing the signal as described by the
+ * ReportingMode are within the tolerance of every suppressed reading. When maxSilenceMs is greater than 0
+ * a reading is published at least every maxSilenceMs even if the signal does not change (heartbeat),
+ * so that consumers can tell an idle sensor from a dead one.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:25
+ */
+public final class ReportingPolicy {
+
+    private static final ReportingPolicy ALWAYS = new ReportingPolicy(ReportingMode.ALWAYS, 0.0, 0.0, 0);
+
+    private final ReportingMode mode;
+
+    private final double absoluteDeadband;
+
+    private final double percentDeadband;
+
+    private final long maxSilenceMs;
+
+    /**
+     * @param mode reporting mode
+     * @param absoluteDeadband absolute tolerance (>= 0)
+     * @param percentDeadband tolerance as a percentage of the last published value (>= 0)
+     * @param maxSilenceMs maximum time without publishing a reading, 0 to disable the heartbeat
+     */
+    public ReportingPolicy(ReportingMode mode, double absoluteDeadband, double percentDeadband, long maxSilenceMs) {
+
+        if(!(absoluteDeadband >= 0.0) || !(percentDeadband >= 0.0))
+            throw new IllegalArgumentException("Deadbands must be >= 0");
+
+        if(maxSilenceMs < 0)
+            throw new IllegalArgumentException("maxSilenceMs must be >= 0");
+
+        this.mode = mode;
+        this.absoluteDeadband = absoluteDeadband;
+        this.percentDeadband = percentDeadband;
+        this.maxSilenceMs = maxSilenceMs;
+    }
+
+    /**
+     * @return the policy publishing every reading
+     */
+    public static ReportingPolicy always() {
+        return ALWAYS;
+    }
+
+    public static ReportingPolicy absoluteDeadband(double deadband, long maxSilenceMs) {
+        return new ReportingPolicy(ReportingMode.DEADBAND, deadband, 0.0, maxSilenceMs);
+    }
+
+    public static ReportingPolicy percentDeadband(double percent, long maxSilenceMs) {
+        return new ReportingPolicy(ReportingMode.DEADBAND, 0.0, percent, maxSilenceMs);
+    }
+
+    public static ReportingPolicy swingingDoor(double deviation, long maxSilenceMs) {
+        return new ReportingPolicy(ReportingMode.SWINGING_DOOR, deviation, 0.0, maxSilenceMs);
+    }
+
+    /**
+     * @param referenceValue last published value
+     * @return the maximum distance of a suppressed reading from the reconstructed signal
+     */
+    public double tolerance(double referenceValue) {
+        return Math.max(absoluteDeadband, Math.abs(referenceValue) * percentDeadband / 100.0);
+    }
+
+    public ReportingMode getMode() {
+        return mode;
+    }
+
+    public double getAbsoluteDeadband() {
+        return absoluteDeadband;
+    }
+
+    public double getPercentDeadband() {
+        return percentDeadband;
+    }
+
+    public long getMaxSilenceMs() {
+        return maxSilenceMs;
+    }
+
+    @Override
+    public String toString() {
+        return "ReportingPolicy [mode=" + mode + ", absoluteDeadband=" + absoluteDeadband + ", percentDeadband=" + percentDeadband
+                + ", maxSilenceMs=" + maxSilenceMs + "]";
+    }
+
+}
@@ -0,0 +1,86 @@
+package it.unimore.dipi.iot.mqtt.playground.report;
+
+/**
+ * Consumer side reconstruction of a signal published through a ReportByExceptionFilter.
+ *
+ * Received readings are added in timestamp order and the value of the signal at any time up to the last
+ * received reading is within the tolerance of the ReportingPolicy from the suppressed sensor readings:
+ * DEADBAND and ALWAYS signals hold the last received value, SWINGING_DOOR signals are interpolated linearly
+ * between the two received readings around the requested time. After the last received reading its value
+ * is held, since the readings still suppressed by the producer are not known yet.
+ * A reconstructor keeps only the last two readings and is not thread safe.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:25
+ */
+public class SignalReconstructor {
+
+    private final boolean interpolate;
+
+    private int count = 0;
+
+    private long previousTimestamp;
+
+    private double previousValue;
+
+    private long lastTimestamp;
+
+    private double lastValue;
+
+    /**
+     * @param mode reporting mode of the producer
+     */
+    public SignalReconstructor(ReportingMode mode) {
+        this.interpolate = mode == ReportingMode.SWINGING_DOOR;
+    }
+
+    /**
+     * Add a received reading. Readings older than the last one restart the reconstruction.
+     */
+    public void add(long timestamp, double value) {
+
+        if(count > 0 && timestamp <= lastTimestamp)
+            count = 0;
+
+        previousTimestamp = lastTimestamp;
+        previousValue = lastValue;
+        lastTimestamp = timestamp;
+        lastValue = value;
+        count = Math.min(count + 1, 2);
+    }
+
+    /**
+     * @return the reconstructed value at the requested time or NaN if no reading has been received or the time
+     * is before the reconstructed interval
+     */
+    public double valueAt(long timestamp) {
+
+        if(count == 0)
+            return Double.NaN;
+
+        if(timestamp >= lastTimestamp)
+            return lastValue;
+
+        if(count < 2 || timestamp < previousTimestamp)
+            return Double.NaN;
+
+        if(!interpolate)
+            return previousValue;
+
+        return previousValue + (lastValue - previousValue) * (timestamp - previousTimestamp) / (double) (lastTimestamp - previousTimestamp);
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public double getLastValue() {
+        return lastValue;
+    }
+
+}
@@ -0,0 +1,174 @@
+package it.unimore.dipi.iot.mqtt.playground.topic;
+
+/**
+ * Result of the match of a topic against a TopicTemplate, holding the offsets of each variable in the topic.
+ * Variables are returned as CharSequence views over the topic preallocated with the match, so that
+ * a TopicMatch reused by the same thread does not allocate. A TopicMatch is not thread safe.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:04
+ */
+public final class TopicMatch {
+
+    private final TopicTemplate template;
+
+    private final int[] starts;
+
+    private final int[] ends;
+
+    private final Segment[] segments;
+
+    private String topic;
+
+    private int tailStart = -1;
+
+    private boolean matched = false;
+
+    TopicMatch(TopicTemplate template) {
+
+        this.template = template;
+        this.starts = new int[template.getVariableCount()];
+        this.ends = new int[template.getVariableCount()];
+        this.segments = new Segment[template.getVariableCount()];
+
+        for(int v = 0; v < segments.length; v++)
+            segments[v] = new Segment(v);
+    }
+
+    void reset(String topic) {
+        this.topic = topic;
+        this.tailStart = -1;
+        this.matched = false;
+    }
+
+    void setVariable(int variable, int start, int end) {
+        starts[variable] = start;
+        ends[variable] = end;
+    }
+
+    void setTailStart(int tailStart) {
+        this.tailStart = tailStart;
+    }
+
+    boolean setMatched(boolean matched) {
+        this.matched = matched;
+        return matched;
+    }
+
+    private void checkMatched() {
+        if(!matched)
+            throw new IllegalStateException("The last topic did not match the template " + template + " !");
+    }
+
+    /**
+     * @param variable variable index (see TopicTemplate.variableIndex)
+     * @return a view over the value of the variable, valid until the next match
+     */
+    public CharSequence get(int variable) {
+        checkMatched();
+        return segments[variable];
+    }
+
+    /**
+     * @param name variable name
+     * @return a view over the value of the variable, valid until the next match
+     */
+    public CharSequence get(String name) {
+        return get(template.variableIndex(name));
+    }
+
+    /**
+     * @param variable variable index
+     * @return a new String with the value of the variable
+     */
+    public String getString(int variable) {
+        checkMatched();
+        return topic.substring(starts[variable], ends[variable]);
+    }
+
+    /**
+     * @param variable variable index
+     * @return the offset of the first char of the variable in the topic
+     */
+    public int start(int variable) {
+        checkMatched();
+        return starts[variable];
+    }
+
+    /**
+     * @param variable variable index
+     * @return the offset following the last char of the variable in the topic
+     */
+    public int end(int variable) {
+        checkMatched();
+        return ends[variable];
+    }
+
+    /**
+     * @param variable variable index
+     * @param value
+     * @return true if the variable is equal to the passed value, compared in place
+     */
+    public boolean contentEquals(int variable, String value) {
+        checkMatched();
+        int length = ends[variable] - starts[variable];
+        return value.length() == length && topic.regionMatches(starts[variable], value, 0, length);
+    }
+
+    /**
+     * @return the levels matched by the trailing # of the template (empty if none)
+     */
+    public String getTail() {
+        checkMatched();
+        return tailStart < 0 ? "" : topic.substring(tailStart);
+    }
+
+    public boolean isMatched() {
+        return matched;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public TopicTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * View over the value of a variable in the last matched topic
+     */
+    private final class Segment implements CharSequence {
+
+        private final int variable;
+
+        private Segment(int variable) {
+            this.variable = variable;
+        }
+
+        @Override
+        public int length() {
+            return ends[variable] - starts[variable];
+        }
+
+        @Override
+        public char charAt(int index) {
+            if(index < 0 || index >= length())
+                throw new IndexOutOfBoundsException("index: " + index);
+            return topic.charAt(starts[variable] + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return topic.subSequence(starts[variable] + start, starts[variable] + end);
+        }
+
+        @Override
+        public String toString() {
+            return topic.substring(starts[variable], ends[variable]);
+        }
+
+    }
+
+}
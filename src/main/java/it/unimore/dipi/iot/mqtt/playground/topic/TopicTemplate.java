@@ -0,0 +1,281 @@
+package it.unimore.dipi.iot.mqtt.playground.topic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Topic template made by literal levels and named variables occupying whole levels,
+ * e.g. device/{deviceId}/sensor/{type}. A trailing # level matches any number of further levels.
+ *
+ * The template is compiled once: producers expand it into the concrete topics to be cached (e.g. one per device),
+ * while consumers match the received topics into a reusable TopicMatch holding the offsets of the variables,
+ * without splitting the topic or allocating substrings.
+ *
+ * @author agent - agent@local
+ * @project mqtt-playground
+ * @created 18/10/2026 - 01:04
+ */
+public final class TopicTemplate {
+
+    private static final int LITERAL_LEVEL = 0;
+
+    private static final int VARIABLE_LEVEL = 1;
+
+    private static final int MULTI_LEVEL = 2;
+
+    private final String template;
+
+    //Kind of each level, with the literal text or the variable index
+    private final int[] levelKinds;
+
+    private final String[] levelLiterals;
+
+    private final int[] levelVariables;
+
+    private final String[] variableNames;
+
+    //Topic level of each variable
+    private final int[] variableLevels;
+
+    private TopicTemplate(String template, int[] levelKinds, String[] levelLiterals, int[] levelVariables, String[] variableNames, int[] variableLevels) {
+        this.template = template;
+        this.levelKinds = levelKinds;
+        this.levelLiterals = levelLiterals;
+        this.levelVariables = levelVariables;
+        this.variableNames = variableNames;
+        this.variableLevels = variableLevels;
+    }
+
+    /**
+     * @param template e.g. device/{deviceId}/sensor/{type} or device/{deviceId}/sensor/#
+     * @return the compiled template
+     * @throws IllegalArgumentException if variables do not occupy whole levels, are repeated,
+     *         the template contains + or # is not the last level
+     */
+    public static TopicTemplate compile(String template) {
+
+        if(template == null || template.isEmpty())
+            throw new IllegalArgumentException("Empty topic template");
+
+        String[] levels = template.split("/", -1);
+
+        int[] levelKinds = new int[levels.length];
+        String[] levelLiterals = new String[levels.length];
+        int[] levelVariables = new int[levels.length];
+        List<String> variableNameList = new ArrayList<>();
+        List<Integer> variableLevelList = new ArrayList<>();
+
+        for(int i = 0; i < levels.length; i++){
+
+            String level = levels[i];
+            levelVariables[i] = -1;
+
+            if(level.equals("#")){
+                if(i != levels.length - 1)
+                    throw new IllegalArgumentException("# must be the last level of the topic template: " + template);
+                levelKinds[i] = MULTI_LEVEL;
+            }
+            else if(level.startsWith("{") && level.endsWith("}") && level.length() > 2){
+
+                String name = level.substring(1, level.length() - 1);
+
+                if(!isValidLiteral(name) || name.indexOf('{') >= 0 || name.indexOf('}') >= 0)
+                    throw new IllegalArgumentException("Invalid variable name '" + name + "' in topic template: " + template);
+
+                if(variableNameList.contains(name))
+                    throw new IllegalArgumentException("Repeated variable '" + name + "' in topic template: " + template);
+
+                levelKinds[i] = VARIABLE_LEVEL;
+                levelVariables[i] = variableNameList.size();
+                variableNameList.add(name);
+                variableLevelList.add(i);
+            }
+            else{
+
+                if(!isValidLiteral(level) || level.indexOf('{') >= 0 || level.indexOf('}') >= 0)
+                    throw new IllegalArgumentException("Invalid level '" + level + "' in topic template: " + template);
+
+                levelKinds[i] = LITERAL_LEVEL;
+                levelLiterals[i] = level;
+            }
+        }
+
+        int[] variableLevels = new int[variableLevelList.size()];
+        for(int v = 0; v < variableLevels.length; v++)
+            variableLevels[v] = variableLevelList.get(v);
+
+        return new TopicTemplate(template, levelKinds, levelLiterals, levelVariables, variableNameList.toArray(new String[0]), variableLevels);
+    }
+
+    private static boolean isValidLiteral(String value) {
+        return value.indexOf('+') < 0 && value.indexOf('#') < 0 && value.indexOf('/') < 0;
+    }
+
+    /**
+     * Build the concrete topic replacing the variables with the passed values. The result is meant
+     * to be computed once and cached by the producers (e.g. for each device) instead of formatting the topic
+     * for each message.
+     *
+     * @param values one value for each variable in template order
+     * @return the concrete topic (without the trailing # level, if any)
+     */
+    public String expand(String... values) {
+
+        if(values.length != variableNames.length)
+            throw new IllegalArgumentException("Expected " + variableNames.length + " values for topic template " + template + " !");
+
+        StringBuilder sb = new StringBuilder(template.length() + 32);
+
+        for(int i = 0; i < levelKinds.length; i++){
+
+            if(levelKinds[i] == MULTI_LEVEL)
+                break;
+
+            if(i > 0)
+                sb.append('/');
+
+            if(levelKinds[i] == LITERAL_LEVEL)
+                sb.append(levelLiterals[i]);
+            else{
+                String value = values[levelVariables[i]];
+                if(value == null || !isValidLiteral(value))
+                    throw new IllegalArgumentException("Invalid value '" + value + "' for variable " + variableNames[levelVariables[i]] + " !");
+                sb.append(value);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @return the subscription filter matching the template, with + in place of the variables
+     */
+    public String toFilter() {
+
+        StringBuilder sb = new StringBuilder(template.length());
+
+        for(int i = 0; i < levelKinds.length; i++){
+
+            if(i > 0)
+                sb.append('/');
+
+            if(levelKinds[i] == LITERAL_LEVEL)
+                sb.append(levelLiterals[i]);
+            else if(levelKinds[i] == VARIABLE_LEVEL)
+                sb.append('+');
+            else
+                sb.append('#');
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @return a new TopicMatch to be reused by the same thread for the following match calls
+     */
+    public TopicMatch newMatch() {
+        return new TopicMatch(this);
+    }
+
+    /**
+     * Match the topic against the template storing the offsets of the variables into the passed TopicMatch.
+     * The comparison is performed in place on the topic and does not allocate.
+     *
+     * @param topic concrete topic name
+     * @param match TopicMatch created by this template through newMatch()
+     * @return true if the topic matches the template
+     */
+    public boolean match(String topic, TopicMatch match) {
+
+        if(match.getTemplate() != this)
+            throw new IllegalArgumentException("TopicMatch created by a different topic template !");
+
+        match.reset(topic);
+
+        int topicLength = topic.length();
+        int pos = 0;
+
+        for(int i = 0; i < levelKinds.length; i++){
+
+            if(levelKinds[i] == MULTI_LEVEL){
+                //"a/#" matches also the parent level "a"
+                match.setTailStart(i == 0 ? 0 : Math.min(pos + 1, topicLength));
+                return match.setMatched(true);
+            }
+
+            if(i > 0){
+                if(pos >= topicLength)
+                    return false;
+                //pos is on the separator ending the previous level
+                pos++;
+            }
+
+            int end = topic.indexOf('/', pos);
+            if(end < 0)
+                end = topicLength;
+
+            if(levelKinds[i] == LITERAL_LEVEL){
+                String literal = levelLiterals[i];
+                if(end - pos != literal.length() || !topic.regionMatches(pos, literal, 0, literal.length()))
+                    return false;
+            }
+            else
+                match.setVariable(levelVariables[i], pos, end);
+
+            pos = end;
+        }
+
+        return match.setMatched(pos == topicLength);
+    }
+
+    /**
+     * @param topic concrete topic name
+     * @return true if the topic matches the template
+     */
+    public boolean matches(String topic) {
+        return match(topic, newMatch());
+    }
+
+    /**
+     * @param name variable name
+     * @return the index of the variable or -1 if the template does not contain it
+     */
+    public int variableIndex(String name) {
+        for(int v = 0; v < variableNames.length; v++)
+            if(variableNames[v].equals(name))
+                return v;
+        return -1;
+    }
+
+    /**
+     * @param name variable name
+     * @return the zero-based topic level of the variable (e.g. to shard the messages on it)
+     */
+    public int levelOf(String name) {
+
+        int variable = variableIndex(name);
+
+        if(variable < 0)
+            throw new IllegalArgumentException("Variable " + name + " not found in topic template " + template + " !");
+
+        return variableLevels[variable];
+    }
+
+    public int getVariableCount() {
+        return variableNames.length;
+    }
+
+    public String getVariableName(int variable) {
+        return variableNames[variable];
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+}